@@ -1,6 +1,8 @@
 package com.gestionmotos;
 
 import com.gestionmotos.ui.LoginFrame;
+import com.gestionmotos.util.DatabaseConnection;
+import com.gestionmotos.util.MigrationRunner;
 
 import javax.swing.*;
 
@@ -21,10 +23,30 @@ public class Main {
             e.printStackTrace();
         }
         
+        // Las migraciones se aplican con MigrateDatabase; con db.migrations.autoRun se aplican aquí,
+        // antes de abrir ninguna ventana, para que la aplicación no use un esquema a medio migrar
+        if (Boolean.parseBoolean(DatabaseConnection.getInstance().getProperties()
+                .getProperty("db.migrations.autoRun", "false").trim())) {
+            aplicarMigraciones();
+        }
+        
         // Iniciar la aplicación en el hilo de eventos de Swing
         SwingUtilities.invokeLater(() -> {
             LoginFrame loginFrame = new LoginFrame();
             loginFrame.setVisible(true);
         });
     }
+    
+    /**
+     * Aplica las migraciones pendientes. Si fallan, la aplicación sigue funcionando con el
+     * esquema actual, solo que sin los índices ni las tablas de las migraciones que faltan.
+     */
+    private static void aplicarMigraciones() {
+        try {
+            System.out.println(new MigrationRunner().migrate());
+        } catch (Exception e) {
+            System.err.println("Error al aplicar las migraciones del esquema: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 }
\ No newline at end of file
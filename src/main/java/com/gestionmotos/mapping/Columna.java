@@ -0,0 +1,18 @@
+package com.gestionmotos.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Indica la columna de un campo cuando no coincide con el nombre del campo en snake_case.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface Columna {
+    /**
+     * @return Nombre de la columna
+     */
+    String value();
+}
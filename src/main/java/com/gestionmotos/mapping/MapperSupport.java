@@ -0,0 +1,64 @@
+package com.gestionmotos.mapping;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Lecturas de columnas que pueden ser NULL, usadas por los mappers generados para los campos
+ * de tipo envoltorio ({@code Integer}, {@code Double}...) y enumerados.
+ */
+public final class MapperSupport {
+
+    private MapperSupport() {
+    }
+
+    public static Integer intOrNull(ResultSet rs, int columna) throws SQLException {
+        int valor = rs.getInt(columna);
+        return rs.wasNull() ? null : valor;
+    }
+
+    public static Long longOrNull(ResultSet rs, int columna) throws SQLException {
+        long valor = rs.getLong(columna);
+        return rs.wasNull() ? null : valor;
+    }
+
+    public static Short shortOrNull(ResultSet rs, int columna) throws SQLException {
+        short valor = rs.getShort(columna);
+        return rs.wasNull() ? null : valor;
+    }
+
+    public static Byte byteOrNull(ResultSet rs, int columna) throws SQLException {
+        byte valor = rs.getByte(columna);
+        return rs.wasNull() ? null : valor;
+    }
+
+    public static Double doubleOrNull(ResultSet rs, int columna) throws SQLException {
+        double valor = rs.getDouble(columna);
+        return rs.wasNull() ? null : valor;
+    }
+
+    public static Float floatOrNull(ResultSet rs, int columna) throws SQLException {
+        float valor = rs.getFloat(columna);
+        return rs.wasNull() ? null : valor;
+    }
+
+    public static Boolean booleanOrNull(ResultSet rs, int columna) throws SQLException {
+        boolean valor = rs.getBoolean(columna);
+        return rs.wasNull() ? null : valor;
+    }
+
+    /**
+     * @return La constante con el nombre guardado en la columna, o null si la columna es NULL
+     * @throws SQLException Si el valor no es una constante del enumerado
+     */
+    public static <E extends Enum<E>> E enumOrNull(Class<E> tipo, String valor) throws SQLException {
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(tipo, valor);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Valor no válido para " + tipo.getSimpleName() + ": " + valor, e);
+        }
+    }
+}
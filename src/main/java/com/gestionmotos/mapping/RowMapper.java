@@ -0,0 +1,61 @@
+package com.gestionmotos.mapping;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Convierte filas de un {@link ResultSet} en entidades.
+ * <p>
+ * Las implementaciones se generan al compilar para cada clase con {@link Tabla}: leen las
+ * columnas por posición, en el orden de {@link #getColumnas()}, y llaman directamente al
+ * constructor y los setters, sin reflexión. Las consultas deben seleccionar exactamente esas
+ * columnas en ese orden, por ejemplo con la constante {@code SELECT} del mapper generado.
+ * @param <T> Tipo de entidad
+ */
+public interface RowMapper<T> {
+
+    /**
+     * @return Nombre de la tabla
+     */
+    String getTabla();
+
+    /**
+     * @return Columnas que se leen, separadas por comas, en el orden en que se leen
+     */
+    String getColumnas();
+
+    /**
+     * @return Número de columnas que se leen
+     */
+    int getNumeroColumnas();
+
+    /**
+     * Convierte la fila actual.
+     * @param rs El resultado, posicionado en la fila
+     * @param desde Posición (desde 1) de la primera columna de la entidad
+     * @return La entidad
+     */
+    T map(ResultSet rs, int desde) throws SQLException;
+
+    /**
+     * Convierte la fila actual de una consulta que empieza por las columnas de la entidad.
+     */
+    default T map(ResultSet rs) throws SQLException {
+        return map(rs, 1);
+    }
+
+    /**
+     * @param alias Alias de la tabla en la consulta
+     * @return Las columnas con el alias delante, por ejemplo para un JOIN
+     */
+    default String getColumnas(String alias) {
+        StringBuilder columnas = new StringBuilder();
+        for (String columna : getColumnas().split(", ")) {
+            if (columnas.length() > 0) {
+                columnas.append(", ");
+            }
+            columnas.append(alias).append('.').append(columna);
+        }
+        return columnas.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package com.gestionmotos.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca una clase del modelo como fila de una tabla. Al compilar se genera
+ * {@code <Clase>RowMapper} en el mismo paquete (ver {@link RowMapper}).
+ * <p>
+ * Se mapean todos los campos que no son {@code static} ni {@code transient}, en orden de
+ * declaración; la columna es {@link Columna#value()} o el nombre del campo en snake_case.
+ * La clase necesita un constructor sin argumentos y un setter (o acceso de paquete) por campo.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Tabla {
+    /**
+     * @return Nombre de la tabla
+     */
+    String value();
+}
@@ -0,0 +1,327 @@
+package com.gestionmotos.mapping.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Genera {@code <Clase>RowMapper} para cada clase anotada con
+ * {@link com.gestionmotos.mapping.Tabla}.
+ * <p>
+ * Se compila antes que el resto del proyecto (ver la ejecución {@code default-compile} del
+ * pom.xml) y se ejecuta al compilar el resto. Los errores de mapeo (un tipo no admitido, un campo
+ * privado sin setter...) se informan como errores de compilación en el campo correspondiente.
+ */
+@SupportedAnnotationTypes(RowMapperProcessor.TABLA)
+public class RowMapperProcessor extends AbstractProcessor {
+    static final String TABLA = "com.gestionmotos.mapping.Tabla";
+    private static final String COLUMNA = "com.gestionmotos.mapping.Columna";
+
+    // Método de ResultSet para cada tipo de campo; los tipos envoltorio comprueban wasNull()
+    private static final Map<String, String> GETTERS = new HashMap<>();
+
+    static {
+        GETTERS.put("int", "getInt");
+        GETTERS.put("long", "getLong");
+        GETTERS.put("short", "getShort");
+        GETTERS.put("byte", "getByte");
+        GETTERS.put("double", "getDouble");
+        GETTERS.put("float", "getFloat");
+        GETTERS.put("boolean", "getBoolean");
+        GETTERS.put("java.lang.String", "getString");
+        GETTERS.put("java.math.BigDecimal", "getBigDecimal");
+        GETTERS.put("java.sql.Timestamp", "getTimestamp");
+        GETTERS.put("java.sql.Date", "getDate");
+        GETTERS.put("java.sql.Time", "getTime");
+        GETTERS.put("byte[]", "getBytes");
+    }
+
+    private static final Map<String, String> ENVOLTORIOS = new HashMap<>();
+
+    static {
+        ENVOLTORIOS.put("java.lang.Integer", "getInt");
+        ENVOLTORIOS.put("java.lang.Long", "getLong");
+        ENVOLTORIOS.put("java.lang.Short", "getShort");
+        ENVOLTORIOS.put("java.lang.Byte", "getByte");
+        ENVOLTORIOS.put("java.lang.Double", "getDouble");
+        ENVOLTORIOS.put("java.lang.Float", "getFloat");
+        ENVOLTORIOS.put("java.lang.Boolean", "getBoolean");
+    }
+
+    /**
+     * Un campo mapeado a una columna.
+     */
+    private static final class Campo {
+        final VariableElement elemento;
+        final String columna;
+        // Expresión que lee la columna, con %s en lugar de la posición
+        final String lectura;
+        final String setter;
+
+        Campo(VariableElement elemento, String columna, String lectura, String setter) {
+            this.elemento = elemento;
+            this.columna = columna;
+            this.lectura = lectura;
+            this.setter = setter;
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement tabla = processingEnv.getElementUtils().getTypeElement(TABLA);
+        if (tabla == null) {
+            return false;
+        }
+        for (Element elemento : roundEnv.getElementsAnnotatedWith(tabla)) {
+            if (elemento.getKind() != ElementKind.CLASS) {
+                error(elemento, "@Tabla solo puede usarse en clases");
+                continue;
+            }
+            generar((TypeElement) elemento);
+        }
+        return true;
+    }
+
+    private void generar(TypeElement clase) {
+        String nombreTabla = valor(clase, TABLA);
+        if (!tieneConstructorSinArgumentos(clase)) {
+            error(clase, "La clase necesita un constructor sin argumentos accesible desde su paquete");
+            return;
+        }
+
+        List<Campo> campos = new ArrayList<>();
+        boolean valido = true;
+        for (VariableElement campo : ElementFilter.fieldsIn(clase.getEnclosedElements())) {
+            Set<Modifier> mods = campo.getModifiers();
+            if (mods.contains(Modifier.STATIC) || mods.contains(Modifier.TRANSIENT)) {
+                continue;
+            }
+            String lectura = lectura(campo.asType());
+            if (lectura == null) {
+                error(campo, "Tipo no admitido para mapear una columna: " + campo.asType());
+                valido = false;
+                continue;
+            }
+            String setter = setter(clase, campo);
+            if (setter == null && mods.contains(Modifier.PRIVATE)) {
+                error(campo, "El campo es privado y no tiene setter");
+                valido = false;
+                continue;
+            }
+            String columna = valor(campo, COLUMNA);
+            campos.add(new Campo(campo, columna != null ? columna : snakeCase(campo.getSimpleName().toString()),
+                    lectura, setter));
+        }
+        if (!valido) {
+            return;
+        }
+        if (campos.isEmpty()) {
+            error(clase, "La clase no tiene campos que mapear");
+            return;
+        }
+
+        PackageElement paquete = processingEnv.getElementUtils().getPackageOf(clase);
+        String nombrePaquete = paquete.isUnnamed() ? "" : paquete.getQualifiedName().toString();
+        String entidad = clase.getSimpleName().toString();
+        String mapper = entidad + "RowMapper";
+        try {
+            JavaFileObject archivo = processingEnv.getFiler().createSourceFile(
+                    (nombrePaquete.isEmpty() ? "" : nombrePaquete + ".") + mapper, clase);
+            try (Writer out = archivo.openWriter()) {
+                escribir(out, nombrePaquete, entidad, mapper, nombreTabla, campos);
+            }
+        } catch (IOException e) {
+            error(clase, "No se pudo generar " + mapper + ": " + e.getMessage());
+        }
+    }
+
+    private static void escribir(Writer out, String paquete, String entidad, String mapper, String tabla,
+                                 List<Campo> campos) throws IOException {
+        StringBuilder columnas = new StringBuilder();
+        for (Campo campo : campos) {
+            if (columnas.length() > 0) {
+                columnas.append(", ");
+            }
+            columnas.append(campo.columna);
+        }
+
+        StringBuilder src = new StringBuilder();
+        if (!paquete.isEmpty()) {
+            src.append("package ").append(paquete).append(";\n\n");
+        }
+        src.append("import com.gestionmotos.mapping.RowMapper;\n\n")
+                .append("import java.sql.ResultSet;\n")
+                .append("import java.sql.SQLException;\n\n")
+                .append("/**\n")
+                .append(" * Convierte filas de la tabla ").append(tabla).append(" en {@link ").append(entidad)
+                .append("}.\n")
+                .append(" * Generado por RowMapperProcessor a partir de ").append(entidad).append("; no editar.\n")
+                .append(" */\n")
+                .append("@javax.annotation.processing.Generated(\"").append(RowMapperProcessor.class.getName())
+                .append("\")\n")
+                .append("public final class ").append(mapper).append(" implements RowMapper<").append(entidad)
+                .append("> {\n")
+                .append("    /** Nombre de la tabla. */\n")
+                .append("    public static final String TABLE = \"").append(tabla).append("\";\n")
+                .append("    /** Columnas que lee {@link #map(ResultSet, int)}, en orden. */\n")
+                .append("    public static final String COLUMNS = \"").append(columnas).append("\";\n")
+                .append("    /** Consulta de todas las filas, a la que se añade WHERE, ORDER BY... */\n")
+                .append("    public static final String SELECT = \"SELECT ").append(columnas).append(" FROM ")
+                .append(tabla).append("\";\n")
+                .append("    public static final ").append(mapper).append(" INSTANCE = new ").append(mapper)
+                .append("();\n\n")
+                .append("    private ").append(mapper).append("() {\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public String getTabla() {\n")
+                .append("        return TABLE;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public String getColumnas() {\n")
+                .append("        return COLUMNS;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public int getNumeroColumnas() {\n")
+                .append("        return ").append(campos.size()).append(";\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public ").append(entidad).append(" map(ResultSet rs, int desde) throws SQLException {\n")
+                .append("        ").append(entidad).append(" entidad = new ").append(entidad).append("();\n");
+        for (int i = 0; i < campos.size(); i++) {
+            Campo campo = campos.get(i);
+            String posicion = i == 0 ? "desde" : "desde + " + i;
+            String valor = String.format(campo.lectura, posicion);
+            if (campo.setter != null) {
+                src.append("        entidad.").append(campo.setter).append('(').append(valor).append(");\n");
+            } else {
+                src.append("        entidad.").append(campo.elemento.getSimpleName()).append(" = ").append(valor)
+                        .append(";\n");
+            }
+        }
+        src.append("        return entidad;\n")
+                .append("    }\n")
+                .append("}\n");
+        out.write(src.toString());
+    }
+
+    /**
+     * @return Expresión que lee una columna del tipo indicado, o null si el tipo no se admite
+     */
+    private String lectura(TypeMirror tipo) {
+        String nombre = tipo.toString();
+        String getter = GETTERS.get(nombre);
+        if (getter != null) {
+            return "rs." + getter + "(%s)";
+        }
+        getter = ENVOLTORIOS.get(nombre);
+        if (getter != null) {
+            return "com.gestionmotos.mapping.MapperSupport." + getter.substring(3).toLowerCase(Locale.ROOT) + "OrNull(rs, %s)";
+        }
+        if (nombre.equals("java.time.LocalDateTime") || nombre.equals("java.time.LocalDate")) {
+            return "rs.getObject(%s, " + nombre + ".class)";
+        }
+        if (tipo.getKind() == TypeKind.DECLARED) {
+            Element elemento = processingEnv.getTypeUtils().asElement(tipo);
+            if (elemento.getKind() == ElementKind.ENUM) {
+                return "com.gestionmotos.mapping.MapperSupport.enumOrNull(" + nombre + ".class, rs.getString(%s))";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Nombre del setter accesible desde el paquete de la clase, o null si no existe
+     */
+    private String setter(TypeElement clase, VariableElement campo) {
+        String nombre = campo.getSimpleName().toString();
+        String setter = "set" + Character.toUpperCase(nombre.charAt(0)) + nombre.substring(1);
+        for (ExecutableElement metodo : ElementFilter.methodsIn(clase.getEnclosedElements())) {
+            if (metodo.getSimpleName().contentEquals(setter)
+                    && !metodo.getModifiers().contains(Modifier.PRIVATE)
+                    && !metodo.getModifiers().contains(Modifier.STATIC)
+                    && metodo.getParameters().size() == 1
+                    && processingEnv.getTypeUtils().isSameType(metodo.getParameters().get(0).asType(),
+                            campo.asType())) {
+                return setter;
+            }
+        }
+        return null;
+    }
+
+    private static boolean tieneConstructorSinArgumentos(TypeElement clase) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(clase.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return El atributo value de la anotación indicada, o null si el elemento no la tiene
+     */
+    private static String valor(Element elemento, String anotacion) {
+        for (AnnotationMirror mirror : elemento.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(anotacion)) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                        : mirror.getElementValues().entrySet()) {
+                    if (entry.getKey().getSimpleName().contentEquals("value")) {
+                        return (String) entry.getValue().getValue();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Convierte un nombre de campo a columna: fechaRegistro pasa a fecha_registro.
+     */
+    static String snakeCase(String nombre) {
+        StringBuilder columna = new StringBuilder(nombre.length() + 4);
+        for (int i = 0; i < nombre.length(); i++) {
+            char c = nombre.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0) {
+                    columna.append('_');
+                }
+                columna.append(Character.toLowerCase(c));
+            } else {
+                columna.append(c);
+            }
+        }
+        return columna.toString();
+    }
+
+    private void error(Element elemento, String mensaje) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, mensaje, elemento);
+    }
+}
@@ -1,8 +1,11 @@
 package com.gestionmotos.model;
 
+import com.gestionmotos.mapping.Tabla;
+
 /**
  * Clase que representa una motocicleta en el sistema.
  */
+@Tabla("motocicletas")
 public class Motocicleta {
     private int id;
     private String marca;
@@ -1,8 +1,11 @@
 package com.gestionmotos.model;
 
+import com.gestionmotos.mapping.Tabla;
+
 /**
  * Clase que representa un usuario del sistema.
  */
+@Tabla("usuarios")
 public class Usuario {
     private int id;
     private String username;
@@ -0,0 +1,232 @@
+package com.gestionmotos.repository;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.util.AsyncExecutor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Versión asíncrona de {@link MotocicletaRepository}.
+ * Cada método ejecuta la operación del repositorio en un {@link AsyncExecutor}
+ * y devuelve un {@link CompletableFuture}, lo que permite lanzar varias consultas
+ * a la vez y combinar sus resultados:
+ * <pre>
+ * CompletableFuture&lt;List&lt;Motocicleta&gt;&gt; porMarca = async.findByMarca("Honda");
+ * CompletableFuture&lt;List&lt;Motocicleta&gt;&gt; baratas = async.findByPrecioMaximo(5000);
+ * porMarca.thenCombine(baratas, (a, b) -&gt; ...);
+ * </pre>
+ * Los métodos de streaming no tienen versión asíncrona porque el stream mantiene
+ * la conexión abierta mientras se consume; para ellos se usa el repositorio síncrono.
+ */
+public class AsyncMotocicletaRepository {
+    private final MotocicletaRepository repository;
+    private final AsyncExecutor executor;
+    private final long timeoutMs;
+
+    /**
+     * Crea el repositorio asíncrono sobre el repositorio JDBC y el ejecutor compartido.
+     */
+    public AsyncMotocicletaRepository() {
+        this(new MotocicletaRepositoryImpl(), AsyncExecutor.getInstance());
+    }
+
+    /**
+     * Crea el repositorio asíncrono.
+     * @param repository Repositorio síncrono que ejecuta las operaciones
+     * @param executor Ejecutor en el que corren las operaciones
+     */
+    public AsyncMotocicletaRepository(MotocicletaRepository repository, AsyncExecutor executor) {
+        this(repository, executor, executor.getDefaultTimeoutMs());
+    }
+
+    private AsyncMotocicletaRepository(MotocicletaRepository repository, AsyncExecutor executor, long timeoutMs) {
+        this.repository = repository;
+        this.executor = executor;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Devuelve una vista de este repositorio con otro tiempo máximo por operación.
+     * @param timeout Tiempo máximo (0 = sin límite)
+     * @param unit Unidad del tiempo máximo
+     * @return El repositorio con el nuevo tiempo máximo
+     */
+    public AsyncMotocicletaRepository withTimeout(long timeout, TimeUnit unit) {
+        return new AsyncMotocicletaRepository(repository, executor, unit.toMillis(timeout));
+    }
+
+    /**
+     * @return El repositorio síncrono subyacente
+     */
+    public MotocicletaRepository getRepository() {
+        return repository;
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> operacion) {
+        return executor.supply(operacion, timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @see MotocicletaRepository#save(Object)
+     */
+    public CompletableFuture<Motocicleta> save(Motocicleta moto) {
+        return supply(() -> repository.save(moto));
+    }
+
+    /**
+     * @see MotocicletaRepository#update(Object)
+     */
+    public CompletableFuture<Boolean> update(Motocicleta moto) {
+        return supply(() -> repository.update(moto));
+    }
+
+    /**
+     * @see MotocicletaRepository#deleteById(Object)
+     */
+    public CompletableFuture<Boolean> deleteById(Integer id) {
+        return supply(() -> repository.deleteById(id));
+    }
+
+    /**
+     * @see MotocicletaRepository#findById(Object)
+     */
+    public CompletableFuture<Optional<Motocicleta>> findById(Integer id) {
+        return supply(() -> repository.findById(id));
+    }
+
+    /**
+     * @see MotocicletaRepository#findAllById(Collection)
+     */
+    public CompletableFuture<List<Motocicleta>> findAllById(Collection<Integer> ids) {
+        return supply(() -> repository.findAllById(ids));
+    }
+
+    /**
+     * @see MotocicletaRepository#findAll()
+     */
+    public CompletableFuture<List<Motocicleta>> findAll() {
+        return supply(repository::findAll);
+    }
+
+    /**
+     * @see MotocicletaRepository#findPage(Object, int)
+     */
+    public CompletableFuture<List<Motocicleta>> findPage(Integer afterId, int limit) {
+        return supply(() -> repository.findPage(afterId, limit));
+    }
+
+    /**
+     * @see MotocicletaRepository#findByMarca(String)
+     */
+    public CompletableFuture<List<Motocicleta>> findByMarca(String marca) {
+        return supply(() -> repository.findByMarca(marca));
+    }
+
+    /**
+     * @see MotocicletaRepository#findByMarcaFuzzy(String, int)
+     */
+    public CompletableFuture<List<Motocicleta>> findByMarcaFuzzy(String marca, int maxDistance) {
+        return supply(() -> repository.findByMarcaFuzzy(marca, maxDistance));
+    }
+
+    /**
+     * @see MotocicletaRepository#findByColor(String)
+     */
+    public CompletableFuture<List<Motocicleta>> findByColor(String color) {
+        return supply(() -> repository.findByColor(color));
+    }
+
+    /**
+     * @see MotocicletaRepository#findByCriteria(MotocicletaCriteria)
+     */
+    public CompletableFuture<List<Motocicleta>> findByCriteria(MotocicletaCriteria criteria) {
+        return supply(() -> repository.findByCriteria(criteria));
+    }
+
+    /**
+     * @see MotocicletaRepository#findEstadisticas(MotocicletaCriteria, MotocicletaAgrupacion, int)
+     */
+    public CompletableFuture<List<EstadisticaGrupo>> findEstadisticas(MotocicletaCriteria filtro,
+                                                                      MotocicletaAgrupacion agrupacion,
+                                                                      int anchoCilindraje) {
+        return supply(() -> repository.findEstadisticas(filtro, agrupacion, anchoCilindraje));
+    }
+
+    /**
+     * @see MotocicletaRepository#findByPrecioMaximo(double)
+     */
+    public CompletableFuture<List<Motocicleta>> findByPrecioMaximo(double precio) {
+        return supply(() -> repository.findByPrecioMaximo(precio));
+    }
+
+    /**
+     * @see MotocicletaRepository#findByCilindrajeRango(int, int)
+     */
+    public CompletableFuture<List<Motocicleta>> findByCilindrajeRango(int min, int max) {
+        return supply(() -> repository.findByCilindrajeRango(min, max));
+    }
+
+    /**
+     * @see MotocicletaRepository#saveAll(Collection)
+     */
+    public CompletableFuture<BatchResult> saveAll(Collection<Motocicleta> motos) {
+        return supply(() -> repository.saveAll(motos));
+    }
+
+    /**
+     * @see MotocicletaRepository#updateAll(Collection)
+     */
+    public CompletableFuture<BatchResult> updateAll(Collection<Motocicleta> motos) {
+        return supply(() -> repository.updateAll(motos));
+    }
+
+    /**
+     * @see MotocicletaRepository#deleteAllById(Collection)
+     */
+    public CompletableFuture<BatchResult> deleteAllById(Collection<Integer> ids) {
+        return supply(() -> repository.deleteAllById(ids));
+    }
+
+    /**
+     * @see MotocicletaRepository#findPage(PageCursor, int, MotocicletaSort)
+     */
+    public CompletableFuture<Page<Motocicleta>> findPage(PageCursor after, int limit, MotocicletaSort sort) {
+        return supply(() -> repository.findPage(after, limit, sort));
+    }
+
+    /**
+     * @see MotocicletaRepository#findPageByMarca(String, PageCursor, int, MotocicletaSort)
+     */
+    public CompletableFuture<Page<Motocicleta>> findPageByMarca(String marca, PageCursor after, int limit,
+                                                                MotocicletaSort sort) {
+        return supply(() -> repository.findPageByMarca(marca, after, limit, sort));
+    }
+
+    /**
+     * @see MotocicletaRepository#findPageByPrecioMaximo(double, PageCursor, int, MotocicletaSort)
+     */
+    public CompletableFuture<Page<Motocicleta>> findPageByPrecioMaximo(double precio, PageCursor after, int limit,
+                                                                       MotocicletaSort sort) {
+        return supply(() -> repository.findPageByPrecioMaximo(precio, after, limit, sort));
+    }
+
+    /**
+     * @see MotocicletaRepository#findPageByCilindrajeRango(int, int, PageCursor, int, MotocicletaSort)
+     */
+    public CompletableFuture<Page<Motocicleta>> findPageByCilindrajeRango(int min, int max, PageCursor after,
+                                                                          int limit, MotocicletaSort sort) {
+        return supply(() -> repository.findPageByCilindrajeRango(min, max, after, limit, sort));
+    }
+
+    /**
+     * @see MotocicletaRepository#findAllIds()
+     */
+    public CompletableFuture<int[]> findAllIds() {
+        return supply(repository::findAllIds);
+    }
+}
@@ -0,0 +1,130 @@
+package com.gestionmotos.repository;
+
+import com.gestionmotos.model.Usuario;
+import com.gestionmotos.util.AsyncExecutor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Versión asíncrona de {@link UsuarioRepository}.
+ * Cada método ejecuta la operación del repositorio en un {@link AsyncExecutor}
+ * y devuelve un {@link CompletableFuture}. Es útil sobre todo para {@link #authenticate},
+ * cuya verificación BCrypt es costosa.
+ */
+public class AsyncUsuarioRepository {
+    private final UsuarioRepository repository;
+    private final AsyncExecutor executor;
+    private final long timeoutMs;
+
+    /**
+     * Crea el repositorio asíncrono sobre el repositorio de usuarios de la aplicación
+     * ({@link CachingUsuarioRepository#compartido()}) y el ejecutor compartido.
+     */
+    public AsyncUsuarioRepository() {
+        this(CachingUsuarioRepository.compartido(), AsyncExecutor.getInstance());
+    }
+
+    /**
+     * Crea el repositorio asíncrono.
+     * @param repository Repositorio síncrono que ejecuta las operaciones
+     * @param executor Ejecutor en el que corren las operaciones
+     */
+    public AsyncUsuarioRepository(UsuarioRepository repository, AsyncExecutor executor) {
+        this(repository, executor, executor.getDefaultTimeoutMs());
+    }
+
+    private AsyncUsuarioRepository(UsuarioRepository repository, AsyncExecutor executor, long timeoutMs) {
+        this.repository = repository;
+        this.executor = executor;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Devuelve una vista de este repositorio con otro tiempo máximo por operación.
+     * @param timeout Tiempo máximo (0 = sin límite)
+     * @param unit Unidad del tiempo máximo
+     * @return El repositorio con el nuevo tiempo máximo
+     */
+    public AsyncUsuarioRepository withTimeout(long timeout, TimeUnit unit) {
+        return new AsyncUsuarioRepository(repository, executor, unit.toMillis(timeout));
+    }
+
+    /**
+     * @return El repositorio síncrono subyacente
+     */
+    public UsuarioRepository getRepository() {
+        return repository;
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> operacion) {
+        return executor.supply(operacion, timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @see UsuarioRepository#save(Object)
+     */
+    public CompletableFuture<Usuario> save(Usuario usuario) {
+        return supply(() -> repository.save(usuario));
+    }
+
+    /**
+     * @see UsuarioRepository#update(Object)
+     */
+    public CompletableFuture<Boolean> update(Usuario usuario) {
+        return supply(() -> repository.update(usuario));
+    }
+
+    /**
+     * @see UsuarioRepository#deleteById(Object)
+     */
+    public CompletableFuture<Boolean> deleteById(Integer id) {
+        return supply(() -> repository.deleteById(id));
+    }
+
+    /**
+     * @see UsuarioRepository#findById(Object)
+     */
+    public CompletableFuture<Optional<Usuario>> findById(Integer id) {
+        return supply(() -> repository.findById(id));
+    }
+
+    /**
+     * @see UsuarioRepository#findAllById(Collection)
+     */
+    public CompletableFuture<List<Usuario>> findAllById(Collection<Integer> ids) {
+        return supply(() -> repository.findAllById(ids));
+    }
+
+    /**
+     * @see UsuarioRepository#findAll()
+     */
+    public CompletableFuture<List<Usuario>> findAll() {
+        return supply(repository::findAll);
+    }
+
+    /**
+     * @see UsuarioRepository#findPage(Object, int)
+     */
+    public CompletableFuture<List<Usuario>> findPage(Integer afterId, int limit) {
+        return supply(() -> repository.findPage(afterId, limit));
+    }
+
+    /**
+     * @see UsuarioRepository#findByUsername(String)
+     */
+    public CompletableFuture<Optional<Usuario>> findByUsername(String username) {
+        return supply(() -> repository.findByUsername(username));
+    }
+
+    /**
+     * @see UsuarioRepository#authenticate(String, String)
+     */
+    public CompletableFuture<Optional<Usuario>> authenticate(String username, String password) {
+        return supply(() -> repository.authenticate(username, password));
+    }
+}
@@ -0,0 +1,92 @@
+package com.gestionmotos.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de una operación masiva (inserción, actualización o eliminación por lotes).
+ * Indica cuántas filas se escribieron y cuánto tardó cada lote enviado a la base de datos.
+ */
+public class BatchResult {
+    private final List<Long> chunkNanos = new ArrayList<>();
+    private int rowsAffected;
+    private boolean success = true;
+    private String errorMessage;
+    
+    /**
+     * Registra un lote ejecutado.
+     * @param rows Filas escritas por el lote
+     * @param nanos Duración del lote en nanosegundos
+     */
+    public void addChunk(int rows, long nanos) {
+        rowsAffected += rows;
+        chunkNanos.add(nanos);
+    }
+    
+    /**
+     * Marca la operación como fallida. Como todo se ejecuta en una única
+     * transacción, ninguna fila queda escrita.
+     * @param errorMessage Descripción del error
+     */
+    public void markFailed(String errorMessage) {
+        this.success = false;
+        this.errorMessage = errorMessage;
+        this.rowsAffected = 0;
+    }
+    
+    /**
+     * @return Número total de filas escritas
+     */
+    public int getRowsAffected() {
+        return rowsAffected;
+    }
+    
+    /**
+     * @return Número de lotes enviados
+     */
+    public int getChunkCount() {
+        return chunkNanos.size();
+    }
+    
+    /**
+     * @return Duración de cada lote en milisegundos, en el orden en que se enviaron
+     */
+    public List<Double> getChunkMillis() {
+        List<Double> millis = new ArrayList<>(chunkNanos.size());
+        for (long nanos : chunkNanos) {
+            millis.add(nanos / 1_000_000.0);
+        }
+        return Collections.unmodifiableList(millis);
+    }
+    
+    /**
+     * @return Suma de la duración de todos los lotes en milisegundos
+     */
+    public double getTotalMillis() {
+        long total = 0;
+        for (long nanos : chunkNanos) {
+            total += nanos;
+        }
+        return total / 1_000_000.0;
+    }
+    
+    public boolean isSuccess() {
+        return success;
+    }
+    
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+    
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+               "exito=" + success +
+               ", filas=" + rowsAffected +
+               ", lotes=" + getChunkCount() +
+               ", totalMs=" + String.format("%.1f", getTotalMillis()) +
+               (errorMessage != null ? ", error='" + errorMessage + '\'' : "") +
+               '}';
+    }
+}
@@ -0,0 +1,160 @@
+package com.gestionmotos.repository;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.util.DatabaseConnection;
+import com.gestionmotos.util.EntityCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorador que guarda en una {@link EntityCache} las motocicletas leídas con {@link #findById}.
+ * <p>
+ * Las escrituras se envían al repositorio decorado e invalidan las entradas afectadas, y
+ * {@link #findCambiosDesde} invalida las motocicletas que cambiaron otros clientes.
+ * La caché guarda copias y entrega copias, de modo que modificar una motocicleta
+ * obtenida (aquí o en el repositorio decorado) no altera la versión en caché.
+ */
+public class CachingMotocicletaRepository extends ForwardingMotocicletaRepository {
+    // Valores por defecto si no se configuran en config.properties
+    private static final int DEFAULT_MAX_SIZE = 10_000;
+    private static final int DEFAULT_TTL_MS = 300_000;
+
+    private final EntityCache<Integer, Motocicleta> cache;
+
+    /**
+     * Crea el decorador con la configuración cache.entity.maxSize y cache.entity.ttlMs.
+     * @param delegate Repositorio decorado
+     */
+    public CachingMotocicletaRepository(MotocicletaRepository delegate) {
+        this(delegate, new EntityCache<>(
+                DatabaseConnection.getInstance().getIntProperty("cache.entity.maxSize", DEFAULT_MAX_SIZE),
+                DatabaseConnection.getInstance().getIntProperty("cache.entity.ttlMs", DEFAULT_TTL_MS),
+                TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Crea el decorador con una caché propia.
+     * @param delegate Repositorio decorado
+     * @param cache Caché de motocicletas por ID
+     */
+    public CachingMotocicletaRepository(MotocicletaRepository delegate, EntityCache<Integer, Motocicleta> cache) {
+        super(delegate);
+        this.cache = cache;
+    }
+
+    /**
+     * @return La caché, por ejemplo para consultar sus estadísticas
+     */
+    public EntityCache<Integer, Motocicleta> getCache() {
+        return cache;
+    }
+
+    @Override
+    public Optional<Motocicleta> findById(Integer id) {
+        Motocicleta moto = cache.get(id, key -> delegate.findById(key).map(CachingMotocicletaRepository::copy)
+                                                       .orElse(null));
+        return Optional.ofNullable(moto).map(CachingMotocicletaRepository::copy);
+    }
+
+    /**
+     * Busca varias motocicletas: las que están en la caché no se consultan y las demás
+     * se piden al repositorio decorado en una sola llamada.
+     */
+    @Override
+    public List<Motocicleta> findAllById(Collection<Integer> ids) {
+        Map<Integer, Motocicleta> encontradas = cache.getAll(ids, faltan -> {
+            List<Motocicleta> cargadas = new ArrayList<>();
+            for (Motocicleta moto : delegate.findAllById(faltan)) {
+                cargadas.add(copy(moto));
+            }
+            return cargadas;
+        }, Motocicleta::getId);
+        List<Motocicleta> motos = new ArrayList<>(encontradas.size());
+        for (Motocicleta moto : encontradas.values()) {
+            motos.add(copy(moto));
+        }
+        return motos;
+    }
+
+    @Override
+    public Motocicleta save(Motocicleta moto) {
+        Motocicleta guardada = delegate.save(moto);
+        if (guardada.getId() != 0) {
+            cache.invalidate(guardada.getId());
+        }
+        return guardada;
+    }
+
+    @Override
+    public boolean update(Motocicleta moto) {
+        try {
+            return delegate.update(moto);
+        } finally {
+            cache.invalidate(moto.getId());
+        }
+    }
+
+    @Override
+    public boolean deleteById(Integer id) {
+        try {
+            return delegate.deleteById(id);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public BatchResult saveAll(Collection<Motocicleta> motos) {
+        BatchResult result = delegate.saveAll(motos);
+        for (Motocicleta moto : motos) {
+            if (moto.getId() != 0) {
+                cache.invalidate(moto.getId());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult updateAll(Collection<Motocicleta> motos) {
+        try {
+            return delegate.updateAll(motos);
+        } finally {
+            for (Motocicleta moto : motos) {
+                cache.invalidate(moto.getId());
+            }
+        }
+    }
+
+    @Override
+    public BatchResult deleteAllById(Collection<Integer> ids) {
+        try {
+            return delegate.deleteAllById(ids);
+        } finally {
+            for (Integer id : ids) {
+                cache.invalidate(id);
+            }
+        }
+    }
+
+    /**
+     * Lee el registro de cambios e invalida las motocicletas que aparecen en él, para que
+     * los cambios de otros clientes no se sirvan desde la caché hasta que caduquen.
+     */
+    @Override
+    public List<CambioMotocicleta> findCambiosDesde(long afterSeq, int limit) {
+        List<CambioMotocicleta> cambios = delegate.findCambiosDesde(afterSeq, limit);
+        for (CambioMotocicleta cambio : cambios) {
+            cache.invalidate(cambio.getMotoId());
+        }
+        return cambios;
+    }
+
+    private static Motocicleta copy(Motocicleta moto) {
+        return new Motocicleta(moto.getId(), moto.getMarca(), moto.getCilindraje(), moto.getPrecio(), moto.getColor());
+    }
+}
@@ -0,0 +1,157 @@
+package com.gestionmotos.repository;
+
+import com.gestionmotos.model.Usuario;
+import com.gestionmotos.util.DatabaseConnection;
+import com.gestionmotos.util.EntityCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorador que guarda en una {@link EntityCache} los usuarios leídos con {@link #findById}
+ * y {@link #findAllById}.
+ * <p>
+ * Las escrituras se envían al repositorio decorado e invalidan la entrada del usuario.
+ * {@link #authenticate} y {@link #findByUsername} siempre consultan la base de datos,
+ * para que un cambio de contraseña o de rol tenga efecto inmediato en el inicio de sesión.
+ * La caché guarda copias y entrega copias, de modo que modificar un usuario obtenido
+ * no altera la versión en caché.
+ */
+public class CachingUsuarioRepository implements UsuarioRepository {
+    // Valores por defecto si no se configuran en config.properties
+    private static final int DEFAULT_MAX_SIZE = 1_000;
+    private static final int DEFAULT_TTL_MS = 300_000;
+
+    // Repositorio compartido por el servicio de autenticación y el repositorio asíncrono
+    private static UsuarioRepository compartido;
+
+    private final UsuarioRepository delegate;
+    private final EntityCache<Integer, Usuario> cache;
+
+    /**
+     * Crea el decorador con la configuración cache.entity.maxSize y cache.entity.ttlMs.
+     * @param delegate Repositorio decorado
+     */
+    public CachingUsuarioRepository(UsuarioRepository delegate) {
+        this(delegate, new EntityCache<>(
+                DatabaseConnection.getInstance().getIntProperty("cache.entity.maxSize", DEFAULT_MAX_SIZE),
+                DatabaseConnection.getInstance().getIntProperty("cache.entity.ttlMs", DEFAULT_TTL_MS),
+                TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Crea el decorador con una caché propia.
+     * @param delegate Repositorio decorado
+     * @param cache Caché de usuarios por ID
+     */
+    public CachingUsuarioRepository(UsuarioRepository delegate, EntityCache<Integer, Usuario> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    /**
+     * Obtiene el repositorio de usuarios de la aplicación: el repositorio JDBC, con la caché
+     * por delante si cache.entity.enabled está activo. Es una única instancia, para que las
+     * escrituras hechas desde cualquier parte invaliden la misma caché.
+     * @return El repositorio de usuarios
+     */
+    public static synchronized UsuarioRepository compartido() {
+        if (compartido == null) {
+            UsuarioRepository repository = new UsuarioRepositoryImpl();
+            String enabled = DatabaseConnection.getInstance().getProperties()
+                    .getProperty("cache.entity.enabled", "true");
+            compartido = Boolean.parseBoolean(enabled.trim()) ? new CachingUsuarioRepository(repository) : repository;
+        }
+        return compartido;
+    }
+
+    /**
+     * @return La caché, por ejemplo para consultar sus estadísticas
+     */
+    public EntityCache<Integer, Usuario> getCache() {
+        return cache;
+    }
+
+    @Override
+    public Optional<Usuario> findById(Integer id) {
+        Usuario usuario = cache.get(id, key -> delegate.findById(key).map(CachingUsuarioRepository::copy)
+                                                     .orElse(null));
+        return Optional.ofNullable(usuario).map(CachingUsuarioRepository::copy);
+    }
+
+    /**
+     * Busca varios usuarios: los que están en la caché no se consultan y los demás
+     * se piden al repositorio decorado en una sola llamada.
+     */
+    @Override
+    public List<Usuario> findAllById(Collection<Integer> ids) {
+        Map<Integer, Usuario> encontrados = cache.getAll(ids, faltan -> {
+            List<Usuario> cargados = new ArrayList<>();
+            for (Usuario usuario : delegate.findAllById(faltan)) {
+                cargados.add(copy(usuario));
+            }
+            return cargados;
+        }, Usuario::getId);
+        List<Usuario> usuarios = new ArrayList<>(encontrados.size());
+        for (Usuario usuario : encontrados.values()) {
+            usuarios.add(copy(usuario));
+        }
+        return usuarios;
+    }
+
+    @Override
+    public Usuario save(Usuario usuario) {
+        Usuario guardado = delegate.save(usuario);
+        if (guardado.getId() != 0) {
+            cache.invalidate(guardado.getId());
+        }
+        return guardado;
+    }
+
+    @Override
+    public boolean update(Usuario usuario) {
+        try {
+            return delegate.update(usuario);
+        } finally {
+            cache.invalidate(usuario.getId());
+        }
+    }
+
+    @Override
+    public boolean deleteById(Integer id) {
+        try {
+            return delegate.deleteById(id);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public List<Usuario> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Usuario> findPage(Integer afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Optional<Usuario> findByUsername(String username) {
+        return delegate.findByUsername(username);
+    }
+
+    @Override
+    public Optional<Usuario> authenticate(String username, String password) {
+        return delegate.authenticate(username, password);
+    }
+
+    private static Usuario copy(Usuario usuario) {
+        return new Usuario(usuario.getId(), usuario.getUsername(), usuario.getPassword(),
+                usuario.getRol(), usuario.getNombre(), usuario.getEmail());
+    }
+}
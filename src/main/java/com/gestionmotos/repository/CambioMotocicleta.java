@@ -0,0 +1,89 @@
+package com.gestionmotos.repository;
+
+import com.gestionmotos.model.Motocicleta;
+
+/**
+ * Una fila del registro de cambios de motocicletas ({@code motocicletas_cambios}), junto con
+ * el estado actual de la motocicleta afectada.
+ */
+public class CambioMotocicleta {
+
+    /**
+     * Tipo de cambio registrado por los disparadores.
+     */
+    public enum Operacion {
+        ALTA('I'), MODIFICACION('U'), BAJA('D');
+
+        private final char codigo;
+
+        Operacion(char codigo) {
+            this.codigo = codigo;
+        }
+
+        /**
+         * @return Código guardado en la columna {@code operacion}
+         */
+        public char getCodigo() {
+            return codigo;
+        }
+
+        /**
+         * Obtiene la operación de un código de la columna {@code operacion}.
+         * @param codigo I, U o D
+         * @return La operación
+         * @throws IllegalArgumentException Si el código no es válido
+         */
+        public static Operacion of(char codigo) {
+            for (Operacion operacion : values()) {
+                if (operacion.codigo == codigo) {
+                    return operacion;
+                }
+            }
+            throw new IllegalArgumentException("Operación de cambio desconocida: " + codigo);
+        }
+    }
+
+    private final long seq;
+    private final int motoId;
+    private final Operacion operacion;
+    private final Motocicleta motocicleta;
+
+    /**
+     * Crea el cambio.
+     * @param seq Número de secuencia del cambio
+     * @param motoId ID de la motocicleta afectada
+     * @param operacion Tipo de cambio
+     * @param motocicleta Estado actual de la motocicleta, o null si ya no existe
+     */
+    public CambioMotocicleta(long seq, int motoId, Operacion operacion, Motocicleta motocicleta) {
+        this.seq = seq;
+        this.motoId = motoId;
+        this.operacion = operacion;
+        this.motocicleta = motocicleta;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public int getMotoId() {
+        return motoId;
+    }
+
+    public Operacion getOperacion() {
+        return operacion;
+    }
+
+    /**
+     * @return La motocicleta tal como está ahora en la base de datos (no en el momento del cambio),
+     *         o null si ya fue eliminada
+     */
+    public Motocicleta getMotocicleta() {
+        return motocicleta;
+    }
+
+    @Override
+    public String toString() {
+        return "CambioMotocicleta{seq=" + seq + ", motoId=" + motoId + ", operacion=" + operacion + '}';
+    }
+}
@@ -0,0 +1,127 @@
+package com.gestionmotos.repository;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Una sentencia SQL de un repositorio con parámetros representativos, para revisar su plan
+ * de ejecución con {@link QueryPlanInspector}.
+ */
+public final class ConsultaMuestra {
+    private final String nombre;
+    private final String sql;
+    private final List<Object> parametros;
+    private final boolean recorridoCompleto;
+    // Por qué se admite el recorrido completo, si no es simplemente una lectura de toda la tabla
+    private final String motivo;
+    private final boolean soloMySql;
+
+    private ConsultaMuestra(String nombre, String sql, List<Object> parametros, boolean recorridoCompleto,
+                            String motivo, boolean soloMySql) {
+        this.nombre = nombre;
+        this.sql = sql;
+        this.parametros = parametros;
+        this.recorridoCompleto = recorridoCompleto;
+        this.motivo = motivo;
+        this.soloMySql = soloMySql;
+    }
+
+    /**
+     * Crea una consulta que debería usar un índice.
+     * @param nombre Método del repositorio que la ejecuta
+     * @param sql La sentencia
+     * @param parametros Valores de sus parámetros, en orden
+     */
+    static ConsultaMuestra of(String nombre, String sql, Object... parametros) {
+        return new ConsultaMuestra(nombre, sql, Collections.unmodifiableList(Arrays.asList(parametros)), false, null,
+                false);
+    }
+
+    /**
+     * Crea una consulta que lee toda la tabla por diseño (findAll, estadísticas sin filtro...),
+     * así que su recorrido completo no es un fallo.
+     */
+    static ConsultaMuestra completa(String nombre, String sql, Object... parametros) {
+        return new ConsultaMuestra(nombre, sql, Collections.unmodifiableList(Arrays.asList(parametros)), true, null,
+                false);
+    }
+
+    /**
+     * Crea una consulta con {@code LIKE '%texto%'}. El comodín inicial impide buscar en un índice,
+     * así que recorre la tabla; se admite porque en la aplicación la responde el índice de
+     * trigramas en memoria ({@code IndexedMotocicletaRepository}), y solo llega a la base de datos
+     * mientras ese índice se construye o con {@code search.index.enabled=false}.
+     */
+    static ConsultaMuestra comodinInicial(String nombre, String sql, Object... parametros) {
+        return new ConsultaMuestra(nombre, sql, Collections.unmodifiableList(Arrays.asList(parametros)), true,
+                "LIKE con comodín inicial, resuelto en memoria por el índice de trigramas", false);
+    }
+
+    /**
+     * @param motivo Por qué se admite el recorrido, si no es el de {@link #comodinInicial}
+     * @return La misma consulta con otro motivo
+     */
+    ConsultaMuestra motivo(String motivo) {
+        return new ConsultaMuestra(nombre, sql, parametros, recorridoCompleto, motivo, soloMySql);
+    }
+
+    /**
+     * @return La misma consulta marcada como exclusiva de MySQL (por ejemplo MATCH ... AGAINST)
+     */
+    ConsultaMuestra soloMySql() {
+        return new ConsultaMuestra(nombre, sql, parametros, recorridoCompleto, motivo, true);
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<Object> getParametros() {
+        return parametros;
+    }
+
+    /**
+     * @return Valor del {@code LIMIT ?} con que termina la sentencia (su último parámetro),
+     *         o -1 si no tiene
+     */
+    public long getLimite() {
+        boolean limitada = sql.trim().toUpperCase(Locale.ROOT).endsWith("LIMIT ?");
+        if (!limitada || parametros.isEmpty() || !(parametros.get(parametros.size() - 1) instanceof Number)) {
+            return -1;
+        }
+        return ((Number) parametros.get(parametros.size() - 1)).longValue();
+    }
+
+    /**
+     * @return true si la consulta lee toda la tabla por diseño
+     */
+    public boolean isRecorridoCompleto() {
+        return recorridoCompleto;
+    }
+
+    /**
+     * @return Por qué se admite el recorrido completo de una consulta con comodín inicial,
+     *         o null si no lo es
+     */
+    public String getMotivo() {
+        return motivo;
+    }
+
+    /**
+     * @return true si la sentencia solo existe en MySQL
+     */
+    public boolean isSoloMySql() {
+        return soloMySql;
+    }
+
+    @Override
+    public String toString() {
+        return nombre + ": " + sql;
+    }
+}
@@ -0,0 +1,245 @@
+package com.gestionmotos.repository;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.index.TrigramIndex;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cantidad, suma, mínimo, máximo y promedio del precio y del cilindraje de un grupo de
+ * motocicletas (una marca, un color, un tramo de cilindraje o el inventario completo).
+ * <p>
+ * Se obtiene calculada en SQL con {@link MotocicletaRepository#findEstadisticas} y puede
+ * mantenerse al día con {@link #agregar} y {@link #quitar}. La cantidad, las sumas y los
+ * promedios siguen siendo exactos; el mínimo y el máximo dejan de serlo si se quita la
+ * motocicleta que los tenía ({@link #isExtremosExactos()}).
+ */
+public class EstadisticaGrupo {
+    /**
+     * Orden de los grupos de la consulta: por tramo de cilindraje o por texto del grupo.
+     */
+    public static final Comparator<EstadisticaGrupo> ORDEN = Comparator
+            .comparing(EstadisticaGrupo::getCilindrajeDesde, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(g -> TrigramIndex.normalize(g.getGrupo()));
+
+    private final String grupo;
+    // Inicio del tramo al agrupar por cilindraje; null en las demás agrupaciones
+    private final Integer cilindrajeDesde;
+
+    private long cantidad;
+    // El precio se suma en céntimos para no acumular errores de redondeo
+    private long precioTotalCentimos;
+    private double precioMin;
+    private double precioMax;
+    private long cilindrajeTotal;
+    private int cilindrajeMin;
+    private int cilindrajeMax;
+    private boolean extremosExactos = true;
+
+    /**
+     * Crea un grupo vacío.
+     * @param grupo Texto del grupo
+     * @param cilindrajeDesde Inicio del tramo de cilindraje, o null
+     */
+    public EstadisticaGrupo(String grupo, Integer cilindrajeDesde) {
+        this.grupo = grupo;
+        this.cilindrajeDesde = cilindrajeDesde;
+    }
+
+    /**
+     * Crea un grupo con los valores calculados en la base de datos.
+     */
+    public EstadisticaGrupo(String grupo, Integer cilindrajeDesde, long cantidad, double precioTotal,
+                            double precioMin, double precioMax, long cilindrajeTotal,
+                            int cilindrajeMin, int cilindrajeMax) {
+        this(grupo, cilindrajeDesde);
+        this.cantidad = cantidad;
+        this.precioTotalCentimos = Math.round(precioTotal * 100);
+        this.precioMin = precioMin;
+        this.precioMax = precioMax;
+        this.cilindrajeTotal = cilindrajeTotal;
+        this.cilindrajeMin = cilindrajeMin;
+        this.cilindrajeMax = cilindrajeMax;
+    }
+
+    /**
+     * Suma una motocicleta al grupo.
+     * @param moto La motocicleta
+     */
+    public void agregar(Motocicleta moto) {
+        if (cantidad == 0) {
+            precioMin = precioMax = moto.getPrecio();
+            cilindrajeMin = cilindrajeMax = moto.getCilindraje();
+            extremosExactos = true;
+        } else {
+            precioMin = Math.min(precioMin, moto.getPrecio());
+            precioMax = Math.max(precioMax, moto.getPrecio());
+            cilindrajeMin = Math.min(cilindrajeMin, moto.getCilindraje());
+            cilindrajeMax = Math.max(cilindrajeMax, moto.getCilindraje());
+        }
+        cantidad++;
+        precioTotalCentimos += Math.round(moto.getPrecio() * 100);
+        cilindrajeTotal += moto.getCilindraje();
+    }
+
+    /**
+     * Resta una motocicleta del grupo.
+     * @param moto La motocicleta con los datos que tenía al sumarse
+     */
+    public void quitar(Motocicleta moto) {
+        if (cantidad == 0) {
+            return;
+        }
+        cantidad--;
+        precioTotalCentimos -= Math.round(moto.getPrecio() * 100);
+        cilindrajeTotal -= moto.getCilindraje();
+        if (cantidad == 0) {
+            extremosExactos = true;
+        } else if (moto.getPrecio() == precioMin || moto.getPrecio() == precioMax
+                || moto.getCilindraje() == cilindrajeMin || moto.getCilindraje() == cilindrajeMax) {
+            // El siguiente mínimo o máximo solo se conoce consultando de nuevo
+            extremosExactos = false;
+        }
+    }
+
+    /**
+     * Calcula en memoria las mismas estadísticas que {@link MotocicletaRepository#findEstadisticas},
+     * para cuando no se puede consultar la base de datos.
+     * @param motos Motocicletas a agrupar
+     * @param filtro Criterios que deben cumplir las motocicletas, o null para todas
+     * @param agrupacion Cómo agrupar las motocicletas
+     * @param anchoCilindraje Ancho de los tramos al agrupar por cilindraje
+     * @return Un elemento por grupo con motocicletas, ordenados por grupo
+     */
+    public static List<EstadisticaGrupo> calcular(Iterator<Motocicleta> motos, MotocicletaCriteria filtro,
+                                                  MotocicletaAgrupacion agrupacion, int anchoCilindraje) {
+        if (anchoCilindraje <= 0) {
+            throw new IllegalArgumentException("El ancho de los tramos de cilindraje debe ser mayor que 0");
+        }
+        Map<String, EstadisticaGrupo> grupos = new LinkedHashMap<>();
+        while (motos.hasNext()) {
+            Motocicleta moto = motos.next();
+            if (filtro != null && !filtro.matches(moto)) {
+                continue;
+            }
+            String grupo = agrupacion.grupoDe(moto, anchoCilindraje);
+            grupos.computeIfAbsent(agrupacion.claveDe(grupo), k -> new EstadisticaGrupo(grupo,
+                    agrupacion == MotocicletaAgrupacion.CILINDRAJE
+                            ? MotocicletaAgrupacion.tramoDe(moto.getCilindraje(), anchoCilindraje)
+                            : null))
+                    .agregar(moto);
+        }
+        List<EstadisticaGrupo> resultado = new ArrayList<>(grupos.values());
+        resultado.sort(ORDEN);
+        return resultado;
+    }
+
+    /**
+     * Suma a este grupo las motocicletas de otro, por ejemplo para obtener el total.
+     * @param otro El otro grupo
+     */
+    public void sumar(EstadisticaGrupo otro) {
+        if (otro.cantidad == 0) {
+            return;
+        }
+        if (cantidad == 0) {
+            precioMin = otro.precioMin;
+            precioMax = otro.precioMax;
+            cilindrajeMin = otro.cilindrajeMin;
+            cilindrajeMax = otro.cilindrajeMax;
+            extremosExactos = otro.extremosExactos;
+        } else {
+            precioMin = Math.min(precioMin, otro.precioMin);
+            precioMax = Math.max(precioMax, otro.precioMax);
+            cilindrajeMin = Math.min(cilindrajeMin, otro.cilindrajeMin);
+            cilindrajeMax = Math.max(cilindrajeMax, otro.cilindrajeMax);
+            extremosExactos &= otro.extremosExactos;
+        }
+        cantidad += otro.cantidad;
+        precioTotalCentimos += otro.precioTotalCentimos;
+        cilindrajeTotal += otro.cilindrajeTotal;
+    }
+
+    /**
+     * @return Una copia independiente del grupo
+     */
+    public EstadisticaGrupo copia() {
+        EstadisticaGrupo copia = new EstadisticaGrupo(grupo, cilindrajeDesde);
+        copia.cantidad = cantidad;
+        copia.precioTotalCentimos = precioTotalCentimos;
+        copia.precioMin = precioMin;
+        copia.precioMax = precioMax;
+        copia.cilindrajeTotal = cilindrajeTotal;
+        copia.cilindrajeMin = cilindrajeMin;
+        copia.cilindrajeMax = cilindrajeMax;
+        copia.extremosExactos = extremosExactos;
+        return copia;
+    }
+
+    public String getGrupo() {
+        return grupo;
+    }
+
+    public Integer getCilindrajeDesde() {
+        return cilindrajeDesde;
+    }
+
+    public long getCantidad() {
+        return cantidad;
+    }
+
+    public double getPrecioTotal() {
+        return precioTotalCentimos / 100.0;
+    }
+
+    public double getPrecioMin() {
+        return precioMin;
+    }
+
+    public double getPrecioMax() {
+        return precioMax;
+    }
+
+    public double getPrecioPromedio() {
+        return cantidad == 0 ? 0 : precioTotalCentimos / 100.0 / cantidad;
+    }
+
+    public long getCilindrajeTotal() {
+        return cilindrajeTotal;
+    }
+
+    public int getCilindrajeMin() {
+        return cilindrajeMin;
+    }
+
+    public int getCilindrajeMax() {
+        return cilindrajeMax;
+    }
+
+    public double getCilindrajePromedio() {
+        return cantidad == 0 ? 0 : (double) cilindrajeTotal / cantidad;
+    }
+
+    /**
+     * @return false si se quitó la motocicleta con el mínimo o el máximo y hay que volver a consultar
+     */
+    public boolean isExtremosExactos() {
+        return extremosExactos;
+    }
+
+    @Override
+    public String toString() {
+        return "EstadisticaGrupo{" +
+               "grupo='" + grupo + '\'' +
+               ", cantidad=" + cantidad +
+               ", precioTotal=" + getPrecioTotal() +
+               ", precio=" + precioMin + ".." + precioMax +
+               ", cilindraje=" + cilindrajeMin + ".." + cilindrajeMax +
+               '}';
+    }
+}
@@ -0,0 +1,184 @@
+package com.gestionmotos.repository;
+
+import com.gestionmotos.model.Motocicleta;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Repositorio de motocicletas que delega todas las operaciones en otro repositorio.
+ * Base para los decoradores (caché, índices...) que solo redefinen algunos métodos.
+ */
+public abstract class ForwardingMotocicletaRepository implements MotocicletaRepository {
+    protected final MotocicletaRepository delegate;
+
+    protected ForwardingMotocicletaRepository(MotocicletaRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return El repositorio decorado
+     */
+    public MotocicletaRepository getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Motocicleta save(Motocicleta moto) {
+        return delegate.save(moto);
+    }
+
+    @Override
+    public boolean update(Motocicleta moto) {
+        return delegate.update(moto);
+    }
+
+    @Override
+    public boolean deleteById(Integer id) {
+        return delegate.deleteById(id);
+    }
+
+    @Override
+    public Optional<Motocicleta> findById(Integer id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Motocicleta> findAllById(Collection<Integer> ids) {
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public List<Motocicleta> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Motocicleta> findPage(Integer afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public List<Motocicleta> findByMarca(String marca) {
+        return delegate.findByMarca(marca);
+    }
+
+    @Override
+    public List<Motocicleta> findByMarcaFuzzy(String marca, int maxDistance) {
+        return delegate.findByMarcaFuzzy(marca, maxDistance);
+    }
+
+    @Override
+    public List<Motocicleta> findByColor(String color) {
+        return delegate.findByColor(color);
+    }
+
+    @Override
+    public List<Motocicleta> findByPrecioMaximo(double precio) {
+        return delegate.findByPrecioMaximo(precio);
+    }
+
+    @Override
+    public List<Motocicleta> findByCilindrajeRango(int min, int max) {
+        return delegate.findByCilindrajeRango(min, max);
+    }
+
+    @Override
+    public List<Motocicleta> findByCriteria(MotocicletaCriteria criteria) {
+        return delegate.findByCriteria(criteria);
+    }
+
+    @Override
+    public List<EstadisticaGrupo> findEstadisticas(MotocicletaCriteria filtro, MotocicletaAgrupacion agrupacion,
+                                                   int anchoCilindraje) {
+        return delegate.findEstadisticas(filtro, agrupacion, anchoCilindraje);
+    }
+
+    @Override
+    public BatchResult saveAll(Collection<Motocicleta> motos) {
+        return delegate.saveAll(motos);
+    }
+
+    @Override
+    public BatchResult updateAll(Collection<Motocicleta> motos) {
+        return delegate.updateAll(motos);
+    }
+
+    @Override
+    public BatchResult deleteAllById(Collection<Integer> ids) {
+        return delegate.deleteAllById(ids);
+    }
+
+    @Override
+    public Stream<Motocicleta> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public Stream<Motocicleta> streamByMarca(String marca) {
+        return delegate.streamByMarca(marca);
+    }
+
+    @Override
+    public Stream<Motocicleta> streamByPrecioMaximo(double precio) {
+        return delegate.streamByPrecioMaximo(precio);
+    }
+
+    @Override
+    public Stream<Motocicleta> streamByCilindrajeRango(int min, int max) {
+        return delegate.streamByCilindrajeRango(min, max);
+    }
+
+    @Override
+    public Page<Motocicleta> findPage(PageCursor after, int limit, MotocicletaSort sort) {
+        return delegate.findPage(after, limit, sort);
+    }
+
+    @Override
+    public Page<Motocicleta> findPageByMarca(String marca, PageCursor after, int limit, MotocicletaSort sort) {
+        return delegate.findPageByMarca(marca, after, limit, sort);
+    }
+
+    @Override
+    public Page<Motocicleta> findPageByPrecioMaximo(double precio, PageCursor after, int limit, MotocicletaSort sort) {
+        return delegate.findPageByPrecioMaximo(precio, after, limit, sort);
+    }
+
+    @Override
+    public Page<Motocicleta> findPageByCilindrajeRango(int min, int max, PageCursor after, int limit,
+                                                       MotocicletaSort sort) {
+        return delegate.findPageByCilindrajeRango(min, max, after, limit, sort);
+    }
+
+    @Override
+    public int[] findAllIds() {
+        return delegate.findAllIds();
+    }
+
+    @Override
+    public List<Motocicleta> findRegistradasDesde(int afterId, long desdeMillis) {
+        return delegate.findRegistradasDesde(afterId, desdeMillis);
+    }
+
+    @Override
+    public long findUltimoRegistro() {
+        return delegate.findUltimoRegistro();
+    }
+
+    @Override
+    public List<CambioMotocicleta> findCambiosDesde(long afterSeq, int limit) {
+        return delegate.findCambiosDesde(afterSeq, limit);
+    }
+
+    @Override
+    public long findUltimoCambio() {
+        return delegate.findUltimoCambio();
+    }
+
+    @Override
+    public int purgeCambios(long antesDeMillis) {
+        return delegate.purgeCambios(antesDeMillis);
+    }
+}
@@ -0,0 +1,107 @@
+package com.gestionmotos.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Consultas {@code WHERE id IN (...)} por bloques con un número fijo de formas de sentencia.
+ * <p>
+ * Los IDs se reparten en bloques de hasta 256 y cada bloque se rellena repitiendo su último ID
+ * hasta el tamaño de cubeta inmediato superior (1, 4, 16, 64 o 256 parámetros). Así solo existen
+ * cinco textos SQL por consulta y la caché de sentencias del pool los reutiliza, en lugar de
+ * preparar una sentencia distinta para cada número de IDs.
+ */
+final class IdInList {
+    // Tamaños de bloque admitidos; el último es el máximo de IDs por consulta
+    private static final int[] BUCKETS = {1, 4, 16, 64, 256};
+    private static final int MAX_BUCKET = BUCKETS[BUCKETS.length - 1];
+
+    private final String[] sqls = new String[BUCKETS.length];
+
+    /**
+     * Prepara los textos SQL de cada cubeta.
+     * @param prefix Consulta hasta {@code IN}, por ejemplo {@code SELECT id, marca, ... FROM motocicletas WHERE id IN }
+     */
+    IdInList(String prefix) {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            StringBuilder sql = new StringBuilder(prefix.length() + 2 * BUCKETS[i] + 2).append(prefix).append('(');
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                sql.append(j == 0 ? "?" : ",?");
+            }
+            sqls[i] = sql.append(')').toString();
+        }
+    }
+
+    /**
+     * Reparte los IDs, sin nulos ni repetidos, en bloques de hasta 256.
+     * @param ids Los IDs pedidos
+     * @return Los bloques
+     */
+    static List<List<Integer>> chunks(Collection<Integer> ids) {
+        List<Integer> distintos = new ArrayList<>(distinct(ids));
+        List<List<Integer>> chunks = new ArrayList<>((distintos.size() + MAX_BUCKET - 1) / MAX_BUCKET);
+        for (int from = 0; from < distintos.size(); from += MAX_BUCKET) {
+            chunks.add(distintos.subList(from, Math.min(distintos.size(), from + MAX_BUCKET)));
+        }
+        return chunks;
+    }
+
+    /**
+     * @param chunk Un bloque de {@link #chunks}
+     * @return La sentencia para el tamaño de cubeta del bloque
+     */
+    String sql(List<Integer> chunk) {
+        return sqls[bucketIndex(chunk.size())];
+    }
+
+    /**
+     * Asigna los IDs del bloque y rellena los parámetros restantes con el último.
+     * @param stmt Sentencia preparada con {@link #sql(List)}
+     * @param chunk Un bloque de {@link #chunks}
+     */
+    void bind(PreparedStatement stmt, List<Integer> chunk) throws SQLException {
+        int bucket = BUCKETS[bucketIndex(chunk.size())];
+        for (int i = 0; i < bucket; i++) {
+            stmt.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+        }
+    }
+
+    private static int bucketIndex(int size) {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            if (size <= BUCKETS[i]) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Bloque de " + size + " IDs; el máximo es " + MAX_BUCKET);
+    }
+
+    /**
+     * Ordena las entidades encontradas como los IDs pedidos, sin repetidas; los IDs que no
+     * existen se omiten.
+     * @param ids Los IDs pedidos
+     * @param encontradas Entidades encontradas por ID
+     * @return Las entidades en el orden de los IDs
+     */
+    static <T> List<T> inOrder(Collection<Integer> ids, Map<Integer, T> encontradas) {
+        List<T> resultado = new ArrayList<>(encontradas.size());
+        for (Integer id : distinct(ids)) {
+            T entity = encontradas.get(id);
+            if (entity != null) {
+                resultado.add(entity);
+            }
+        }
+        return resultado;
+    }
+
+    private static Set<Integer> distinct(Collection<Integer> ids) {
+        Set<Integer> distintos = new LinkedHashSet<>(ids);
+        distintos.remove(null);
+        return distintos;
+    }
+}
@@ -0,0 +1,94 @@
+package com.gestionmotos.repository;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.index.TrigramIndex;
+
+/**
+ * Formas de agrupar las estadísticas del inventario
+ * ({@link MotocicletaRepository#findEstadisticas}).
+ */
+public enum MotocicletaAgrupacion {
+    TOTAL("Total"),
+    MARCA("Marca"),
+    COLOR("Color"),
+    CILINDRAJE("Cilindraje");
+
+    private final String nombre;
+
+    MotocicletaAgrupacion(String nombre) {
+        this.nombre = nombre;
+    }
+
+    /**
+     * Expresión SQL del grupo de cada fila.
+     * @param anchoCilindraje Ancho de cada tramo de cilindraje, mayor que 0
+     * @return La expresión, o null para {@link #TOTAL} (sin GROUP BY)
+     */
+    String expresion(int anchoCilindraje) {
+        switch (this) {
+            case MARCA:
+                return "marca";
+            case COLOR:
+                return "color";
+            case CILINDRAJE:
+                // El ancho es un entero validado: se escribe en el SQL para que SELECT y GROUP BY coincidan
+                return "FLOOR(cilindraje / " + anchoCilindraje + ") * " + anchoCilindraje;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Calcula en memoria el inicio del tramo de cilindraje de una motocicleta, igual que
+     * {@link #expresion(int)} en SQL.
+     * @param cilindraje Cilindraje de la motocicleta
+     * @param anchoCilindraje Ancho de cada tramo
+     * @return Primer cilindraje del tramo
+     */
+    public static int tramoDe(int cilindraje, int anchoCilindraje) {
+        return Math.floorDiv(cilindraje, anchoCilindraje) * anchoCilindraje;
+    }
+
+    /**
+     * Obtiene el texto del grupo de una motocicleta, el mismo que devuelve la consulta.
+     * @param moto La motocicleta
+     * @param anchoCilindraje Ancho de cada tramo de cilindraje
+     * @return Marca, color, tramo de cilindraje o "Total"
+     */
+    public String grupoDe(Motocicleta moto, int anchoCilindraje) {
+        switch (this) {
+            case MARCA:
+                return moto.getMarca();
+            case COLOR:
+                return moto.getColor();
+            case CILINDRAJE:
+                return etiquetaTramo(tramoDe(moto.getCilindraje(), anchoCilindraje), anchoCilindraje);
+            default:
+                return TOTAL.nombre;
+        }
+    }
+
+    /**
+     * Clave con la que se identifica un grupo en memoria. MySQL agrupa la marca y el color sin
+     * distinguir mayúsculas ni acentos, así que "Honda" y "HONDA" son el mismo grupo.
+     * @param grupo Texto del grupo
+     * @return La clave del grupo
+     */
+    public String claveDe(String grupo) {
+        return this == MARCA || this == COLOR ? TrigramIndex.normalize(grupo) : grupo;
+    }
+
+    /**
+     * @param desde Primer cilindraje del tramo
+     * @param anchoCilindraje Ancho del tramo
+     * @return Texto del tramo, por ejemplo "250-499 cc"
+     */
+    public static String etiquetaTramo(int desde, int anchoCilindraje) {
+        return desde + "-" + (desde + anchoCilindraje - 1) + " cc";
+    }
+
+    @Override
+    public String toString() {
+        return nombre;
+    }
+}
@@ -0,0 +1,506 @@
+package com.gestionmotos.repository;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.index.TrigramIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Criterios combinados de búsqueda de motocicletas: marca, color, rango de precio,
+ * rango de cilindraje, ordenación y límite. Cualquier criterio puede omitirse.
+ * <p>
+ * {@link MotocicletaRepository#findByCriteria} convierte los criterios en una única
+ * sentencia SQL parametrizada. Marca y color se buscan como subcadenas sin distinguir
+ * mayúsculas ni acentos (los caracteres {@code %} y {@code _} se toman literalmente);
+ * los rangos incluyen sus extremos.
+ * <p>
+ * Los criterios también pueden escribirse como texto con {@link #parse(String)}, por ejemplo
+ * {@code marca:honda precio<8000 cc:150..600 orden:-precio limite:20}.
+ * Las instancias son inmutables.
+ */
+public final class MotocicletaCriteria {
+    private final String marca;
+    private final String color;
+    private final Double precioMin;
+    private final Double precioMax;
+    private final Integer cilindrajeMin;
+    private final Integer cilindrajeMax;
+    private final MotocicletaSort sort;
+    private final int limit;
+
+    private MotocicletaCriteria(Builder builder) {
+        this.marca = builder.marca;
+        this.color = builder.color;
+        this.precioMin = builder.precioMin;
+        this.precioMax = builder.precioMax;
+        this.cilindrajeMin = builder.cilindrajeMin;
+        this.cilindrajeMax = builder.cilindrajeMax;
+        this.sort = builder.sort;
+        this.limit = builder.limit;
+    }
+
+    /**
+     * @return Un constructor de criterios vacío (todas las motocicletas, ordenadas por ID)
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return Un constructor con los mismos criterios que esta instancia
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.marca = marca;
+        builder.color = color;
+        builder.precioMin = precioMin;
+        builder.precioMax = precioMax;
+        builder.cilindrajeMin = cilindrajeMin;
+        builder.cilindrajeMax = cilindrajeMax;
+        builder.sort = sort;
+        builder.limit = limit;
+        return builder;
+    }
+
+    public String getMarca() {
+        return marca;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public Double getPrecioMin() {
+        return precioMin;
+    }
+
+    public Double getPrecioMax() {
+        return precioMax;
+    }
+
+    public Integer getCilindrajeMin() {
+        return cilindrajeMin;
+    }
+
+    public Integer getCilindrajeMax() {
+        return cilindrajeMax;
+    }
+
+    public MotocicletaSort getSort() {
+        return sort;
+    }
+
+    /**
+     * @return Número máximo de resultados (0 = sin límite)
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return true si el único criterio es la marca (con la ordenación y el límite por defecto)
+     */
+    public boolean isSoloMarca() {
+        return marca != null && color == null && precioMin == null && precioMax == null
+                && cilindrajeMin == null && cilindrajeMax == null && sort == MotocicletaSort.ID && limit == 0;
+    }
+
+    /**
+     * Comprueba en memoria si una motocicleta cumple los filtros (sin ordenación ni límite),
+     * con la misma semántica que la consulta SQL.
+     * @param moto La motocicleta
+     * @return true si cumple todos los filtros
+     */
+    public boolean matches(Motocicleta moto) {
+        if (marca != null && !contains(moto.getMarca(), marca)) {
+            return false;
+        }
+        if (color != null && !contains(moto.getColor(), color)) {
+            return false;
+        }
+        if (precioMin != null && moto.getPrecio() < precioMin) {
+            return false;
+        }
+        if (precioMax != null && moto.getPrecio() > precioMax) {
+            return false;
+        }
+        if (cilindrajeMin != null && moto.getCilindraje() < cilindrajeMin) {
+            return false;
+        }
+        return cilindrajeMax == null || moto.getCilindraje() <= cilindrajeMax;
+    }
+
+    private static boolean contains(String valor, String buscado) {
+        return valor != null && TrigramIndex.normalize(valor).contains(TrigramIndex.normalize(buscado));
+    }
+
+    /**
+     * Clave que identifica la forma de la consulta: qué criterios están presentes, la ordenación
+     * y si hay límite. Dos criterios con la misma forma generan el mismo SQL y solo difieren
+     * en los parámetros.
+     */
+    String shape() {
+        StringBuilder sb = new StringBuilder(16);
+        sb.append(marca != null ? 'M' : '-')
+          .append(color != null ? 'C' : '-')
+          .append(precioMin != null ? 'p' : '-')
+          .append(precioMax != null ? 'P' : '-')
+          .append(cilindrajeMin != null ? 'c' : '-')
+          .append(cilindrajeMax != null ? 'C' : '-')
+          .append(limit > 0 ? 'L' : '-')
+          .append(sort.name());
+        return sb.toString();
+    }
+
+    /**
+     * Convierte un texto de búsqueda en criterios. Sintaxis (separada por espacios):
+     * <ul>
+     *   <li>{@code marca:honda}, {@code color:rojo}; los valores con espacios van entre comillas
+     *       ({@code marca:"royal enfield"})</li>
+     *   <li>{@code precio<8000}, {@code precio<=8000}, {@code precio>1000}, {@code precio>=1000},
+     *       {@code precio=5000}, {@code precio:1000..8000} (también {@code ..8000} o {@code 1000..})</li>
+     *   <li>lo mismo con {@code cc} o {@code cilindraje}: {@code cc:150..600}, {@code cc>=250}</li>
+     *   <li>{@code orden:precio}, {@code orden:-precio} (descendente); campos id, marca, precio, cc</li>
+     *   <li>{@code limite:50}</li>
+     *   <li>las palabras sueltas se buscan en la marca: {@code royal enfield}</li>
+     * </ul>
+     * Los precios tienen dos decimales, así que {@code precio<8000} equivale a {@code precio<=7999.99}.
+     * @param texto El texto de búsqueda
+     * @return Los criterios
+     * @throws IllegalArgumentException Si el texto no tiene una sintaxis válida
+     */
+    public static MotocicletaCriteria parse(String texto) {
+        Builder builder = builder();
+        List<String> palabras = new ArrayList<>();
+
+        for (String token : tokenize(texto)) {
+            int op = indexOfOperator(token);
+            if (op <= 0) {
+                palabras.add(unquote(token));
+                continue;
+            }
+
+            String campo = token.substring(0, op).toLowerCase(Locale.ROOT);
+            String operador = token.substring(op, op + operatorLength(token, op));
+            String valor = unquote(token.substring(op + operador.length()));
+            if (valor.isEmpty()) {
+                throw new IllegalArgumentException("Falta el valor en \"" + token + "\"");
+            }
+
+            switch (campo) {
+                case "marca":
+                    requireColon(campo, operador);
+                    builder.marca(valor);
+                    break;
+                case "color":
+                    requireColon(campo, operador);
+                    builder.color(valor);
+                    break;
+                case "precio":
+                    parsePrecio(builder, operador, valor);
+                    break;
+                case "cc":
+                case "cilindraje":
+                    parseCilindraje(builder, operador, valor);
+                    break;
+                case "orden":
+                    requireColon(campo, operador);
+                    builder.sort(parseSort(valor));
+                    break;
+                case "limite":
+                    requireColon(campo, operador);
+                    builder.limit(parseInt(valor, campo));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Campo desconocido: " + campo
+                            + " (use marca, color, precio, cc, orden o limite)");
+            }
+        }
+
+        if (!palabras.isEmpty()) {
+            String texto2 = String.join(" ", palabras);
+            builder.marca(builder.marca == null ? texto2 : builder.marca + " " + texto2);
+        }
+        return builder.build();
+    }
+
+    private static List<String> tokenize(String texto) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"') {
+                entreComillas = !entreComillas;
+                actual.append(c);
+            } else if (Character.isWhitespace(c) && !entreComillas) {
+                if (actual.length() > 0) {
+                    tokens.add(actual.toString());
+                    actual.setLength(0);
+                }
+            } else {
+                actual.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        if (actual.length() > 0) {
+            tokens.add(actual.toString());
+        }
+        return tokens;
+    }
+
+    private static int indexOfOperator(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '"') {
+                return -1;
+            }
+            if (c == ':' || c == '<' || c == '>' || c == '=') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int operatorLength(String token, int op) {
+        char c = token.charAt(op);
+        return (c == '<' || c == '>') && op + 1 < token.length() && token.charAt(op + 1) == '=' ? 2 : 1;
+    }
+
+    private static String unquote(String valor) {
+        if (valor.length() >= 2 && valor.startsWith("\"") && valor.endsWith("\"")) {
+            return valor.substring(1, valor.length() - 1);
+        }
+        return valor;
+    }
+
+    private static void requireColon(String campo, String operador) {
+        if (!":".equals(operador)) {
+            throw new IllegalArgumentException("El campo " + campo + " solo admite ':'");
+        }
+    }
+
+    private static void parsePrecio(Builder builder, String operador, String valor) {
+        switch (operador) {
+            case ":":
+                int rango = valor.indexOf("..");
+                if (rango < 0) {
+                    double exacto = parseDouble(valor);
+                    builder.precio(exacto, exacto);
+                } else {
+                    String min = valor.substring(0, rango);
+                    String max = valor.substring(rango + 2);
+                    builder.precio(min.isEmpty() ? null : parseDouble(min), max.isEmpty() ? null : parseDouble(max));
+                }
+                break;
+            case "=":
+                double exacto = parseDouble(valor);
+                builder.precio(exacto, exacto);
+                break;
+            case "<":
+                builder.precio(builder.precioMin, parseDouble(valor) - 0.01);
+                break;
+            case "<=":
+                builder.precio(builder.precioMin, parseDouble(valor));
+                break;
+            case ">":
+                builder.precio(parseDouble(valor) + 0.01, builder.precioMax);
+                break;
+            default:
+                builder.precio(parseDouble(valor), builder.precioMax);
+                break;
+        }
+    }
+
+    private static void parseCilindraje(Builder builder, String operador, String valor) {
+        switch (operador) {
+            case ":":
+                int rango = valor.indexOf("..");
+                if (rango < 0) {
+                    int exacto = parseInt(valor, "cc");
+                    builder.cilindraje(exacto, exacto);
+                } else {
+                    String min = valor.substring(0, rango);
+                    String max = valor.substring(rango + 2);
+                    builder.cilindraje(min.isEmpty() ? null : parseInt(min, "cc"),
+                            max.isEmpty() ? null : parseInt(max, "cc"));
+                }
+                break;
+            case "=":
+                int exacto = parseInt(valor, "cc");
+                builder.cilindraje(exacto, exacto);
+                break;
+            case "<":
+                builder.cilindraje(builder.cilindrajeMin, parseInt(valor, "cc") - 1);
+                break;
+            case "<=":
+                builder.cilindraje(builder.cilindrajeMin, parseInt(valor, "cc"));
+                break;
+            case ">":
+                builder.cilindraje(parseInt(valor, "cc") + 1, builder.cilindrajeMax);
+                break;
+            default:
+                builder.cilindraje(parseInt(valor, "cc"), builder.cilindrajeMax);
+                break;
+        }
+    }
+
+    private static MotocicletaSort parseSort(String valor) {
+        boolean desc = valor.startsWith("-");
+        String campo = (desc ? valor.substring(1) : valor).toLowerCase(Locale.ROOT);
+        switch (campo) {
+            case "id":
+                if (desc) {
+                    throw new IllegalArgumentException("Solo se puede ordenar por ID de forma ascendente");
+                }
+                return MotocicletaSort.ID;
+            case "marca":
+                return desc ? MotocicletaSort.MARCA_DESC : MotocicletaSort.MARCA;
+            case "precio":
+                return desc ? MotocicletaSort.PRECIO_DESC : MotocicletaSort.PRECIO;
+            case "cc":
+            case "cilindraje":
+                return desc ? MotocicletaSort.CILINDRAJE_DESC : MotocicletaSort.CILINDRAJE;
+            default:
+                throw new IllegalArgumentException("No se puede ordenar por: " + campo);
+        }
+    }
+
+    private static double parseDouble(String valor) {
+        try {
+            return Double.parseDouble(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Precio no válido: " + valor);
+        }
+    }
+
+    private static int parseInt(String valor, String campo) {
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor no válido para " + campo + ": " + valor);
+        }
+    }
+
+    /**
+     * @return Los criterios escritos con la sintaxis de {@link #parse(String)}
+     */
+    @Override
+    public String toString() {
+        List<String> partes = new ArrayList<>();
+        if (marca != null) {
+            partes.add("marca:" + quote(marca));
+        }
+        if (color != null) {
+            partes.add("color:" + quote(color));
+        }
+        if (precioMin != null || precioMax != null) {
+            partes.add("precio:" + (precioMin == null ? "" : format(precioMin)) + ".."
+                    + (precioMax == null ? "" : format(precioMax)));
+        }
+        if (cilindrajeMin != null || cilindrajeMax != null) {
+            partes.add("cc:" + (cilindrajeMin == null ? "" : cilindrajeMin) + ".."
+                    + (cilindrajeMax == null ? "" : cilindrajeMax));
+        }
+        if (sort != MotocicletaSort.ID) {
+            partes.add("orden:" + (sort.isDescending() ? "-" : "")
+                    + ("cilindraje".equals(sort.getColumn()) ? "cc" : sort.getColumn()));
+        }
+        if (limit > 0) {
+            partes.add("limite:" + limit);
+        }
+        return String.join(" ", partes);
+    }
+
+    private static String quote(String valor) {
+        return valor.indexOf(' ') >= 0 ? "\"" + valor + "\"" : valor;
+    }
+
+    private static String format(double valor) {
+        return valor == Math.rint(valor) ? String.valueOf((long) valor) : String.format(Locale.ROOT, "%.2f", valor);
+    }
+
+    /**
+     * Constructor de criterios.
+     */
+    public static final class Builder {
+        private String marca;
+        private String color;
+        private Double precioMin;
+        private Double precioMax;
+        private Integer cilindrajeMin;
+        private Integer cilindrajeMax;
+        private MotocicletaSort sort = MotocicletaSort.ID;
+        private int limit;
+
+        private Builder() {
+        }
+
+        /**
+         * @param marca Texto que debe contener la marca, o null para no filtrar
+         */
+        public Builder marca(String marca) {
+            this.marca = blankToNull(marca);
+            return this;
+        }
+
+        /**
+         * @param color Texto que debe contener el color, o null para no filtrar
+         */
+        public Builder color(String color) {
+            this.color = blankToNull(color);
+            return this;
+        }
+
+        /**
+         * @param min Precio mínimo incluido, o null
+         * @param max Precio máximo incluido, o null
+         */
+        public Builder precio(Double min, Double max) {
+            this.precioMin = min;
+            this.precioMax = max;
+            return this;
+        }
+
+        /**
+         * @param min Cilindraje mínimo incluido, o null
+         * @param max Cilindraje máximo incluido, o null
+         */
+        public Builder cilindraje(Integer min, Integer max) {
+            this.cilindrajeMin = min;
+            this.cilindrajeMax = max;
+            return this;
+        }
+
+        /**
+         * @param sort Ordenación de los resultados (siempre desempatada por ID)
+         */
+        public Builder sort(MotocicletaSort sort) {
+            this.sort = sort == null ? MotocicletaSort.ID : sort;
+            return this;
+        }
+
+        /**
+         * @param limit Número máximo de resultados (0 = sin límite)
+         */
+        public Builder limit(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("El límite no puede ser negativo");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        public MotocicletaCriteria build() {
+            return new MotocicletaCriteria(this);
+        }
+
+        private static String blankToNull(String valor) {
+            return valor == null || valor.trim().isEmpty() ? null : valor.trim();
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.gestionmotos.repository;
 
 import com.gestionmotos.model.Motocicleta;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interfaz específica para el repositorio de motocicletas.
@@ -16,6 +18,22 @@ public interface MotocicletaRepository extends Repository<Motocicleta, Integer>
      */
     List<Motocicleta> findByMarca(String marca);
     
+    /**
+     * Busca motocicletas cuya marca se parece a la indicada, tolerando errores de escritura
+     * (por ejemplo "Yamha" encuentra "Yamaha"). No distingue mayúsculas ni acentos.
+     * @param marca La marca a buscar
+     * @param maxDistance Número máximo de caracteres insertados, eliminados o cambiados
+     * @return Motocicletas de las marcas encontradas, primero las de la marca más parecida
+     */
+    List<Motocicleta> findByMarcaFuzzy(String marca, int maxDistance);
+    
+    /**
+     * Busca motocicletas por color.
+     * @param color El color a buscar
+     * @return Lista de motocicletas cuyo color contiene el texto indicado
+     */
+    List<Motocicleta> findByColor(String color);
+    
     /**
      * Busca motocicletas con precio menor o igual al especificado.
      * @param precio El precio máximo
@@ -30,4 +48,161 @@ public interface MotocicletaRepository extends Repository<Motocicleta, Integer>
      * @return Lista de motocicletas dentro del rango de cilindraje
      */
     List<Motocicleta> findByCilindrajeRango(int min, int max);
+    
+    /**
+     * Busca motocicletas que cumplen una combinación de criterios (marca, color, rangos de
+     * precio y cilindraje), con ordenación y límite, en una única consulta.
+     * @param criteria Los criterios de búsqueda
+     * @return Lista de motocicletas que cumplen todos los criterios, en el orden indicado
+     */
+    List<Motocicleta> findByCriteria(MotocicletaCriteria criteria);
+    
+    /**
+     * Calcula en la base de datos la cantidad y la suma, el mínimo, el máximo y el promedio del
+     * precio y del cilindraje, por grupos. La ordenación y el límite del filtro se ignoran.
+     * @param filtro Criterios que deben cumplir las motocicletas, o null para todas
+     * @param agrupacion Cómo agrupar las motocicletas
+     * @param anchoCilindraje Ancho de los tramos al agrupar por cilindraje (por ejemplo 250)
+     * @return Un elemento por grupo con motocicletas, ordenados por grupo
+     */
+    List<EstadisticaGrupo> findEstadisticas(MotocicletaCriteria filtro, MotocicletaAgrupacion agrupacion,
+                                            int anchoCilindraje);
+    
+    /**
+     * Guarda varias motocicletas usando inserciones por lotes en una única transacción.
+     * Asigna a cada motocicleta el ID generado por la base de datos.
+     * @param motos Las motocicletas a guardar
+     * @return Filas escritas y duración de cada lote
+     */
+    BatchResult saveAll(Collection<Motocicleta> motos);
+    
+    /**
+     * Actualiza varias motocicletas usando lotes en una única transacción.
+     * @param motos Las motocicletas a actualizar
+     * @return Filas escritas y duración de cada lote
+     */
+    BatchResult updateAll(Collection<Motocicleta> motos);
+    
+    /**
+     * Elimina varias motocicletas por su ID usando lotes en una única transacción.
+     * @param ids Los IDs de las motocicletas a eliminar
+     * @return Filas eliminadas y duración de cada lote
+     */
+    BatchResult deleteAllById(Collection<Integer> ids);
+    
+    /**
+     * Recorre todas las motocicletas sin cargarlas todas en memoria.
+     * Las filas se leen de la base de datos a medida que se consume el stream.
+     * El stream mantiene una conexión abierta: debe cerrarse (por ejemplo con
+     * try-with-resources) para liberarla si no se consume por completo.
+     * @return Stream perezoso de motocicletas
+     */
+    Stream<Motocicleta> streamAll();
+    
+    /**
+     * Versión en stream de {@link #findByMarca(String)}.
+     * @param marca La marca a buscar
+     * @return Stream perezoso de motocicletas; debe cerrarse
+     */
+    Stream<Motocicleta> streamByMarca(String marca);
+    
+    /**
+     * Versión en stream de {@link #findByPrecioMaximo(double)}.
+     * @param precio El precio máximo
+     * @return Stream perezoso de motocicletas; debe cerrarse
+     */
+    Stream<Motocicleta> streamByPrecioMaximo(double precio);
+    
+    /**
+     * Versión en stream de {@link #findByCilindrajeRango(int, int)}.
+     * @param min Cilindraje mínimo
+     * @param max Cilindraje máximo
+     * @return Stream perezoso de motocicletas; debe cerrarse
+     */
+    Stream<Motocicleta> streamByCilindrajeRango(int min, int max);
+    
+    /**
+     * Recupera una página de motocicletas con la ordenación indicada, resuelta en SQL.
+     * @param after Cursor de la página anterior ({@link Page#getNextCursor()}), o null para la primera
+     * @param limit Número máximo de filas de la página
+     * @param sort Ordenación; debe coincidir con la del cursor
+     * @return La página y el cursor de la siguiente
+     */
+    Page<Motocicleta> findPage(PageCursor after, int limit, MotocicletaSort sort);
+    
+    /**
+     * Versión paginada de {@link #findByMarca(String)}.
+     * @param marca La marca a buscar
+     * @param after Cursor de la página anterior, o null para la primera
+     * @param limit Número máximo de filas de la página
+     * @param sort Ordenación; debe coincidir con la del cursor
+     * @return La página y el cursor de la siguiente
+     */
+    Page<Motocicleta> findPageByMarca(String marca, PageCursor after, int limit, MotocicletaSort sort);
+    
+    /**
+     * Versión paginada de {@link #findByPrecioMaximo(double)}.
+     * @param precio El precio máximo
+     * @param after Cursor de la página anterior, o null para la primera
+     * @param limit Número máximo de filas de la página
+     * @param sort Ordenación; debe coincidir con la del cursor
+     * @return La página y el cursor de la siguiente
+     */
+    Page<Motocicleta> findPageByPrecioMaximo(double precio, PageCursor after, int limit, MotocicletaSort sort);
+    
+    /**
+     * Versión paginada de {@link #findByCilindrajeRango(int, int)}.
+     * @param min Cilindraje mínimo
+     * @param max Cilindraje máximo
+     * @param after Cursor de la página anterior, o null para la primera
+     * @param limit Número máximo de filas de la página
+     * @param sort Ordenación; debe coincidir con la del cursor
+     * @return La página y el cursor de la siguiente
+     */
+    Page<Motocicleta> findPageByCilindrajeRango(int min, int max, PageCursor after, int limit, MotocicletaSort sort);
+    
+    /**
+     * Obtiene los IDs de todas las motocicletas en orden ascendente.
+     * Es mucho más ligero que {@link #findAll()} y permite saber el número total de filas
+     * y localizar cualquier posición para luego cargar solo las páginas necesarias.
+     * @return Arreglo ordenado con los IDs
+     */
+    int[] findAllIds();
+    
+    /**
+     * Busca las motocicletas registradas después de una marca de agua: las de ID mayor que
+     * el indicado o con fecha de registro posterior a la indicada.
+     * @param afterId Mayor ID ya conocido
+     * @param desdeMillis Fecha de registro ya conocida, en milisegundos desde 1970
+     * @return Las motocicletas nuevas, en orden de ID
+     */
+    List<Motocicleta> findRegistradasDesde(int afterId, long desdeMillis);
+    
+    /**
+     * Obtiene la fecha de registro más reciente, para usarla como marca de agua.
+     * @return Milisegundos desde 1970, 0 si no hay motocicletas o -1 si ocurre un error
+     */
+    long findUltimoRegistro();
+    
+    /**
+     * Lee el registro de cambios a partir de un número de secuencia, con el estado actual
+     * de cada motocicleta afectada.
+     * @param afterSeq Último número de secuencia ya aplicado
+     * @param limit Número máximo de cambios
+     * @return Los cambios en orden de secuencia, vacío si no hay o si ocurre un error
+     */
+    List<CambioMotocicleta> findCambiosDesde(long afterSeq, int limit);
+    
+    /**
+     * Obtiene el número de secuencia del último cambio registrado.
+     * @return El número de secuencia, 0 si el registro está vacío o -1 si ocurre un error
+     */
+    long findUltimoCambio();
+    
+    /**
+     * Borra del registro de cambios los anteriores a una fecha.
+     * @param antesDeMillis Fecha límite, en milisegundos desde 1970
+     * @return Número de cambios borrados, o -1 si ocurre un error
+     */
+    int purgeCambios(long antesDeMillis);
 }
\ No newline at end of file
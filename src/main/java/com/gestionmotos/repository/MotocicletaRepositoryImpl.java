@@ -1,18 +1,136 @@
 package com.gestionmotos.repository;
 
+import com.gestionmotos.mapping.RowMapper;
 import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.model.MotocicletaRowMapper;
+import com.gestionmotos.repository.index.EditDistance;
+import com.gestionmotos.repository.index.TrigramIndex;
 import com.gestionmotos.util.DatabaseConnection;
 
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementación del repositorio de motocicletas que accede a la base de datos.
  */
 public class MotocicletaRepositoryImpl implements MotocicletaRepository {
     
+    // Lee las filas por posición: las consultas seleccionan sus columnas en su orden (MotocicletaRowMapper.SELECT)
+    private static final RowMapper<Motocicleta> MAPPER = MotocicletaRowMapper.INSTANCE;
+    
+    // Sentencias SQL fijas: al ser siempre el mismo texto se reutilizan desde la caché de sentencias del pool
+    private static final String INSERT_SQL = "INSERT INTO motocicletas (marca, cilindraje, precio, color) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE motocicletas SET marca = ?, cilindraje = ?, precio = ?, color = ? WHERE id = ?";
+    private static final String DELETE_SQL = "DELETE FROM motocicletas WHERE id = ?";
+    private static final String FIND_BY_ID_SQL = MotocicletaRowMapper.SELECT + " WHERE id = ?";
+    private static final String FIND_ALL_SQL = MotocicletaRowMapper.SELECT;
+    private static final IdInList FIND_BY_IDS = new IdInList(MotocicletaRowMapper.SELECT + " WHERE id IN ");
+    private static final String FIND_ALL_IDS_SQL = "SELECT id FROM motocicletas ORDER BY id";
+    private static final String FIND_BY_MARCA_SQL = MotocicletaRowMapper.SELECT + " WHERE marca LIKE ?";
+    private static final String FIND_BY_MARCA_FULLTEXT_SQL =
+            MotocicletaRowMapper.SELECT + " WHERE MATCH(marca) AGAINST (? IN BOOLEAN MODE)";
+    private static final String FIND_DISTINCT_MARCAS_SQL = "SELECT DISTINCT marca FROM motocicletas";
+    private static final String FIND_BY_COLOR_SQL = MotocicletaRowMapper.SELECT + " WHERE color LIKE ?";
+    private static final String FIND_BY_PRECIO_MAXIMO_SQL = MotocicletaRowMapper.SELECT + " WHERE precio <= ?";
+    private static final String FIND_BY_CILINDRAJE_RANGO_SQL = MotocicletaRowMapper.SELECT + " WHERE cilindraje BETWEEN ? AND ?";
+    // UNION en lugar de OR: cada parte usa su índice en vez de recorrer la tabla
+    private static final String FIND_REGISTRADAS_DESDE_SQL = MotocicletaRowMapper.SELECT + " WHERE id > ? "
+            + "UNION " + MotocicletaRowMapper.SELECT + " WHERE fecha_registro > ? ORDER BY id";
+    private static final String FIND_ULTIMO_REGISTRO_SQL = "SELECT MAX(fecha_registro) FROM motocicletas";
+    private static final String FIND_CAMBIOS_DESDE_SQL =
+            "SELECT c.seq, c.moto_id, c.operacion, " + MAPPER.getColumnas("m") + " "
+            + "FROM motocicletas_cambios c LEFT JOIN motocicletas m ON m.id = c.moto_id "
+            + "WHERE c.seq > ? ORDER BY c.seq LIMIT ?";
+    private static final String FIND_ULTIMO_CAMBIO_SQL = "SELECT MAX(seq) FROM motocicletas_cambios";
+    private static final String PURGE_CAMBIOS_SQL = "DELETE FROM motocicletas_cambios WHERE fecha < ?";
+    
+    // Filtros de las consultas paginadas por clave
+    private static final String PAGE_MARCA_FILTER = "marca LIKE ?";
+    private static final String PAGE_PRECIO_FILTER = "precio <= ?";
+    private static final String PAGE_CILINDRAJE_FILTER = "cilindraje BETWEEN ? AND ?";
+    
+    // SQL de findByCriteria por forma de la consulta (MotocicletaCriteria.shape()). Como mucho hay
+    // 2^7 formas por cada ordenación, y cada texto distinto queda además en la caché de sentencias del pool
+    private static final Map<String, String> CRITERIA_SQL = new ConcurrentHashMap<>();
+    // SQL de estadísticas por forma del filtro, agrupación y ancho de tramo
+    private static final Map<String, String> ESTADISTICAS_SQL = new ConcurrentHashMap<>();
+    
+    // Tamaño de lote por defecto para las operaciones masivas
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    
+    // Filas que se piden al servidor en cada viaje al recorrer un cursor
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+    
+    // Palabras más cortas que innodb_ft_min_token_size no están en el índice FULLTEXT
+    private static final int FULLTEXT_MIN_TOKEN = 3;
+    // Código de MySQL para "Can't find FULLTEXT index matching the column list"
+    private static final int ER_FT_MATCHING_KEY_NOT_FOUND = 1191;
+    
+    private final int batchSize;
+    private final int fetchSize;
+    // findByMarca usa el índice FULLTEXT de marca (migración V3) en lugar de LIKE '%marca%'
+    private final boolean marcaFullText;
+    // Pasa a false si la base de datos no tiene el índice FULLTEXT
+    private volatile boolean fullTextDisponible = true;
+    
+    /**
+     * Crea el repositorio con el tamaño de lote (db.batch.size), el tamaño de
+     * fetch de los cursores (db.stream.fetchSize) y el modo de búsqueda por marca
+     * (search.marca.fulltext) configurados.
+     */
+    public MotocicletaRepositoryImpl() {
+        this(DatabaseConnection.getInstance().getIntProperty("db.batch.size", DEFAULT_BATCH_SIZE),
+                DatabaseConnection.getInstance().getIntProperty("db.stream.fetchSize", DEFAULT_FETCH_SIZE),
+                Boolean.parseBoolean(DatabaseConnection.getInstance().getProperties()
+                        .getProperty("search.marca.fulltext", "false").trim())
+                        && DatabaseConnection.getInstance().getBackend().isFullTextDisponible());
+    }
+    
+    /**
+     * Crea el repositorio con un tamaño de lote específico.
+     * @param batchSize Número de filas enviadas por lote en las operaciones masivas
+     */
+    public MotocicletaRepositoryImpl(int batchSize) {
+        this(batchSize, DEFAULT_FETCH_SIZE);
+    }
+    
+    /**
+     * Crea el repositorio con un tamaño de lote y de fetch específicos.
+     * @param batchSize Número de filas enviadas por lote en las operaciones masivas
+     * @param fetchSize Número de filas por viaje al recorrer los resultados con stream
+     */
+    public MotocicletaRepositoryImpl(int batchSize, int fetchSize) {
+        this(batchSize, fetchSize, false);
+    }
+    
+    /**
+     * Crea el repositorio con un tamaño de lote y de fetch y un modo de búsqueda por marca específicos.
+     * @param batchSize Número de filas enviadas por lote en las operaciones masivas
+     * @param fetchSize Número de filas por viaje al recorrer los resultados con stream
+     * @param marcaFullText true para que {@link #findByMarca(String)} use el índice FULLTEXT de marca
+     */
+    public MotocicletaRepositoryImpl(int batchSize, int fetchSize, boolean marcaFullText) {
+        this.batchSize = Math.max(1, batchSize);
+        this.fetchSize = Math.max(1, fetchSize);
+        this.marcaFullText = marcaFullText;
+    }
+    
     /**
      * Guarda una nueva motocicleta en la base de datos.
      * @param moto La motocicleta a guardar
@@ -20,10 +138,8 @@ public class MotocicletaRepositoryImpl implements MotocicletaRepository {
      */
     @Override
     public Motocicleta save(Motocicleta moto) {
-        String sql = "INSERT INTO motocicletas (marca, cilindraje, precio, color) VALUES (?, ?, ?, ?)";
-        
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setString(1, moto.getMarca());
             stmt.setInt(2, moto.getCilindraje());
@@ -59,10 +175,8 @@ public class MotocicletaRepositoryImpl implements MotocicletaRepository {
      */
     @Override
     public boolean update(Motocicleta moto) {
-        String sql = "UPDATE motocicletas SET marca = ?, cilindraje = ?, precio = ?, color = ? WHERE id = ?";
-        
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
             
             stmt.setString(1, moto.getMarca());
             stmt.setInt(2, moto.getCilindraje());
@@ -86,10 +200,8 @@ public class MotocicletaRepositoryImpl implements MotocicletaRepository {
      */
     @Override
     public boolean deleteById(Integer id) {
-        String sql = "DELETE FROM motocicletas WHERE id = ?";
-        
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(DELETE_SQL)) {
             
             stmt.setInt(1, id);
             
@@ -109,22 +221,14 @@ public class MotocicletaRepositoryImpl implements MotocicletaRepository {
      */
     @Override
     public Optional<Motocicleta> findById(Integer id) {
-        String sql = "SELECT * FROM motocicletas WHERE id = ?";
-        
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_ID_SQL)) {
             
             stmt.setInt(1, id);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Motocicleta moto = new Motocicleta(
-                            rs.getInt("id"),
-                            rs.getString("marca"),
-                            rs.getInt("cilindraje"),
-                            rs.getDouble("precio"),
-                            rs.getString("color")
-                    );
+                    Motocicleta moto = MAPPER.map(rs);
                     return Optional.of(moto);
                 }
             }
@@ -137,27 +241,51 @@ public class MotocicletaRepositoryImpl implements MotocicletaRepository {
         return Optional.empty();
     }
     
+    /**
+     * Busca varias motocicletas por su ID con consultas {@code IN} de hasta 256 IDs.
+     * @param ids Los IDs de las motocicletas a buscar
+     * @return Las motocicletas encontradas en el orden de los IDs
+     */
+    @Override
+    public List<Motocicleta> findAllById(Collection<Integer> ids) {
+        Map<Integer, Motocicleta> encontradas = new HashMap<>();
+        
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            for (List<Integer> chunk : IdInList.chunks(ids)) {
+                try (PreparedStatement stmt = conn.prepareStatement(FIND_BY_IDS.sql(chunk))) {
+                    FIND_BY_IDS.bind(stmt, chunk);
+                    
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Motocicleta moto = MAPPER.map(rs);
+                            encontradas.put(moto.getId(), moto);
+                        }
+                    }
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error al buscar motocicletas por ID: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return IdInList.inOrder(ids, encontradas);
+    }
+    
     /**
      * Recupera todas las motocicletas de la base de datos.
      * @return Una lista con todas las motocicletas
      */
     @Override
     public List<Motocicleta> findAll() {
-        String sql = "SELECT * FROM motocicletas";
         List<Motocicleta> motos = new ArrayList<>();
         
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(FIND_ALL_SQL);
+             ResultSet rs = stmt.executeQuery()) {
             
             while (rs.next()) {
-                Motocicleta moto = new Motocicleta(
-                        rs.getInt("id"),
-                        rs.getString("marca"),
-                        rs.getInt("cilindraje"),
-                        rs.getDouble("precio"),
-                        rs.getString("color")
-                );
+                Motocicleta moto = MAPPER.map(rs);
                 motos.add(moto);
             }
             
@@ -170,29 +298,34 @@ public class MotocicletaRepositoryImpl implements MotocicletaRepository {
     }
     
     /**
-     * Busca motocicletas por marca.
+     * Busca motocicletas por marca. Con search.marca.fulltext usa el índice FULLTEXT y encuentra
+     * las marcas con palabras que empiezan por las buscadas; si el índice no existe o alguna
+     * palabra es demasiado corta, busca la marca que contiene el texto con LIKE.
      * @param marca La marca a buscar
      * @return Lista de motocicletas que coinciden con la marca
      */
     @Override
     public List<Motocicleta> findByMarca(String marca) {
-        String sql = "SELECT * FROM motocicletas WHERE marca LIKE ?";
+        if (marcaFullText && fullTextDisponible) {
+            String consulta = fullTextQuery(marca);
+            if (consulta != null) {
+                List<Motocicleta> motos = findByMarcaFullText(consulta);
+                if (motos != null) {
+                    return motos;
+                }
+            }
+        }
+        
         List<Motocicleta> motos = new ArrayList<>();
         
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_MARCA_SQL)) {
             
             stmt.setString(1, "%" + marca + "%");
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Motocicleta moto = new Motocicleta(
-                            rs.getInt("id"),
-                            rs.getString("marca"),
-                            rs.getInt("cilindraje"),
-                            rs.getDouble("precio"),
-                            rs.getString("color")
-                    );
+                    Motocicleta moto = MAPPER.map(rs);
                     motos.add(moto);
                 }
             }
@@ -205,6 +338,161 @@ public class MotocicletaRepositoryImpl implements MotocicletaRepository {
         return motos;
     }
     
+    /**
+     * Busca con el índice FULLTEXT las motocicletas con todas las palabras de la consulta.
+     * @param consulta Consulta en modo booleano de {@link #fullTextQuery(String)}
+     * @return Las motocicletas, o null si la consulta falló y hay que buscar con LIKE
+     */
+    private List<Motocicleta> findByMarcaFullText(String consulta) {
+        List<Motocicleta> motos = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_MARCA_FULLTEXT_SQL)) {
+            
+            stmt.setString(1, consulta);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    motos.add(MAPPER.map(rs));
+                }
+            }
+            return motos;
+            
+        } catch (SQLException e) {
+            if (e.getErrorCode() == ER_FT_MATCHING_KEY_NOT_FOUND) {
+                // La migración del índice aún no se aplicó: no se vuelve a intentar
+                fullTextDisponible = false;
+            }
+            System.err.println("Error al buscar motocicletas por marca con FULLTEXT, se usa LIKE: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Convierte el texto buscado en una consulta FULLTEXT en modo booleano en la que cada
+     * palabra es obligatoria y puede ser el comienzo de una palabra de la marca
+     * ("harley dav" busca {@code +harley* +dav*}).
+     * @param marca El texto buscado
+     * @return La consulta, o null si alguna palabra es demasiado corta para el índice
+     */
+    static String fullTextQuery(String marca) {
+        StringBuilder consulta = new StringBuilder();
+        // Los operadores del modo booleano (+ - < > ( ) ~ * " @) separan palabras, como en el índice
+        for (String palabra : marca.split("[^\\p{L}\\p{N}]+")) {
+            if (palabra.isEmpty()) {
+                continue;
+            }
+            if (palabra.length() < FULLTEXT_MIN_TOKEN) {
+                return null;
+            }
+            consulta.append(consulta.length() == 0 ? "+" : " +").append(palabra).append('*');
+        }
+        return consulta.length() == 0 ? null : consulta.toString();
+    }
+    
+    /**
+     * @param count Número de marcas
+     * @return SQL que lee las filas de varias marcas exactas
+     */
+    static String marcasInSql(int count) {
+        return MotocicletaRowMapper.SELECT + " WHERE marca IN ("
+                + String.join(", ", Collections.nCopies(count, "?")) + ")";
+    }
+    
+    /**
+     * Busca motocicletas cuya marca se parece a la indicada.
+     * Solo se calcula la distancia contra las marcas distintas, no contra cada fila;
+     * después se leen las filas de las marcas encontradas con una sola consulta.
+     * @param marca La marca a buscar
+     * @param maxDistance Número máximo de caracteres insertados, eliminados o cambiados
+     * @return Motocicletas de las marcas encontradas, primero las de la marca más parecida
+     */
+    @Override
+    public List<Motocicleta> findByMarcaFuzzy(String marca, int maxDistance) {
+        List<Motocicleta> motos = new ArrayList<>();
+        String query = TrigramIndex.normalize(marca.trim());
+        // Distancia de cada marca parecida y sus filas, por el valor normalizado de la marca
+        Map<String, Integer> distancias = new HashMap<>();
+        Map<String, List<Motocicleta>> porMarca = new HashMap<>();
+        
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            List<String> marcas = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(FIND_DISTINCT_MARCAS_SQL);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String valor = rs.getString(1);
+                    String normalizada = TrigramIndex.normalize(valor);
+                    int distancia = EditDistance.levenshtein(normalizada, query, maxDistance);
+                    if (distancia <= maxDistance) {
+                        distancias.put(normalizada, distancia);
+                        marcas.add(valor);
+                    }
+                }
+            }
+            
+            if (marcas.isEmpty()) {
+                return motos;
+            }
+            
+            try (PreparedStatement stmt = conn.prepareStatement(marcasInSql(marcas.size()))) {
+                for (int i = 0; i < marcas.size(); i++) {
+                    stmt.setString(i + 1, marcas.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Motocicleta moto = MAPPER.map(rs);
+                        porMarca.computeIfAbsent(TrigramIndex.normalize(moto.getMarca()), k -> new ArrayList<>())
+                                .add(moto);
+                    }
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error al buscar motocicletas por marca aproximada: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        // Ordenar por distancia y, a igual distancia, por marca; dentro de cada marca, por ID
+        List<String> orden = new ArrayList<>(porMarca.keySet());
+        orden.sort(Comparator.<String>comparingInt(m -> distancias.getOrDefault(m, maxDistance))
+                .thenComparing(Comparator.naturalOrder()));
+        for (String normalizada : orden) {
+            List<Motocicleta> grupo = porMarca.get(normalizada);
+            grupo.sort(Comparator.comparingInt(Motocicleta::getId));
+            motos.addAll(grupo);
+        }
+        return motos;
+    }
+    
+    /**
+     * Busca motocicletas por color.
+     * @param color El color a buscar
+     * @return Lista de motocicletas cuyo color contiene el texto indicado
+     */
+    @Override
+    public List<Motocicleta> findByColor(String color) {
+        List<Motocicleta> motos = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_COLOR_SQL)) {
+            
+            stmt.setString(1, "%" + color + "%");
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Motocicleta moto = MAPPER.map(rs);
+                    motos.add(moto);
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error al buscar motocicletas por color: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return motos;
+    }
+    
     /**
      * Busca motocicletas con precio menor o igual al especificado.
      * @param precio El precio máximo
@@ -212,23 +500,16 @@ public class MotocicletaRepositoryImpl implements MotocicletaRepository {
      */
     @Override
     public List<Motocicleta> findByPrecioMaximo(double precio) {
-        String sql = "SELECT * FROM motocicletas WHERE precio <= ?";
         List<Motocicleta> motos = new ArrayList<>();
         
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_PRECIO_MAXIMO_SQL)) {
             
             stmt.setDouble(1, precio);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Motocicleta moto = new Motocicleta(
-                            rs.getInt("id"),
-                            rs.getString("marca"),
-                            rs.getInt("cilindraje"),
-                            rs.getDouble("precio"),
-                            rs.getString("color")
-                    );
+                    Motocicleta moto = MAPPER.map(rs);
                     motos.add(moto);
                 }
             }
@@ -249,24 +530,17 @@ public class MotocicletaRepositoryImpl implements MotocicletaRepository {
      */
     @Override
     public List<Motocicleta> findByCilindrajeRango(int min, int max) {
-        String sql = "SELECT * FROM motocicletas WHERE cilindraje BETWEEN ? AND ?";
         List<Motocicleta> motos = new ArrayList<>();
         
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_CILINDRAJE_RANGO_SQL)) {
             
             stmt.setInt(1, min);
             stmt.setInt(2, max);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Motocicleta moto = new Motocicleta(
-                            rs.getInt("id"),
-                            rs.getString("marca"),
-                            rs.getInt("cilindraje"),
-                            rs.getDouble("precio"),
-                            rs.getString("color")
-                    );
+                    Motocicleta moto = MAPPER.map(rs);
                     motos.add(moto);
                 }
             }
@@ -278,4 +552,838 @@ public class MotocicletaRepositoryImpl implements MotocicletaRepository {
         
         return motos;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Busca motocicletas que cumplen una combinación de criterios con una única consulta.
+     * El SQL se genera una sola vez por forma de la consulta (criterios presentes, ordenación
+     * y límite) y solo cambian los parámetros.
+     * @param criteria Los criterios de búsqueda
+     * @return Lista de motocicletas que cumplen todos los criterios, en el orden indicado
+     */
+    @Override
+    public List<Motocicleta> findByCriteria(MotocicletaCriteria criteria) {
+        List<Motocicleta> motos = new ArrayList<>();
+        String sql = CRITERIA_SQL.computeIfAbsent(criteria.shape(), shape -> compileCriteria(criteria));
+        
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            int index = bindCriteriaFilters(stmt, criteria);
+            if (criteria.getLimit() > 0) {
+                stmt.setInt(index, criteria.getLimit());
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Motocicleta moto = MAPPER.map(rs);
+                    motos.add(moto);
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error al buscar motocicletas por criterios: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return motos;
+    }
+    
+    /**
+     * Genera el SQL para la forma de unos criterios, con un parámetro por cada criterio presente.
+     */
+    static String compileCriteria(MotocicletaCriteria criteria) {
+        StringBuilder sql = new StringBuilder(MotocicletaRowMapper.SELECT).append(criteriaWhere(criteria));
+        sql.append(' ').append(criteria.getSort().orderBy());
+        if (criteria.getLimit() > 0) {
+            sql.append(" LIMIT ?");
+        }
+        return sql.toString();
+    }
+    
+    /**
+     * Genera la cláusula WHERE de los filtros presentes en unos criterios (sin ordenación ni límite).
+     * @return La cláusula con un espacio delante, o una cadena vacía si no hay filtros
+     */
+    private static String criteriaWhere(MotocicletaCriteria criteria) {
+        List<String> conditions = new ArrayList<>();
+        if (criteria.getMarca() != null) {
+            conditions.add("marca LIKE ? ESCAPE '!'");
+        }
+        if (criteria.getColor() != null) {
+            conditions.add("color LIKE ? ESCAPE '!'");
+        }
+        if (criteria.getPrecioMin() != null) {
+            conditions.add("precio >= ?");
+        }
+        if (criteria.getPrecioMax() != null) {
+            conditions.add("precio <= ?");
+        }
+        if (criteria.getCilindrajeMin() != null) {
+            conditions.add("cilindraje >= ?");
+        }
+        if (criteria.getCilindrajeMax() != null) {
+            conditions.add("cilindraje <= ?");
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+    
+    /**
+     * Asigna los parámetros de {@link #criteriaWhere}, en el mismo orden que sus condiciones.
+     * @return Índice del siguiente parámetro
+     */
+    private static int bindCriteriaFilters(PreparedStatement stmt, MotocicletaCriteria criteria) throws SQLException {
+        int index = 1;
+        if (criteria.getMarca() != null) {
+            stmt.setString(index++, "%" + escapeLike(criteria.getMarca()) + "%");
+        }
+        if (criteria.getColor() != null) {
+            stmt.setString(index++, "%" + escapeLike(criteria.getColor()) + "%");
+        }
+        if (criteria.getPrecioMin() != null) {
+            stmt.setDouble(index++, criteria.getPrecioMin());
+        }
+        if (criteria.getPrecioMax() != null) {
+            stmt.setDouble(index++, criteria.getPrecioMax());
+        }
+        if (criteria.getCilindrajeMin() != null) {
+            stmt.setInt(index++, criteria.getCilindrajeMin());
+        }
+        if (criteria.getCilindrajeMax() != null) {
+            stmt.setInt(index++, criteria.getCilindrajeMax());
+        }
+        return index;
+    }
+    
+    /**
+     * Calcula las estadísticas del inventario con una consulta de agregación.
+     * @param filtro Criterios que deben cumplir las motocicletas, o null para todas
+     * @param agrupacion Cómo agrupar las motocicletas
+     * @param anchoCilindraje Ancho de los tramos al agrupar por cilindraje
+     * @return Un elemento por grupo con motocicletas, ordenados por grupo
+     */
+    @Override
+    public List<EstadisticaGrupo> findEstadisticas(MotocicletaCriteria filtro, MotocicletaAgrupacion agrupacion,
+                                                   int anchoCilindraje) {
+        if (anchoCilindraje <= 0) {
+            throw new IllegalArgumentException("El ancho de los tramos de cilindraje debe ser mayor que 0");
+        }
+        MotocicletaCriteria criteria = filtro != null ? filtro : MotocicletaCriteria.builder().build();
+        String expresion = agrupacion.expresion(anchoCilindraje);
+        String sql = ESTADISTICAS_SQL.computeIfAbsent(criteria.shape() + '|' + agrupacion + '|' + anchoCilindraje,
+                key -> estadisticasSql(criteria, agrupacion, anchoCilindraje));
+        List<EstadisticaGrupo> grupos = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            bindCriteriaFilters(stmt, criteria);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long cantidad = rs.getLong("cantidad");
+                    if (cantidad == 0) {
+                        // Sin GROUP BY, un inventario vacío devuelve una fila con cantidad 0
+                        continue;
+                    }
+                    String grupo;
+                    Integer desde = null;
+                    if (agrupacion == MotocicletaAgrupacion.CILINDRAJE) {
+                        desde = rs.getInt("grupo");
+                        grupo = MotocicletaAgrupacion.etiquetaTramo(desde, anchoCilindraje);
+                    } else if (expresion != null) {
+                        grupo = rs.getString("grupo");
+                    } else {
+                        grupo = MotocicletaAgrupacion.TOTAL.toString();
+                    }
+                    grupos.add(new EstadisticaGrupo(grupo, desde, cantidad,
+                            rs.getDouble("precio_total"), rs.getDouble("precio_min"), rs.getDouble("precio_max"),
+                            rs.getLong("cilindraje_total"), rs.getInt("cilindraje_min"), rs.getInt("cilindraje_max")));
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error al calcular las estadísticas del inventario: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return grupos;
+    }
+    
+    /**
+     * Genera el SQL de estadísticas para la forma de unos criterios y una agrupación.
+     */
+    static String estadisticasSql(MotocicletaCriteria criteria, MotocicletaAgrupacion agrupacion,
+                                  int anchoCilindraje) {
+        String expresion = agrupacion.expresion(anchoCilindraje);
+        String agregados = "COUNT(*) AS cantidad, SUM(precio) AS precio_total, MIN(precio) AS precio_min, "
+                + "MAX(precio) AS precio_max, SUM(cilindraje) AS cilindraje_total, "
+                + "MIN(cilindraje) AS cilindraje_min, MAX(cilindraje) AS cilindraje_max";
+        if (expresion == null) {
+            return "SELECT " + agregados + " FROM motocicletas" + criteriaWhere(criteria);
+        }
+        return "SELECT " + expresion + " AS grupo, " + agregados + " FROM motocicletas"
+                + criteriaWhere(criteria) + " GROUP BY " + expresion + " ORDER BY " + expresion;
+    }
+    
+    /**
+     * Escapa los comodines de LIKE para buscar el texto literalmente (con ESCAPE '!').
+     */
+    private static String escapeLike(String texto) {
+        return texto.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+    
+    /**
+     * Recorre todas las motocicletas con un cursor del servidor.
+     * @return Stream perezoso; debe cerrarse para liberar la conexión
+     */
+    @Override
+    public Stream<Motocicleta> streamAll() {
+        return streamQuery(FIND_ALL_SQL, stmt -> { },
+                "Error al recorrer todas las motocicletas: ");
+    }
+    
+    /**
+     * Recorre las motocicletas de una marca con un cursor del servidor.
+     * @param marca La marca a buscar
+     * @return Stream perezoso; debe cerrarse para liberar la conexión
+     */
+    @Override
+    public Stream<Motocicleta> streamByMarca(String marca) {
+        return streamQuery(FIND_BY_MARCA_SQL, stmt -> stmt.setString(1, "%" + marca + "%"),
+                "Error al recorrer motocicletas por marca: ");
+    }
+    
+    /**
+     * Recorre las motocicletas con precio menor o igual al indicado con un cursor del servidor.
+     * @param precio El precio máximo
+     * @return Stream perezoso; debe cerrarse para liberar la conexión
+     */
+    @Override
+    public Stream<Motocicleta> streamByPrecioMaximo(double precio) {
+        return streamQuery(FIND_BY_PRECIO_MAXIMO_SQL, stmt -> stmt.setDouble(1, precio),
+                "Error al recorrer motocicletas por precio máximo: ");
+    }
+    
+    /**
+     * Recorre las motocicletas con cilindraje dentro de un rango con un cursor del servidor.
+     * @param min Cilindraje mínimo
+     * @param max Cilindraje máximo
+     * @return Stream perezoso; debe cerrarse para liberar la conexión
+     */
+    @Override
+    public Stream<Motocicleta> streamByCilindrajeRango(int min, int max) {
+        return streamQuery(FIND_BY_CILINDRAJE_RANGO_SQL, stmt -> {
+                    stmt.setInt(1, min);
+                    stmt.setInt(2, max);
+                },
+                "Error al recorrer motocicletas por rango de cilindraje: ");
+    }
+    
+    /**
+     * Obtiene los IDs de todas las motocicletas en orden ascendente, leyéndolos con un cursor.
+     * @return Arreglo ordenado con los IDs, vacío si ocurre un error
+     */
+    @Override
+    public int[] findAllIds() {
+        int[] ids = new int[1024];
+        int size = 0;
+        
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_ALL_IDS_SQL,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            
+            stmt.setFetchSize(fetchSize);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (size == ids.length) {
+                        ids = Arrays.copyOf(ids, size * 2);
+                    }
+                    ids[size++] = rs.getInt(1);
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error al obtener los IDs de las motocicletas: " + e.getMessage());
+            e.printStackTrace();
+            return new int[0];
+        }
+        
+        return Arrays.copyOf(ids, size);
+    }
+    
+    /**
+     * Busca las motocicletas con ID mayor que el indicado o registradas después de la fecha indicada.
+     * @param afterId Mayor ID ya conocido
+     * @param desdeMillis Fecha de registro ya conocida, en milisegundos desde 1970
+     * @return Las motocicletas nuevas, en orden de ID
+     */
+    @Override
+    public List<Motocicleta> findRegistradasDesde(int afterId, long desdeMillis) {
+        List<Motocicleta> motos = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_REGISTRADAS_DESDE_SQL)) {
+            
+            stmt.setInt(1, afterId);
+            stmt.setTimestamp(2, new Timestamp(desdeMillis));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Motocicleta moto = MAPPER.map(rs);
+                    motos.add(moto);
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error al buscar motocicletas registradas recientemente: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return motos;
+    }
+    
+    /**
+     * Obtiene la fecha de registro más reciente.
+     * @return Milisegundos desde 1970, 0 si no hay motocicletas o -1 si ocurre un error
+     */
+    @Override
+    public long findUltimoRegistro() {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_ULTIMO_REGISTRO_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            Timestamp ultimo = rs.next() ? rs.getTimestamp(1) : null;
+            return ultimo == null ? 0 : ultimo.getTime();
+            
+        } catch (SQLException e) {
+            System.err.println("Error al obtener la última fecha de registro: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+    
+    /**
+     * Lee el registro de cambios a partir de un número de secuencia. Cada cambio trae la
+     * motocicleta tal como está ahora (LEFT JOIN), o null si ya no existe.
+     * @param afterSeq Último número de secuencia ya aplicado
+     * @param limit Número máximo de cambios
+     * @return Los cambios en orden de secuencia
+     */
+    @Override
+    public List<CambioMotocicleta> findCambiosDesde(long afterSeq, int limit) {
+        List<CambioMotocicleta> cambios = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_CAMBIOS_DESDE_SQL)) {
+            
+            stmt.setLong(1, afterSeq);
+            stmt.setInt(2, limit);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    // seq, moto_id y operacion, seguidas de la motocicleta (NULL si ya no existe)
+                    String operacion = rs.getString(3);
+                    Motocicleta moto = rs.getObject(4) != null ? MAPPER.map(rs, 4) : null;
+                    cambios.add(new CambioMotocicleta(rs.getLong(1), rs.getInt(2),
+                            CambioMotocicleta.Operacion.of(operacion.charAt(0)), moto));
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error al leer el registro de cambios: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return cambios;
+    }
+    
+    /**
+     * Obtiene el número de secuencia del último cambio registrado.
+     * @return El número de secuencia, 0 si el registro está vacío o -1 si ocurre un error
+     */
+    @Override
+    public long findUltimoCambio() {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_ULTIMO_CAMBIO_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            return rs.next() ? rs.getLong(1) : 0;
+            
+        } catch (SQLException e) {
+            System.err.println("Error al obtener el último cambio: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+    
+    /**
+     * Borra del registro de cambios los anteriores a una fecha.
+     * @param antesDeMillis Fecha límite, en milisegundos desde 1970
+     * @return Número de cambios borrados, o -1 si ocurre un error
+     */
+    @Override
+    public int purgeCambios(long antesDeMillis) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(PURGE_CAMBIOS_SQL)) {
+            
+            stmt.setTimestamp(1, new Timestamp(antesDeMillis));
+            return stmt.executeUpdate();
+            
+        } catch (SQLException e) {
+            System.err.println("Error al depurar el registro de cambios: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+    
+    /**
+     * Ejecuta una consulta y devuelve sus filas como un stream que se llena a medida que se consume.
+     * La sentencia usa un cursor de solo avance con {@code fetchSize} filas por viaje, de modo que
+     * ni el driver ni el stream mantienen el resultado completo en memoria.
+     * La conexión se devuelve al pool al cerrar el stream o al llegar a la última fila.
+     * @param sql Consulta a ejecutar
+     * @param binder Asigna los parámetros de la consulta
+     * @param errorMessage Prefijo del mensaje de error
+     * @return Stream de motocicletas, vacío si la consulta no pudo ejecutarse
+     */
+    private Stream<Motocicleta> streamQuery(String sql, ParameterBinder binder, String errorMessage) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getInstance().getConnection();
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(fetchSize);
+            binder.bind(stmt);
+            rs = stmt.executeQuery();
+        } catch (SQLException e) {
+            System.err.println(errorMessage + e.getMessage());
+            e.printStackTrace();
+            closeQuietly(rs, stmt, conn);
+            return Stream.empty();
+        }
+        
+        ResultSet resultSet = rs;
+        PreparedStatement statement = stmt;
+        Connection connection = conn;
+        AtomicBoolean closed = new AtomicBoolean();
+        Runnable close = () -> {
+            if (closed.compareAndSet(false, true)) {
+                closeQuietly(resultSet, statement, connection);
+            }
+        };
+        
+        Spliterator<Motocicleta> spliterator = new Spliterators.AbstractSpliterator<Motocicleta>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Motocicleta> action) {
+                if (closed.get()) {
+                    return false;
+                }
+                try {
+                    if (!resultSet.next()) {
+                        close.run();
+                        return false;
+                    }
+                    action.accept(MAPPER.map(resultSet));
+                    return true;
+                } catch (SQLException e) {
+                    close.run();
+                    throw new RuntimeException(errorMessage + e.getMessage(), e);
+                }
+            }
+        };
+        
+        return StreamSupport.stream(spliterator, false).onClose(close);
+    }
+    
+    private static void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource != null) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    System.err.println("Error al liberar recursos de la consulta: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Recupera una página de motocicletas ordenadas por ID.
+     * @param afterId ID de la última motocicleta de la página anterior, o null para la primera página
+     * @param limit Número máximo de motocicletas a devolver
+     * @return Las motocicletas de la página
+     */
+    @Override
+    public List<Motocicleta> findPage(Integer afterId, int limit) {
+        PageCursor after = afterId == null ? null : PageCursor.afterId(afterId);
+        return findPage(after, limit, MotocicletaSort.ID).getContent();
+    }
+    
+    /**
+     * Recupera una página de motocicletas con la ordenación indicada.
+     * @param after Cursor de la página anterior, o null para la primera
+     * @param limit Número máximo de filas de la página
+     * @param sort Ordenación; debe coincidir con la del cursor
+     * @return La página y el cursor de la siguiente
+     */
+    @Override
+    public Page<Motocicleta> findPage(PageCursor after, int limit, MotocicletaSort sort) {
+        return queryPage(null, stmt -> { }, 0, after, limit, sort,
+                "Error al obtener página de motocicletas: ");
+    }
+    
+    /**
+     * Versión paginada de la búsqueda por marca.
+     */
+    @Override
+    public Page<Motocicleta> findPageByMarca(String marca, PageCursor after, int limit, MotocicletaSort sort) {
+        return queryPage(PAGE_MARCA_FILTER, stmt -> stmt.setString(1, "%" + marca + "%"), 1, after, limit, sort,
+                "Error al obtener página de motocicletas por marca: ");
+    }
+    
+    /**
+     * Versión paginada de la búsqueda por precio máximo.
+     */
+    @Override
+    public Page<Motocicleta> findPageByPrecioMaximo(double precio, PageCursor after, int limit, MotocicletaSort sort) {
+        return queryPage(PAGE_PRECIO_FILTER, stmt -> stmt.setDouble(1, precio), 1, after, limit, sort,
+                "Error al obtener página de motocicletas por precio máximo: ");
+    }
+    
+    /**
+     * Versión paginada de la búsqueda por rango de cilindraje.
+     */
+    @Override
+    public Page<Motocicleta> findPageByCilindrajeRango(int min, int max, PageCursor after, int limit,
+                                                       MotocicletaSort sort) {
+        return queryPage(PAGE_CILINDRAJE_FILTER, stmt -> {
+                    stmt.setInt(1, min);
+                    stmt.setInt(2, max);
+                }, 2, after, limit, sort,
+                "Error al obtener página de motocicletas por rango de cilindraje: ");
+    }
+    
+    /**
+     * Genera el SQL de una consulta paginada por clave.
+     * @param filter Condición del filtro, o null si no hay filtro
+     * @param after true si hay cursor de la página anterior
+     * @param sort Ordenación
+     */
+    static String pageSql(String filter, boolean after, MotocicletaSort sort) {
+        StringBuilder sql = new StringBuilder(MotocicletaRowMapper.SELECT);
+        if (filter != null || after) {
+            sql.append(" WHERE ");
+            if (filter != null) {
+                sql.append(filter);
+            }
+            if (filter != null && after) {
+                sql.append(" AND ");
+            }
+            if (after) {
+                sql.append(sort.keysetCondition());
+            }
+        }
+        return sql.append(' ').append(sort.orderBy()).append(" LIMIT ?").toString();
+    }
+    
+    /**
+     * Ejecuta una consulta paginada por clave:
+     * {@code SELECT ... WHERE filtro AND (col, id) > (?, ?) ORDER BY col, id LIMIT ?}.
+     * Se pide una fila más que el límite para saber si existe una página siguiente.
+     * @param filter Condición del filtro, o null si no hay filtro
+     * @param binder Asigna los parámetros del filtro
+     * @param filterParams Número de parámetros del filtro
+     * @param after Cursor de la página anterior, o null para la primera
+     * @param limit Número máximo de filas de la página
+     * @param sort Ordenación
+     * @param errorMessage Prefijo del mensaje de error
+     * @return La página, vacía si la consulta falla
+     */
+    private Page<Motocicleta> queryPage(String filter, ParameterBinder binder, int filterParams, PageCursor after,
+                                        int limit, MotocicletaSort sort, String errorMessage) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser positivo");
+        }
+        if (after != null && after.getSort() != sort) {
+            throw new IllegalArgumentException("El cursor se creó para la ordenación " + after.getSort()
+                    + " y no puede usarse con " + sort);
+        }
+        
+        String sql = pageSql(filter, after != null, sort);
+        List<Motocicleta> motos = new ArrayList<>(Math.min(limit, 1024) + 1);
+        
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            binder.bind(stmt);
+            int index = filterParams + 1;
+            if (after != null) {
+                if (sort == MotocicletaSort.ID) {
+                    stmt.setInt(index++, after.getId());
+                } else {
+                    stmt.setObject(index++, after.getValue());
+                    stmt.setObject(index++, after.getValue());
+                    stmt.setInt(index++, after.getId());
+                }
+            }
+            stmt.setInt(index, limit + 1);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    motos.add(MAPPER.map(rs));
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println(errorMessage + e.getMessage());
+            e.printStackTrace();
+            return new Page<>(new ArrayList<>(), null);
+        }
+        
+        PageCursor next = null;
+        if (motos.size() > limit) {
+            motos.remove(limit);
+            next = PageCursor.after(motos.get(limit - 1), sort);
+        }
+        return new Page<>(motos, next);
+    }
+    
+    /**
+     * Guarda varias motocicletas usando inserciones por lotes en una única transacción.
+     * Asigna a cada motocicleta el ID generado por la base de datos.
+     * @param motos Las motocicletas a guardar
+     * @return Filas escritas y duración de cada lote
+     */
+    @Override
+    public BatchResult saveAll(Collection<Motocicleta> motos) {
+        BatchResult result = executeInBatches(INSERT_SQL, Statement.RETURN_GENERATED_KEYS, motos,
+                (stmt, moto) -> {
+                    stmt.setString(1, moto.getMarca());
+                    stmt.setInt(2, moto.getCilindraje());
+                    stmt.setDouble(3, moto.getPrecio());
+                    stmt.setString(4, moto.getColor());
+                },
+                (stmt, chunk) -> {
+                    try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                        for (Motocicleta moto : chunk) {
+                            if (!generatedKeys.next()) {
+                                throw new SQLException("Crear motocicletas falló, faltan IDs generados.");
+                            }
+                            moto.setId(generatedKeys.getInt(1));
+                        }
+                    }
+                },
+                "Error al guardar motocicletas por lotes: ");
+        
+        if (!result.isSuccess()) {
+            // La transacción se revirtió: los IDs asignados ya no son válidos
+            for (Motocicleta moto : motos) {
+                moto.setId(0);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Actualiza varias motocicletas usando lotes en una única transacción.
+     * @param motos Las motocicletas a actualizar
+     * @return Filas escritas y duración de cada lote
+     */
+    @Override
+    public BatchResult updateAll(Collection<Motocicleta> motos) {
+        return executeInBatches(UPDATE_SQL, Statement.NO_GENERATED_KEYS, motos,
+                (stmt, moto) -> {
+                    stmt.setString(1, moto.getMarca());
+                    stmt.setInt(2, moto.getCilindraje());
+                    stmt.setDouble(3, moto.getPrecio());
+                    stmt.setString(4, moto.getColor());
+                    stmt.setInt(5, moto.getId());
+                },
+                null,
+                "Error al actualizar motocicletas por lotes: ");
+    }
+    
+    /**
+     * Elimina varias motocicletas por su ID usando lotes en una única transacción.
+     * @param ids Los IDs de las motocicletas a eliminar
+     * @return Filas eliminadas y duración de cada lote
+     */
+    @Override
+    public BatchResult deleteAllById(Collection<Integer> ids) {
+        return executeInBatches(DELETE_SQL, Statement.NO_GENERATED_KEYS, ids,
+                (stmt, id) -> stmt.setInt(1, id),
+                null,
+                "Error al eliminar motocicletas por lotes: ");
+    }
+    
+    /**
+     * Ejecuta una sentencia para cada elemento usando lotes de {@code batchSize} filas
+     * dentro de una única transacción. Si algún lote falla se revierte todo.
+     * @param sql Sentencia a ejecutar
+     * @param autoGeneratedKeys Indicador de claves generadas para prepareStatement
+     * @param items Elementos a escribir
+     * @param binder Asigna los parámetros de un elemento
+     * @param afterChunk Acción opcional tras ejecutar cada lote (por ejemplo, leer los IDs generados)
+     * @param errorMessage Prefijo del mensaje de error
+     * @return Filas escritas y duración de cada lote
+     */
+    private <T> BatchResult executeInBatches(String sql, int autoGeneratedKeys, Collection<T> items,
+                                             StatementBinder<T> binder, ChunkCallback<T> afterChunk,
+                                             String errorMessage) {
+        BatchResult result = new BatchResult();
+        if (items.isEmpty()) {
+            return result;
+        }
+        
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, autoGeneratedKeys)) {
+            
+            conn.setAutoCommit(false);
+            try {
+                List<T> chunk = new ArrayList<>(Math.min(batchSize, items.size()));
+                for (T item : items) {
+                    binder.bind(stmt, item);
+                    stmt.addBatch();
+                    chunk.add(item);
+                    
+                    if (chunk.size() == batchSize) {
+                        executeChunk(stmt, chunk, afterChunk, result);
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    executeChunk(stmt, chunk, afterChunk, result);
+                }
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            
+        } catch (SQLException e) {
+            System.err.println(errorMessage + e.getMessage());
+            e.printStackTrace();
+            result.markFailed(e.getMessage());
+        }
+        
+        return result;
+    }
+    
+    private <T> void executeChunk(PreparedStatement stmt, List<T> chunk, ChunkCallback<T> afterChunk,
+                                  BatchResult result) throws SQLException {
+        long start = System.nanoTime();
+        int[] counts = stmt.executeBatch();
+        if (afterChunk != null) {
+            afterChunk.accept(stmt, chunk);
+        }
+        
+        int rows = 0;
+        for (int count : counts) {
+            // Con rewriteBatchedStatements el driver puede no informar el número exacto de filas
+            if (count > 0) {
+                rows += count;
+            } else if (count == Statement.SUCCESS_NO_INFO) {
+                rows++;
+            }
+        }
+        result.addChunk(rows, System.nanoTime() - start);
+    }
+    
+    /**
+     * Asigna los parámetros de una consulta.
+     */
+    @FunctionalInterface
+    private interface ParameterBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+    
+    /**
+     * Asigna los parámetros de un elemento a la sentencia de un lote.
+     */
+    @FunctionalInterface
+    private interface StatementBinder<T> {
+        void bind(PreparedStatement stmt, T item) throws SQLException;
+    }
+    
+    /**
+     * Acción ejecutada después de enviar un lote.
+     */
+    @FunctionalInterface
+    private interface ChunkCallback<T> {
+        void accept(PreparedStatement stmt, List<T> chunk) throws SQLException;
+    }
+    
+    /**
+     * Catálogo de las sentencias de este repositorio con parámetros representativos, para
+     * revisar sus planes de ejecución con {@link QueryPlanInspector}. Al añadir una sentencia
+     * hay que añadirla también aquí; el inspector avisa de las constantes *_SQL que falten.
+     * @return Las sentencias, incluidas las formas más usadas de las que se generan al vuelo
+     */
+    static List<ConsultaMuestra> consultasMuestra() {
+        BigDecimal precio = new BigDecimal("4500.00");
+        Timestamp haceUnDia = new Timestamp(System.currentTimeMillis() - 24L * 60 * 60 * 1000);
+        Object[] ids = new Object[16];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 100 + i * 37;
+        }
+        MotocicletaCriteria marcaYPrecio = MotocicletaCriteria.builder()
+                .marca("honda").precio(null, 2000.0).sort(MotocicletaSort.PRECIO).limit(20).build();
+        MotocicletaCriteria rangos = MotocicletaCriteria.builder()
+                .precio(3000.0, 3500.0).cilindraje(600, 650).build();
+        MotocicletaCriteria color = MotocicletaCriteria.builder().color("rojo").limit(50).build();
+        MotocicletaCriteria vacio = MotocicletaCriteria.builder().build();
+        MotocicletaCriteria baratas = MotocicletaCriteria.builder().precio(null, 2000.0).build();
+        
+        return Arrays.asList(
+                ConsultaMuestra.of("save", INSERT_SQL, "Honda", 150, precio, "Rojo"),
+                ConsultaMuestra.of("update", UPDATE_SQL, "Honda", 150, precio, "Rojo", 42),
+                ConsultaMuestra.of("deleteById", DELETE_SQL, 42),
+                ConsultaMuestra.of("findById", FIND_BY_ID_SQL, 42),
+                ConsultaMuestra.of("findAllById", FIND_BY_IDS.sql(Collections.nCopies(ids.length, 0)), ids),
+                ConsultaMuestra.completa("findAll", FIND_ALL_SQL),
+                ConsultaMuestra.completa("findAllIds", FIND_ALL_IDS_SQL),
+                ConsultaMuestra.comodinInicial("findByMarca", FIND_BY_MARCA_SQL, "%honda%"),
+                ConsultaMuestra.of("findByMarca (FULLTEXT)", FIND_BY_MARCA_FULLTEXT_SQL, "+honda*").soloMySql(),
+                ConsultaMuestra.completa("findByMarcaFuzzy (marcas)", FIND_DISTINCT_MARCAS_SQL),
+                ConsultaMuestra.of("findByMarcaFuzzy (filas)", marcasInSql(2), "Honda", "Hondo"),
+                ConsultaMuestra.comodinInicial("findByColor", FIND_BY_COLOR_SQL, "%rojo%"),
+                ConsultaMuestra.of("findByPrecioMaximo", FIND_BY_PRECIO_MAXIMO_SQL, 2000.0),
+                ConsultaMuestra.of("findByCilindrajeRango", FIND_BY_CILINDRAJE_RANGO_SQL, 600, 650),
+                ConsultaMuestra.of("findRegistradasDesde", FIND_REGISTRADAS_DESDE_SQL, Integer.MAX_VALUE - 1, haceUnDia),
+                ConsultaMuestra.of("findUltimoRegistro", FIND_ULTIMO_REGISTRO_SQL),
+                ConsultaMuestra.of("findCambiosDesde", FIND_CAMBIOS_DESDE_SQL, 1000L, 1000),
+                ConsultaMuestra.of("findUltimoCambio", FIND_ULTIMO_CAMBIO_SQL),
+                ConsultaMuestra.of("purgeCambios", PURGE_CAMBIOS_SQL, haceUnDia),
+                ConsultaMuestra.of("findByCriteria (marca, precio, orden)", compileCriteria(marcaYPrecio),
+                        "%honda%", 2000.0, 20),
+                ConsultaMuestra.of("findByCriteria (rangos)", compileCriteria(rangos), 3000.0, 3500.0, 600, 650),
+                ConsultaMuestra.comodinInicial("findByCriteria (color)", compileCriteria(color), "%rojo%", 50),
+                ConsultaMuestra.completa("findEstadisticas (total)",
+                        estadisticasSql(vacio, MotocicletaAgrupacion.TOTAL, 250)),
+                ConsultaMuestra.completa("findEstadisticas (marca)",
+                        estadisticasSql(vacio, MotocicletaAgrupacion.MARCA, 250)),
+                ConsultaMuestra.of("findEstadisticas (cilindraje, precio)",
+                        estadisticasSql(baratas, MotocicletaAgrupacion.CILINDRAJE, 250), 2000.0),
+                ConsultaMuestra.of("findPage (primera)", pageSql(null, false, MotocicletaSort.ID), 101),
+                ConsultaMuestra.of("findPage (precio)", pageSql(null, true, MotocicletaSort.PRECIO),
+                        precio, precio, 42, 101),
+                ConsultaMuestra.of("findPage (marca)", pageSql(null, true, MotocicletaSort.MARCA),
+                        "Honda", "Honda", 42, 101),
+                ConsultaMuestra.of("findPage (cilindraje desc)", pageSql(null, true, MotocicletaSort.CILINDRAJE_DESC),
+                        600, 600, 42, 101),
+                ConsultaMuestra.comodinInicial("findPageByMarca", pageSql(PAGE_MARCA_FILTER, true, MotocicletaSort.ID),
+                        "%honda%", 42, 101)
+                        .motivo("LIKE con comodín inicial, leído en orden de ID solo hasta llenar la página"),
+                ConsultaMuestra.of("findPageByPrecioMaximo", pageSql(PAGE_PRECIO_FILTER, true, MotocicletaSort.PRECIO),
+                        2000.0, new BigDecimal("1500.00"), new BigDecimal("1500.00"), 42, 101),
+                ConsultaMuestra.of("findPageByCilindrajeRango",
+                        pageSql(PAGE_CILINDRAJE_FILTER, false, MotocicletaSort.CILINDRAJE), 600, 650, 101));
+    }
+}
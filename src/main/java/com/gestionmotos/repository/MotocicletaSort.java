@@ -0,0 +1,110 @@
+package com.gestionmotos.repository;
+
+import com.gestionmotos.model.Motocicleta;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+
+/**
+ * Criterios de ordenación para las consultas paginadas de motocicletas.
+ * El orden se aplica en SQL y siempre se desempata por ID, de modo que cada
+ * fila tiene una posición única y la paginación por clave no repite ni salta filas.
+ */
+public enum MotocicletaSort {
+    ID("id", false),
+    MARCA("marca", false),
+    MARCA_DESC("marca", true),
+    PRECIO("precio", false),
+    PRECIO_DESC("precio", true),
+    CILINDRAJE("cilindraje", false),
+    CILINDRAJE_DESC("cilindraje", true);
+    
+    private final String column;
+    private final boolean descending;
+    
+    MotocicletaSort(String column, boolean descending) {
+        this.column = column;
+        this.descending = descending;
+    }
+    
+    /**
+     * @return Nombre de la columna por la que se ordena
+     */
+    public String getColumn() {
+        return column;
+    }
+    
+    public boolean isDescending() {
+        return descending;
+    }
+    
+    /**
+     * Obtiene el valor de la columna de ordenación de una motocicleta,
+     * tal como se enviará como parámetro en la siguiente consulta.
+     * @param moto La motocicleta
+     * @return El valor de la columna de ordenación
+     */
+    public Object keyOf(Motocicleta moto) {
+        switch (column) {
+            case "marca":
+                return moto.getMarca();
+            case "precio":
+                // DECIMAL exacto para que la comparación con la columna no pierda precisión
+                return BigDecimal.valueOf(moto.getPrecio());
+            case "cilindraje":
+                return moto.getCilindraje();
+            default:
+                return moto.getId();
+        }
+    }
+    
+    /**
+     * Comparador equivalente a {@link #orderBy()} para ordenar motocicletas en memoria.
+     * Las marcas se comparan sin distinguir mayúsculas, como la intercalación de la base de datos.
+     * @return El comparador, desempatado por ID
+     */
+    public Comparator<Motocicleta> comparator() {
+        Comparator<Motocicleta> byId = Comparator.comparingInt(Motocicleta::getId);
+        Comparator<Motocicleta> order;
+        switch (column) {
+            case "marca":
+                order = Comparator.comparing(Motocicleta::getMarca, String.CASE_INSENSITIVE_ORDER).thenComparing(byId);
+                break;
+            case "precio":
+                order = Comparator.comparingDouble(Motocicleta::getPrecio).thenComparing(byId);
+                break;
+            case "cilindraje":
+                order = Comparator.comparingInt(Motocicleta::getCilindraje).thenComparing(byId);
+                break;
+            default:
+                order = byId;
+                break;
+        }
+        return descending ? order.reversed() : order;
+    }
+    
+    /**
+     * Condición de paginación por clave para continuar después del cursor. Equivale a
+     * {@code col > ? OR (col = ? AND id > ?)}, pero empieza por {@code col >= ?} para que la
+     * base de datos recorra solo un rango del índice de la columna.
+     * @return La condición, con los parámetros valor, valor e ID del cursor
+     */
+    String keysetCondition() {
+        String op = descending ? "<" : ">";
+        if (this == ID) {
+            return "id " + op + " ?";
+        }
+        return column + " " + op + "= ? AND (" + column + " " + op + " ? OR id " + op + " ?)";
+    }
+    
+    /**
+     * @return Cláusula ORDER BY equivalente
+     */
+    String orderBy() {
+        String dir = descending ? " DESC" : "";
+        if (this == ID) {
+            return "ORDER BY id" + dir;
+        }
+        return "ORDER BY " + column + dir + ", id" + dir;
+    }
+}
@@ -0,0 +1,40 @@
+package com.gestionmotos.repository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Página de resultados de una consulta paginada por clave.
+ * @param <T> Tipo de entidad
+ */
+public class Page<T> {
+    private final List<T> content;
+    private final PageCursor nextCursor;
+    
+    public Page(List<T> content, PageCursor nextCursor) {
+        this.content = Collections.unmodifiableList(content);
+        this.nextCursor = nextCursor;
+    }
+    
+    /**
+     * @return Las filas de la página, en el orden pedido
+     */
+    public List<T> getContent() {
+        return content;
+    }
+    
+    /**
+     * @return Cursor para pedir la página siguiente, o null si esta es la última
+     */
+    public PageCursor getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+    
+    public int size() {
+        return content.size();
+    }
+}
@@ -0,0 +1,60 @@
+package com.gestionmotos.repository;
+
+import com.gestionmotos.model.Motocicleta;
+
+/**
+ * Posición de la última fila de una página: el valor de la columna de ordenación y el ID.
+ * La página siguiente empieza justo después de esta posición ({@code WHERE (col, id) > (?, ?)}),
+ * por lo que leer una página profunda cuesta lo mismo que leer la primera.
+ */
+public class PageCursor {
+    private final MotocicletaSort sort;
+    private final Object value;
+    private final int id;
+    
+    private PageCursor(MotocicletaSort sort, Object value, int id) {
+        this.sort = sort;
+        this.value = value;
+        this.id = id;
+    }
+    
+    /**
+     * Crea el cursor que apunta justo después de una motocicleta.
+     * @param moto Última motocicleta de la página actual
+     * @param sort Ordenación de la consulta
+     * @return El cursor para pedir la página siguiente
+     */
+    public static PageCursor after(Motocicleta moto, MotocicletaSort sort) {
+        return new PageCursor(sort, sort.keyOf(moto), moto.getId());
+    }
+    
+    /**
+     * Crea un cursor por ID, para recorrer la tabla en orden de ID.
+     * @param id ID de la última fila ya leída
+     * @return El cursor para pedir la página siguiente
+     */
+    public static PageCursor afterId(int id) {
+        return new PageCursor(MotocicletaSort.ID, id, id);
+    }
+    
+    public MotocicletaSort getSort() {
+        return sort;
+    }
+    
+    public Object getValue() {
+        return value;
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    @Override
+    public String toString() {
+        return "PageCursor{" +
+               "sort=" + sort +
+               ", value=" + value +
+               ", id=" + id +
+               '}';
+    }
+}
@@ -0,0 +1,421 @@
+package com.gestionmotos.repository;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.util.DatabaseConnection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Decorador que guarda los resultados de {@link #findByMarca}, {@link #findByColor},
+ * {@link #findByPrecioMaximo}, {@link #findByCilindrajeRango} y {@link #findByCriteria},
+ * con la consulta y sus parámetros como clave.
+ * <p>
+ * La caché se limita por número de resultados ({@code cache.query.maxEntries}) y por bytes
+ * estimados ({@code cache.query.maxBytes}), desalojando el menos usado recientemente.
+ * Cada resultado caduca a los {@code cache.query.ttlMs} milisegundos, de modo que un resultado
+ * vacío por un error de la base de datos o un cambio que no pasó por aquí no dura para siempre.
+ * <p>
+ * Cada escritura invalida solo los resultados a los que puede afectar: los que contienen la
+ * motocicleta escrita y aquellos cuya consulta cumple la motocicleta con sus datos nuevos.
+ * Por ejemplo, cambiar un precio de 4000 a 4500 no invalida {@code findByPrecioMaximo(3000)}.
+ * Los cambios de otros clientes se aplican con {@link #upsert} y {@link #remove}.
+ * <p>
+ * Los resultados se guardan como copias y se entregan como copias.
+ */
+public class QueryCachingMotocicletaRepository extends ForwardingMotocicletaRepository {
+    // Valores por defecto si no se configuran en config.properties
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final int DEFAULT_MAX_BYTES = 32 * 1024 * 1024;
+    private static final int DEFAULT_TTL_MS = 60_000;
+    // A partir de este tamaño, un lote vacía la caché en lugar de revisar cada resultado
+    private static final int BATCH_CLEAR_THRESHOLD = 1000;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+    // findByMarca del repositorio decorado busca con el índice FULLTEXT (search.marca.fulltext)
+    private final boolean marcaFullText;
+
+    // Resultados, del menos al más usado recientemente; protegido por this
+    private final LinkedHashMap<String, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    // Se incrementa con cada escritura para no guardar resultados leídos antes de ella
+    private long version;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private long expirations;
+
+    /**
+     * Un resultado guardado.
+     */
+    private static final class Entrada {
+        final MotocicletaCriteria criteria;
+        // true si la consulta no puede evaluarse en memoria y cualquier escritura la invalida
+        final boolean conservadora;
+        final List<Motocicleta> motos;
+        // IDs del resultado, ordenados, para saber si contiene una motocicleta
+        final int[] ids;
+        final long bytes;
+        final long creadaNanos = System.nanoTime();
+
+        Entrada(MotocicletaCriteria criteria, boolean conservadora, List<Motocicleta> motos) {
+            this.criteria = criteria;
+            this.conservadora = conservadora;
+            this.motos = new ArrayList<>(motos.size());
+            this.ids = new int[motos.size()];
+            long total = 64;
+            for (int i = 0; i < motos.size(); i++) {
+                Motocicleta moto = motos.get(i);
+                this.motos.add(copy(moto));
+                ids[i] = moto.getId();
+                total += estimatedBytes(moto);
+            }
+            Arrays.sort(ids);
+            this.bytes = total + 4L * ids.length;
+        }
+
+        boolean afectadaPor(int id, Motocicleta nueva) {
+            return conservadora
+                    || Arrays.binarySearch(ids, id) >= 0
+                    || (nueva != null && criteria.matches(nueva));
+        }
+    }
+
+    /**
+     * Crea el decorador con la configuración cache.query.maxEntries, cache.query.maxBytes
+     * y cache.query.ttlMs.
+     * @param delegate Repositorio decorado
+     */
+    public QueryCachingMotocicletaRepository(MotocicletaRepository delegate) {
+        this(delegate,
+                DatabaseConnection.getInstance().getIntProperty("cache.query.maxEntries", DEFAULT_MAX_ENTRIES),
+                DatabaseConnection.getInstance().getIntProperty("cache.query.maxBytes", DEFAULT_MAX_BYTES),
+                DatabaseConnection.getInstance().getIntProperty("cache.query.ttlMs", DEFAULT_TTL_MS),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Crea el decorador.
+     * @param delegate Repositorio decorado
+     * @param maxEntries Número máximo de resultados guardados
+     * @param maxBytes Tamaño máximo estimado de los resultados guardados
+     * @param ttl Tiempo de vida de cada resultado
+     * @param unit Unidad de {@code ttl}
+     */
+    public QueryCachingMotocicletaRepository(MotocicletaRepository delegate, int maxEntries, long maxBytes,
+                                             long ttl, TimeUnit unit) {
+        super(delegate);
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = Math.max(1, maxBytes);
+        this.ttlNanos = unit.toNanos(Math.max(1, ttl));
+        this.marcaFullText = Boolean.parseBoolean(DatabaseConnection.getInstance().getProperties()
+                .getProperty("search.marca.fulltext", "false").trim())
+                && DatabaseConnection.getInstance().getBackend().isFullTextDisponible();
+    }
+
+    @Override
+    public List<Motocicleta> findByMarca(String marca) {
+        // Con FULLTEXT el resultado no es "marca contiene el texto", así que cualquier escritura lo invalida
+        return cached("marca|" + marca, MotocicletaCriteria.builder().marca(marca).build(),
+                marcaFullText || hasWildcard(marca),
+                () -> delegate.findByMarca(marca));
+    }
+
+    @Override
+    public List<Motocicleta> findByColor(String color) {
+        return cached("color|" + color, MotocicletaCriteria.builder().color(color).build(), hasWildcard(color),
+                () -> delegate.findByColor(color));
+    }
+
+    @Override
+    public List<Motocicleta> findByPrecioMaximo(double precio) {
+        return cached("precio|" + precio, MotocicletaCriteria.builder().precio(null, precio).build(), false,
+                () -> delegate.findByPrecioMaximo(precio));
+    }
+
+    @Override
+    public List<Motocicleta> findByCilindrajeRango(int min, int max) {
+        return cached("cilindraje|" + min + '|' + max, MotocicletaCriteria.builder().cilindraje(min, max).build(), false,
+                () -> delegate.findByCilindrajeRango(min, max));
+    }
+
+    @Override
+    public List<Motocicleta> findByCriteria(MotocicletaCriteria criteria) {
+        // toString() redondea los precios: la clave usa los valores exactos
+        String key = "criterios|" + criteria.getMarca() + '|' + criteria.getColor()
+                + '|' + criteria.getPrecioMin() + '|' + criteria.getPrecioMax()
+                + '|' + criteria.getCilindrajeMin() + '|' + criteria.getCilindrajeMax()
+                + '|' + criteria.getSort() + '|' + criteria.getLimit();
+        return cached(key, criteria, false, () -> delegate.findByCriteria(criteria));
+    }
+
+    /**
+     * findByMarca y findByColor pasan el texto a LIKE sin escapar: con % o _ la consulta
+     * no equivale a {@link MotocicletaCriteria#matches}.
+     */
+    private static boolean hasWildcard(String texto) {
+        return texto != null && (texto.indexOf('%') >= 0 || texto.indexOf('_') >= 0);
+    }
+
+    /**
+     * Devuelve el resultado guardado o lo lee del repositorio decorado y lo guarda.
+     * @param key Tipo de consulta y parámetros exactos
+     * @param criteria Condición que cumple cada motocicleta del resultado
+     */
+    private List<Motocicleta> cached(String key, MotocicletaCriteria criteria, boolean conservadora,
+                                     Supplier<List<Motocicleta>> loader) {
+        long leidaEn;
+        synchronized (this) {
+            Entrada entrada = entradas.get(key);
+            if (entrada != null && System.nanoTime() - entrada.creadaNanos > ttlNanos) {
+                entradas.remove(key);
+                bytes -= entrada.bytes;
+                expirations++;
+                entrada = null;
+            }
+            if (entrada != null) {
+                hits++;
+                List<Motocicleta> motos = new ArrayList<>(entrada.motos.size());
+                for (Motocicleta moto : entrada.motos) {
+                    motos.add(copy(moto));
+                }
+                return motos;
+            }
+            misses++;
+            leidaEn = version;
+        }
+
+        List<Motocicleta> motos = loader.get();
+        Entrada entrada = new Entrada(criteria, conservadora, motos);
+        synchronized (this) {
+            // Si hubo escrituras durante la lectura, el resultado puede no incluirlas
+            if (leidaEn == version && entrada.bytes <= maxBytes) {
+                Entrada anterior = entradas.put(key, entrada);
+                if (anterior != null) {
+                    bytes -= anterior.bytes;
+                }
+                bytes += entrada.bytes;
+                evict();
+            }
+        }
+        return motos;
+    }
+
+    private void evict() {
+        Iterator<Entrada> it = entradas.values().iterator();
+        while ((entradas.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            bytes -= it.next().bytes;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Quita los resultados a los que afecta la escritura de una motocicleta.
+     * @param id ID de la motocicleta escrita
+     * @param nueva La motocicleta con sus datos nuevos, o null si se eliminó
+     */
+    private synchronized void invalidate(int id, Motocicleta nueva) {
+        version++;
+        Iterator<Entrada> it = entradas.values().iterator();
+        while (it.hasNext()) {
+            Entrada entrada = it.next();
+            if (entrada.afectadaPor(id, nueva)) {
+                bytes -= entrada.bytes;
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Vacía la caché.
+     */
+    public synchronized void invalidateAll() {
+        version++;
+        invalidations += entradas.size();
+        entradas.clear();
+        bytes = 0;
+    }
+
+    @Override
+    public Motocicleta save(Motocicleta moto) {
+        Motocicleta guardada = delegate.save(moto);
+        if (guardada.getId() != 0) {
+            invalidate(guardada.getId(), guardada);
+        }
+        return guardada;
+    }
+
+    @Override
+    public boolean update(Motocicleta moto) {
+        try {
+            return delegate.update(moto);
+        } finally {
+            invalidate(moto.getId(), moto);
+        }
+    }
+
+    @Override
+    public boolean deleteById(Integer id) {
+        try {
+            return delegate.deleteById(id);
+        } finally {
+            invalidate(id, null);
+        }
+    }
+
+    @Override
+    public BatchResult saveAll(Collection<Motocicleta> motos) {
+        try {
+            return delegate.saveAll(motos);
+        } finally {
+            if (motos.size() > BATCH_CLEAR_THRESHOLD) {
+                invalidateAll();
+            } else {
+                for (Motocicleta moto : motos) {
+                    if (moto.getId() != 0) {
+                        invalidate(moto.getId(), moto);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public BatchResult updateAll(Collection<Motocicleta> motos) {
+        try {
+            return delegate.updateAll(motos);
+        } finally {
+            if (motos.size() > BATCH_CLEAR_THRESHOLD) {
+                invalidateAll();
+            } else {
+                for (Motocicleta moto : motos) {
+                    invalidate(moto.getId(), moto);
+                }
+            }
+        }
+    }
+
+    @Override
+    public BatchResult deleteAllById(Collection<Integer> ids) {
+        try {
+            return delegate.deleteAllById(ids);
+        } finally {
+            if (ids.size() > BATCH_CLEAR_THRESHOLD) {
+                invalidateAll();
+            } else {
+                for (Integer id : ids) {
+                    invalidate(id, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Invalida los resultados afectados por una motocicleta dada de alta o modificada fuera
+     * de este repositorio, por ejemplo por otro cliente.
+     * @param moto La motocicleta con sus datos actuales
+     */
+    public void upsert(Motocicleta moto) {
+        invalidate(moto.getId(), moto);
+    }
+
+    /**
+     * Invalida los resultados que contienen una motocicleta eliminada fuera de este repositorio.
+     * @param id ID de la motocicleta
+     */
+    public void remove(int id) {
+        invalidate(id, null);
+    }
+
+    /**
+     * @return Número de resultados guardados
+     */
+    public synchronized int size() {
+        return entradas.size();
+    }
+
+    /**
+     * @return Tamaño estimado de los resultados guardados, en bytes
+     */
+    public synchronized long estimatedBytes() {
+        return bytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return Resultados desalojados por falta de espacio
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return Resultados quitados por escrituras
+     */
+    public synchronized long getInvalidationCount() {
+        return invalidations;
+    }
+
+    /**
+     * @return Resultados descartados por caducar
+     */
+    public synchronized long getExpirationCount() {
+        return expirations;
+    }
+
+    /**
+     * @return Proporción de aciertos (0-1) sobre el total de consultas
+     */
+    public synchronized double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * Estima la memoria de una motocicleta: el objeto, sus dos cadenas y la referencia en la lista.
+     */
+    private static long estimatedBytes(Motocicleta moto) {
+        return 40 + 8 + stringBytes(moto.getMarca()) + stringBytes(moto.getColor());
+    }
+
+    private static long stringBytes(String s) {
+        return s == null ? 0 : 40 + s.length();
+    }
+
+    private static Motocicleta copy(Motocicleta moto) {
+        return new Motocicleta(moto.getId(), moto.getMarca(), moto.getCilindraje(), moto.getPrecio(), moto.getColor());
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "QueryCachingMotocicletaRepository{" +
+               "resultados=" + entradas.size() + "/" + maxEntries +
+               ", bytes=" + bytes +
+               ", aciertos=" + hits +
+               ", fallos=" + misses +
+               ", ratio=" + String.format("%.2f", getHitRatio()) +
+               ", desalojos=" + evictions +
+               ", invalidaciones=" + invalidations +
+               ", caducadas=" + expirations +
+               '}';
+    }
+}
@@ -0,0 +1,394 @@
+package com.gestionmotos.repository;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Revisa el plan de ejecución de las sentencias de {@link MotocicletaRepositoryImpl} y
+ * {@link UsuarioRepositoryImpl} con {@code EXPLAIN}.
+ * <p>
+ * Cada repositorio declara sus sentencias con parámetros representativos
+ * ({@code consultasMuestra()}). Por cada tabla que lee una sentencia se informa el tipo de
+ * acceso, el índice usado y las filas examinadas. Una sentencia falla si recorre la tabla
+ * completa ({@code ALL}) o un índice completo ({@code index}) examinando más filas que el umbral
+ * configurado, o si termina en {@code LIMIT} y cualquier acceso examina más filas que el umbral y
+ * más de {@value #FACTOR_LIMITE} veces el límite (por ejemplo, una página que ordena todo el rango
+ * restante en lugar de leerlo en el orden del índice). Se exceptúan las sentencias que leen toda la
+ * tabla por diseño o con un {@code LIKE} con comodín inicial ({@link ConsultaMuestra#isRecorridoCompleto()}).
+ * También falla cualquier
+ * constante {@code *_SQL} de los repositorios que no esté en su catálogo, para que una
+ * consulta nueva no quede sin revisar.
+ * <p>
+ * Funciona con MySQL, donde las filas son las estimadas por el optimizador, y con H2 en modo
+ * MySQL, donde las consultas se ejecutan con {@code EXPLAIN ANALYZE} y las filas son las
+ * realmente examinadas.
+ */
+public class QueryPlanInspector {
+    /** Filas que puede examinar un recorrido completo antes de considerarse un fallo. */
+    public static final int DEFAULT_MAX_FILAS = 1000;
+    /** Veces el {@code LIMIT} de una sentencia que puede examinar un acceso por encima del umbral. */
+    public static final int FACTOR_LIMITE = 10;
+
+    // Tipos de acceso (los de la columna "type" del EXPLAIN de MySQL)
+    private static final String ACCESO_COMPLETO = "ALL";
+    private static final String ACCESO_INDICE = "index";
+    private static final String ACCESO_RANGO = "range";
+
+    // Acceso a una tabla en el plan de H2, por ejemplo:
+    //   "public"."motocicletas" /* public.idx_motocicletas_precio: precio <= ?1 */ /* scanCount: 12 */
+    private static final Pattern ACCESO_H2 = Pattern.compile(
+            "\"?\\w+\"?\\.\"?(\\w+)\"?(?:\\s+\"?\\w+\"?)?\\s*/\\*\\s*\\w+\\.(\\w+)(?:\\.(tableScan))?(:[^*]*)?\\s*\\*/"
+                    + "(?:\\s*/\\*\\s*scanCount:\\s*(\\d+)\\s*\\*/)?");
+
+    private final int maxFilas;
+
+    /**
+     * Acceso a una tabla dentro del plan de una sentencia.
+     */
+    public static final class Acceso {
+        private final String tabla;
+        private final String tipo;
+        private final String indice;
+        private final long filas;
+        private final boolean cortadasPorLimite;
+
+        Acceso(String tabla, String tipo, String indice, long filas, boolean cortadasPorLimite) {
+            this.tabla = tabla;
+            this.tipo = tipo;
+            this.indice = indice;
+            this.filas = filas;
+            this.cortadasPorLimite = cortadasPorLimite;
+        }
+
+        public String getTabla() {
+            return tabla;
+        }
+
+        /**
+         * @return Tipo de acceso: ALL, index, range, ref, eq_ref, const...
+         */
+        public String getTipo() {
+            return tipo;
+        }
+
+        /**
+         * @return Índice usado, o null si no se usa ninguno
+         */
+        public String getIndice() {
+            return indice;
+        }
+
+        /**
+         * @return Filas examinadas (estimadas en MySQL), o -1 si no se conocen
+         */
+        public long getFilas() {
+            return filas;
+        }
+
+        /**
+         * @return true si las filas son una estimación que no tiene en cuenta el {@code LIMIT}
+         *         y la lectura se detiene en él (MySQL lee en el orden del índice, sin "Using filesort")
+         */
+        public boolean isCortadasPorLimite() {
+            return cortadasPorLimite;
+        }
+
+        @Override
+        public String toString() {
+            return tabla + " " + tipo + (indice != null ? " " + indice : "") + (filas >= 0 ? " ~" + filas : "");
+        }
+    }
+
+    /**
+     * Resultado de revisar una sentencia.
+     */
+    public static final class Plan {
+        private final String repositorio;
+        private final ConsultaMuestra consulta;
+        private final List<Acceso> accesos;
+        private final String fallo;
+        private final String omitida;
+
+        Plan(String repositorio, ConsultaMuestra consulta, List<Acceso> accesos, String fallo, String omitida) {
+            this.repositorio = repositorio;
+            this.consulta = consulta;
+            this.accesos = accesos;
+            this.fallo = fallo;
+            this.omitida = omitida;
+        }
+
+        public String getRepositorio() {
+            return repositorio;
+        }
+
+        /**
+         * @return La sentencia revisada (sin parámetros si el fallo es una constante sin catalogar)
+         */
+        public ConsultaMuestra getConsulta() {
+            return consulta;
+        }
+
+        public List<Acceso> getAccesos() {
+            return Collections.unmodifiableList(accesos);
+        }
+
+        /**
+         * @return true si la sentencia no cumple el umbral o no se pudo revisar
+         */
+        public boolean isFallo() {
+            return fallo != null;
+        }
+
+        /**
+         * @return Por qué falla la sentencia, o null
+         */
+        public String getFallo() {
+            return fallo;
+        }
+
+        /**
+         * @return Por qué no se revisó la sentencia (por ejemplo, solo existe en MySQL), o null
+         */
+        public String getOmitida() {
+            return omitida;
+        }
+
+        @Override
+        public String toString() {
+            return repositorio + "." + (consulta != null ? consulta.getNombre() : "?") + " " + accesos
+                    + (fallo != null ? " FALLO: " + fallo : "") + (omitida != null ? " omitida: " + omitida : "");
+        }
+    }
+
+    /**
+     * Crea un inspector con el umbral por defecto.
+     */
+    public QueryPlanInspector() {
+        this(DEFAULT_MAX_FILAS);
+    }
+
+    /**
+     * Crea un inspector.
+     * @param maxFilas Filas que puede examinar un recorrido completo sin considerarse un fallo
+     */
+    public QueryPlanInspector(int maxFilas) {
+        if (maxFilas < 0) {
+            throw new IllegalArgumentException("El umbral de filas no puede ser negativo");
+        }
+        this.maxFilas = maxFilas;
+    }
+
+    /**
+     * @return Las sentencias de cada repositorio, por nombre del repositorio
+     */
+    public static Map<String, List<ConsultaMuestra>> catalogo() {
+        Map<String, List<ConsultaMuestra>> catalogo = new LinkedHashMap<>();
+        catalogo.put(MotocicletaRepositoryImpl.class.getSimpleName(), MotocicletaRepositoryImpl.consultasMuestra());
+        catalogo.put(UsuarioRepositoryImpl.class.getSimpleName(), UsuarioRepositoryImpl.consultasMuestra());
+        return catalogo;
+    }
+
+    /**
+     * Revisa todas las sentencias del catálogo.
+     * @param conn Conexión a una base de datos con el esquema y datos representativos
+     * @return Un plan por sentencia, más un fallo por cada constante SQL sin catalogar
+     */
+    public List<Plan> inspeccionar(Connection conn) throws SQLException {
+        Map<String, List<ConsultaMuestra>> catalogo = catalogo();
+        List<Plan> planes = new ArrayList<>();
+        for (Map.Entry<String, List<ConsultaMuestra>> entry : catalogo.entrySet()) {
+            planes.addAll(inspeccionar(conn, entry.getKey(), entry.getValue()));
+        }
+        planes.addAll(sinCatalogar(MotocicletaRepositoryImpl.class, catalogo));
+        planes.addAll(sinCatalogar(UsuarioRepositoryImpl.class, catalogo));
+        return planes;
+    }
+
+    /**
+     * Revisa unas sentencias. Las de escritura no se ejecutan, solo se explican.
+     * @param conn Conexión a una base de datos con el esquema y datos representativos
+     * @param repositorio Nombre del repositorio, para el informe
+     * @param consultas Las sentencias
+     * @return Un plan por sentencia
+     */
+    public List<Plan> inspeccionar(Connection conn, String repositorio, List<ConsultaMuestra> consultas)
+            throws SQLException {
+        boolean mySql = isMySql(conn);
+        List<Plan> planes = new ArrayList<>(consultas.size());
+        for (ConsultaMuestra consulta : consultas) {
+            if (consulta.isSoloMySql() && !mySql) {
+                planes.add(new Plan(repositorio, consulta, Collections.emptyList(), null,
+                        "solo existe en MySQL"));
+                continue;
+            }
+            try {
+                List<Acceso> accesos = mySql ? explicarMySql(conn, consulta) : explicarH2(conn, consulta);
+                planes.add(new Plan(repositorio, consulta, accesos, evaluar(consulta, accesos), null));
+            } catch (SQLException e) {
+                planes.add(new Plan(repositorio, consulta, Collections.emptyList(),
+                        "no se pudo explicar: " + e.getMessage(), null));
+            }
+        }
+        return planes;
+    }
+
+    /**
+     * @return El motivo del fallo, o null si el plan cumple el umbral
+     */
+    private String evaluar(ConsultaMuestra consulta, List<Acceso> accesos) {
+        if (consulta.isRecorridoCompleto()) {
+            return null;
+        }
+        long limite = consulta.getLimite();
+        for (Acceso acceso : accesos) {
+            if (acceso.filas <= maxFilas) {
+                continue;
+            }
+            String por = acceso.indice != null ? " por " + acceso.indice : "";
+            if (ACCESO_COMPLETO.equals(acceso.tipo) || ACCESO_INDICE.equals(acceso.tipo)) {
+                return "recorre " + acceso.tabla + " completa" + por
+                        + " (" + acceso.filas + " filas, máximo " + maxFilas + ")";
+            }
+            if (limite >= 0 && !acceso.cortadasPorLimite && acceso.filas > FACTOR_LIMITE * limite) {
+                return "examina " + acceso.filas + " filas de " + acceso.tabla + por + " para devolver "
+                        + limite + " (máximo " + Math.max(maxFilas, FACTOR_LIMITE * limite) + ")";
+            }
+        }
+        return null;
+    }
+
+    private static List<Acceso> explicarMySql(Connection conn, ConsultaMuestra consulta) throws SQLException {
+        List<Acceso> accesos = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + consulta.getSql())) {
+            asignar(stmt, consulta.getParametros());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String tabla = rs.getString("table");
+                    String tipo = rs.getString("type");
+                    if (tabla == null || tipo == null) {
+                        // Filas sin tabla: "Select tables optimized away", "No matching min/max row"...
+                        continue;
+                    }
+                    long filas = rs.getLong("rows");
+                    boolean nulas = rs.wasNull();
+                    // Sin ordenar aparte, la lectura en el orden del índice se detiene en el LIMIT
+                    String extra = rs.getString("Extra");
+                    boolean ordenaAparte = extra != null && extra.contains("Using filesort");
+                    accesos.add(new Acceso(tabla, tipo, rs.getString("key"), nulas ? -1 : filas, !ordenaAparte));
+                }
+            }
+        }
+        return accesos;
+    }
+
+    private static List<Acceso> explicarH2(Connection conn, ConsultaMuestra consulta) throws SQLException {
+        // EXPLAIN ANALYZE ejecuta la sentencia: solo se usa con las consultas
+        boolean lectura = consulta.getSql().trim().toUpperCase(Locale.ROOT).startsWith("SELECT");
+        String plan;
+        try (PreparedStatement stmt = conn.prepareStatement((lectura ? "EXPLAIN ANALYZE " : "EXPLAIN ")
+                + consulta.getSql())) {
+            asignar(stmt, consulta.getParametros());
+            try (ResultSet rs = stmt.executeQuery()) {
+                plan = rs.next() ? rs.getString(1) : "";
+            }
+        }
+
+        List<Acceso> accesos = new ArrayList<>();
+        Matcher m = ACCESO_H2.matcher(plan);
+        while (m.find()) {
+            String tabla = m.group(1).toLowerCase(Locale.ROOT);
+            String indice = m.group(2);
+            String tipo;
+            if (m.group(3) != null) {
+                tipo = ACCESO_COMPLETO;
+                indice = null;
+            } else {
+                // Un índice sin condición se recorre entero para obtener el orden
+                tipo = m.group(4) != null ? ACCESO_RANGO : ACCESO_INDICE;
+                if (indice.toUpperCase(Locale.ROOT).startsWith("PRIMARY_KEY")) {
+                    indice = "PRIMARY";
+                }
+            }
+            long filas;
+            if (m.group(5) != null) {
+                // H2 cuenta también la lectura final que ya no devuelve fila
+                filas = Math.max(Long.parseLong(m.group(5)) - 1, 0);
+            } else if (tipo.equals(ACCESO_COMPLETO)) {
+                filas = contar(conn, tabla);
+            } else {
+                filas = -1;
+            }
+            // EXPLAIN ANALYZE cuenta las filas realmente examinadas, ya cortadas por el LIMIT
+            accesos.add(new Acceso(tabla, tipo, indice, filas, false));
+        }
+        return accesos;
+    }
+
+    private static long contar(Connection conn, String tabla) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + tabla)) {
+            return rs.next() ? rs.getLong(1) : -1;
+        }
+    }
+
+    private static void asignar(PreparedStatement stmt, List<Object> parametros) throws SQLException {
+        for (int i = 0; i < parametros.size(); i++) {
+            stmt.setObject(i + 1, parametros.get(i));
+        }
+    }
+
+    /**
+     * Busca las constantes {@code static final String *_SQL} de un repositorio que no están en
+     * el catálogo.
+     */
+    private static List<Plan> sinCatalogar(Class<?> repositorio, Map<String, List<ConsultaMuestra>> catalogo) {
+        Set<String> catalogadas = new HashSet<>();
+        for (ConsultaMuestra consulta : catalogo.getOrDefault(repositorio.getSimpleName(), Collections.emptyList())) {
+            catalogadas.add(consulta.getSql());
+        }
+        List<Plan> fallos = new ArrayList<>();
+        for (Field field : repositorio.getDeclaredFields()) {
+            int mod = field.getModifiers();
+            if (!Modifier.isStatic(mod) || !Modifier.isFinal(mod) || field.getType() != String.class
+                    || !field.getName().endsWith("_SQL")) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                String sql = (String) field.get(null);
+                if (!catalogadas.contains(sql)) {
+                    ConsultaMuestra consulta = ConsultaMuestra.of(field.getName(), sql);
+                    fallos.add(new Plan(repositorio.getSimpleName(), consulta, Collections.emptyList(),
+                            "la constante " + field.getName() + " no está en consultasMuestra()", null));
+                }
+            } catch (IllegalAccessException e) {
+                System.err.println("No se pudo leer " + field.getName() + ": " + e.getMessage());
+            }
+        }
+        return fallos;
+    }
+
+    private static boolean isMySql(Connection conn) throws SQLException {
+        String producto = conn.getMetaData().getDatabaseProductName();
+        return producto.equalsIgnoreCase("MySQL") || producto.equalsIgnoreCase("MariaDB");
+    }
+
+    public int getMaxFilas() {
+        return maxFilas;
+    }
+}
@@ -1,5 +1,6 @@
 package com.gestionmotos.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,9 +39,27 @@ public interface Repository<T, ID> {
      */
     Optional<T> findById(ID id);
     
+    /**
+     * Busca varias entidades por su ID con pocas consultas, en lugar de una por ID.
+     * @param ids Los IDs de las entidades a buscar
+     * @return Las entidades encontradas en el orden de los IDs, sin repetidas;
+     *         los IDs que no existen se omiten
+     */
+    List<T> findAllById(Collection<ID> ids);
+    
     /**
      * Recupera todas las entidades del repositorio.
      * @return Una lista con todas las entidades
      */
     List<T> findAll();
+    
+    /**
+     * Recupera una página de entidades ordenadas por ID.
+     * Usa paginación por clave ({@code WHERE id > ? ORDER BY id LIMIT ?}), de modo que
+     * el coste de cada página depende solo de su tamaño y no de su posición.
+     * @param afterId ID de la última entidad de la página anterior, o null para la primera página
+     * @param limit Número máximo de entidades a devolver
+     * @return Las entidades de la página
+     */
+    List<T> findPage(ID afterId, int limit);
 }
\ No newline at end of file
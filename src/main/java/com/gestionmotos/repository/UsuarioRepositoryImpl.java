@@ -1,12 +1,19 @@
 package com.gestionmotos.repository;
 
+import com.gestionmotos.mapping.RowMapper;
 import com.gestionmotos.model.Usuario;
+import com.gestionmotos.model.UsuarioRowMapper;
 import com.gestionmotos.util.DatabaseConnection;
 import org.mindrot.jbcrypt.BCrypt;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -14,6 +21,20 @@ import java.util.Optional;
  */
 public class UsuarioRepositoryImpl implements UsuarioRepository {
     
+    // Lee las filas por posición: las consultas seleccionan sus columnas en su orden (UsuarioRowMapper.SELECT)
+    private static final RowMapper<Usuario> MAPPER = UsuarioRowMapper.INSTANCE;
+    
+    // Sentencias SQL fijas: al ser siempre el mismo texto se reutilizan desde la caché de sentencias del pool
+    private static final String INSERT_SQL = "INSERT INTO usuarios (username, password, rol, nombre, email) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE usuarios SET username = ?, rol = ?, nombre = ?, email = ? WHERE id = ?";
+    private static final String UPDATE_PASSWORD_SQL = "UPDATE usuarios SET password = ? WHERE id = ?";
+    private static final String DELETE_SQL = "DELETE FROM usuarios WHERE id = ?";
+    private static final String FIND_BY_ID_SQL = UsuarioRowMapper.SELECT + " WHERE id = ?";
+    private static final String FIND_ALL_SQL = UsuarioRowMapper.SELECT;
+    private static final IdInList FIND_BY_IDS = new IdInList(UsuarioRowMapper.SELECT + " WHERE id IN ");
+    private static final String FIND_PAGE_SQL = UsuarioRowMapper.SELECT + " WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String FIND_BY_USERNAME_SQL = UsuarioRowMapper.SELECT + " WHERE username = ?";
+    
     /**
      * Guarda un nuevo usuario en la base de datos.
      * @param usuario El usuario a guardar
@@ -21,10 +42,8 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
      */
     @Override
     public Usuario save(Usuario usuario) {
-        String sql = "INSERT INTO usuarios (username, password, rol, nombre, email) VALUES (?, ?, ?, ?, ?)";
-        
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setString(1, usuario.getUsername());
             // Encriptar la contraseña antes de guardarla
@@ -63,10 +82,8 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
      */
     @Override
     public boolean update(Usuario usuario) {
-        String sql = "UPDATE usuarios SET username = ?, rol = ?, nombre = ?, email = ? WHERE id = ?";
-        
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
             
             stmt.setString(1, usuario.getUsername());
             stmt.setString(2, usuario.getRol());
@@ -90,10 +107,8 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
      * @return true si la actualización fue exitosa, false en caso contrario
      */
     public boolean updatePassword(int id, String newPassword) {
-        String sql = "UPDATE usuarios SET password = ? WHERE id = ?";
-        
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(UPDATE_PASSWORD_SQL)) {
             
             String hashedPassword = BCrypt.hashpw(newPassword, BCrypt.gensalt());
             stmt.setString(1, hashedPassword);
@@ -115,10 +130,8 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
      */
     @Override
     public boolean deleteById(Integer id) {
-        String sql = "DELETE FROM usuarios WHERE id = ?";
-        
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(DELETE_SQL)) {
             
             stmt.setInt(1, id);
             
@@ -138,23 +151,14 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
      */
     @Override
     public Optional<Usuario> findById(Integer id) {
-        String sql = "SELECT * FROM usuarios WHERE id = ?";
-        
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_ID_SQL)) {
             
             stmt.setInt(1, id);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Usuario usuario = new Usuario(
-                            rs.getInt("id"),
-                            rs.getString("username"),
-                            rs.getString("password"),
-                            rs.getString("rol"),
-                            rs.getString("nombre"),
-                            rs.getString("email")
-                    );
+                    Usuario usuario = MAPPER.map(rs);
                     return Optional.of(usuario);
                 }
             }
@@ -173,22 +177,14 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
      */
     @Override
     public List<Usuario> findAll() {
-        String sql = "SELECT * FROM usuarios";
         List<Usuario> usuarios = new ArrayList<>();
         
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(FIND_ALL_SQL);
+             ResultSet rs = stmt.executeQuery()) {
             
             while (rs.next()) {
-                Usuario usuario = new Usuario(
-                        rs.getInt("id"),
-                        rs.getString("username"),
-                        rs.getString("password"),
-                        rs.getString("rol"),
-                        rs.getString("nombre"),
-                        rs.getString("email")
-                );
+                Usuario usuario = MAPPER.map(rs);
                 usuarios.add(usuario);
             }
             
@@ -200,6 +196,68 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
         return usuarios;
     }
     
+    /**
+     * Busca varios usuarios por su ID con consultas {@code IN} de hasta 256 IDs.
+     * @param ids Los IDs de los usuarios a buscar
+     * @return Los usuarios encontrados en el orden de los IDs
+     */
+    @Override
+    public List<Usuario> findAllById(Collection<Integer> ids) {
+        Map<Integer, Usuario> encontrados = new HashMap<>();
+        
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            for (List<Integer> chunk : IdInList.chunks(ids)) {
+                try (PreparedStatement stmt = conn.prepareStatement(FIND_BY_IDS.sql(chunk))) {
+                    FIND_BY_IDS.bind(stmt, chunk);
+                    
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Usuario usuario = MAPPER.map(rs);
+                            encontrados.put(usuario.getId(), usuario);
+                        }
+                    }
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error al buscar usuarios por ID: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return IdInList.inOrder(ids, encontrados);
+    }
+    
+    /**
+     * Recupera una página de usuarios ordenados por ID.
+     * @param afterId ID del último usuario de la página anterior, o null para la primera página
+     * @param limit Número máximo de usuarios a devolver
+     * @return Los usuarios de la página
+     */
+    @Override
+    public List<Usuario> findPage(Integer afterId, int limit) {
+        List<Usuario> usuarios = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_PAGE_SQL)) {
+            
+            stmt.setInt(1, afterId == null ? 0 : afterId);
+            stmt.setInt(2, limit);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Usuario usuario = MAPPER.map(rs);
+                    usuarios.add(usuario);
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error al obtener página de usuarios: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return usuarios;
+    }
+    
     /**
      * Busca un usuario por su nombre de usuario.
      * @param username El nombre de usuario a buscar
@@ -207,23 +265,14 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
      */
     @Override
     public Optional<Usuario> findByUsername(String username) {
-        String sql = "SELECT * FROM usuarios WHERE username = ?";
-        
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_USERNAME_SQL)) {
             
             stmt.setString(1, username);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Usuario usuario = new Usuario(
-                            rs.getInt("id"),
-                            rs.getString("username"),
-                            rs.getString("password"),
-                            rs.getString("rol"),
-                            rs.getString("nombre"),
-                            rs.getString("email")
-                    );
+                    Usuario usuario = MAPPER.map(rs);
                     return Optional.of(usuario);
                 }
             }
@@ -256,4 +305,23 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
         
         return Optional.empty();
     }
-}
\ No newline at end of file
+    
+    /**
+     * Catálogo de las sentencias de este repositorio con parámetros representativos, para
+     * revisar sus planes de ejecución con {@link QueryPlanInspector}.
+     * @return Las sentencias
+     */
+    static List<ConsultaMuestra> consultasMuestra() {
+        Object[] ids = {1, 2, 3, 4};
+        return Arrays.asList(
+                ConsultaMuestra.of("save", INSERT_SQL, "vendedor", "$2a$10$hash", "usuario", "Vendedor", "v@moto.com"),
+                ConsultaMuestra.of("update", UPDATE_SQL, "vendedor", "usuario", "Vendedor", "v@moto.com", 2),
+                ConsultaMuestra.of("updatePassword", UPDATE_PASSWORD_SQL, "$2a$10$hash", 2),
+                ConsultaMuestra.of("deleteById", DELETE_SQL, 2),
+                ConsultaMuestra.of("findById", FIND_BY_ID_SQL, 1),
+                ConsultaMuestra.completa("findAll", FIND_ALL_SQL),
+                ConsultaMuestra.of("findAllById", FIND_BY_IDS.sql(Collections.nCopies(ids.length, 0)), ids),
+                ConsultaMuestra.of("findPage", FIND_PAGE_SQL, 1, 100),
+                ConsultaMuestra.of("findByUsername", FIND_BY_USERNAME_SQL, "admin"));
+    }
+}
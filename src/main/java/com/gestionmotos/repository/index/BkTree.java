@@ -0,0 +1,153 @@
+package com.gestionmotos.repository.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Árbol BK sobre un conjunto de textos para buscar los que están a una distancia
+ * de edición acotada de una consulta.
+ * <p>
+ * Cada hijo de un nodo se guarda bajo su distancia al nodo. Por la desigualdad
+ * triangular, al buscar con distancia máxima k desde un nodo a distancia d de la
+ * consulta solo hay que visitar los hijos con distancia entre d - k y d + k, de modo
+ * que la búsqueda compara la consulta con una fracción pequeña de los textos.
+ * <p>
+ * Los textos eliminados quedan marcados en el árbol y no se devuelven; si se
+ * vuelven a añadir se reactivan. Esta clase no es segura para varios hilos.
+ */
+public class BkTree {
+    private Node root;
+    private int size;
+
+    private static final class Node {
+        final String term;
+        final Map<Integer, Node> children = new HashMap<>(4);
+        boolean deleted;
+
+        Node(String term) {
+            this.term = term;
+        }
+    }
+
+    /**
+     * Resultado de una búsqueda: un texto y su distancia a la consulta.
+     */
+    public static final class Match {
+        private final String term;
+        private final int distance;
+
+        Match(String term, int distance) {
+            this.term = term;
+            this.distance = distance;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+
+        @Override
+        public String toString() {
+            return term + "(" + distance + ")";
+        }
+    }
+
+    /**
+     * Añade un texto al árbol (o lo reactiva si estaba eliminado).
+     * @param term El texto
+     */
+    public void add(String term) {
+        if (root == null) {
+            root = new Node(term);
+            size++;
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int d = EditDistance.levenshtein(node.term, term, Integer.MAX_VALUE - 1);
+            if (d == 0) {
+                if (node.deleted) {
+                    node.deleted = false;
+                    size++;
+                }
+                return;
+            }
+            Node child = node.children.get(d);
+            if (child == null) {
+                node.children.put(d, new Node(term));
+                size++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Marca un texto como eliminado.
+     * @param term El texto
+     */
+    public void remove(String term) {
+        Node node = root;
+        while (node != null) {
+            int d = EditDistance.levenshtein(node.term, term, Integer.MAX_VALUE - 1);
+            if (d == 0) {
+                if (!node.deleted) {
+                    node.deleted = true;
+                    size--;
+                }
+                return;
+            }
+            node = node.children.get(d);
+        }
+    }
+
+    /**
+     * Busca los textos a distancia menor o igual que la indicada.
+     * @param query La consulta
+     * @param maxDistance Distancia máxima
+     * @return Los textos encontrados, del más parecido al menos parecido
+     *         (a igual distancia, en orden alfabético)
+     */
+    public List<Match> search(String query, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            // La distancia exacta hace falta para podar los hijos, así que no se corta en maxDistance
+            int d = EditDistance.levenshtein(node.term, query, Integer.MAX_VALUE - 1);
+            if (d <= maxDistance && !node.deleted) {
+                matches.add(new Match(node.term, d));
+            }
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                int edge = child.getKey();
+                if (edge >= d - maxDistance && edge <= d + maxDistance) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+
+        matches.sort((a, b) -> a.distance != b.distance
+                ? Integer.compare(a.distance, b.distance)
+                : a.term.compareTo(b.term));
+        return matches;
+    }
+
+    /**
+     * @return Número de textos activos en el árbol
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,159 @@
+package com.gestionmotos.repository.index;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.MotocicletaCriteria;
+import com.gestionmotos.repository.MotocicletaRepository;
+import com.gestionmotos.repository.MotocicletaSort;
+import com.gestionmotos.repository.Page;
+import com.gestionmotos.repository.PageCursor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Decorador que responde {@link #findByPrecioMaximo}, {@link #findByCilindrajeRango} y
+ * {@link #findByCriteria} desde un {@link ColumnarMotocicletaStore} en memoria, sin consultar
+ * la base de datos.
+ * <p>
+ * El almacén se carga con {@link #rebuild()}, se mantiene al día con las escrituras hechas a
+ * través de este repositorio y puede traer de la base de datos las motocicletas nuevas con
+ * {@link #refresh()}. Mientras no se ha cargado, las consultas se envían al repositorio decorado.
+ */
+public class ColumnarMotocicletaRepository extends InMemoryMotocicletaRepository<ColumnarMotocicletaStore> {
+    // Filas por consulta al traer motocicletas nuevas en refresh()
+    private static final int REFRESH_PAGE_SIZE = 1000;
+
+    private ColumnarMotocicletaStore store = new ColumnarMotocicletaStore(16);
+
+    /**
+     * Crea el decorador. El almacén queda vacío hasta llamar a {@link #rebuild()}.
+     * @param delegate Repositorio decorado
+     */
+    public ColumnarMotocicletaRepository(MotocicletaRepository delegate) {
+        super(delegate);
+    }
+
+    @Override
+    protected ColumnarMotocicletaStore build(Stream<Motocicleta> motos) {
+        return ColumnarMotocicletaStore.build(motos.iterator());
+    }
+
+    @Override
+    protected int install(ColumnarMotocicletaStore nuevo) {
+        store = nuevo;
+        return store.size();
+    }
+
+    @Override
+    protected void upsertLocked(List<Motocicleta> motos) {
+        for (Motocicleta moto : motos) {
+            store.upsert(moto);
+        }
+    }
+
+    @Override
+    protected void removeLocked(Collection<Integer> ids) {
+        for (Integer id : ids) {
+            store.remove(id);
+        }
+    }
+
+    @Override
+    protected int sizeLocked() {
+        return store.size();
+    }
+
+    /**
+     * Trae de la base de datos las motocicletas con ID mayor que el último cargado, por ejemplo
+     * las que han dado de alta otros clientes. Los cambios y eliminaciones de filas ya cargadas
+     * solo se ven con {@link #rebuild()}.
+     * @return Número de motocicletas añadidas
+     */
+    public int refresh() {
+        if (!isReady()) {
+            return rebuild();
+        }
+        int desde;
+        lock.readLock().lock();
+        try {
+            desde = store.maxId();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int nuevas = 0;
+        PageCursor cursor = PageCursor.afterId(desde);
+        while (cursor != null) {
+            Page<Motocicleta> page = delegate.findPage(cursor, REFRESH_PAGE_SIZE, MotocicletaSort.ID);
+            upsertAll(page.getContent());
+            nuevas += page.getContent().size();
+            cursor = page.getNextCursor();
+        }
+        return nuevas;
+    }
+
+    /**
+     * Busca una motocicleta en memoria, sin consultar la base de datos.
+     * @param id ID de la motocicleta
+     * @return La motocicleta, o null si no está en el almacén o el almacén aún no se cargó
+     */
+    public Motocicleta get(int id) {
+        lock.readLock().lock();
+        try {
+            return isReady() ? store.get(id) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Motocicleta> findByPrecioMaximo(double precio) {
+        if (!isReady()) {
+            return delegate.findByPrecioMaximo(precio);
+        }
+        lock.readLock().lock();
+        try {
+            // precio <= p sobre DECIMAL(10,2): el mayor número de céntimos que no supera p
+            return store.findByPrecioRange(Long.MIN_VALUE, (long) Math.floor(precio * 100 + 1e-6));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Motocicleta> findByCilindrajeRango(int min, int max) {
+        if (!isReady()) {
+            return delegate.findByCilindrajeRango(min, max);
+        }
+        lock.readLock().lock();
+        try {
+            return store.findByCilindrajeRange(min, max);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Motocicleta> findByCriteria(MotocicletaCriteria criteria) {
+        if (!isReady()) {
+            return delegate.findByCriteria(criteria);
+        }
+        lock.readLock().lock();
+        try {
+            return store.query(criteria);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            return "ColumnarMotocicletaRepository{" + store + (isReady() ? "" : ", sin cargar") + '}';
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
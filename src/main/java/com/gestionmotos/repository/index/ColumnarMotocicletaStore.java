@@ -0,0 +1,663 @@
+package com.gestionmotos.repository.index;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.MotocicletaCriteria;
+import com.gestionmotos.repository.MotocicletaSort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Almacén en memoria del inventario organizado por columnas de tipos primitivos:
+ * IDs, cilindraje y precio en céntimos en arreglos, y marca y color codificados con un
+ * diccionario (cada valor distinto se guarda una sola vez). Ocupa varias veces menos
+ * memoria que una lista de {@link Motocicleta}.
+ * <p>
+ * Las filas se guardan en orden de ID, así que una motocicleta se localiza con búsqueda
+ * binaria sin necesidad de un mapa. Dos índices ordenados por precio y por cilindraje
+ * resuelven las consultas por rango también con búsqueda binaria, y el resto de filtros se
+ * aplica recorriendo las columnas con bucles simples sobre un vector de filas seleccionadas.
+ * <p>
+ * Las filas eliminadas quedan marcadas hasta que son muchas y se compacta el almacén.
+ * <p>
+ * Esta clase no es segura para varios hilos; quien la usa debe sincronizar el acceso.
+ */
+public class ColumnarMotocicletaStore {
+    // Filas eliminadas a partir de las cuales se compacta (además de una cuarta parte de las filas)
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    private int[] ids;
+    private int[] cilindrajes;
+    private long[] preciosCentimos;
+    private int[] marcas;
+    private int[] colores;
+    // Filas ocupadas o eliminadas, en orden de ID (las posiciones válidas son 0..rowCount-1)
+    private int rowCount;
+    private int size;
+    private BitSet deleted = new BitSet();
+
+    private Dictionary marcaDictionary = new Dictionary();
+    private Dictionary colorDictionary = new Dictionary();
+    private final SortedIndex byPrecio = new SortedIndex(true);
+    private final SortedIndex byCilindraje = new SortedIndex(false);
+
+    /**
+     * Crea un almacén vacío.
+     * @param capacity Número de filas que se reservan al principio
+     */
+    public ColumnarMotocicletaStore(int capacity) {
+        allocate(Math.max(16, capacity));
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        cilindrajes = new int[capacity];
+        preciosCentimos = new long[capacity];
+        marcas = new int[capacity];
+        colores = new int[capacity];
+    }
+
+    /**
+     * Crea un almacén de una sola vez: carga las columnas, las ordena por ID y ordena los
+     * índices al final, mucho más rápido que insertar las filas una a una.
+     * @param motos Las motocicletas (con IDs distintos, en cualquier orden)
+     * @return El almacén
+     */
+    public static ColumnarMotocicletaStore build(Iterator<Motocicleta> motos) {
+        ColumnarMotocicletaStore store = new ColumnarMotocicletaStore(1024);
+        boolean ordenadas = true;
+        while (motos.hasNext()) {
+            Motocicleta moto = motos.next();
+            ordenadas &= store.rowCount == 0 || moto.getId() > store.ids[store.rowCount - 1];
+            store.appendRow(moto);
+        }
+        // Ordena las filas por ID (si hace falta) y ajusta los arreglos a su tamaño
+        store.compact(!ordenadas);
+        return store;
+    }
+
+    /**
+     * Convierte un precio en céntimos (la columna es DECIMAL con dos decimales).
+     */
+    static long toCentimos(double precio) {
+        return Math.round(precio * 100);
+    }
+
+    /**
+     * @return Número de motocicletas
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return El mayor ID que ha contenido el almacén (0 si está vacío)
+     */
+    public int maxId() {
+        return rowCount == 0 ? 0 : ids[rowCount - 1];
+    }
+
+    /**
+     * Añade o reemplaza una motocicleta.
+     * @param moto La motocicleta con sus datos actuales
+     */
+    public void upsert(Motocicleta moto) {
+        int row = Arrays.binarySearch(ids, 0, rowCount, moto.getId());
+        if (row >= 0) {
+            if (deleted.get(row)) {
+                deleted.clear(row);
+                size++;
+            } else {
+                byPrecio.remove(row);
+                byCilindraje.remove(row);
+            }
+            setColumns(row, moto);
+        } else if (-row - 1 == rowCount) {
+            // ID mayor que todos: el caso habitual de una motocicleta nueva
+            row = appendRow(moto);
+        } else {
+            // ID intermedio: se añade al final y se reordenan las filas
+            appendRow(moto);
+            compact(true);
+            return;
+        }
+        byPrecio.insert(row);
+        byCilindraje.insert(row);
+    }
+
+    /**
+     * Quita una motocicleta.
+     * @param id ID de la motocicleta
+     * @return true si existía
+     */
+    public boolean remove(int id) {
+        int row = rowOf(id);
+        if (row < 0) {
+            return false;
+        }
+        byPrecio.remove(row);
+        byCilindraje.remove(row);
+        deleted.set(row);
+        size--;
+        int eliminadas = rowCount - size;
+        if (eliminadas > COMPACT_THRESHOLD && eliminadas > size / 4) {
+            compact(false);
+        }
+        return true;
+    }
+
+    /**
+     * @return Fila de la motocicleta, o -1 si no existe
+     */
+    private int rowOf(int id) {
+        int row = Arrays.binarySearch(ids, 0, rowCount, id);
+        return row >= 0 && !deleted.get(row) ? row : -1;
+    }
+
+    /**
+     * Añade una fila al final con los datos de la motocicleta. No actualiza los índices ordenados.
+     */
+    private int appendRow(Motocicleta moto) {
+        if (rowCount == ids.length) {
+            int capacity = rowCount + (rowCount >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            cilindrajes = Arrays.copyOf(cilindrajes, capacity);
+            preciosCentimos = Arrays.copyOf(preciosCentimos, capacity);
+            marcas = Arrays.copyOf(marcas, capacity);
+            colores = Arrays.copyOf(colores, capacity);
+        }
+        int row = rowCount++;
+        ids[row] = moto.getId();
+        size++;
+        setColumns(row, moto);
+        return row;
+    }
+
+    private void setColumns(int row, Motocicleta moto) {
+        cilindrajes[row] = moto.getCilindraje();
+        preciosCentimos[row] = toCentimos(moto.getPrecio());
+        marcas[row] = marcaDictionary.encode(moto.getMarca());
+        colores[row] = colorDictionary.encode(moto.getColor());
+    }
+
+    /**
+     * Reescribe las columnas sin las filas eliminadas ni los valores de diccionario que ya
+     * no se usan, y reconstruye los índices ordenados.
+     * @param sort true si las filas pueden no estar en orden de ID
+     */
+    private void compact(boolean sort) {
+        int[] order = new int[size];
+        int n = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (!deleted.get(row)) {
+                order[n++] = row;
+            }
+        }
+        if (sort) {
+            long[] keyed = new long[n];
+            for (int i = 0; i < n; i++) {
+                // ID en la parte alta: al ordenar los long quedan en orden de ID
+                keyed[i] = ((long) ids[order[i]] << 32) | order[i];
+            }
+            Arrays.sort(keyed);
+            for (int i = 0; i < n; i++) {
+                order[i] = (int) keyed[i];
+            }
+        }
+
+        int[] oldIds = ids;
+        int[] oldCilindrajes = cilindrajes;
+        long[] oldPrecios = preciosCentimos;
+        int[] oldMarcas = marcas;
+        int[] oldColores = colores;
+        Dictionary oldMarcaDictionary = marcaDictionary;
+        Dictionary oldColorDictionary = colorDictionary;
+
+        allocate(Math.max(16, n));
+        marcaDictionary = new Dictionary();
+        colorDictionary = new Dictionary();
+        for (int i = 0; i < n; i++) {
+            int row = order[i];
+            ids[i] = oldIds[row];
+            cilindrajes[i] = oldCilindrajes[row];
+            preciosCentimos[i] = oldPrecios[row];
+            marcas[i] = marcaDictionary.encode(oldMarcaDictionary.decode(oldMarcas[row]));
+            colores[i] = colorDictionary.encode(oldColorDictionary.decode(oldColores[row]));
+        }
+        rowCount = n;
+        size = n;
+        deleted = new BitSet();
+        byPrecio.rebuild();
+        byCilindraje.rebuild();
+    }
+
+    /**
+     * @param id ID de la motocicleta
+     * @return Una copia de la motocicleta, o null si no existe
+     */
+    public Motocicleta get(int id) {
+        int row = rowOf(id);
+        return row < 0 ? null : toMotocicleta(row);
+    }
+
+    /**
+     * Busca las motocicletas con precio dentro de un rango.
+     * @param minCentimos Precio mínimo en céntimos, incluido
+     * @param maxCentimos Precio máximo en céntimos, incluido
+     * @return Las motocicletas, en orden de ID
+     */
+    public List<Motocicleta> findByPrecioRange(long minCentimos, long maxCentimos) {
+        return toMotocicletasById(byPrecio.range(minCentimos, maxCentimos));
+    }
+
+    /**
+     * Busca las motocicletas con cilindraje dentro de un rango.
+     * @param min Cilindraje mínimo, incluido
+     * @param max Cilindraje máximo, incluido
+     * @return Las motocicletas, en orden de ID
+     */
+    public List<Motocicleta> findByCilindrajeRange(int min, int max) {
+        return toMotocicletasById(byCilindraje.range(min, max));
+    }
+
+    /**
+     * Busca las motocicletas que cumplen unos criterios, con su ordenación y límite.
+     * <p>
+     * Si se ordena por precio o cilindraje se recorre el índice de esa columna en orden y se
+     * para al llegar al límite. Si no, se parte del rango más selectivo de los dos índices
+     * y se filtran las demás columnas.
+     * @param criteria Los criterios
+     * @return Las motocicletas, en el orden de los criterios
+     */
+    public List<Motocicleta> query(MotocicletaCriteria criteria) {
+        long precioMin = criteria.getPrecioMin() == null ? Long.MIN_VALUE
+                : (long) Math.ceil(criteria.getPrecioMin() * 100 - 1e-6);
+        long precioMax = criteria.getPrecioMax() == null ? Long.MAX_VALUE
+                : (long) Math.floor(criteria.getPrecioMax() * 100 + 1e-6);
+        long ccMin = criteria.getCilindrajeMin() == null ? Long.MIN_VALUE : criteria.getCilindrajeMin();
+        long ccMax = criteria.getCilindrajeMax() == null ? Long.MAX_VALUE : criteria.getCilindrajeMax();
+        boolean[] marcaOk = criteria.getMarca() == null ? null : marcaDictionary.matching(criteria.getMarca());
+        boolean[] colorOk = criteria.getColor() == null ? null : colorDictionary.matching(criteria.getColor());
+
+        MotocicletaSort sort = criteria.getSort();
+        int limit = criteria.getLimit() > 0 ? criteria.getLimit() : Integer.MAX_VALUE;
+
+        if ("precio".equals(sort.getColumn()) || "cilindraje".equals(sort.getColumn())) {
+            boolean porPrecio = "precio".equals(sort.getColumn());
+            SortedIndex index = porPrecio ? byPrecio : byCilindraje;
+            int from = index.lowerBound(porPrecio ? precioMin : ccMin);
+            int to = index.upperBound(porPrecio ? precioMax : ccMax);
+            List<Motocicleta> motos = new ArrayList<>(Math.min(limit, to - from));
+            for (int i = 0; i < to - from && motos.size() < limit; i++) {
+                int row = index.rows[sort.isDescending() ? to - 1 - i : from + i];
+                if (accepts(row, precioMin, precioMax, ccMin, ccMax, marcaOk, colorOk)) {
+                    motos.add(toMotocicleta(row));
+                }
+            }
+            return motos;
+        }
+
+        // Vector de filas candidatas: el rango más corto de los dos índices, o todas las filas
+        int[] selection;
+        int count;
+        int precioFrom = byPrecio.lowerBound(precioMin);
+        int precioTo = byPrecio.upperBound(precioMax);
+        int ccFrom = byCilindraje.lowerBound(ccMin);
+        int ccTo = byCilindraje.upperBound(ccMax);
+        if (precioTo - precioFrom <= ccTo - ccFrom) {
+            selection = Arrays.copyOfRange(byPrecio.rows, precioFrom, precioTo);
+            count = selection.length;
+            count = filterRange(selection, count, cilindrajes, ccMin, ccMax);
+        } else {
+            selection = Arrays.copyOfRange(byCilindraje.rows, ccFrom, ccTo);
+            count = selection.length;
+            count = filterRange(selection, count, preciosCentimos, precioMin, precioMax);
+        }
+        if (marcaOk != null) {
+            count = filterCodes(selection, count, marcas, marcaOk);
+        }
+        if (colorOk != null) {
+            count = filterCodes(selection, count, colores, colorOk);
+        }
+
+        // Se ordenan los números de fila y solo se crean las motocicletas que se devuelven
+        int[] rows = Arrays.copyOf(selection, count);
+        if ("marca".equals(sort.getColumn())) {
+            sortByMarca(rows);
+        } else {
+            Arrays.sort(rows);
+        }
+        int n = Math.min(limit, count);
+        List<Motocicleta> motos = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            motos.add(toMotocicleta(rows[sort.isDescending() ? count - 1 - i : i]));
+        }
+        return motos;
+    }
+
+    /**
+     * Ordena filas por marca sin distinguir mayúsculas y, a igualdad, por ID,
+     * igual que {@link MotocicletaSort#comparator()}.
+     */
+    private void sortByMarca(int[] rows) {
+        int[] rank = marcaDictionary.ranks();
+        long[] keyed = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            keyed[i] = ((long) rank[marcas[rows[i]]] << 32) | rows[i];
+        }
+        Arrays.sort(keyed);
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = (int) keyed[i];
+        }
+    }
+
+    private boolean accepts(int row, long precioMin, long precioMax, long ccMin, long ccMax,
+                            boolean[] marcaOk, boolean[] colorOk) {
+        return preciosCentimos[row] >= precioMin && preciosCentimos[row] <= precioMax
+                && cilindrajes[row] >= ccMin && cilindrajes[row] <= ccMax
+                && (marcaOk == null || marcaOk[marcas[row]])
+                && (colorOk == null || colorOk[colores[row]]);
+    }
+
+    /**
+     * Deja en la selección las filas cuyo valor de la columna está en el rango.
+     * @return Número de filas que quedan
+     */
+    private static int filterRange(int[] selection, int count, int[] column, long min, long max) {
+        if (min == Long.MIN_VALUE && max == Long.MAX_VALUE) {
+            return count;
+        }
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int row = selection[i];
+            int value = column[row];
+            selection[kept] = row;
+            kept += value >= min && value <= max ? 1 : 0;
+        }
+        return kept;
+    }
+
+    private static int filterRange(int[] selection, int count, long[] column, long min, long max) {
+        if (min == Long.MIN_VALUE && max == Long.MAX_VALUE) {
+            return count;
+        }
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int row = selection[i];
+            long value = column[row];
+            selection[kept] = row;
+            kept += value >= min && value <= max ? 1 : 0;
+        }
+        return kept;
+    }
+
+    /**
+     * Deja en la selección las filas cuyo código de diccionario está aceptado.
+     */
+    private static int filterCodes(int[] selection, int count, int[] column, boolean[] accepted) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int row = selection[i];
+            selection[kept] = row;
+            kept += accepted[column[row]] ? 1 : 0;
+        }
+        return kept;
+    }
+
+    /**
+     * Convierte filas en motocicletas ordenadas por ID (las filas ya están en orden de ID).
+     */
+    private List<Motocicleta> toMotocicletasById(int[] rows) {
+        Arrays.sort(rows);
+        List<Motocicleta> motos = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            motos.add(toMotocicleta(row));
+        }
+        return motos;
+    }
+
+    private Motocicleta toMotocicleta(int row) {
+        return new Motocicleta(ids[row], marcaDictionary.decode(marcas[row]), cilindrajes[row],
+                preciosCentimos[row] / 100.0, colorDictionary.decode(colores[row]));
+    }
+
+    /**
+     * @return Bytes aproximados que ocupa el almacén (columnas, índices y diccionarios)
+     */
+    public long estimatedBytes() {
+        long columnas = (long) ids.length * (4 + 4 + 8 + 4 + 4);
+        long indices = 4L * (byPrecio.rows.length + byCilindraje.rows.length) + deleted.size() / 8;
+        return columnas + indices + marcaDictionary.bytes() + colorDictionary.bytes();
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarMotocicletaStore{" +
+               "filas=" + size +
+               ", marcas=" + marcaDictionary.size() +
+               ", colores=" + colorDictionary.size() +
+               ", bytes=" + estimatedBytes() +
+               '}';
+    }
+
+    /**
+     * Índice de las filas ordenadas por precio o cilindraje y, a igualdad, por ID
+     * (que es el orden de las filas).
+     */
+    private final class SortedIndex {
+        private final boolean precio;
+        private int[] rows = new int[0];
+        private int count;
+
+        SortedIndex(boolean precio) {
+            this.precio = precio;
+        }
+
+        private long key(int row) {
+            return precio ? preciosCentimos[row] : cilindrajes[row];
+        }
+
+        private int compare(int rowA, int rowB) {
+            int c = Long.compare(key(rowA), key(rowB));
+            return c != 0 ? c : Integer.compare(rowA, rowB);
+        }
+
+        /**
+         * Reconstruye el índice con todas las filas ocupadas.
+         */
+        void rebuild() {
+            rows = new int[Math.max(16, size)];
+            count = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if (!deleted.get(row)) {
+                    rows[count++] = row;
+                }
+            }
+            int[] buffer = new int[count];
+            mergeSort(rows, buffer, 0, count);
+        }
+
+        private void mergeSort(int[] a, int[] buffer, int from, int to) {
+            if (to - from < 16) {
+                for (int i = from + 1; i < to; i++) {
+                    int row = a[i];
+                    int j = i - 1;
+                    while (j >= from && compare(a[j], row) > 0) {
+                        a[j + 1] = a[j];
+                        j--;
+                    }
+                    a[j + 1] = row;
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            mergeSort(a, buffer, from, mid);
+            mergeSort(a, buffer, mid, to);
+            if (compare(a[mid - 1], a[mid]) <= 0) {
+                return;
+            }
+            System.arraycopy(a, from, buffer, from, to - from);
+            int i = from;
+            int j = mid;
+            for (int k = from; k < to; k++) {
+                if (j >= to || (i < mid && compare(buffer[i], buffer[j]) <= 0)) {
+                    a[k] = buffer[i++];
+                } else {
+                    a[k] = buffer[j++];
+                }
+            }
+        }
+
+        /**
+         * @return Primera posición cuya clave es mayor o igual que la indicada
+         */
+        int lowerBound(long value) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (key(rows[mid]) < value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * @return Primera posición cuya clave es mayor que la indicada
+         */
+        int upperBound(long value) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (key(rows[mid]) <= value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * @return Filas con clave dentro del rango, en orden de clave
+         */
+        int[] range(long min, long max) {
+            if (min > max) {
+                return new int[0];
+            }
+            return Arrays.copyOfRange(rows, lowerBound(min), upperBound(max));
+        }
+
+        /**
+         * Posición de la fila en el índice (o donde debería insertarse).
+         */
+        private int position(int row) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(rows[mid], row) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        void insert(int row) {
+            int pos = position(row);
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(16, count * 2));
+            }
+            System.arraycopy(rows, pos, rows, pos + 1, count - pos);
+            rows[pos] = row;
+            count++;
+        }
+
+        void remove(int row) {
+            int pos = position(row);
+            if (pos < count && rows[pos] == row) {
+                System.arraycopy(rows, pos + 1, rows, pos, count - pos - 1);
+                count--;
+            }
+        }
+    }
+
+    /**
+     * Diccionario de valores de texto: cada valor distinto recibe un código entero.
+     * Los códigos no se liberan hasta reconstruir el almacén.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+
+        /**
+         * Evalúa la búsqueda de subcadena una vez por valor distinto, no por fila.
+         * @return Para cada código, si su valor contiene el texto (sin distinguir mayúsculas ni acentos)
+         */
+        boolean[] matching(String substring) {
+            String query = TrigramIndex.normalize(substring);
+            boolean[] result = new boolean[values.size()];
+            for (int code = 0; code < result.length; code++) {
+                String value = values.get(code);
+                result[code] = value != null && TrigramIndex.normalize(value).contains(query);
+            }
+            return result;
+        }
+
+        /**
+         * @return Para cada código, su posición en orden alfabético sin distinguir mayúsculas
+         *         (los valores que solo difieren en mayúsculas comparten posición)
+         */
+        int[] ranks() {
+            Integer[] order = new Integer[values.size()];
+            for (int code = 0; code < order.length; code++) {
+                order[code] = code;
+            }
+            Arrays.sort(order, (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(values.get(a), values.get(b)));
+            int[] rank = new int[order.length];
+            for (int i = 1; i < order.length; i++) {
+                boolean igual = String.CASE_INSENSITIVE_ORDER.compare(values.get(order[i - 1]), values.get(order[i])) == 0;
+                rank[order[i]] = igual ? rank[order[i - 1]] : i;
+            }
+            return rank;
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        long bytes() {
+            long bytes = 0;
+            for (String value : values) {
+                // Cabecera de String y arreglo, más un byte por carácter (cadenas compactas)
+                bytes += 40 + (value == null ? 0 : value.length()) + 32;
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.gestionmotos.repository.index;
+
+/**
+ * Distancia de edición (Levenshtein) entre dos textos: número mínimo de inserciones,
+ * eliminaciones o sustituciones de un carácter para convertir uno en otro.
+ */
+public final class EditDistance {
+
+    private EditDistance() {
+    }
+
+    /**
+     * Calcula la distancia de Levenshtein, deteniéndose en cuanto supera un máximo.
+     * @param a Primer texto
+     * @param b Segundo texto
+     * @param max Distancia máxima que interesa
+     * @return La distancia, o {@code max + 1} si es mayor que {@code max}
+     */
+    public static int levenshtein(CharSequence a, CharSequence b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) {
+            return max + 1;
+        }
+        if (n == 0 || m == 0) {
+            return Math.max(n, m);
+        }
+
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            // Ninguna celda de la fila está dentro del máximo: la distancia final tampoco lo estará
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[m], max + 1);
+    }
+}
@@ -0,0 +1,267 @@
+package com.gestionmotos.repository.index;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.BatchResult;
+import com.gestionmotos.repository.ForwardingMotocicletaRepository;
+import com.gestionmotos.repository.MotocicletaRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Base de los decoradores que responden consultas desde una copia en memoria de las
+ * motocicletas (índices, almacén columnar...).
+ * <p>
+ * Se encarga de lo común a todos: la carga con {@link #rebuild()}, que recorre el repositorio
+ * decorado con un cursor sin bloquear las consultas, las escrituras hechas durante esa carga
+ * (que se vuelven a aplicar sobre los datos nuevos) y el envío de las escrituras al repositorio
+ * decorado, aplicándolas después en memoria. Las escrituras por lotes se aplican en memoria con
+ * una sola llamada a {@link #upsertLocked} o {@link #removeLocked}.
+ * <p>
+ * Las subclases construyen sus datos con {@link #build}, los instalan con {@link #install} y
+ * redefinen las consultas que pueden responder, protegiéndolas con el candado de lectura y
+ * enviándolas al repositorio decorado mientras {@link #isReady()} sea false.
+ * @param <D> Tipo de los datos construidos por {@link #build}
+ */
+public abstract class InMemoryMotocicletaRepository<D> extends ForwardingMotocicletaRepository {
+
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    // Escrituras hechas mientras se cargan los datos (null = eliminada)
+    private Map<Integer, Motocicleta> pendingWrites;
+
+    /**
+     * Crea el decorador. Los datos quedan vacíos hasta llamar a {@link #rebuild()}.
+     * @param delegate Repositorio decorado
+     */
+    protected InMemoryMotocicletaRepository(MotocicletaRepository delegate) {
+        super(delegate);
+    }
+
+    /**
+     * Construye los datos a partir de todas las motocicletas. Se llama sin el candado.
+     * @param motos Las motocicletas del repositorio decorado
+     * @return Los datos
+     */
+    protected abstract D build(Stream<Motocicleta> motos);
+
+    /**
+     * Reemplaza los datos actuales por los construidos. Se llama con el candado de escritura.
+     * @param datos Los datos nuevos
+     * @return Número de motocicletas en memoria
+     */
+    protected abstract int install(D datos);
+
+    /**
+     * Añade o reemplaza motocicletas en memoria. Se llama con el candado de escritura.
+     * @param motos Copias de las motocicletas, con IDs distintos, que la subclase puede conservar
+     */
+    protected abstract void upsertLocked(List<Motocicleta> motos);
+
+    /**
+     * Quita motocicletas de memoria. Se llama con el candado de escritura.
+     * @param ids IDs de las motocicletas, sin repetir
+     */
+    protected abstract void removeLocked(Collection<Integer> ids);
+
+    /**
+     * @return Número de motocicletas en memoria. Se llama con el candado de lectura.
+     */
+    protected abstract int sizeLocked();
+
+    /**
+     * Carga los datos recorriendo todas las motocicletas del repositorio decorado.
+     * Las consultas siguen respondiéndose (desde los datos anteriores o el repositorio
+     * decorado) mientras dura la carga.
+     * @return Número de motocicletas cargadas
+     */
+    public int rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingWrites = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        D datos;
+        try (Stream<Motocicleta> stream = delegate.streamAll()) {
+            datos = build(stream);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingWrites = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            install(datos);
+            // Aplicar las escrituras que ocurrieron durante el recorrido
+            Map<Integer, Motocicleta> pendientes = pendingWrites;
+            pendingWrites = null;
+            List<Integer> eliminadas = new ArrayList<>();
+            List<Motocicleta> actualizadas = new ArrayList<>();
+            for (Map.Entry<Integer, Motocicleta> entry : pendientes.entrySet()) {
+                if (entry.getValue() == null) {
+                    eliminadas.add(entry.getKey());
+                } else {
+                    actualizadas.add(entry.getValue());
+                }
+            }
+            if (!eliminadas.isEmpty()) {
+                removeLocked(eliminadas);
+            }
+            if (!actualizadas.isEmpty()) {
+                upsertLocked(actualizadas);
+            }
+            ready = true;
+            return sizeLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true si los datos ya se cargaron
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return Número de motocicletas en memoria
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return sizeLocked();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Motocicleta save(Motocicleta moto) {
+        Motocicleta guardada = delegate.save(moto);
+        if (guardada.getId() != 0) {
+            upsert(guardada);
+        }
+        return guardada;
+    }
+
+    @Override
+    public boolean update(Motocicleta moto) {
+        boolean actualizada = delegate.update(moto);
+        if (actualizada) {
+            upsert(moto);
+        }
+        return actualizada;
+    }
+
+    @Override
+    public boolean deleteById(Integer id) {
+        boolean eliminada = delegate.deleteById(id);
+        if (eliminada) {
+            remove(id);
+        }
+        return eliminada;
+    }
+
+    @Override
+    public BatchResult saveAll(Collection<Motocicleta> motos) {
+        BatchResult result = delegate.saveAll(motos);
+        if (result.isSuccess()) {
+            upsertAll(motos);
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult updateAll(Collection<Motocicleta> motos) {
+        BatchResult result = delegate.updateAll(motos);
+        if (result.isSuccess()) {
+            upsertAll(motos);
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult deleteAllById(Collection<Integer> ids) {
+        BatchResult result = delegate.deleteAllById(ids);
+        if (result.isSuccess()) {
+            removeAll(ids);
+        }
+        return result;
+    }
+
+    /**
+     * Añade o reemplaza una motocicleta en memoria, por ejemplo al recibir
+     * un cambio hecho por otro cliente.
+     * @param moto La motocicleta con sus datos actuales
+     */
+    public void upsert(Motocicleta moto) {
+        upsertAll(Collections.singletonList(moto));
+    }
+
+    /**
+     * Añade o reemplaza varias motocicletas en memoria de una vez.
+     * @param motos Las motocicletas con sus datos actuales (si un ID se repite, vale la última)
+     */
+    public void upsertAll(Collection<Motocicleta> motos) {
+        Map<Integer, Motocicleta> copias = new LinkedHashMap<>();
+        for (Motocicleta moto : motos) {
+            copias.put(moto.getId(), copy(moto));
+        }
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                pendingWrites.putAll(copias);
+            }
+            upsertLocked(new ArrayList<>(copias.values()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita una motocicleta de memoria.
+     * @param id ID de la motocicleta
+     */
+    public void remove(int id) {
+        removeAll(Collections.singletonList(id));
+    }
+
+    /**
+     * Quita varias motocicletas de memoria de una vez.
+     * @param ids IDs de las motocicletas
+     */
+    public void removeAll(Collection<Integer> ids) {
+        Map<Integer, Motocicleta> eliminadas = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            eliminadas.put(id, null);
+        }
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                pendingWrites.putAll(eliminadas);
+            }
+            removeLocked(eliminadas.keySet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    protected static Motocicleta copy(Motocicleta moto) {
+        return new Motocicleta(moto.getId(), moto.getMarca(), moto.getCilindraje(), moto.getPrecio(), moto.getColor());
+    }
+}
@@ -0,0 +1,285 @@
+package com.gestionmotos.repository.index;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.MotocicletaCriteria;
+import com.gestionmotos.repository.MotocicletaRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Decorador que responde {@link #findByMarca} y {@link #findByColor} desde índices de
+ * trigramas en memoria, sin consultar la base de datos. {@link #findByMarcaFuzzy} usa
+ * además un {@link BkTree} sobre las marcas distintas, y {@link #findByCriteria} filtra las
+ * filas en memoria partiendo de los candidatos del índice de marca o de color.
+ * <p>
+ * Los índices se construyen con {@link #rebuild()}, que recorre la tabla con un cursor,
+ * y se actualizan con cada escritura hecha a través de este repositorio. Mientras no se
+ * han construido, o si la búsqueda contiene comodines de LIKE ({@code %} o {@code _}),
+ * las consultas se envían al repositorio decorado.
+ * <p>
+ * Las escrituras hechas por otros clientes de la base de datos no se ven hasta el
+ * siguiente {@link #rebuild()}.
+ */
+public class IndexedMotocicletaRepository extends InMemoryMotocicletaRepository<IndexedMotocicletaRepository.Indices> {
+
+    // Filas indexadas por ID, para devolver los resultados sin consultar la base de datos
+    private Map<Integer, Motocicleta> rows = new HashMap<>();
+    private TrigramIndex marcaIndex = new TrigramIndex();
+    private TrigramIndex colorIndex = new TrigramIndex();
+    private BkTree marcaTree = new BkTree();
+
+    /**
+     * Índices construidos por {@link #build}, antes de instalarlos.
+     */
+    static final class Indices {
+        private final Map<Integer, Motocicleta> rows;
+        private final TrigramIndex marcaIndex;
+        private final TrigramIndex colorIndex;
+        private final BkTree marcaTree;
+
+        private Indices(Map<Integer, Motocicleta> rows, TrigramIndex marcaIndex, TrigramIndex colorIndex,
+                        BkTree marcaTree) {
+            this.rows = rows;
+            this.marcaIndex = marcaIndex;
+            this.colorIndex = colorIndex;
+            this.marcaTree = marcaTree;
+        }
+    }
+
+    /**
+     * Crea el decorador. Los índices quedan vacíos hasta llamar a {@link #rebuild()}.
+     * @param delegate Repositorio decorado
+     */
+    public IndexedMotocicletaRepository(MotocicletaRepository delegate) {
+        super(delegate);
+    }
+
+    @Override
+    protected Indices build(Stream<Motocicleta> motos) {
+        Map<Integer, Motocicleta> nuevasFilas = new HashMap<>();
+        int[] ids = new int[1024];
+        String[] marcas = new String[1024];
+        String[] colores = new String[1024];
+        int count = 0;
+
+        for (Motocicleta moto : (Iterable<Motocicleta>) motos::iterator) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                marcas = Arrays.copyOf(marcas, count * 2);
+                colores = Arrays.copyOf(colores, count * 2);
+            }
+            ids[count] = moto.getId();
+            marcas[count] = moto.getMarca();
+            colores[count] = moto.getColor();
+            count++;
+            nuevasFilas.put(moto.getId(), moto);
+        }
+
+        TrigramIndex nuevaMarca = TrigramIndex.build(ids, marcas, count);
+        TrigramIndex nuevoColor = TrigramIndex.build(ids, colores, count);
+        BkTree nuevoArbol = new BkTree();
+        for (String termino : nuevaMarca.terms()) {
+            nuevoArbol.add(termino);
+        }
+        return new Indices(nuevasFilas, nuevaMarca, nuevoColor, nuevoArbol);
+    }
+
+    @Override
+    protected int install(Indices indices) {
+        rows = indices.rows;
+        marcaIndex = indices.marcaIndex;
+        colorIndex = indices.colorIndex;
+        marcaTree = indices.marcaTree;
+        return rows.size();
+    }
+
+    @Override
+    protected int sizeLocked() {
+        return rows.size();
+    }
+
+    @Override
+    public List<Motocicleta> findByMarca(String marca) {
+        if (!isReady() || hasWildcards(marca)) {
+            return delegate.findByMarca(marca);
+        }
+        lock.readLock().lock();
+        try {
+            return toRows(marcaIndex.search(marca));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Motocicleta> findByColor(String color) {
+        if (!isReady() || hasWildcards(color)) {
+            return delegate.findByColor(color);
+        }
+        lock.readLock().lock();
+        try {
+            return toRows(colorIndex.search(color));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Motocicleta> findByMarcaFuzzy(String marca, int maxDistance) {
+        if (!isReady()) {
+            return delegate.findByMarcaFuzzy(marca, maxDistance);
+        }
+        lock.readLock().lock();
+        try {
+            List<Motocicleta> motos = new ArrayList<>();
+            for (BkTree.Match match : marcaTree.search(TrigramIndex.normalize(marca.trim()), maxDistance)) {
+                motos.addAll(toRows(marcaIndex.exact(match.getTerm())));
+            }
+            return motos;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Motocicleta> findByCriteria(MotocicletaCriteria criteria) {
+        // Sin texto que buscar el índice no reduce los candidatos: lo resuelve el repositorio
+        // decorado (por ejemplo, el almacén columnar con sus índices de rango)
+        if (!isReady() || (criteria.getMarca() == null && criteria.getColor() == null)) {
+            return delegate.findByCriteria(criteria);
+        }
+        lock.readLock().lock();
+        try {
+            // Los criterios buscan marca y color literalmente, así que el índice sirve aunque haya % o _
+            List<Motocicleta> candidatas = criteria.getMarca() != null
+                    ? toRows(marcaIndex.search(criteria.getMarca()))
+                    : toRows(colorIndex.search(criteria.getColor()));
+
+            List<Motocicleta> motos = new ArrayList<>();
+            for (Motocicleta moto : candidatas) {
+                if (criteria.matches(moto)) {
+                    motos.add(moto);
+                }
+            }
+            motos.sort(criteria.getSort().comparator());
+            if (criteria.getLimit() > 0 && motos.size() > criteria.getLimit()) {
+                motos = new ArrayList<>(motos.subList(0, criteria.getLimit()));
+            }
+            return motos;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indica si el texto tiene caracteres con significado especial en LIKE,
+     * que el índice no interpreta.
+     */
+    private static boolean hasWildcards(String texto) {
+        return texto.indexOf('%') >= 0 || texto.indexOf('_') >= 0 || texto.indexOf('\\') >= 0;
+    }
+
+    /**
+     * Copia las filas de los IDs indicados, en orden de ID. Requiere el candado de lectura.
+     */
+    private List<Motocicleta> toRows(int[] ids) {
+        List<Motocicleta> motos = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Motocicleta moto = rows.get(id);
+            if (moto != null) {
+                motos.add(copy(moto));
+            }
+        }
+        return motos;
+    }
+
+    /**
+     * Quita las versiones anteriores y añade las nuevas: las listas de cada término se
+     * reescriben una vez por lote, no una vez por motocicleta.
+     */
+    @Override
+    protected void upsertLocked(List<Motocicleta> motos) {
+        List<Integer> ids = new ArrayList<>(motos.size());
+        for (Motocicleta moto : motos) {
+            ids.add(moto.getId());
+        }
+        removeLocked(ids);
+
+        int count = motos.size();
+        int[] nuevosIds = new int[count];
+        String[] marcas = new String[count];
+        String[] colores = new String[count];
+        // Marcas que no estaban en el índice, para añadirlas al árbol una sola vez
+        Set<String> marcasNuevas = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            Motocicleta moto = motos.get(i);
+            rows.put(moto.getId(), moto);
+            nuevosIds[i] = moto.getId();
+            marcas[i] = moto.getMarca();
+            colores[i] = moto.getColor();
+            if (!marcaIndex.hasTerm(moto.getMarca())) {
+                marcasNuevas.add(TrigramIndex.normalize(moto.getMarca()));
+            }
+        }
+        marcaIndex.addAll(nuevosIds, marcas, count);
+        colorIndex.addAll(nuevosIds, colores, count);
+        for (String marca : marcasNuevas) {
+            marcaTree.add(marca);
+        }
+    }
+
+    @Override
+    protected void removeLocked(Collection<Integer> ids) {
+        int[] eliminados = new int[ids.size()];
+        String[] marcas = new String[ids.size()];
+        String[] colores = new String[ids.size()];
+        int count = 0;
+        for (Integer id : ids) {
+            Motocicleta anterior = rows.remove(id);
+            if (anterior != null) {
+                eliminados[count] = id;
+                marcas[count] = anterior.getMarca();
+                colores[count] = anterior.getColor();
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        marcaIndex.removeAll(eliminados, marcas, count);
+        colorIndex.removeAll(eliminados, colores, count);
+        Set<String> marcasQuitadas = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            if (!marcaIndex.hasTerm(marcas[i])) {
+                marcasQuitadas.add(TrigramIndex.normalize(marcas[i]));
+            }
+        }
+        for (String marca : marcasQuitadas) {
+            marcaTree.remove(marca);
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            return "IndexedMotocicletaRepository{" +
+                   "filas=" + rows.size() +
+                   ", marcas=" + marcaIndex.termCount() +
+                   ", colores=" + colorIndex.termCount() +
+                   ", bytesListas=" + (marcaIndex.postingBytes() + colorIndex.postingBytes()) +
+                   (isReady() ? "" : ", sin construir") +
+                   '}';
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.gestionmotos.repository.index;
+
+import java.util.Arrays;
+
+/**
+ * Lista ordenada de enteros sin repetir, comprimida en un arreglo de bytes.
+ * <p>
+ * Cada valor se guarda como la diferencia con el anterior codificada en varint
+ * (7 bits por byte), de modo que listas de IDs cercanos ocupan uno o dos bytes por
+ * elemento en lugar de los cuatro de un int (o los ~20 de un Integer en una lista).
+ * Las instancias son inmutables; {@link #withAll} y {@link #withoutAll} devuelven una
+ * lista nueva. Cada cambio descomprime y vuelve a comprimir la lista entera, así que los
+ * lotes deben aplicarse con una sola llamada en lugar de valor a valor.
+ */
+public final class PostingList {
+    public static final PostingList EMPTY = new PostingList(new byte[0], 0, 0);
+
+    private final byte[] data;
+    private final int length;
+    private final int size;
+
+    private PostingList(byte[] data, int length, int size) {
+        this.data = data;
+        this.length = length;
+        this.size = size;
+    }
+
+    /**
+     * Comprime una lista de enteros.
+     * @param values Valores en orden ascendente y sin repetir
+     * @param count Número de valores a tomar del arreglo
+     * @return La lista comprimida
+     */
+    public static PostingList of(int[] values, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        byte[] buffer = new byte[count * 5];
+        int pos = 0;
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = values[i] - previous;
+            previous = values[i];
+            while ((delta & ~0x7F) != 0) {
+                buffer[pos++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            buffer[pos++] = (byte) delta;
+        }
+        return new PostingList(Arrays.copyOf(buffer, pos), pos, count);
+    }
+
+    /**
+     * @return Número de valores de la lista
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Bytes ocupados por los datos comprimidos
+     */
+    public int sizeInBytes() {
+        return length;
+    }
+
+    /**
+     * Descomprime la lista.
+     * @return Los valores en orden ascendente
+     */
+    public int[] toArray() {
+        int[] values = new int[size];
+        decodeInto(values);
+        return values;
+    }
+
+    private void decodeInto(int[] values) {
+        int pos = 0;
+        int value = 0;
+        for (int i = 0; i < size; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += delta;
+            values[i] = value;
+        }
+    }
+
+    /**
+     * @return true si la lista contiene el valor
+     */
+    public boolean contains(int value) {
+        return Arrays.binarySearch(toArray(), value) >= 0;
+    }
+
+    /**
+     * @return Una lista con el valor añadido (esta misma si ya estaba)
+     */
+    public PostingList with(int value) {
+        return withAll(new int[]{value}, 1);
+    }
+
+    /**
+     * @return Una lista sin el valor (esta misma si no estaba)
+     */
+    public PostingList without(int value) {
+        return withoutAll(new int[]{value}, 1);
+    }
+
+    /**
+     * Añade varios valores de una vez, mezclándolos con los de la lista en un solo recorrido.
+     * @param values Valores en orden ascendente y sin repetir
+     * @param count Número de valores a tomar del arreglo
+     * @return Una lista con los valores añadidos (esta misma si ya estaban todos)
+     */
+    public PostingList withAll(int[] values, int count) {
+        if (count == 0) {
+            return this;
+        }
+        int[] current = toArray();
+        int[] merged = new int[size + count];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < count) {
+            if (current[i] < values[j]) {
+                merged[n++] = current[i++];
+            } else if (values[j] < current[i]) {
+                merged[n++] = values[j++];
+            } else {
+                merged[n++] = current[i++];
+                j++;
+            }
+        }
+        while (i < size) {
+            merged[n++] = current[i++];
+        }
+        while (j < count) {
+            merged[n++] = values[j++];
+        }
+        return n == size ? this : of(merged, n);
+    }
+
+    /**
+     * Quita varios valores de una vez, en un solo recorrido de la lista.
+     * @param values Valores en orden ascendente y sin repetir
+     * @param count Número de valores a tomar del arreglo
+     * @return Una lista sin los valores (esta misma si no estaba ninguno)
+     */
+    public PostingList withoutAll(int[] values, int count) {
+        if (count == 0 || size == 0) {
+            return this;
+        }
+        int[] current = toArray();
+        int n = 0;
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < count && values[j] < current[i]) {
+                j++;
+            }
+            if (j < count && values[j] == current[i]) {
+                continue;
+            }
+            current[n++] = current[i];
+        }
+        return n == size ? this : of(current, n);
+    }
+
+    /**
+     * Intersección de varias listas. Se recorre primero la más corta.
+     * @param lists Las listas
+     * @return Los valores presentes en todas, en orden ascendente
+     */
+    public static int[] intersect(PostingList... lists) {
+        if (lists.length == 0) {
+            return new int[0];
+        }
+        PostingList[] sorted = lists.clone();
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a.size, b.size));
+
+        int[] result = sorted[0].toArray();
+        int count = result.length;
+        for (int l = 1; l < sorted.length && count > 0; l++) {
+            int[] other = sorted[l].toArray();
+            int kept = 0;
+            int j = 0;
+            for (int i = 0; i < count; i++) {
+                while (j < other.length && other[j] < result[i]) {
+                    j++;
+                }
+                if (j == other.length) {
+                    break;
+                }
+                if (other[j] == result[i]) {
+                    result[kept++] = result[i];
+                }
+            }
+            count = kept;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Unión de varias listas.
+     * @param lists Las listas
+     * @return Los valores presentes en alguna, en orden ascendente y sin repetir
+     */
+    public static int[] union(Iterable<PostingList> lists) {
+        int total = 0;
+        for (PostingList list : lists) {
+            total += list.size;
+        }
+        int[] result = new int[total];
+        int pos = 0;
+        for (PostingList list : lists) {
+            int[] values = list.toArray();
+            System.arraycopy(values, 0, result, pos, values.length);
+            pos += values.length;
+        }
+        Arrays.sort(result);
+        int count = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (count == 0 || result[count - 1] != result[i]) {
+                result[count++] = result[i];
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+}
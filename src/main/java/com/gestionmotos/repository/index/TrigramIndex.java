@@ -0,0 +1,324 @@
+package com.gestionmotos.repository.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido de trigramas para buscar subcadenas en un campo de texto
+ * (por ejemplo, la marca o el color de las motocicletas).
+ * <p>
+ * Los valores distintos del campo son los términos del índice. Cada término guarda la
+ * lista comprimida de IDs de las filas que lo tienen, y cada trigrama (subcadena de tres
+ * caracteres) guarda la lista comprimida de términos en los que aparece. Una búsqueda
+ * intersecta las listas de los trigramas de la consulta y comprueba cada término
+ * candidato, por lo que nunca recorre las filas.
+ * <p>
+ * Los textos se comparan sin distinguir mayúsculas ni acentos, igual que la intercalación
+ * por defecto de MySQL en {@code LIKE '%texto%'}.
+ * <p>
+ * Esta clase no es segura para varios hilos; quien la usa debe sincronizar el acceso.
+ */
+public class TrigramIndex {
+    private static final int N = 3;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    // Términos por valor normalizado
+    private final Map<String, Term> terms = new HashMap<>();
+    // Términos por su número; null en los eliminados
+    private final List<Term> termsById = new ArrayList<>();
+    // Términos que contienen cada trigrama
+    private final Map<String, PostingList> grams = new HashMap<>();
+
+    /**
+     * Término del índice: un valor distinto del campo y las filas que lo tienen.
+     */
+    private static final class Term {
+        final int number;
+        final String value;
+        PostingList ids;
+
+        Term(int number, String value, PostingList ids) {
+            this.number = number;
+            this.value = value;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * Normaliza un texto para compararlo: minúsculas y sin acentos.
+     * @param texto El texto
+     * @return El texto normalizado
+     */
+    public static String normalize(String texto) {
+        String lower = texto.toLowerCase(Locale.ROOT);
+        String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("");
+    }
+
+    /**
+     * Crea un índice de una sola vez a partir de las filas indicadas.
+     * Es mucho más rápido que añadir las filas una a una.
+     * @param ids IDs de las filas
+     * @param values Valor del campo de cada fila
+     * @param count Número de filas
+     * @return El índice
+     */
+    public static TrigramIndex build(int[] ids, String[] values, int count) {
+        TrigramIndex index = new TrigramIndex();
+        index.addAll(ids, values, count);
+        return index;
+    }
+
+    /**
+     * Agrupa las filas por valor normalizado.
+     * @return Los IDs de cada valor, ordenados y sin repetir
+     */
+    private static Map<String, int[]> groupByTerm(int[] ids, String[] values, int count) {
+        Map<String, int[]> buffers = new HashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String value = normalize(values[i]);
+            int[] buffer = buffers.get(value);
+            int size = sizes.getOrDefault(value, 0);
+            if (buffer == null) {
+                buffer = new int[8];
+            } else if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size] = ids[i];
+            buffers.put(value, buffer);
+            sizes.put(value, size + 1);
+        }
+        for (Map.Entry<String, int[]> entry : buffers.entrySet()) {
+            int[] buffer = entry.getValue();
+            int size = sizes.get(entry.getKey());
+            Arrays.sort(buffer, 0, size);
+            entry.setValue(Arrays.copyOf(buffer, dedupe(buffer, size)));
+        }
+        return buffers;
+    }
+
+    private static int dedupe(int[] sorted, int size) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (count == 0 || sorted[count - 1] != sorted[i]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Añade un número de término a la lista pendiente de un trigrama.
+     */
+    private static void append(Map<String, int[]> buffers, Map<String, Integer> sizes, String gram, int number) {
+        int[] buffer = buffers.get(gram);
+        int size = sizes.getOrDefault(gram, 0);
+        if (buffer == null) {
+            buffer = new int[4];
+        } else if (size == buffer.length) {
+            buffer = Arrays.copyOf(buffer, size * 2);
+        }
+        buffer[size] = number;
+        buffers.put(gram, buffer);
+        sizes.put(gram, size + 1);
+    }
+
+    /**
+     * Trigramas distintos de un texto ya normalizado.
+     */
+    private static List<String> trigrams(String value) {
+        List<String> result = new ArrayList<>(Math.max(0, value.length() - N + 1));
+        for (int i = 0; i + N <= value.length(); i++) {
+            String gram = value.substring(i, i + N);
+            if (!result.contains(gram)) {
+                result.add(gram);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Añade una fila al índice.
+     * @param id ID de la fila
+     * @param value Valor del campo
+     */
+    public void add(int id, String value) {
+        addAll(new int[]{id}, new String[]{value}, 1);
+    }
+
+    /**
+     * Añade varias filas al índice. Cada lista afectada (la de cada término y la de cada
+     * trigrama de los términos nuevos) se reescribe una sola vez, así que el coste depende
+     * del número de listas y no del de filas.
+     * @param ids IDs de las filas
+     * @param values Valor del campo de cada fila
+     * @param count Número de filas
+     */
+    public void addAll(int[] ids, String[] values, int count) {
+        Map<String, int[]> gramBuffers = new HashMap<>();
+        Map<String, Integer> gramSizes = new HashMap<>();
+        for (Map.Entry<String, int[]> entry : groupByTerm(ids, values, count).entrySet()) {
+            int[] termIds = entry.getValue();
+            Term term = terms.get(entry.getKey());
+            if (term != null) {
+                term.ids = term.ids.withAll(termIds, termIds.length);
+                continue;
+            }
+            term = new Term(termsById.size(), entry.getKey(), PostingList.of(termIds, termIds.length));
+            termsById.add(term);
+            terms.put(term.value, term);
+            for (String gram : trigrams(term.value)) {
+                append(gramBuffers, gramSizes, gram, term.number);
+            }
+        }
+        // Los números de término se asignan en orden creciente, así que cada lista ya está ordenada
+        for (Map.Entry<String, int[]> entry : gramBuffers.entrySet()) {
+            String gram = entry.getKey();
+            grams.put(gram, grams.getOrDefault(gram, PostingList.EMPTY)
+                                 .withAll(entry.getValue(), gramSizes.get(gram)));
+        }
+    }
+
+    /**
+     * Quita una fila del índice.
+     * @param id ID de la fila
+     * @param value Valor del campo que tenía la fila
+     */
+    public void remove(int id, String value) {
+        removeAll(new int[]{id}, new String[]{value}, 1);
+    }
+
+    /**
+     * Quita varias filas del índice, reescribiendo una sola vez cada lista afectada.
+     * @param ids IDs de las filas
+     * @param values Valor del campo que tenía cada fila
+     * @param count Número de filas
+     */
+    public void removeAll(int[] ids, String[] values, int count) {
+        Map<String, int[]> gramBuffers = new HashMap<>();
+        Map<String, Integer> gramSizes = new HashMap<>();
+        for (Map.Entry<String, int[]> entry : groupByTerm(ids, values, count).entrySet()) {
+            Term term = terms.get(entry.getKey());
+            if (term == null) {
+                continue;
+            }
+            term.ids = term.ids.withoutAll(entry.getValue(), entry.getValue().length);
+            if (term.ids.size() > 0) {
+                continue;
+            }
+            // El término ya no tiene filas: se quitará de las listas de sus trigramas
+            terms.remove(term.value);
+            termsById.set(term.number, null);
+            for (String gram : trigrams(term.value)) {
+                append(gramBuffers, gramSizes, gram, term.number);
+            }
+        }
+        for (Map.Entry<String, int[]> entry : gramBuffers.entrySet()) {
+            PostingList list = grams.get(entry.getKey());
+            if (list == null) {
+                continue;
+            }
+            int size = gramSizes.get(entry.getKey());
+            int[] numbers = entry.getValue();
+            // Los términos se recorren sin orden, así que los números pueden llegar desordenados
+            Arrays.sort(numbers, 0, size);
+            list = list.withoutAll(numbers, size);
+            if (list.size() == 0) {
+                grams.remove(entry.getKey());
+            } else {
+                grams.put(entry.getKey(), list);
+            }
+        }
+    }
+
+    /**
+     * Busca las filas cuyo valor contiene el texto indicado.
+     * @param substring Texto a buscar (sin comodines)
+     * @return IDs de las filas que coinciden, en orden ascendente
+     */
+    public int[] search(String substring) {
+        String query = normalize(substring);
+        List<PostingList> matches = new ArrayList<>();
+
+        if (query.length() < N) {
+            // Consulta sin trigramas: se revisan los términos, que son pocos comparados con las filas
+            for (Term term : terms.values()) {
+                if (term.value.contains(query)) {
+                    matches.add(term.ids);
+                }
+            }
+            return PostingList.union(matches);
+        }
+
+        List<String> queryGrams = trigrams(query);
+        PostingList[] lists = new PostingList[queryGrams.size()];
+        for (int i = 0; i < lists.length; i++) {
+            PostingList list = grams.get(queryGrams.get(i));
+            if (list == null) {
+                return new int[0];
+            }
+            lists[i] = list;
+        }
+
+        // Los trigramas comunes no garantizan la subcadena: se comprueba cada candidato
+        for (int number : PostingList.intersect(lists)) {
+            Term term = termsById.get(number);
+            if (term != null && term.value.contains(query)) {
+                matches.add(term.ids);
+            }
+        }
+        return PostingList.union(matches);
+    }
+
+    /**
+     * Busca las filas cuyo valor es exactamente el indicado (sin distinguir mayúsculas ni acentos).
+     * @param value El valor
+     * @return IDs de las filas, en orden ascendente
+     */
+    public int[] exact(String value) {
+        Term term = terms.get(normalize(value));
+        return term == null ? new int[0] : term.ids.toArray();
+    }
+
+    /**
+     * @return true si alguna fila tiene el valor indicado (sin distinguir mayúsculas ni acentos)
+     */
+    public boolean hasTerm(String value) {
+        return terms.containsKey(normalize(value));
+    }
+
+    /**
+     * @return Valores distintos del campo (normalizados)
+     */
+    public List<String> terms() {
+        return new ArrayList<>(terms.keySet());
+    }
+
+    /**
+     * @return Número de valores distintos del campo
+     */
+    public int termCount() {
+        return terms.size();
+    }
+
+    /**
+     * @return Bytes ocupados por las listas comprimidas (sin contar las cadenas ni los mapas)
+     */
+    public long postingBytes() {
+        long bytes = 0;
+        for (Term term : terms.values()) {
+            bytes += term.ids.sizeInBytes();
+        }
+        for (PostingList list : grams.values()) {
+            bytes += list.sizeInBytes();
+        }
+        return bytes;
+    }
+}
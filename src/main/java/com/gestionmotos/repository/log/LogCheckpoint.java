@@ -0,0 +1,182 @@
+package com.gestionmotos.repository.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Punto de control del registro: el índice completo (la versión actual de cada motocicleta)
+ * hasta un número de secuencia. Al iniciar se carga el punto de control y solo se leen los
+ * segmentos desde el que estaba activo cuando se escribió, en lugar de todo el registro.
+ * <p>
+ * El archivo tiene una cabecera de {@value #HEADER_SIZE} bytes, una entrada por motocicleta
+ * (número de segmento seguido del registro en el mismo formato que en los segmentos) y un
+ * CRC32 de todo lo anterior. Se escribe en un archivo temporal que luego reemplaza al anterior.
+ */
+final class LogCheckpoint {
+    private static final long MAGIC = 0x474D57414C435031L; // "GMWALCP1"
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 48;
+
+    // Bytes por escritura al crear el archivo
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Versión actual de una motocicleta y el segmento donde está su registro.
+     */
+    static final class Entrada {
+        private final LogRecord registro;
+        private final long segmento;
+
+        Entrada(LogRecord registro, long segmento) {
+            this.registro = registro;
+            this.segmento = segmento;
+        }
+
+        LogRecord getRegistro() {
+            return registro;
+        }
+
+        long getSegmento() {
+            return segmento;
+        }
+    }
+
+    private final long seq;
+    private final int siguienteId;
+    private final long segmento;
+    private final List<Entrada> entradas;
+
+    private LogCheckpoint(long seq, int siguienteId, long segmento, List<Entrada> entradas) {
+        this.seq = seq;
+        this.siguienteId = siguienteId;
+        this.segmento = segmento;
+        this.entradas = entradas;
+    }
+
+    /**
+     * Escribe un punto de control.
+     * @param path Ruta del archivo
+     * @param seq Último número de secuencia incluido en las entradas
+     * @param siguienteId Siguiente ID que se asignará
+     * @param segmento Número del segmento activo
+     * @param entradas La versión actual de cada motocicleta
+     * @throws IOException Si ocurre un error al escribir
+     */
+    static void write(Path path, long seq, int siguienteId, long segmento, Collection<Entrada> entradas)
+            throws IOException {
+        Path temporal = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            out.putLong(MAGIC).putInt(VERSION).putInt(entradas.size()).putLong(seq).putInt(siguienteId).putInt(0)
+               .putLong(segmento).putLong(System.currentTimeMillis());
+            for (Entrada entrada : entradas) {
+                if (out.remaining() < 8 + LogRecord.MAX_SIZE) {
+                    flush(channel, out, crc);
+                }
+                out.putLong(entrada.segmento);
+                entrada.registro.write(out);
+            }
+            flush(channel, out, crc);
+            out.putInt((int) crc.getValue());
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temporal, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer out, CRC32 crc) throws IOException {
+        out.flip();
+        crc.update(out.duplicate());
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Lee un punto de control.
+     * @param path Ruta del archivo
+     * @return El punto de control, o null si no existe
+     * @throws IOException Si no se puede leer o está incompleto o dañado
+     */
+    static LogCheckpoint read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (in.capacity() < HEADER_SIZE + 4 || in.getLong(0) != MAGIC || in.getInt(8) != VERSION) {
+            throw new IOException("No es un punto de control válido: " + path);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(in.array(), 0, in.capacity() - 4);
+        if ((int) crc.getValue() != in.getInt(in.capacity() - 4)) {
+            throw new IOException("Punto de control dañado: " + path);
+        }
+
+        int count = in.getInt(12);
+        long seq = in.getLong(16);
+        int siguienteId = in.getInt(24);
+        long segmento = in.getLong(32);
+        List<Entrada> entradas = new ArrayList<>(Math.max(0, count));
+        in.position(HEADER_SIZE);
+        in.limit(in.capacity() - 4);
+        for (int i = 0; i < count; i++) {
+            if (in.remaining() < 8) {
+                throw new IOException("Punto de control incompleto: " + path);
+            }
+            long segmentoEntrada = in.getLong();
+            LogRecord registro = LogRecord.read(in);
+            if (registro == null || registro.isBaja()) {
+                throw new IOException("Punto de control dañado: " + path);
+            }
+            entradas.add(new Entrada(registro, segmentoEntrada));
+        }
+        return new LogCheckpoint(seq, siguienteId, segmento, Collections.unmodifiableList(entradas));
+    }
+
+    /**
+     * @return Último número de secuencia incluido
+     */
+    long getSeq() {
+        return seq;
+    }
+
+    /**
+     * @return Siguiente ID que se iba a asignar
+     */
+    int getSiguienteId() {
+        return siguienteId;
+    }
+
+    /**
+     * @return Número del segmento activo cuando se escribió; los registros posteriores a
+     *         {@link #getSeq()} están en ese segmento o en los siguientes
+     */
+    long getSegmento() {
+        return segmento;
+    }
+
+    List<Entrada> getEntradas() {
+        return entradas;
+    }
+}
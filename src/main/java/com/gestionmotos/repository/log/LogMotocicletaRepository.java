@@ -0,0 +1,1165 @@
+package com.gestionmotos.repository.log;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.BatchResult;
+import com.gestionmotos.repository.CambioMotocicleta;
+import com.gestionmotos.repository.EstadisticaGrupo;
+import com.gestionmotos.repository.MotocicletaAgrupacion;
+import com.gestionmotos.repository.MotocicletaCriteria;
+import com.gestionmotos.repository.MotocicletaRepository;
+import com.gestionmotos.repository.MotocicletaSort;
+import com.gestionmotos.repository.Page;
+import com.gestionmotos.repository.PageCursor;
+import com.gestionmotos.repository.index.EditDistance;
+import com.gestionmotos.repository.index.TrigramIndex;
+import com.gestionmotos.util.DatabaseConnection;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Repositorio de motocicletas que no necesita servidor de base de datos: guarda cada cambio en
+ * un registro de escritura anticipada en archivos locales y responde las consultas desde un
+ * índice en memoria. Pensado para sucursales que trabajan con un solo equipo.
+ * <p>
+ * El registro se divide en segmentos ({@link LogSegment}) proyectados en memoria a los que solo
+ * se añaden registros. Al iniciar, el índice (la versión actual de cada motocicleta por ID) se
+ * carga del último punto de control ({@link LogCheckpoint}) y de los segmentos posteriores, o
+ * se reconstruye leyendo todos. Si el último segmento termina en una escritura incompleta (un
+ * corte de luz, por ejemplo), se descarta desde ahí.
+ * <p>
+ * Las escrituras se serializan y no vuelven hasta que el registro está en el disco; las que
+ * llegan a la vez se escriben en el disco juntas (ver {@code wal.sync.intervalMs}). Las
+ * lecturas no se bloquean mientras se escribe: ven el índice tal como está en ese momento.
+ * Un hilo en segundo plano reescribe los segmentos en los que la mayoría de registros ya se
+ * reemplazaron o eliminaron, y escribe puntos de control periódicos.
+ * <p>
+ * El registro de cambios ({@link #findCambiosDesde}) se reconstruye con los registros leídos al
+ * iniciar, así que no incluye los que ya se compactaron ni los anteriores al punto de control.
+ */
+public class LogMotocicletaRepository implements MotocicletaRepository, AutoCloseable {
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String LOCK_FILE = "lock";
+
+    // Instancia abierta con la configuración de la aplicación
+    private static LogMotocicletaRepository instance;
+
+    /**
+     * Parámetros del registro. Los valores por defecto son los de config.properties.
+     */
+    public static final class Opciones {
+        private int segmentBytes = 16 * 1024 * 1024;
+        private int syncIntervalMs = 0;
+        private int syncMaxBatch = 128;
+        private long compactionIntervalMs = 60_000;
+        private double compactionMinLiveRatio = 0.5;
+        private int checkpointRecords = 10_000;
+
+        /**
+         * Lee las opciones {@code wal.*} de la configuración.
+         * @param properties La configuración
+         * @return Las opciones
+         */
+        public static Opciones fromConfig(Properties properties) {
+            Opciones opciones = new Opciones();
+            opciones.segmentBytes(intProperty(properties, "wal.segmentBytes", opciones.segmentBytes))
+                    .syncIntervalMs(intProperty(properties, "wal.sync.intervalMs", opciones.syncIntervalMs))
+                    .syncMaxBatch(intProperty(properties, "wal.sync.maxBatch", opciones.syncMaxBatch))
+                    .compactionIntervalMs(intProperty(properties, "wal.compaction.intervalMs",
+                            (int) opciones.compactionIntervalMs))
+                    .checkpointRecords(intProperty(properties, "wal.checkpoint.records", opciones.checkpointRecords));
+            String ratio = properties.getProperty("wal.compaction.minLiveRatio", "").trim();
+            if (!ratio.isEmpty()) {
+                try {
+                    opciones.compactionMinLiveRatio(Double.parseDouble(ratio));
+                } catch (NumberFormatException e) {
+                    System.err.println("Valor inválido para wal.compaction.minLiveRatio: " + ratio);
+                }
+            }
+            return opciones;
+        }
+
+        private static int intProperty(Properties properties, String key, int defaultValue) {
+            String value = properties.getProperty(key, "").trim();
+            if (value.isEmpty()) {
+                return defaultValue;
+            }
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                System.err.println("Valor inválido para " + key + ": " + value);
+                return defaultValue;
+            }
+        }
+
+        /**
+         * @param segmentBytes Tamaño de cada segmento en bytes
+         * @return Estas opciones
+         */
+        public Opciones segmentBytes(int segmentBytes) {
+            this.segmentBytes = Math.max(LogSegment.HEADER_SIZE + LogRecord.MAX_SIZE, segmentBytes);
+            return this;
+        }
+
+        /**
+         * @param syncIntervalMs Espera máxima para escribir en el disco varias escrituras juntas;
+         *                       0 para escribir en el disco en cada escritura (agrupando las que
+         *                       llegan a la vez) o -1 para no esperar al disco
+         * @return Estas opciones
+         */
+        public Opciones syncIntervalMs(int syncIntervalMs) {
+            this.syncIntervalMs = Math.max(-1, syncIntervalMs);
+            return this;
+        }
+
+        /**
+         * @param syncMaxBatch Escrituras pendientes que se escriben en el disco sin esperar al intervalo
+         * @return Estas opciones
+         */
+        public Opciones syncMaxBatch(int syncMaxBatch) {
+            this.syncMaxBatch = Math.max(1, syncMaxBatch);
+            return this;
+        }
+
+        /**
+         * @param compactionIntervalMs Tiempo entre compactaciones (0 para no compactar en segundo plano)
+         * @return Estas opciones
+         */
+        public Opciones compactionIntervalMs(long compactionIntervalMs) {
+            this.compactionIntervalMs = Math.max(0, compactionIntervalMs);
+            return this;
+        }
+
+        /**
+         * @param compactionMinLiveRatio Fracción de registros vigentes por debajo de la cual se compacta un segmento
+         * @return Estas opciones
+         */
+        public Opciones compactionMinLiveRatio(double compactionMinLiveRatio) {
+            this.compactionMinLiveRatio = Math.min(1.0, Math.max(0.0, compactionMinLiveRatio));
+            return this;
+        }
+
+        /**
+         * @param checkpointRecords Cambios tras los que se escribe un punto de control
+         * @return Estas opciones
+         */
+        public Opciones checkpointRecords(int checkpointRecords) {
+            this.checkpointRecords = Math.max(1, checkpointRecords);
+            return this;
+        }
+    }
+
+    private final Path directorio;
+    private final Opciones opciones;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+
+    // Versión actual de cada motocicleta, en orden de ID
+    private final ConcurrentSkipListMap<Integer, LogCheckpoint.Entrada> indice = new ConcurrentSkipListMap<>();
+    // Cambios leídos al iniciar y escritos después, por número de secuencia
+    private final ConcurrentSkipListMap<Long, LogRecord> cambios = new ConcurrentSkipListMap<>();
+    // Segmentos por número; el último es el activo
+    private final ConcurrentSkipListMap<Long, LogSegment> segmentos = new ConcurrentSkipListMap<>();
+
+    // Serializa las escrituras en el registro
+    private final ReentrantLock escritura = new ReentrantLock();
+    private volatile LogSegment activo;
+    private long ultimoSeq;
+    private int siguienteId;
+    // Último cambio añadido al segmento activo y último aplicado al índice
+    private volatile long ultimoSeqEscrito;
+    private volatile long ultimoSeqAplicado;
+    // Último cambio incluido en el punto de control del disco
+    private volatile long seqCheckpoint;
+
+    // Escritura en el disco agrupada
+    private final Object sync = new Object();
+    private final Object forzado = new Object();
+    private volatile long seqDuradero;
+    private int pendientes;
+    private final Thread hiloSync;
+
+    private final ScheduledExecutorService mantenimiento;
+    private volatile boolean cerrado;
+
+    /**
+     * Abre el registro de un directorio, creándolo si no existe, y carga el índice.
+     * @param directorio Directorio del registro
+     * @param opciones Parámetros del registro
+     * @return El repositorio
+     * @throws IOException Si el registro no se puede leer o ya lo tiene abierto otro proceso
+     */
+    public static LogMotocicletaRepository open(Path directorio, Opciones opciones) throws IOException {
+        return new LogMotocicletaRepository(directorio, opciones);
+    }
+
+    /**
+     * Obtiene el registro configurado en wal.path con las opciones de config.properties,
+     * abriéndolo la primera vez. Se cierra al terminar la aplicación.
+     * @return El repositorio
+     * @throws IOException Si el registro no se puede abrir
+     */
+    public static synchronized LogMotocicletaRepository getInstance() throws IOException {
+        if (instance == null || instance.cerrado) {
+            Properties config = DatabaseConnection.getInstance().getProperties();
+            LogMotocicletaRepository abierto = open(defaultPath(config), Opciones.fromConfig(config));
+            Runtime.getRuntime().addShutdownHook(new Thread(abierto::close, "wal-cierre"));
+            instance = abierto;
+        }
+        return instance;
+    }
+
+    /**
+     * @param config La configuración
+     * @return Directorio configurado en wal.path, o {@code ~/.gestionmotos/inventario-wal}
+     *         si no está configurado
+     */
+    public static Path defaultPath(Properties config) {
+        String configurada = config.getProperty("wal.path", "").trim();
+        if (!configurada.isEmpty()) {
+            return Paths.get(configurada);
+        }
+        return Paths.get(System.getProperty("user.home"), ".gestionmotos", "inventario-wal");
+    }
+
+    private LogMotocicletaRepository(Path directorio, Opciones opciones) throws IOException {
+        this.directorio = directorio;
+        this.opciones = opciones;
+        Files.createDirectories(directorio);
+        lockChannel = FileChannel.open(directorio.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock bloqueo;
+        try {
+            bloqueo = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            bloqueo = null;
+        }
+        if (bloqueo == null) {
+            lockChannel.close();
+            throw new IOException("El registro del inventario ya está abierto: " + directorio);
+        }
+        lock = bloqueo;
+
+        try {
+            recuperar();
+        } catch (IOException | RuntimeException e) {
+            lock.release();
+            lockChannel.close();
+            throw e;
+        }
+
+        if (opciones.syncIntervalMs > 0) {
+            hiloSync = new Thread(this::bucleSync, "wal-sync");
+            hiloSync.setDaemon(true);
+            hiloSync.start();
+        } else {
+            hiloSync = null;
+        }
+        mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wal-compactacion");
+            t.setDaemon(true);
+            return t;
+        });
+        if (opciones.compactionIntervalMs > 0) {
+            mantenimiento.scheduleWithFixedDelay(this::mantener, opciones.compactionIntervalMs,
+                    opciones.compactionIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Carga el índice del punto de control y de los segmentos, descarta la cola incompleta del
+     * último segmento y lo deja abierto para escribir.
+     */
+    private void recuperar() throws IOException {
+        List<Path> archivos;
+        try (Stream<Path> listado = Files.list(directorio)) {
+            archivos = listado.filter(p -> LogSegment.numeroDe(p) >= 0)
+                              .sorted(Comparator.comparingLong(LogSegment::numeroDe))
+                              .collect(Collectors.toList());
+        }
+        // Restos de una compactación o un punto de control interrumpidos
+        try (Stream<Path> listado = Files.list(directorio)) {
+            for (Path temporal : listado.filter(p -> p.getFileName().toString().endsWith(".tmp"))
+                                        .collect(Collectors.toList())) {
+                Files.deleteIfExists(temporal);
+            }
+        }
+
+        LogCheckpoint checkpoint = null;
+        try {
+            checkpoint = LogCheckpoint.read(directorio.resolve(CHECKPOINT_FILE));
+        } catch (IOException e) {
+            System.err.println("Se ignora el punto de control del inventario: " + e.getMessage());
+        }
+        long ultimoNumero = archivos.isEmpty() ? 0 : LogSegment.numeroDe(archivos.get(archivos.size() - 1));
+        if (checkpoint != null && checkpoint.getSegmento() > ultimoNumero) {
+            System.err.println("Se ignora el punto de control del inventario: no corresponde a los segmentos de "
+                    + directorio);
+            checkpoint = null;
+        }
+
+        for (Path archivo : archivos) {
+            LogSegment segmento = LogSegment.open(archivo);
+            segmentos.put(LogSegment.numeroDe(archivo), segmento);
+        }
+        long desdeSegmento = 0;
+        long seqBase = 0;
+        int maxId = 0;
+        if (checkpoint != null) {
+            for (LogCheckpoint.Entrada entrada : checkpoint.getEntradas()) {
+                indice.put(entrada.getRegistro().getId(), entrada);
+                LogSegment segmento = segmentos.get(entrada.getSegmento());
+                if (segmento != null) {
+                    segmento.getVivos().addAndGet(entrada.getRegistro().size());
+                }
+            }
+            desdeSegmento = checkpoint.getSegmento();
+            seqBase = checkpoint.getSeq();
+            ultimoSeq = checkpoint.getSeq();
+            maxId = checkpoint.getSiguienteId() - 1;
+            seqCheckpoint = checkpoint.getSeq();
+        }
+
+        // Los segmentos anteriores al punto de control no se leen: sus cambios ya están en el índice
+        for (LogSegment segmento : segmentos.tailMap(desdeSegmento).values()) {
+            long base = seqBase;
+            long[] leidos = new long[3]; // último seq, mayor ID, bytes de bajas
+            leidos[0] = ultimoSeq;
+            leidos[1] = maxId;
+            segmento.scan(registro -> {
+                leidos[0] = Math.max(leidos[0], registro.getSeq());
+                leidos[1] = Math.max(leidos[1], registro.getId());
+                if (registro.isBaja()) {
+                    leidos[2] += registro.size();
+                }
+                if (registro.getSeq() > base) {
+                    aplicar(registro, segmento);
+                }
+            });
+            ultimoSeq = leidos[0];
+            maxId = (int) leidos[1];
+            segmento.setBajas(leidos[2]);
+            if (segmento.isDanado() && segmento.getNumero() != ultimoNumero) {
+                System.err.println("Registro dañado en " + segmento.getPath()
+                        + ": se ignoran los registros siguientes de ese segmento");
+            }
+        }
+
+        if (segmentos.isEmpty()) {
+            activo = LogSegment.create(directorio, 1, ultimoSeq, maxId + 1, opciones.segmentBytes);
+            segmentos.put(activo.getNumero(), activo);
+        } else {
+            activo = segmentos.lastEntry().getValue();
+            ultimoSeq = Math.max(ultimoSeq, activo.getUltimoSeqInicial());
+            maxId = Math.max(maxId, activo.getSiguienteIdInicial() - 1);
+            int borrados = activo.abrirParaEscribir(opciones.segmentBytes);
+            if (borrados > 0) {
+                System.err.println("Se descartó una escritura incompleta al final de " + activo.getPath()
+                        + " (" + borrados + " bytes)");
+            }
+        }
+        siguienteId = maxId + 1;
+        ultimoSeqEscrito = ultimoSeq;
+        ultimoSeqAplicado = ultimoSeq;
+        seqDuradero = ultimoSeq;
+    }
+
+    /**
+     * Aplica un cambio al índice, al registro de cambios y a la cuenta de bytes vigentes de los segmentos.
+     */
+    private void aplicar(LogRecord registro, LogSegment segmento) {
+        LogCheckpoint.Entrada anterior;
+        if (registro.isBaja()) {
+            anterior = indice.remove(registro.getId());
+        } else {
+            anterior = indice.put(registro.getId(), new LogCheckpoint.Entrada(registro, segmento.getNumero()));
+            segmento.getVivos().addAndGet(registro.size());
+        }
+        if (anterior != null) {
+            LogSegment reemplazado = segmentos.get(anterior.getSegmento());
+            if (reemplazado != null) {
+                reemplazado.getVivos().addAndGet(-anterior.getRegistro().size());
+            }
+        }
+        cambios.put(registro.getSeq(), registro);
+        ultimoSeqAplicado = registro.getSeq();
+    }
+
+    /**
+     * Añade un registro al segmento activo, pasando a un segmento nuevo si no cabe, y lo aplica
+     * al índice. Debe llamarse con el bloqueo de escritura.
+     */
+    private void escribir(LogRecord registro) throws IOException {
+        if (!activo.append(registro)) {
+            LogSegment anterior = activo;
+            anterior.close();
+            LogSegment nuevo = LogSegment.create(directorio, anterior.getNumero() + 1, ultimoSeq, siguienteId,
+                    opciones.segmentBytes);
+            segmentos.put(nuevo.getNumero(), nuevo);
+            activo = nuevo;
+            if (!nuevo.append(registro)) {
+                throw new IOException("El registro no cabe en un segmento de " + opciones.segmentBytes + " bytes");
+            }
+        }
+        ultimoSeq = registro.getSeq();
+        ultimoSeqEscrito = ultimoSeq;
+        aplicar(registro, activo);
+    }
+
+    private void comprobarAbierto() {
+        if (cerrado) {
+            throw new IllegalStateException("El registro del inventario está cerrado: " + directorio);
+        }
+    }
+
+    /**
+     * Espera a que los cambios hasta {@code seq} estén en el disco, según wal.sync.intervalMs.
+     * @param seq Último número de secuencia escrito
+     * @param registros Registros escritos
+     */
+    private void esperarDisco(long seq, int registros) {
+        if (opciones.syncIntervalMs < 0 || registros == 0) {
+            return;
+        }
+        if (opciones.syncIntervalMs == 0) {
+            // Quien llega mientras otro escribe en el disco espera y casi siempre ya está incluido
+            synchronized (forzado) {
+                if (seqDuradero < seq) {
+                    forzar();
+                }
+            }
+            return;
+        }
+        synchronized (sync) {
+            pendientes += registros;
+            if (pendientes == registros || pendientes >= opciones.syncMaxBatch) {
+                sync.notifyAll();
+            }
+            while (seqDuradero < seq) {
+                try {
+                    sync.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Escribe en el disco el segmento activo y marca como duraderos los cambios añadidos hasta ahora.
+     */
+    private void forzar() {
+        long hasta = ultimoSeqEscrito;
+        // Los segmentos anteriores se escribieron en el disco al cerrarlos
+        activo.force();
+        synchronized (sync) {
+            if (hasta > seqDuradero) {
+                seqDuradero = hasta;
+            }
+            sync.notifyAll();
+        }
+    }
+
+    /**
+     * Hilo de escritura agrupada: cuando hay escrituras pendientes espera hasta wal.sync.intervalMs
+     * (o hasta que se acumulan wal.sync.maxBatch) y las escribe en el disco de una vez.
+     */
+    private void bucleSync() {
+        try {
+            while (true) {
+                synchronized (sync) {
+                    while (pendientes == 0 && !cerrado) {
+                        sync.wait();
+                    }
+                    if (!cerrado && pendientes < opciones.syncMaxBatch) {
+                        sync.wait(opciones.syncIntervalMs);
+                    }
+                    pendientes = 0;
+                }
+                forzar();
+                if (cerrado) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            System.err.println("Error al escribir el registro del inventario en el disco: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Tarea periódica: compacta los segmentos y escribe un punto de control si hubo suficientes cambios.
+     */
+    private void mantener() {
+        try {
+            compact();
+            if (ultimoSeqAplicado - seqCheckpoint >= opciones.checkpointRecords) {
+                checkpoint();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error en el mantenimiento del registro del inventario: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reescribe los segmentos cerrados en los que la fracción de registros vigentes está por
+     * debajo de wal.compaction.minLiveRatio, conservando solo la versión actual de cada
+     * motocicleta y las bajas que aún ocultan registros de segmentos anteriores. Las lecturas
+     * y las escrituras siguen mientras tanto.
+     * @return Número de segmentos compactados
+     * @throws IOException Si ocurre un error al reescribir un segmento
+     */
+    public int compact() throws IOException {
+        int compactados = 0;
+        for (LogSegment segmento : new ArrayList<>(segmentos.headMap(activo.getNumero()).values())) {
+            if (cerrado) {
+                break;
+            }
+            if (segmento.getFraccionViva() >= opciones.compactionMinLiveRatio) {
+                continue;
+            }
+            // Una baja solo puede olvidarse si no quedan segmentos anteriores con la motocicleta
+            // y el punto de control ya no la tiene. Antes de reemplazar el segmento se escriben en
+            // el disco los cambios que dejaron obsoletos sus registros, para no perder ambas versiones
+            // si se va la luz
+            boolean masAntiguo = segmentos.firstKey() == segmento.getNumero();
+            long limite = seqCheckpoint;
+            long[] bajas = new long[1];
+            long tamanio = segmento.rewrite(registro -> {
+                boolean conservar;
+                if (registro.isBaja()) {
+                    conservar = !indice.containsKey(registro.getId()) && !(masAntiguo && registro.getSeq() <= limite);
+                    if (conservar) {
+                        bajas[0] += registro.size();
+                    }
+                } else {
+                    LogCheckpoint.Entrada actual = indice.get(registro.getId());
+                    conservar = actual != null && actual.getRegistro().getSeq() == registro.getSeq();
+                }
+                return conservar;
+            }, this::forzar);
+            if (tamanio == 0) {
+                segmentos.remove(segmento.getNumero());
+            } else {
+                segmento.setBajas(bajas[0]);
+            }
+            compactados++;
+        }
+        return compactados;
+    }
+
+    /**
+     * Escribe un punto de control con el índice actual, para que el próximo inicio no tenga
+     * que leer los segmentos anteriores.
+     * @throws IOException Si ocurre un error al escribir
+     */
+    public void checkpoint() throws IOException {
+        long seq;
+        int siguiente;
+        long segmento;
+        List<LogCheckpoint.Entrada> entradas;
+        escritura.lock();
+        try {
+            seq = ultimoSeq;
+            siguiente = siguienteId;
+            segmento = activo.getNumero();
+            entradas = new ArrayList<>(indice.values());
+        } finally {
+            escritura.unlock();
+        }
+        // El punto de control no debe ir por delante de lo que hay en el disco
+        forzar();
+        LogCheckpoint.write(directorio.resolve(CHECKPOINT_FILE), seq, siguiente, segmento, entradas);
+        seqCheckpoint = seq;
+    }
+
+    /**
+     * Escribe en el disco lo pendiente, guarda un punto de control y libera el directorio.
+     * Las escrituras posteriores fallan.
+     */
+    @Override
+    public void close() {
+        escritura.lock();
+        try {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+        } finally {
+            escritura.unlock();
+        }
+        mantenimiento.shutdown();
+        try {
+            mantenimiento.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            System.err.println("Error al guardar el punto de control del inventario: " + e.getMessage());
+            e.printStackTrace();
+        }
+        try {
+            activo.close();
+        } catch (IOException e) {
+            System.err.println("Error al cerrar el registro del inventario: " + e.getMessage());
+            e.printStackTrace();
+        }
+        synchronized (sync) {
+            seqDuradero = ultimoSeqEscrito;
+            sync.notifyAll();
+        }
+        if (hiloSync != null) {
+            try {
+                hiloSync.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            System.err.println("Error al liberar el registro del inventario: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Guarda una nueva motocicleta y le asigna el siguiente ID.
+     * @param moto La motocicleta a guardar
+     * @return La motocicleta guardada con su ID asignado
+     */
+    @Override
+    public Motocicleta save(Motocicleta moto) {
+        long seq;
+        escritura.lock();
+        try {
+            comprobarAbierto();
+            long ahora = System.currentTimeMillis();
+            LogRecord registro = LogRecord.put(CambioMotocicleta.Operacion.ALTA, ultimoSeq + 1, ahora,
+                    siguienteId, moto, ahora);
+            escribir(registro);
+            siguienteId++;
+            moto.setId(registro.getId());
+            seq = registro.getSeq();
+        } catch (IOException e) {
+            System.err.println("Error al guardar motocicleta: " + e.getMessage());
+            e.printStackTrace();
+            return moto;
+        } finally {
+            escritura.unlock();
+        }
+        esperarDisco(seq, 1);
+        return moto;
+    }
+
+    /**
+     * Actualiza una motocicleta existente.
+     * @param moto La motocicleta a actualizar
+     * @return true si la actualización fue exitosa, false si no existe o en caso de error
+     */
+    @Override
+    public boolean update(Motocicleta moto) {
+        long seq;
+        escritura.lock();
+        try {
+            comprobarAbierto();
+            LogCheckpoint.Entrada actual = indice.get(moto.getId());
+            if (actual == null) {
+                return false;
+            }
+            LogRecord registro = LogRecord.put(CambioMotocicleta.Operacion.MODIFICACION, ultimoSeq + 1,
+                    System.currentTimeMillis(), moto.getId(), moto, actual.getRegistro().getRegistro());
+            escribir(registro);
+            seq = registro.getSeq();
+        } catch (IOException e) {
+            System.err.println("Error al actualizar motocicleta: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        } finally {
+            escritura.unlock();
+        }
+        esperarDisco(seq, 1);
+        return true;
+    }
+
+    /**
+     * Elimina una motocicleta por su ID.
+     * @param id El ID de la motocicleta a eliminar
+     * @return true si la eliminación fue exitosa, false si no existe o en caso de error
+     */
+    @Override
+    public boolean deleteById(Integer id) {
+        long seq;
+        escritura.lock();
+        try {
+            comprobarAbierto();
+            if (id == null || !indice.containsKey(id)) {
+                return false;
+            }
+            LogRecord registro = LogRecord.baja(ultimoSeq + 1, System.currentTimeMillis(), id);
+            escribir(registro);
+            seq = registro.getSeq();
+        } catch (IOException e) {
+            System.err.println("Error al eliminar motocicleta: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        } finally {
+            escritura.unlock();
+        }
+        esperarDisco(seq, 1);
+        return true;
+    }
+
+    /**
+     * Guarda varias motocicletas con una sola espera al disco. A diferencia de la base de datos
+     * no hay transacción: si falla a mitad, las ya escritas se conservan con su ID.
+     * @param motos Las motocicletas a guardar
+     * @return Filas escritas y duración de la operación
+     */
+    @Override
+    public BatchResult saveAll(Collection<Motocicleta> motos) {
+        BatchResult result = new BatchResult();
+        if (motos.isEmpty()) {
+            return result;
+        }
+        long inicio = System.nanoTime();
+        int escritas = 0;
+        long seq = 0;
+        escritura.lock();
+        try {
+            comprobarAbierto();
+            long ahora = System.currentTimeMillis();
+            for (Motocicleta moto : motos) {
+                LogRecord registro = LogRecord.put(CambioMotocicleta.Operacion.ALTA, ultimoSeq + 1, ahora,
+                        siguienteId, moto, ahora);
+                escribir(registro);
+                siguienteId++;
+                moto.setId(registro.getId());
+                seq = registro.getSeq();
+                escritas++;
+            }
+        } catch (IOException e) {
+            System.err.println("Error al guardar motocicletas por lotes: " + e.getMessage());
+            e.printStackTrace();
+            result.markFailed(e.getMessage() + " (se guardaron " + escritas + " de " + motos.size() + ")");
+        } finally {
+            escritura.unlock();
+        }
+        esperarDisco(seq, escritas);
+        if (result.isSuccess()) {
+            result.addChunk(escritas, System.nanoTime() - inicio);
+        }
+        return result;
+    }
+
+    /**
+     * Actualiza varias motocicletas con una sola espera al disco. Las que no existen se omiten.
+     * @param motos Las motocicletas a actualizar
+     * @return Filas escritas y duración de la operación
+     */
+    @Override
+    public BatchResult updateAll(Collection<Motocicleta> motos) {
+        BatchResult result = new BatchResult();
+        long inicio = System.nanoTime();
+        int escritas = 0;
+        long seq = 0;
+        escritura.lock();
+        try {
+            comprobarAbierto();
+            long ahora = System.currentTimeMillis();
+            for (Motocicleta moto : motos) {
+                LogCheckpoint.Entrada actual = indice.get(moto.getId());
+                if (actual == null) {
+                    continue;
+                }
+                LogRecord registro = LogRecord.put(CambioMotocicleta.Operacion.MODIFICACION, ultimoSeq + 1, ahora,
+                        moto.getId(), moto, actual.getRegistro().getRegistro());
+                escribir(registro);
+                seq = registro.getSeq();
+                escritas++;
+            }
+        } catch (IOException e) {
+            System.err.println("Error al actualizar motocicletas por lotes: " + e.getMessage());
+            e.printStackTrace();
+            result.markFailed(e.getMessage() + " (se actualizaron " + escritas + " de " + motos.size() + ")");
+        } finally {
+            escritura.unlock();
+        }
+        esperarDisco(seq, escritas);
+        if (result.isSuccess()) {
+            result.addChunk(escritas, System.nanoTime() - inicio);
+        }
+        return result;
+    }
+
+    /**
+     * Elimina varias motocicletas por su ID con una sola espera al disco.
+     * @param ids Los IDs de las motocicletas a eliminar
+     * @return Filas eliminadas y duración de la operación
+     */
+    @Override
+    public BatchResult deleteAllById(Collection<Integer> ids) {
+        BatchResult result = new BatchResult();
+        long inicio = System.nanoTime();
+        int escritas = 0;
+        long seq = 0;
+        escritura.lock();
+        try {
+            comprobarAbierto();
+            long ahora = System.currentTimeMillis();
+            for (Integer id : ids) {
+                if (id == null || !indice.containsKey(id)) {
+                    continue;
+                }
+                LogRecord registro = LogRecord.baja(ultimoSeq + 1, ahora, id);
+                escribir(registro);
+                seq = registro.getSeq();
+                escritas++;
+            }
+        } catch (IOException e) {
+            System.err.println("Error al eliminar motocicletas por lotes: " + e.getMessage());
+            e.printStackTrace();
+            result.markFailed(e.getMessage() + " (se eliminaron " + escritas + " de " + ids.size() + ")");
+        } finally {
+            escritura.unlock();
+        }
+        esperarDisco(seq, escritas);
+        if (result.isSuccess()) {
+            result.addChunk(escritas, System.nanoTime() - inicio);
+        }
+        return result;
+    }
+
+    /**
+     * @return Las motocicletas del índice en orden de ID, como copias
+     */
+    private Stream<Motocicleta> motos() {
+        return indice.values().stream().map(entrada -> entrada.getRegistro().toMotocicleta());
+    }
+
+    private static List<Motocicleta> lista(Stream<Motocicleta> motos) {
+        return motos.collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public Optional<Motocicleta> findById(Integer id) {
+        LogCheckpoint.Entrada entrada = id == null ? null : indice.get(id);
+        return entrada == null ? Optional.empty() : Optional.of(entrada.getRegistro().toMotocicleta());
+    }
+
+    @Override
+    public List<Motocicleta> findAllById(Collection<Integer> ids) {
+        List<Motocicleta> motos = new ArrayList<>(ids.size());
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            LogCheckpoint.Entrada entrada = id == null ? null : indice.get(id);
+            if (entrada != null) {
+                motos.add(entrada.getRegistro().toMotocicleta());
+            }
+        }
+        return motos;
+    }
+
+    @Override
+    public List<Motocicleta> findAll() {
+        return lista(motos());
+    }
+
+    @Override
+    public List<Motocicleta> findPage(Integer afterId, int limit) {
+        NavigableMap<Integer, LogCheckpoint.Entrada> rango = afterId == null ? indice : indice.tailMap(afterId, false);
+        return lista(rango.values().stream().limit(limit).map(entrada -> entrada.getRegistro().toMotocicleta()));
+    }
+
+    @Override
+    public List<Motocicleta> findByMarca(String marca) {
+        return lista(motos().filter(MotocicletaCriteria.builder().marca(marca).build()::matches));
+    }
+
+    /**
+     * Busca motocicletas de marcas parecidas a la indicada, como {@code MotocicletaRepositoryImpl}:
+     * primero las de la marca más parecida y, dentro de cada marca, por ID.
+     */
+    @Override
+    public List<Motocicleta> findByMarcaFuzzy(String marca, int maxDistance) {
+        String query = TrigramIndex.normalize(marca.trim());
+        Map<String, Integer> distancias = new HashMap<>();
+        Map<String, List<Motocicleta>> porMarca = new HashMap<>();
+        for (LogCheckpoint.Entrada entrada : indice.values()) {
+            String normalizada = TrigramIndex.normalize(entrada.getRegistro().getMarca());
+            int distancia = distancias.computeIfAbsent(normalizada,
+                    m -> EditDistance.levenshtein(m, query, maxDistance));
+            if (distancia <= maxDistance) {
+                porMarca.computeIfAbsent(normalizada, k -> new ArrayList<>()).add(entrada.getRegistro().toMotocicleta());
+            }
+        }
+        List<String> orden = new ArrayList<>(porMarca.keySet());
+        orden.sort(Comparator.<String>comparingInt(distancias::get).thenComparing(Comparator.naturalOrder()));
+        List<Motocicleta> motos = new ArrayList<>();
+        for (String normalizada : orden) {
+            motos.addAll(porMarca.get(normalizada));
+        }
+        return motos;
+    }
+
+    @Override
+    public List<Motocicleta> findByColor(String color) {
+        return lista(motos().filter(MotocicletaCriteria.builder().color(color).build()::matches));
+    }
+
+    @Override
+    public List<Motocicleta> findByPrecioMaximo(double precio) {
+        return lista(streamByPrecioMaximo(precio));
+    }
+
+    @Override
+    public List<Motocicleta> findByCilindrajeRango(int min, int max) {
+        return lista(streamByCilindrajeRango(min, max));
+    }
+
+    @Override
+    public List<Motocicleta> findByCriteria(MotocicletaCriteria criteria) {
+        Stream<Motocicleta> motos = motos().filter(criteria::matches);
+        if (criteria.getSort() != MotocicletaSort.ID) {
+            motos = motos.sorted(criteria.getSort().comparator());
+        }
+        if (criteria.getLimit() > 0) {
+            motos = motos.limit(criteria.getLimit());
+        }
+        return lista(motos);
+    }
+
+    @Override
+    public List<EstadisticaGrupo> findEstadisticas(MotocicletaCriteria filtro, MotocicletaAgrupacion agrupacion,
+                                                   int anchoCilindraje) {
+        return EstadisticaGrupo.calcular(motos().iterator(), filtro, agrupacion, anchoCilindraje);
+    }
+
+    @Override
+    public Stream<Motocicleta> streamAll() {
+        return motos();
+    }
+
+    @Override
+    public Stream<Motocicleta> streamByMarca(String marca) {
+        return motos().filter(MotocicletaCriteria.builder().marca(marca).build()::matches);
+    }
+
+    @Override
+    public Stream<Motocicleta> streamByPrecioMaximo(double precio) {
+        return motos().filter(moto -> moto.getPrecio() <= precio);
+    }
+
+    @Override
+    public Stream<Motocicleta> streamByCilindrajeRango(int min, int max) {
+        return motos().filter(moto -> moto.getCilindraje() >= min && moto.getCilindraje() <= max);
+    }
+
+    @Override
+    public Page<Motocicleta> findPage(PageCursor after, int limit, MotocicletaSort sort) {
+        return pagina(moto -> true, after, limit, sort);
+    }
+
+    @Override
+    public Page<Motocicleta> findPageByMarca(String marca, PageCursor after, int limit, MotocicletaSort sort) {
+        return pagina(MotocicletaCriteria.builder().marca(marca).build()::matches, after, limit, sort);
+    }
+
+    @Override
+    public Page<Motocicleta> findPageByPrecioMaximo(double precio, PageCursor after, int limit, MotocicletaSort sort) {
+        return pagina(moto -> moto.getPrecio() <= precio, after, limit, sort);
+    }
+
+    @Override
+    public Page<Motocicleta> findPageByCilindrajeRango(int min, int max, PageCursor after, int limit,
+                                                       MotocicletaSort sort) {
+        return pagina(moto -> moto.getCilindraje() >= min && moto.getCilindraje() <= max, after, limit, sort);
+    }
+
+    /**
+     * Página por clave en memoria. En orden de ID recorre el índice desde el cursor; en otro
+     * orden recorre todas las motocicletas y conserva solo las {@code limit + 1} primeras
+     * posteriores al cursor.
+     */
+    private Page<Motocicleta> pagina(Predicate<Motocicleta> filtro, PageCursor after, int limit,
+                                     MotocicletaSort sort) {
+        List<Motocicleta> motos;
+        if (sort == MotocicletaSort.ID) {
+            NavigableMap<Integer, LogCheckpoint.Entrada> rango = after == null ? indice
+                                                                              : indice.tailMap(after.getId(), false);
+            motos = lista(rango.values().stream().map(entrada -> entrada.getRegistro().toMotocicleta())
+                               .filter(filtro).limit(limit + 1L));
+        } else {
+            Comparator<Motocicleta> orden = sort.comparator();
+            Motocicleta cursor = after == null ? null : posicion(after, sort);
+            PriorityQueue<Motocicleta> primeras = new PriorityQueue<>(orden.reversed());
+            Iterator<Motocicleta> it = motos().filter(filtro).iterator();
+            while (it.hasNext()) {
+                Motocicleta moto = it.next();
+                if (cursor != null && orden.compare(moto, cursor) <= 0) {
+                    continue;
+                }
+                primeras.add(moto);
+                if (primeras.size() > limit + 1) {
+                    primeras.poll();
+                }
+            }
+            motos = new ArrayList<>(primeras);
+            motos.sort(orden);
+        }
+        PageCursor next = null;
+        if (motos.size() > limit) {
+            motos.remove(limit);
+            next = PageCursor.after(motos.get(limit - 1), sort);
+        }
+        return new Page<>(motos, next);
+    }
+
+    /**
+     * @return Una motocicleta con los valores del cursor, para compararla con el comparador de la ordenación
+     */
+    private static Motocicleta posicion(PageCursor cursor, MotocicletaSort sort) {
+        Motocicleta moto = new Motocicleta();
+        moto.setId(cursor.getId());
+        Object valor = cursor.getValue();
+        switch (sort.getColumn()) {
+            case "marca":
+                moto.setMarca((String) valor);
+                break;
+            case "precio":
+                moto.setPrecio(((Number) valor).doubleValue());
+                break;
+            case "cilindraje":
+                moto.setCilindraje(((Number) valor).intValue());
+                break;
+            default:
+                break;
+        }
+        return moto;
+    }
+
+    @Override
+    public int[] findAllIds() {
+        return indice.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Override
+    public List<Motocicleta> findRegistradasDesde(int afterId, long desdeMillis) {
+        return lista(indice.values().stream()
+                .map(LogCheckpoint.Entrada::getRegistro)
+                .filter(registro -> registro.getId() > afterId || registro.getRegistro() > desdeMillis)
+                .map(LogRecord::toMotocicleta));
+    }
+
+    @Override
+    public long findUltimoRegistro() {
+        long ultimo = 0;
+        for (LogCheckpoint.Entrada entrada : indice.values()) {
+            ultimo = Math.max(ultimo, entrada.getRegistro().getRegistro());
+        }
+        return ultimo;
+    }
+
+    /**
+     * Lee el registro de cambios a partir de un número de secuencia. Cada cambio trae la
+     * motocicleta tal como está ahora, o null si ya no existe.
+     */
+    @Override
+    public List<CambioMotocicleta> findCambiosDesde(long afterSeq, int limit) {
+        List<CambioMotocicleta> resultado = new ArrayList<>();
+        for (LogRecord registro : cambios.tailMap(afterSeq, false).values()) {
+            if (resultado.size() >= limit) {
+                break;
+            }
+            LogCheckpoint.Entrada actual = indice.get(registro.getId());
+            resultado.add(new CambioMotocicleta(registro.getSeq(), registro.getId(), registro.getOperacion(),
+                    actual == null ? null : actual.getRegistro().toMotocicleta()));
+        }
+        return resultado;
+    }
+
+    @Override
+    public long findUltimoCambio() {
+        return ultimoSeqAplicado;
+    }
+
+    /**
+     * Olvida los cambios anteriores a una fecha. Solo afecta al registro de cambios en memoria;
+     * los segmentos se limpian con la compactación.
+     */
+    @Override
+    public int purgeCambios(long antesDeMillis) {
+        int borrados = 0;
+        Iterator<LogRecord> it = cambios.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().getFecha() < antesDeMillis) {
+                it.remove();
+                borrados++;
+            }
+        }
+        return borrados;
+    }
+
+    /**
+     * @return Directorio del registro
+     */
+    public Path getDirectorio() {
+        return directorio;
+    }
+
+    /**
+     * @return Número de motocicletas
+     */
+    public int size() {
+        return indice.size();
+    }
+
+    /**
+     * @return Número de segmentos en el disco, incluido el activo
+     */
+    public int getSegmentCount() {
+        return segmentos.size();
+    }
+
+    @Override
+    public String toString() {
+        return "LogMotocicletaRepository{" +
+               "directorio=" + directorio +
+               ", motocicletas=" + indice.size() +
+               ", segmentos=" + segmentos.size() +
+               ", seq=" + ultimoSeqAplicado +
+               (cerrado ? ", cerrado" : "") +
+               '}';
+    }
+}
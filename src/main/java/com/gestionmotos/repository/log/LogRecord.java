@@ -0,0 +1,260 @@
+package com.gestionmotos.repository.log;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.CambioMotocicleta;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Un cambio del registro de escritura anticipada: el alta, la modificación o la baja de una
+ * motocicleta. Es inmutable; el índice del repositorio guarda el último registro de cada ID.
+ * <p>
+ * En el archivo cada registro ocupa una cabecera de 8 bytes seguida del cuerpo:
+ * <pre>
+ *   0  longitud    int (bytes del cuerpo; 0 marca el final de los datos)
+ *   4  crc         int (CRC32 del cuerpo)
+ *   8  operacion   byte (I, U o D, como la columna operacion de motocicletas_cambios)
+ *   9  seq         long
+ *  17  fecha       long (momento del cambio, en milisegundos desde 1970)
+ *  25  id          int
+ *  -- solo en altas y modificaciones:
+ *  29  registro    long (fecha de registro de la motocicleta)
+ *  37  cilindraje  int
+ *  41  precio      long (céntimos)
+ *  49  marca       1 byte de longitud + hasta 50 bytes ISO-8859-1
+ *      color       1 byte de longitud + hasta 30 bytes ISO-8859-1
+ * </pre>
+ * Un registro escrito a medias (por un corte de luz, por ejemplo) no pasa la comprobación de
+ * longitud o de CRC y {@link #read} lo rechaza.
+ */
+final class LogRecord {
+    static final int HEADER_SIZE = 8;
+    // Los anchos coinciden con las columnas VARCHAR(50) y VARCHAR(30) de la tabla
+    private static final int MARCA_WIDTH = 50;
+    private static final int COLOR_WIDTH = 30;
+    private static final int BODY_BAJA = 21;
+    private static final int BODY_MIN = BODY_BAJA + 8 + 4 + 8 + 1 + 1;
+    private static final int BODY_MAX = BODY_MIN + MARCA_WIDTH + COLOR_WIDTH;
+    /** Tamaño máximo de un registro, cabecera incluida. */
+    static final int MAX_SIZE = HEADER_SIZE + BODY_MAX;
+
+    private final CambioMotocicleta.Operacion operacion;
+    private final long seq;
+    private final long fecha;
+    private final int id;
+    private final long registro;
+    private final int cilindraje;
+    private final long precioCentimos;
+    private final String marca;
+    private final String color;
+    private final byte[] cuerpo;
+
+    private LogRecord(CambioMotocicleta.Operacion operacion, long seq, long fecha, int id, long registro,
+                      int cilindraje, long precioCentimos, String marca, String color, byte[] cuerpo) {
+        this.operacion = operacion;
+        this.seq = seq;
+        this.fecha = fecha;
+        this.id = id;
+        this.registro = registro;
+        this.cilindraje = cilindraje;
+        this.precioCentimos = precioCentimos;
+        this.marca = marca;
+        this.color = color;
+        this.cuerpo = cuerpo;
+    }
+
+    /**
+     * Crea el registro del alta o la modificación de una motocicleta. La marca y el color se
+     * recortan al ancho de las columnas de la tabla.
+     * @param operacion ALTA o MODIFICACION
+     * @param seq Número de secuencia del cambio
+     * @param fecha Momento del cambio
+     * @param id ID de la motocicleta
+     * @param moto Los datos de la motocicleta (su ID no se usa)
+     * @param registro Fecha de registro de la motocicleta
+     * @return El registro
+     */
+    static LogRecord put(CambioMotocicleta.Operacion operacion, long seq, long fecha, int id, Motocicleta moto,
+                         long registro) {
+        byte[] marca = text(moto.getMarca(), MARCA_WIDTH);
+        byte[] color = text(moto.getColor(), COLOR_WIDTH);
+        long precio = Math.round(moto.getPrecio() * 100);
+        ByteBuffer cuerpo = ByteBuffer.allocate(BODY_MIN + marca.length + color.length);
+        cuerpo.put((byte) operacion.getCodigo()).putLong(seq).putLong(fecha).putInt(id)
+              .putLong(registro).putInt(moto.getCilindraje()).putLong(precio)
+              .put((byte) marca.length).put(marca).put((byte) color.length).put(color);
+        return new LogRecord(operacion, seq, fecha, id, registro, moto.getCilindraje(), precio,
+                new String(marca, StandardCharsets.ISO_8859_1), new String(color, StandardCharsets.ISO_8859_1),
+                cuerpo.array());
+    }
+
+    /**
+     * Crea el registro de la baja de una motocicleta.
+     * @param seq Número de secuencia del cambio
+     * @param fecha Momento del cambio
+     * @param id ID de la motocicleta
+     * @return El registro
+     */
+    static LogRecord baja(long seq, long fecha, int id) {
+        ByteBuffer cuerpo = ByteBuffer.allocate(BODY_BAJA);
+        cuerpo.put((byte) CambioMotocicleta.Operacion.BAJA.getCodigo()).putLong(seq).putLong(fecha).putInt(id);
+        return new LogRecord(CambioMotocicleta.Operacion.BAJA, seq, fecha, id, 0, 0, 0, null, null,
+                cuerpo.array());
+    }
+
+    private static byte[] text(String valor, int ancho) {
+        byte[] bytes = (valor == null ? "" : valor).getBytes(StandardCharsets.ISO_8859_1);
+        if (bytes.length <= ancho) {
+            return bytes;
+        }
+        byte[] recortado = new byte[ancho];
+        System.arraycopy(bytes, 0, recortado, 0, ancho);
+        return recortado;
+    }
+
+    /**
+     * Escribe el registro en la posición actual del buffer y la avanza.
+     * @param out Buffer con al menos {@link #size()} bytes libres
+     */
+    void write(ByteBuffer out) {
+        CRC32 crc = new CRC32();
+        crc.update(cuerpo);
+        out.putInt(cuerpo.length).putInt((int) crc.getValue()).put(cuerpo);
+    }
+
+    /**
+     * Lee el registro que empieza en la posición actual del buffer. Si es válido avanza la
+     * posición hasta el siguiente; si no, la deja donde estaba.
+     * @param in Buffer con los datos
+     * @return El registro, o null si en esa posición termina el registro (longitud 0) o hay
+     *         un registro incompleto o dañado
+     */
+    static LogRecord read(ByteBuffer in) {
+        int inicio = in.position();
+        if (in.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int longitud = in.getInt(inicio);
+        if (longitud != BODY_BAJA && (longitud < BODY_MIN || longitud > BODY_MAX)
+                || in.remaining() < HEADER_SIZE + longitud) {
+            return null;
+        }
+        byte[] cuerpo = new byte[longitud];
+        in.position(inicio + HEADER_SIZE);
+        in.get(cuerpo);
+        CRC32 crc = new CRC32();
+        crc.update(cuerpo);
+        LogRecord registro = (int) crc.getValue() == in.getInt(inicio + 4) ? decode(cuerpo) : null;
+        if (registro == null) {
+            in.position(inicio);
+        }
+        return registro;
+    }
+
+    private static LogRecord decode(byte[] cuerpo) {
+        ByteBuffer in = ByteBuffer.wrap(cuerpo);
+        CambioMotocicleta.Operacion operacion;
+        try {
+            operacion = CambioMotocicleta.Operacion.of((char) in.get());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        long seq = in.getLong();
+        long fecha = in.getLong();
+        int id = in.getInt();
+        if (operacion == CambioMotocicleta.Operacion.BAJA) {
+            return cuerpo.length == BODY_BAJA ? new LogRecord(operacion, seq, fecha, id, 0, 0, 0, null, null, cuerpo)
+                                              : null;
+        }
+        if (cuerpo.length < BODY_MIN) {
+            return null;
+        }
+        long registro = in.getLong();
+        int cilindraje = in.getInt();
+        long precio = in.getLong();
+        String marca = readText(in, MARCA_WIDTH);
+        String color = marca != null ? readText(in, COLOR_WIDTH) : null;
+        if (color == null || in.hasRemaining()) {
+            return null;
+        }
+        return new LogRecord(operacion, seq, fecha, id, registro, cilindraje, precio, marca, color, cuerpo);
+    }
+
+    private static String readText(ByteBuffer in, int ancho) {
+        if (!in.hasRemaining()) {
+            return null;
+        }
+        int longitud = in.get() & 0xFF;
+        if (longitud > ancho || longitud > in.remaining()) {
+            return null;
+        }
+        byte[] bytes = new byte[longitud];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @return Bytes que ocupa el registro en el archivo, cabecera incluida
+     */
+    int size() {
+        return HEADER_SIZE + cuerpo.length;
+    }
+
+    CambioMotocicleta.Operacion getOperacion() {
+        return operacion;
+    }
+
+    boolean isBaja() {
+        return operacion == CambioMotocicleta.Operacion.BAJA;
+    }
+
+    long getSeq() {
+        return seq;
+    }
+
+    long getFecha() {
+        return fecha;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    long getRegistro() {
+        return registro;
+    }
+
+    int getCilindraje() {
+        return cilindraje;
+    }
+
+    double getPrecio() {
+        return precioCentimos / 100.0;
+    }
+
+    String getMarca() {
+        return marca;
+    }
+
+    String getColor() {
+        return color;
+    }
+
+    /**
+     * @return Una motocicleta nueva con los datos del registro (el registro no cambia si se modifica)
+     */
+    Motocicleta toMotocicleta() {
+        return new Motocicleta(id, marca, cilindraje, getPrecio(), color);
+    }
+
+    @Override
+    public String toString() {
+        return "LogRecord{" +
+               "seq=" + seq +
+               ", operacion=" + operacion +
+               ", id=" + id +
+               '}';
+    }
+}
@@ -0,0 +1,412 @@
+package com.gestionmotos.repository.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Un archivo del registro de escritura anticipada. Los registros ({@link LogRecord}) se añaden
+ * al final, en orden de secuencia, y nunca se modifican; el archivo se llena hasta su capacidad
+ * y entonces se empieza el siguiente.
+ * <p>
+ * El archivo empieza con una cabecera de {@value #HEADER_SIZE} bytes con su número y los
+ * contadores del registro cuando se creó (último número de secuencia y siguiente ID), para
+ * que no se pierdan aunque la compactación borre los registros que los usaron. El segmento
+ * activo se crea con toda su capacidad y se escribe proyectado en memoria; lo que queda sin
+ * escribir son ceros, y la lectura se detiene en el primer registro de longitud 0 o no válido.
+ * <p>
+ * Los segmentos cerrados solo se leen al iniciar y al compactarlos, con lecturas del canal
+ * (no se proyectan, para poder reemplazarlos con un movimiento atómico).
+ */
+final class LogSegment {
+    private static final long MAGIC = 0x474D57414C303031L; // "GMWAL001"
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final String EXTENSION = ".wal";
+
+    // Bytes leídos por llamada al recorrer un segmento
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    private final long numero;
+    private final long ultimoSeqInicial;
+    private final int siguienteIdInicial;
+
+    // Bytes ocupados por la cabecera y los registros
+    private volatile long usados;
+    // Bytes de los registros que siguen siendo la versión actual de una motocicleta
+    private final AtomicLong vivos = new AtomicLong();
+    // Bytes de las bajas, que se conservan mientras haya segmentos más antiguos
+    private volatile long bajas;
+    // true si la lectura se detuvo en un registro incompleto o dañado en lugar de en el final
+    private boolean danado;
+
+    // Solo en el segmento activo
+    private FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private int posicion;
+
+    private LogSegment(Path path, long numero, long ultimoSeqInicial, int siguienteIdInicial) {
+        this.path = path;
+        this.numero = numero;
+        this.ultimoSeqInicial = ultimoSeqInicial;
+        this.siguienteIdInicial = siguienteIdInicial;
+    }
+
+    /**
+     * @param directorio Directorio del registro
+     * @param numero Número del segmento
+     * @return Ruta del archivo del segmento
+     */
+    static Path path(Path directorio, long numero) {
+        return directorio.resolve(String.format("%016d", numero) + EXTENSION);
+    }
+
+    /**
+     * @param path Ruta de un archivo
+     * @return El número del segmento, o -1 si el nombre no es el de un segmento
+     */
+    static long numeroDe(Path path) {
+        String nombre = path.getFileName().toString();
+        if (!nombre.endsWith(EXTENSION)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(nombre.substring(0, nombre.length() - EXTENSION.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Crea un segmento vacío y lo deja abierto para escribir.
+     * @param directorio Directorio del registro
+     * @param numero Número del segmento
+     * @param ultimoSeq Último número de secuencia usado
+     * @param siguienteId Siguiente ID que se asignará
+     * @param capacidad Tamaño del archivo en bytes
+     * @return El segmento
+     * @throws IOException Si no se puede crear el archivo
+     */
+    static LogSegment create(Path directorio, long numero, long ultimoSeq, int siguienteId, int capacidad)
+            throws IOException {
+        Path path = path(directorio, numero);
+        LogSegment segmento = new LogSegment(path, numero, ultimoSeq, siguienteId);
+        // Si un intento anterior falló a medias, el archivo solo puede tener la cabecera
+        segmento.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer mapa = segmento.channel.map(FileChannel.MapMode.READ_WRITE, 0, capacidad);
+        mapa.put(segmento.header());
+        mapa.force();
+        segmento.buffer = mapa;
+        segmento.posicion = HEADER_SIZE;
+        segmento.usados = HEADER_SIZE;
+        return segmento;
+    }
+
+    private ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(MAGIC).putInt(VERSION).putInt(0).putLong(numero).putLong(ultimoSeqInicial)
+              .putInt(siguienteIdInicial).putInt(0).putLong(System.currentTimeMillis());
+        header.clear();
+        return header;
+    }
+
+    /**
+     * Abre un segmento existente leyendo solo su cabecera. Los bytes ocupados se conocen al
+     * recorrerlo con {@link #scan}; hasta entonces se toma el tamaño del archivo.
+     * @param path Ruta del archivo
+     * @return El segmento, cerrado
+     * @throws IOException Si el archivo no se puede leer o no es un segmento
+     */
+    static LogSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (read(channel, header, 0) < HEADER_SIZE || header.getLong(0) != MAGIC) {
+                throw new IOException("No es un segmento del registro del inventario: " + path);
+            }
+            if (header.getInt(8) != VERSION) {
+                throw new IOException("Versión de segmento no compatible: " + path);
+            }
+            LogSegment segmento = new LogSegment(path, header.getLong(16), header.getLong(24), header.getInt(32));
+            segmento.usados = channel.size();
+            return segmento;
+        }
+    }
+
+    /**
+     * Lee el segmento de principio a fin. La lectura se detiene en el primer registro incompleto,
+     * dañado o con un número de secuencia que no es mayor que el anterior.
+     * @param accion Recibe cada registro válido, en orden
+     * @throws IOException Si ocurre un error al leer
+     */
+    void scan(Consumer<LogRecord> accion) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            recorrer(channel, accion);
+        }
+    }
+
+    private void recorrer(FileChannel channel, Consumer<LogRecord> accion) throws IOException {
+        long tamanio = channel.size();
+        ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        in.limit(0);
+        long leido = HEADER_SIZE;
+        long fin = HEADER_SIZE;
+        long ultimoSeq = Long.MIN_VALUE;
+        while (true) {
+            if (in.remaining() < LogRecord.MAX_SIZE && leido < tamanio) {
+                in.compact();
+                leido += read(channel, in, leido);
+                in.flip();
+            }
+            int inicio = in.position();
+            LogRecord registro = LogRecord.read(in);
+            if (registro == null || registro.getSeq() <= ultimoSeq) {
+                danado = in.limit() - inicio >= 4 && in.getInt(inicio) != 0;
+                break;
+            }
+            ultimoSeq = registro.getSeq();
+            fin += registro.size();
+            accion.accept(registro);
+        }
+        usados = fin;
+    }
+
+    /**
+     * Abre para escribir el último segmento después de recorrerlo con {@link #scan}. Borra lo que
+     * haya después del último registro válido (una escritura que quedó a medias, o registros
+     * posteriores a ella), para que no vuelva a leerse cuando se escriban registros nuevos.
+     * @param capacidad Tamaño mínimo del archivo en bytes
+     * @return Bytes de la cola que se borraron (0 si el segmento terminaba limpio)
+     * @throws IOException Si no se puede abrir el archivo
+     */
+    int abrirParaEscribir(int capacidad) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long tamanio = Math.max(capacidad, channel.size());
+        MappedByteBuffer mapa = channel.map(FileChannel.MapMode.READ_WRITE, 0, tamanio);
+        posicion = (int) usados;
+        int borrados = 0;
+        int i = posicion;
+        // Leer una página que nunca se escribió no la ocupa en disco; solo se escribe lo que no es cero
+        for (; i + 8 <= mapa.capacity(); i += 8) {
+            if (mapa.getLong(i) != 0) {
+                mapa.putLong(i, 0);
+                borrados += 8;
+            }
+        }
+        for (; i < mapa.capacity(); i++) {
+            if (mapa.get(i) != 0) {
+                mapa.put(i, (byte) 0);
+                borrados++;
+            }
+        }
+        if (borrados > 0) {
+            mapa.force();
+        }
+        buffer = mapa;
+        return borrados;
+    }
+
+    /**
+     * Añade un registro al final del segmento activo. No espera a que llegue al disco.
+     * @param registro El registro
+     * @return false si no cabe (o el segmento ya se cerró) y hay que pasar al siguiente segmento
+     */
+    boolean append(LogRecord registro) {
+        MappedByteBuffer mapa = buffer;
+        if (mapa == null || posicion + registro.size() > mapa.capacity()) {
+            return false;
+        }
+        mapa.position(posicion);
+        registro.write(mapa);
+        posicion += registro.size();
+        usados = posicion;
+        return true;
+    }
+
+    /**
+     * Escribe en el disco lo añadido al segmento activo. No hace nada si el segmento ya se cerró
+     * (se escribió en el disco al cerrarlo).
+     */
+    void force() {
+        MappedByteBuffer mapa = buffer;
+        if (mapa != null) {
+            mapa.force();
+        }
+    }
+
+    /**
+     * Escribe en el disco lo añadido y cierra el segmento activo. El segmento sigue pudiendo
+     * leerse con {@link #scan} y compactarse.
+     * @throws IOException Si ocurre un error al cerrar el archivo
+     */
+    void close() throws IOException {
+        MappedByteBuffer mapa = buffer;
+        if (mapa != null) {
+            mapa.force();
+            buffer = null;
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Reescribe un segmento cerrado con solo los registros que se deben conservar, en un archivo
+     * temporal que luego reemplaza al original. Si no queda ningún registro, borra el archivo.
+     * @param conservar Decide qué registros se conservan
+     * @param antesDeReemplazar Se ejecuta justo antes de reemplazar o borrar el archivo original
+     * @return Bytes que ocupa el segmento nuevo, o 0 si se borró
+     * @throws IOException Si ocurre un error al leer o escribir
+     */
+    long rewrite(Predicate<LogRecord> conservar, Runnable antesDeReemplazar) throws IOException {
+        Path temporal = path.resolveSibling(path.getFileName() + ".tmp");
+        long escritos = HEADER_SIZE;
+        try (FileChannel out = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer pendiente = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            pendiente.put(header());
+            IOException[] error = new IOException[1];
+            LogSegment leido = open(path);
+            leido.scan(registro -> {
+                if (error[0] != null || !conservar.test(registro)) {
+                    return;
+                }
+                try {
+                    if (pendiente.remaining() < registro.size()) {
+                        flush(out, pendiente);
+                    }
+                    registro.write(pendiente);
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            });
+            if (error[0] != null) {
+                throw error[0];
+            }
+            escritos = out.size() + pendiente.position();
+            flush(out, pendiente);
+            out.force(true);
+            if (leido.usados == escritos) {
+                // No había nada que quitar
+                Files.delete(temporal);
+                usados = leido.usados;
+                return usados;
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+
+        antesDeReemplazar.run();
+        if (escritos == HEADER_SIZE) {
+            Files.delete(temporal);
+            Files.delete(path);
+            usados = 0;
+            return 0;
+        }
+        try {
+            Files.move(temporal, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+        usados = escritos;
+        return escritos;
+    }
+
+    /**
+     * Lee del canal hasta llenar el buffer o llegar al final del archivo.
+     * @return Bytes leídos
+     */
+    private static int read(FileChannel channel, ByteBuffer in, long desde) throws IOException {
+        int total = 0;
+        while (in.hasRemaining()) {
+            int n = channel.read(in, desde + total);
+            if (n <= 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getNumero() {
+        return numero;
+    }
+
+    /**
+     * @return Último número de secuencia usado cuando se creó el segmento
+     */
+    long getUltimoSeqInicial() {
+        return ultimoSeqInicial;
+    }
+
+    /**
+     * @return Siguiente ID que se iba a asignar cuando se creó el segmento
+     */
+    int getSiguienteIdInicial() {
+        return siguienteIdInicial;
+    }
+
+    long getUsados() {
+        return usados;
+    }
+
+    AtomicLong getVivos() {
+        return vivos;
+    }
+
+    long getBajas() {
+        return bajas;
+    }
+
+    void setBajas(long bajas) {
+        this.bajas = bajas;
+    }
+
+    boolean isDanado() {
+        return danado;
+    }
+
+    /**
+     * @return Fracción de los bytes de registros que aún se necesitan (1 si el segmento está vacío)
+     */
+    double getFraccionViva() {
+        long registros = usados - HEADER_SIZE;
+        return registros <= 0 ? 1.0 : Math.min(1.0, (double) (vivos.get() + bajas) / registros);
+    }
+
+    @Override
+    public String toString() {
+        return "LogSegment{" +
+               "numero=" + numero +
+               ", usados=" + usados +
+               ", vivos=" + vivos.get() +
+               '}';
+    }
+}
@@ -0,0 +1,392 @@
+package com.gestionmotos.repository.snapshot;
+
+import com.gestionmotos.model.Motocicleta;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Copia local del inventario en un archivo binario de registros de tamaño fijo,
+ * ordenados por ID, que se lee proyectado en memoria sin copiarlo.
+ * <p>
+ * El archivo empieza con una cabecera de {@value #HEADER_SIZE} bytes (número de registros,
+ * mayor ID y fecha de registro más reciente de la base de datos cuando se escribió, que sirven
+ * de marca de agua para pedir solo las motocicletas nuevas). Cada registro ocupa
+ * {@value #RECORD_SIZE} bytes:
+ * <pre>
+ *   0  id          int
+ *   4  cilindraje  int
+ *   8  precio      long (céntimos)
+ *  16  marca       1 byte de longitud + 50 bytes ISO-8859-1
+ *  67  color       1 byte de longitud + 30 bytes ISO-8859-1
+ *  98  relleno hasta 104
+ * </pre>
+ * Los anchos coinciden con las columnas {@code VARCHAR(50)} y {@code VARCHAR(30)} en latin1
+ * de la tabla. Una instancia es inmutable y puede leerse desde varios hilos; para cambiar la
+ * copia se escribe un archivo nuevo con {@link #write}.
+ */
+public final class MotocicletaSnapshot {
+    private static final long MAGIC = 0x474D534E41503031L; // "GMSNAP01"
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 104;
+
+    private static final int MARCA_WIDTH = 50;
+    private static final int COLOR_WIDTH = 30;
+    private static final int OFFSET_CILINDRAJE = 4;
+    private static final int OFFSET_PRECIO = 8;
+    private static final int OFFSET_MARCA = 16;
+    private static final int OFFSET_COLOR = OFFSET_MARCA + 1 + MARCA_WIDTH;
+
+    // Registros por escritura al crear el archivo
+    private static final int WRITE_BUFFER_RECORDS = 512;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final int maxId;
+    private final long watermarkMillis;
+    private final long createdMillis;
+
+    private MotocicletaSnapshot(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getLong(0) != MAGIC) {
+            throw new IOException("No es un archivo de inventario: " + path);
+        }
+        if (buffer.getInt(8) != VERSION || buffer.getInt(12) != RECORD_SIZE) {
+            throw new IOException("Versión de archivo de inventario no compatible: " + path);
+        }
+        this.size = buffer.getInt(16);
+        this.maxId = buffer.getInt(20);
+        this.watermarkMillis = buffer.getLong(24);
+        this.createdMillis = buffer.getLong(32);
+        if (size < 0 || (long) HEADER_SIZE + (long) size * RECORD_SIZE > buffer.capacity()) {
+            throw new IOException("Archivo de inventario incompleto: " + path);
+        }
+    }
+
+    /**
+     * Abre una copia del inventario. Si quedó pendiente un archivo nuevo que no pudo
+     * reemplazar al anterior (por ejemplo porque estaba abierto), lo pone en su lugar primero,
+     * siempre que esté completo; si no lo está (la escritura se interrumpió), lo borra.
+     * @param path Ruta del archivo
+     * @return La copia, proyectada en memoria en modo de solo lectura
+     * @throws IOException Si el archivo no existe o no es válido
+     */
+    public static MotocicletaSnapshot open(Path path) throws IOException {
+        Path pendiente = temporaryPath(path);
+        if (Files.exists(pendiente)) {
+            try {
+                map(pendiente);
+            } catch (IOException e) {
+                System.err.println("Se descarta una copia del inventario incompleta: " + e.getMessage());
+                Files.deleteIfExists(pendiente);
+            }
+            if (Files.exists(pendiente)) {
+                try {
+                    move(pendiente, path);
+                } catch (IOException e) {
+                    System.err.println("No se pudo reemplazar la copia del inventario: " + e.getMessage());
+                }
+            }
+        }
+        return map(path);
+    }
+
+    private static MotocicletaSnapshot map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // La proyección sigue siendo válida después de cerrar el canal
+            return new MotocicletaSnapshot(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Escribe una copia del inventario. Se escribe primero en un archivo temporal que luego
+     * reemplaza al anterior, de modo que una escritura interrumpida no deja una copia a medias.
+     * @param path Ruta del archivo
+     * @param motos Las motocicletas, en orden de ID estrictamente creciente
+     * @param watermarkMillis Fecha de registro más reciente en la base de datos al leer las motocicletas
+     * @return Número de motocicletas escritas
+     * @throws IOException Si ocurre un error al escribir
+     */
+    public static int write(Path path, Iterator<Motocicleta> motos, long watermarkMillis) throws IOException {
+        return write(path, motos, watermarkMillis, System.currentTimeMillis());
+    }
+
+    /**
+     * Escribe una copia del inventario conservando la fecha de creación de otra, por ejemplo
+     * al aplicar cambios sueltos a una copia sin volver a leer toda la base de datos.
+     * @param path Ruta del archivo
+     * @param motos Las motocicletas, en orden de ID estrictamente creciente
+     * @param watermarkMillis Fecha de registro más reciente en la base de datos al leer las motocicletas
+     * @param createdMillis Fecha de creación que se guarda en la cabecera
+     * @return Número de motocicletas escritas
+     * @throws IOException Si ocurre un error al escribir
+     */
+    public static int write(Path path, Iterator<Motocicleta> motos, long watermarkMillis, long createdMillis)
+            throws IOException {
+        Path temporal = temporaryPath(path);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        int count = 0;
+        int maxId = 0;
+        try (FileChannel channel = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocate(RECORD_SIZE * WRITE_BUFFER_RECORDS);
+            channel.position(HEADER_SIZE);
+            while (motos.hasNext()) {
+                Motocicleta moto = motos.next();
+                if (moto.getId() <= maxId) {
+                    throw new IllegalArgumentException("Las motocicletas deben estar en orden de ID: "
+                            + moto.getId() + " después de " + maxId);
+                }
+                maxId = moto.getId();
+                if (!out.hasRemaining()) {
+                    flush(channel, out);
+                }
+                int start = out.position();
+                out.putInt(moto.getId());
+                out.putInt(moto.getCilindraje());
+                out.putLong(Math.round(moto.getPrecio() * 100));
+                putText(out, moto.getMarca(), MARCA_WIDTH);
+                putText(out, moto.getColor(), COLOR_WIDTH);
+                out.position(start + RECORD_SIZE);
+                count++;
+            }
+            flush(channel, out);
+
+            // La cabecera se escribe al final, cuando ya se conoce el número de registros
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(count).putInt(maxId)
+                  .putLong(watermarkMillis).putLong(createdMillis);
+            header.clear();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+
+        try {
+            move(temporal, path);
+        } catch (IOException e) {
+            // Quedará en su lugar la próxima vez que se abra la copia
+            System.err.println("La copia del inventario se aplicará al reiniciar: " + e.getMessage());
+        }
+        return count;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    private static void putText(ByteBuffer out, String text, int width) {
+        byte[] bytes = (text == null ? "" : text).getBytes(StandardCharsets.ISO_8859_1);
+        int length = Math.min(bytes.length, width);
+        out.put((byte) length);
+        out.put(bytes, 0, length);
+        out.position(out.position() + width - length);
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Path temporaryPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    /**
+     * @return Ruta del archivo
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return Número de motocicletas
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Mayor ID de la copia (parte de la marca de agua)
+     */
+    public int getMaxId() {
+        return maxId;
+    }
+
+    /**
+     * @return Fecha de registro más reciente en la base de datos cuando se escribió la copia,
+     *         en milisegundos desde 1970 (parte de la marca de agua)
+     */
+    public long getWatermarkMillis() {
+        return watermarkMillis;
+    }
+
+    /**
+     * @return Momento en que se escribió la copia completa (no cambia al aplicarle cambios sueltos),
+     *         en milisegundos desde 1970
+     */
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * @param index Posición del registro (0 a size() - 1)
+     * @return ID del registro
+     */
+    public int idAt(int index) {
+        return buffer.getInt(offset(index));
+    }
+
+    /**
+     * Lee un registro y crea la motocicleta correspondiente.
+     * @param index Posición del registro (0 a size() - 1)
+     * @return La motocicleta
+     */
+    public Motocicleta get(int index) {
+        int offset = offset(index);
+        return new Motocicleta(
+                buffer.getInt(offset),
+                getText(offset + OFFSET_MARCA),
+                buffer.getInt(offset + OFFSET_CILINDRAJE),
+                buffer.getLong(offset + OFFSET_PRECIO) / 100.0,
+                getText(offset + OFFSET_COLOR));
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Registro " + index + " de " + size);
+        }
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private String getText(int offset) {
+        int length = buffer.get(offset) & 0xFF;
+        byte[] bytes = new byte[length];
+        // Lecturas absolutas: no modifican la posición del buffer compartido entre hilos
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + 1 + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Busca un ID con búsqueda binaria sobre los registros.
+     * @param id El ID
+     * @return Posición del registro, o {@code -(punto de inserción) - 1} si no está
+     */
+    public int indexOf(int id) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midId = idAt(mid);
+            if (midId < id) {
+                lo = mid + 1;
+            } else if (midId > id) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * @return IDs de todas las motocicletas, en orden ascendente
+     */
+    public int[] ids() {
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = buffer.getInt(HEADER_SIZE + i * RECORD_SIZE);
+        }
+        return ids;
+    }
+
+    /**
+     * Lee las motocicletas con ID mayor que el indicado, en orden de ID.
+     * @param afterId ID a partir del cual se lee (excluido), o null desde el principio
+     * @param limit Número máximo de motocicletas
+     * @return Las motocicletas
+     */
+    public List<Motocicleta> page(Integer afterId, int limit) {
+        int from = 0;
+        if (afterId != null) {
+            int pos = indexOf(afterId);
+            from = pos >= 0 ? pos + 1 : -pos - 1;
+        }
+        int to = (int) Math.min(size, (long) from + limit);
+        List<Motocicleta> motos = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            motos.add(get(i));
+        }
+        return motos;
+    }
+
+    /**
+     * @return Iterador sobre todas las motocicletas, en orden de ID
+     */
+    public Iterator<Motocicleta> iterator() {
+        return new Iterator<Motocicleta>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Motocicleta next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    /**
+     * @return Stream de todas las motocicletas, en orden de ID
+     */
+    public Stream<Motocicleta> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(iterator(), size,
+                Spliterator.ORDERED | Spliterator.SIZED | Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+
+    @Override
+    public String toString() {
+        return "MotocicletaSnapshot{" +
+               "archivo=" + path +
+               ", motocicletas=" + size +
+               ", maxId=" + maxId +
+               ", bytes=" + ((long) HEADER_SIZE + (long) size * RECORD_SIZE) +
+               '}';
+    }
+}
@@ -0,0 +1,635 @@
+package com.gestionmotos.repository.snapshot;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.BatchResult;
+import com.gestionmotos.repository.EstadisticaGrupo;
+import com.gestionmotos.repository.ForwardingMotocicletaRepository;
+import com.gestionmotos.repository.MotocicletaAgrupacion;
+import com.gestionmotos.repository.MotocicletaCriteria;
+import com.gestionmotos.repository.MotocicletaRepository;
+import com.gestionmotos.repository.MotocicletaSort;
+import com.gestionmotos.repository.Page;
+import com.gestionmotos.repository.PageCursor;
+import com.gestionmotos.util.DatabaseConnection;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Decorador que muestra el inventario desde una copia local ({@link MotocicletaSnapshot})
+ * mientras no se ha sincronizado con la base de datos.
+ * <p>
+ * Al abrir la aplicación, {@link #findAllIds()} y las páginas de la tabla se leen del archivo
+ * proyectado en memoria, sin esperar a la base de datos. {@link #reconcile()} trae después en
+ * segundo plano las motocicletas registradas desde la marca de agua de la copia (ID y fecha de
+ * registro) y las eliminadas, reescribe la copia y pasa a leer de la base de datos.
+ * <p>
+ * La marca de agua no detecta los cambios de motocicletas que ya estaban en la copia. Por eso
+ * las escrituras hechas a través de este repositorio y los cambios de otros clientes que se
+ * anotan con {@link #registrarCambios} se aplican a la copia con {@link #guardarCambios}, como
+ * mucho cada {@code snapshot.writeIntervalMs}. Además, la copia se rehace por completo cuando
+ * tiene más de {@code snapshot.fullRefreshHours} horas o al llamar a {@link #rehacer()}.
+ * <p>
+ * En modo sin conexión todas las lecturas salen de la copia y las escrituras se rechazan.
+ */
+public class SnapshotMotocicletaRepository extends ForwardingMotocicletaRepository {
+    // Filas por consulta al rehacer la copia completa
+    private static final int FULL_REFRESH_PAGE_SIZE = 5000;
+
+    private final Path path;
+    private final boolean offline;
+    private final long fullRefreshMillis;
+    private final long writeIntervalMillis;
+
+    private volatile MotocicletaSnapshot snapshot;
+    // true cuando las lecturas ya se hacen en la base de datos
+    private volatile boolean live;
+
+    // Cambios aún no escritos en la copia, por ID (null = eliminada)
+    private final Map<Integer, Motocicleta> cambiosPendientes = new HashMap<>();
+    private long ultimaEscritura = System.currentTimeMillis();
+
+    /**
+     * Resultado de una sincronización.
+     */
+    public static final class Reconciliacion {
+        private final int nuevas;
+        private final int eliminadas;
+        private final int total;
+        private final boolean completa;
+
+        Reconciliacion(int nuevas, int eliminadas, int total, boolean completa) {
+            this.nuevas = nuevas;
+            this.eliminadas = eliminadas;
+            this.total = total;
+            this.completa = completa;
+        }
+
+        /**
+         * @return Motocicletas registradas después de la marca de agua
+         */
+        public int getNuevas() {
+            return nuevas;
+        }
+
+        /**
+         * @return Motocicletas de la copia que ya no existen en la base de datos
+         */
+        public int getEliminadas() {
+            return eliminadas;
+        }
+
+        /**
+         * @return Motocicletas en la copia nueva
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * @return true si la copia se rehizo por completo en lugar de usar la marca de agua
+         */
+        public boolean isCompleta() {
+            return completa;
+        }
+
+        @Override
+        public String toString() {
+            return completa
+                    ? "Inventario sincronizado (" + total + " motocicletas)"
+                    : "Inventario sincronizado (" + nuevas + " nuevas, " + eliminadas + " eliminadas)";
+        }
+    }
+
+    /**
+     * Crea el decorador y abre la copia del inventario si existe.
+     * @param delegate Repositorio decorado
+     * @param path Ruta del archivo de la copia
+     * @param offline true para trabajar solo con la copia, sin base de datos
+     */
+    public SnapshotMotocicletaRepository(MotocicletaRepository delegate, Path path, boolean offline) {
+        super(delegate);
+        this.path = path;
+        this.offline = offline;
+        this.fullRefreshMillis = TimeUnit.HOURS.toMillis(
+                DatabaseConnection.getInstance().getIntProperty("snapshot.fullRefreshHours", 24));
+        this.writeIntervalMillis = DatabaseConnection.getInstance().getIntProperty("snapshot.writeIntervalMs", 30_000);
+        if (Files.exists(path) || Files.exists(path.resolveSibling(path.getFileName() + ".tmp"))) {
+            try {
+                snapshot = MotocicletaSnapshot.open(path);
+            } catch (IOException e) {
+                System.err.println("Error al abrir la copia del inventario: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        live = !offline && snapshot == null;
+    }
+
+    /**
+     * @return Ruta de la copia configurada en snapshot.path, o
+     *         {@code ~/.gestionmotos/inventario.snap} si no está configurada
+     */
+    public static Path defaultPath() {
+        String configurada = DatabaseConnection.getInstance().getProperties().getProperty("snapshot.path", "").trim();
+        if (!configurada.isEmpty()) {
+            return Paths.get(configurada);
+        }
+        return Paths.get(System.getProperty("user.home"), ".gestionmotos", "inventario.snap");
+    }
+
+    /**
+     * @return true si hay una copia abierta
+     */
+    public boolean hasSnapshot() {
+        return snapshot != null;
+    }
+
+    /**
+     * @return true en modo sin conexión (solo lectura)
+     */
+    public boolean isOffline() {
+        return offline;
+    }
+
+    /**
+     * @return true si las lecturas ya se hacen en la base de datos
+     */
+    public boolean isLive() {
+        return live;
+    }
+
+    /**
+     * @return La copia de la que se leen las motocicletas, o null si se leen de la base de datos
+     */
+    private MotocicletaSnapshot reading() {
+        return live ? null : snapshot;
+    }
+
+    /**
+     * Sincroniza la copia con la base de datos y pasa a leer de la base de datos.
+     * Pide solo las motocicletas registradas desde la marca de agua y los IDs actuales
+     * (para quitar las eliminadas), salvo que no haya copia o sea demasiado antigua,
+     * en cuyo caso la rehace por completo.
+     * @return Resumen de la sincronización
+     * @throws IllegalStateException En modo sin conexión o si la base de datos no responde
+     * @throws IOException Si no se puede escribir la copia
+     */
+    public synchronized Reconciliacion reconcile() throws IOException {
+        if (offline) {
+            throw new IllegalStateException("No se puede sincronizar en modo sin conexión");
+        }
+        // La marca de agua se lee antes que las filas: lo registrado después se pedirá la próxima vez
+        long watermark = delegate.findUltimoRegistro();
+        if (watermark < 0) {
+            throw new IllegalStateException("No se pudo leer el inventario de la base de datos");
+        }
+
+        MotocicletaSnapshot anterior = snapshot;
+        Reconciliacion resultado;
+        if (anterior == null || System.currentTimeMillis() - anterior.getCreatedMillis() > fullRefreshMillis) {
+            int total = escribirCompleta(watermark);
+            resultado = new Reconciliacion(total, 0, total, true);
+        } else {
+            int[] ids = delegate.findAllIds();
+            if (ids.length == 0 && watermark > 0) {
+                throw new IllegalStateException("No se pudieron leer los IDs de la base de datos");
+            }
+            List<Motocicleta> nuevas = delegate.findRegistradasDesde(anterior.getMaxId(), anterior.getWatermarkMillis());
+            MergeIterator merge = new MergeIterator(anterior, ids, nuevas);
+            int total = MotocicletaSnapshot.write(path, merge, watermark);
+            resultado = new Reconciliacion(merge.altas, merge.eliminadas, total, false);
+        }
+
+        abrirCopia();
+        live = true;
+        return resultado;
+    }
+
+    /**
+     * Rehace la copia por completo desde la base de datos, por ejemplo cuando hay demasiados
+     * cambios de otros clientes para aplicarlos uno a uno. Descarta los cambios anotados.
+     * @return Número de motocicletas escritas
+     * @throws IllegalStateException En modo sin conexión o si la base de datos no responde
+     * @throws IOException Si no se puede escribir la copia
+     */
+    public synchronized int rehacer() throws IOException {
+        if (offline) {
+            throw new IllegalStateException("No se puede sincronizar en modo sin conexión");
+        }
+        long watermark = delegate.findUltimoRegistro();
+        if (watermark < 0) {
+            throw new IllegalStateException("No se pudo leer el inventario de la base de datos");
+        }
+        synchronized (cambiosPendientes) {
+            cambiosPendientes.clear();
+        }
+        int total = escribirCompleta(watermark);
+        abrirCopia();
+        return total;
+    }
+
+    /**
+     * Anota cambios que deben llegar a la copia, por ejemplo los hechos por otros clientes.
+     * Se escriben en la copia con {@link #guardarCambios}.
+     * @param actualizadas Motocicletas dadas de alta o modificadas, con sus datos actuales
+     * @param eliminadas IDs de las motocicletas eliminadas
+     */
+    public void registrarCambios(Collection<Motocicleta> actualizadas, Collection<Integer> eliminadas) {
+        if (offline) {
+            return;
+        }
+        synchronized (cambiosPendientes) {
+            for (Motocicleta moto : actualizadas) {
+                cambiosPendientes.put(moto.getId(), new Motocicleta(moto.getId(), moto.getMarca(),
+                        moto.getCilindraje(), moto.getPrecio(), moto.getColor()));
+            }
+            for (Integer id : eliminadas) {
+                cambiosPendientes.put(id, null);
+            }
+        }
+    }
+
+    /**
+     * Reescribe la copia con los cambios anotados. La marca de agua y la fecha de creación
+     * de la copia no cambian, así que la próxima sincronización pide lo mismo que antes.
+     * @param forzar true para escribir aunque no haya pasado snapshot.writeIntervalMs desde
+     *               la última escritura
+     * @return Número de cambios escritos (0 si no había o aún no tocaba escribirlos)
+     * @throws IOException Si no se puede escribir la copia; los cambios siguen anotados
+     */
+    public synchronized int guardarCambios(boolean forzar) throws IOException {
+        MotocicletaSnapshot anterior = snapshot;
+        TreeMap<Integer, Motocicleta> cambios;
+        synchronized (cambiosPendientes) {
+            if (anterior == null) {
+                // Sin copia no hay a qué aplicarlos: la sincronización la escribirá completa
+                cambiosPendientes.clear();
+                return 0;
+            }
+            if (cambiosPendientes.isEmpty()
+                    || (!forzar && System.currentTimeMillis() - ultimaEscritura < writeIntervalMillis)) {
+                return 0;
+            }
+            cambios = new TreeMap<>(cambiosPendientes);
+            cambiosPendientes.clear();
+        }
+
+        try {
+            MotocicletaSnapshot.write(path, new CambiosIterator(anterior, cambios),
+                    anterior.getWatermarkMillis(), anterior.getCreatedMillis());
+        } catch (IOException | RuntimeException e) {
+            // Se vuelven a anotar, salvo los que ya se reemplazaron por otros más recientes
+            synchronized (cambiosPendientes) {
+                for (Map.Entry<Integer, Motocicleta> cambio : cambios.entrySet()) {
+                    if (!cambiosPendientes.containsKey(cambio.getKey())) {
+                        cambiosPendientes.put(cambio.getKey(), cambio.getValue());
+                    }
+                }
+            }
+            throw e;
+        }
+        ultimaEscritura = System.currentTimeMillis();
+        abrirCopia();
+        return cambios.size();
+    }
+
+    private int escribirCompleta(long watermark) throws IOException {
+        int total = MotocicletaSnapshot.write(path, new KeysetIterator(), watermark);
+        ultimaEscritura = System.currentTimeMillis();
+        return total;
+    }
+
+    private void abrirCopia() {
+        try {
+            snapshot = MotocicletaSnapshot.open(path);
+        } catch (IOException e) {
+            System.err.println("Error al abrir la copia del inventario: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recorre todas las motocicletas de la base de datos en orden de ID, por páginas.
+     */
+    private final class KeysetIterator implements Iterator<Motocicleta> {
+        private Iterator<Motocicleta> current = Collections.emptyIterator();
+        private PageCursor cursor;
+        private boolean terminado;
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && !terminado) {
+                Page<Motocicleta> page = delegate.findPage(cursor, FULL_REFRESH_PAGE_SIZE, MotocicletaSort.ID);
+                current = page.getContent().iterator();
+                cursor = page.getNextCursor();
+                terminado = cursor == null;
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public Motocicleta next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+
+    /**
+     * Mezcla en orden de ID los registros de la copia anterior que siguen existiendo con las
+     * motocicletas nuevas (que reemplazan a las de la copia con el mismo ID).
+     */
+    private static final class MergeIterator implements Iterator<Motocicleta> {
+        private final MotocicletaSnapshot anterior;
+        private final int[] ids;
+        private final List<Motocicleta> nuevas;
+        private int posAnterior;
+        private int posNueva;
+        private Motocicleta siguiente;
+        int altas;
+        int eliminadas;
+
+        MergeIterator(MotocicletaSnapshot anterior, int[] ids, List<Motocicleta> nuevas) {
+            this.anterior = anterior;
+            this.ids = ids;
+            this.nuevas = nuevas;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (siguiente == null) {
+                int idAnterior = posAnterior < anterior.size() ? anterior.idAt(posAnterior) : Integer.MAX_VALUE;
+                int idNueva = posNueva < nuevas.size() ? nuevas.get(posNueva).getId() : Integer.MAX_VALUE;
+                if (idAnterior == Integer.MAX_VALUE && idNueva == Integer.MAX_VALUE) {
+                    return false;
+                }
+                if (idNueva <= idAnterior) {
+                    siguiente = nuevas.get(posNueva++);
+                    // Una fila ya copiada puede volver a llegar si comparte la fecha de la marca de agua
+                    if (idNueva == idAnterior) {
+                        posAnterior++;
+                    } else {
+                        altas++;
+                    }
+                } else if (Arrays.binarySearch(ids, idAnterior) >= 0) {
+                    siguiente = anterior.get(posAnterior++);
+                } else {
+                    posAnterior++;
+                    eliminadas++;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Motocicleta next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Motocicleta moto = siguiente;
+            siguiente = null;
+            return moto;
+        }
+    }
+
+    /**
+     * Recorre en orden de ID la copia anterior con los cambios aplicados: las motocicletas
+     * cambiadas reemplazan a las de la copia, las nuevas se intercalan y las eliminadas se omiten.
+     */
+    private static final class CambiosIterator implements Iterator<Motocicleta> {
+        private final MotocicletaSnapshot anterior;
+        private final Iterator<Map.Entry<Integer, Motocicleta>> cambios;
+        private Map.Entry<Integer, Motocicleta> cambio;
+        private int posAnterior;
+        private Motocicleta siguiente;
+
+        CambiosIterator(MotocicletaSnapshot anterior, TreeMap<Integer, Motocicleta> cambios) {
+            this.anterior = anterior;
+            this.cambios = cambios.entrySet().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (siguiente == null) {
+                if (cambio == null && cambios.hasNext()) {
+                    cambio = cambios.next();
+                }
+                int idAnterior = posAnterior < anterior.size() ? anterior.idAt(posAnterior) : Integer.MAX_VALUE;
+                int idCambio = cambio != null ? cambio.getKey() : Integer.MAX_VALUE;
+                if (idAnterior == Integer.MAX_VALUE && idCambio == Integer.MAX_VALUE) {
+                    return false;
+                }
+                if (idCambio <= idAnterior) {
+                    if (idCambio == idAnterior) {
+                        posAnterior++;
+                    }
+                    // null si se eliminó: se sigue con el siguiente
+                    siguiente = cambio.getValue();
+                    cambio = null;
+                } else {
+                    siguiente = anterior.get(posAnterior++);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Motocicleta next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Motocicleta moto = siguiente;
+            siguiente = null;
+            return moto;
+        }
+    }
+
+    @Override
+    public int[] findAllIds() {
+        MotocicletaSnapshot copia = reading();
+        return copia != null ? copia.ids() : delegate.findAllIds();
+    }
+
+    @Override
+    public List<Motocicleta> findPage(Integer afterId, int limit) {
+        MotocicletaSnapshot copia = reading();
+        return copia != null ? copia.page(afterId, limit) : delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Page<Motocicleta> findPage(PageCursor after, int limit, MotocicletaSort sort) {
+        MotocicletaSnapshot copia = reading();
+        if (copia == null || sort != MotocicletaSort.ID) {
+            return delegate.findPage(after, limit, sort);
+        }
+        List<Motocicleta> motos = copia.page(after == null ? null : after.getId(), limit + 1);
+        PageCursor next = null;
+        if (motos.size() > limit) {
+            motos.remove(limit);
+            next = PageCursor.after(motos.get(limit - 1), sort);
+        }
+        return new Page<>(motos, next);
+    }
+
+    @Override
+    public Optional<Motocicleta> findById(Integer id) {
+        MotocicletaSnapshot copia = reading();
+        if (copia == null) {
+            return delegate.findById(id);
+        }
+        int pos = copia.indexOf(id);
+        return pos >= 0 ? Optional.of(copia.get(pos)) : Optional.empty();
+    }
+
+    @Override
+    public List<Motocicleta> findAllById(Collection<Integer> ids) {
+        MotocicletaSnapshot copia = reading();
+        if (copia == null) {
+            return delegate.findAllById(ids);
+        }
+        List<Motocicleta> motos = new ArrayList<>(ids.size());
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            int pos = id == null ? -1 : copia.indexOf(id);
+            if (pos >= 0) {
+                motos.add(copia.get(pos));
+            }
+        }
+        return motos;
+    }
+
+    @Override
+    public List<EstadisticaGrupo> findEstadisticas(MotocicletaCriteria filtro, MotocicletaAgrupacion agrupacion,
+                                                   int anchoCilindraje) {
+        MotocicletaSnapshot copia = reading();
+        return copia != null
+                ? EstadisticaGrupo.calcular(copia.iterator(), filtro, agrupacion, anchoCilindraje)
+                : delegate.findEstadisticas(filtro, agrupacion, anchoCilindraje);
+    }
+
+    @Override
+    public List<Motocicleta> findAll() {
+        MotocicletaSnapshot copia = reading();
+        if (copia == null) {
+            return delegate.findAll();
+        }
+        List<Motocicleta> motos = new ArrayList<>(copia.size());
+        copia.iterator().forEachRemaining(motos::add);
+        return motos;
+    }
+
+    @Override
+    public Stream<Motocicleta> streamAll() {
+        MotocicletaSnapshot copia = reading();
+        return copia != null ? copia.stream() : delegate.streamAll();
+    }
+
+    @Override
+    public Motocicleta save(Motocicleta moto) {
+        if (rejectWrite()) {
+            return moto;
+        }
+        Motocicleta guardada = delegate.save(moto);
+        if (guardada.getId() != 0) {
+            registrarCambios(Collections.singletonList(guardada), Collections.emptyList());
+        }
+        return guardada;
+    }
+
+    @Override
+    public boolean update(Motocicleta moto) {
+        if (rejectWrite() || !delegate.update(moto)) {
+            return false;
+        }
+        registrarCambios(Collections.singletonList(moto), Collections.emptyList());
+        return true;
+    }
+
+    @Override
+    public boolean deleteById(Integer id) {
+        if (rejectWrite() || !delegate.deleteById(id)) {
+            return false;
+        }
+        registrarCambios(Collections.emptyList(), Collections.singletonList(id));
+        return true;
+    }
+
+    @Override
+    public BatchResult saveAll(Collection<Motocicleta> motos) {
+        if (rejectWrite()) {
+            return rejectedBatch();
+        }
+        BatchResult result = delegate.saveAll(motos);
+        if (result.isSuccess()) {
+            registrarCambios(motos, Collections.emptyList());
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult updateAll(Collection<Motocicleta> motos) {
+        if (rejectWrite()) {
+            return rejectedBatch();
+        }
+        BatchResult result = delegate.updateAll(motos);
+        if (result.isSuccess()) {
+            registrarCambios(motos, Collections.emptyList());
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult deleteAllById(Collection<Integer> ids) {
+        if (rejectWrite()) {
+            return rejectedBatch();
+        }
+        BatchResult result = delegate.deleteAllById(ids);
+        if (result.isSuccess()) {
+            registrarCambios(Collections.emptyList(), ids);
+        }
+        return result;
+    }
+
+    /**
+     * Comprueba si se puede escribir. Sin conexión no se puede; con conexión, la primera
+     * escritura hace que las lecturas pasen a la base de datos para ver el cambio.
+     * @return true si la escritura debe rechazarse
+     */
+    private boolean rejectWrite() {
+        if (offline) {
+            System.err.println("Modo sin conexión: el inventario es de solo lectura");
+            return true;
+        }
+        live = true;
+        return false;
+    }
+
+    private static BatchResult rejectedBatch() {
+        BatchResult result = new BatchResult();
+        result.markFailed("Modo sin conexión: el inventario es de solo lectura");
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotMotocicletaRepository{" +
+               "copia=" + snapshot +
+               (offline ? ", sin conexión" : live ? ", leyendo de la base de datos" : ", leyendo de la copia") +
+               '}';
+    }
+}
@@ -1,8 +1,8 @@
 package com.gestionmotos.service;
 
 import com.gestionmotos.model.Usuario;
+import com.gestionmotos.repository.CachingUsuarioRepository;
 import com.gestionmotos.repository.UsuarioRepository;
-import com.gestionmotos.repository.UsuarioRepositoryImpl;
 
 import java.util.Optional;
 
@@ -20,7 +20,7 @@ public class AuthService {
      * Constructor privado para Singleton.
      */
     private AuthService() {
-        this.usuarioRepository = new UsuarioRepositoryImpl();
+        this.usuarioRepository = CachingUsuarioRepository.compartido();
     }
     
     /**
@@ -0,0 +1,303 @@
+package com.gestionmotos.service;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.CambioMotocicleta;
+import com.gestionmotos.repository.MotocicletaRepository;
+import com.gestionmotos.util.DatabaseConnection;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Sigue el registro de cambios de motocicletas ({@code motocicletas_cambios}) para que cada
+ * cliente aplique a sus modelos solo lo que otros clientes cambiaron, sin volver a leer la tabla.
+ * <p>
+ * El cursor es el último número de secuencia aplicado. {@link #iniciar()} debe llamarse antes
+ * de leer los datos que se van a mantener al día, de modo que ningún cambio posterior a esa
+ * lectura se pierda; los cambios repetidos no hacen daño, porque cada uno trae el estado actual
+ * de la motocicleta y se aplica como alta o reemplazo (o como baja si ya no existe).
+ * <p>
+ * Los cambios de una misma motocicleta se combinan en uno solo. Como los números de secuencia
+ * se asignan al insertar y no al confirmar la transacción, un hueco en la secuencia puede ser
+ * un cambio aún no confirmado: el cursor se detiene en el hueco durante
+ * {@code changefeed.gapGraceMs} y después lo da por descartado (transacción revertida).
+ * <p>
+ * Si hay más cambios pendientes que {@code changefeed.maxChanges}, o el cliente pasó tanto
+ * tiempo sin consultar que el registro pudo depurarse, el lote pide recargar todo.
+ */
+public class ChangeFeed {
+    // Valores por defecto si no se configuran en config.properties
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_MAX_CHANGES = 10_000;
+    private static final long DEFAULT_GAP_GRACE_MS = 5000;
+    private static final int DEFAULT_RETENTION_HOURS = 24;
+    // Cada cuánto se depura el registro de cambios
+    private static final long PURGE_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final MotocicletaRepository repository;
+    private final int batchSize;
+    private final int maxChanges;
+    private final long gapGraceMs;
+    private final long retentionMs;
+
+    // Último número de secuencia aplicado; -1 hasta llamar a iniciar()
+    private long cursor = -1;
+    // Primer número de secuencia que falta y desde cuándo falta
+    private long hueco = -1;
+    private long huecoDesde;
+    private long ultimaConsulta;
+    private long ultimaDepuracion;
+
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> tarea;
+
+    /**
+     * Cambios combinados de una consulta al registro.
+     */
+    public static final class Cambios {
+        private final Map<Integer, Motocicleta> actualizadas;
+        private final Set<Integer> eliminadas;
+        private final int leidos;
+        private final boolean recargar;
+
+        Cambios(Map<Integer, Motocicleta> actualizadas, Set<Integer> eliminadas, int leidos, boolean recargar) {
+            this.actualizadas = actualizadas;
+            this.eliminadas = eliminadas;
+            this.leidos = leidos;
+            this.recargar = recargar;
+        }
+
+        /**
+         * @return Motocicletas dadas de alta o modificadas, con su estado actual
+         */
+        public Collection<Motocicleta> getActualizadas() {
+            return Collections.unmodifiableCollection(actualizadas.values());
+        }
+
+        /**
+         * @return IDs de las motocicletas eliminadas
+         */
+        public Set<Integer> getEliminadas() {
+            return Collections.unmodifiableSet(eliminadas);
+        }
+
+        /**
+         * @return Filas leídas del registro, antes de combinar los cambios de una misma motocicleta
+         */
+        public int getLeidos() {
+            return leidos;
+        }
+
+        /**
+         * @return true si los cambios no pueden aplicarse uno a uno y hay que recargar todo
+         */
+        public boolean isRecargar() {
+            return recargar;
+        }
+
+        /**
+         * @return true si no hay nada que aplicar
+         */
+        public boolean isEmpty() {
+            return !recargar && actualizadas.isEmpty() && eliminadas.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return recargar
+                    ? "Cambios{recargar}"
+                    : "Cambios{actualizadas=" + actualizadas.size() + ", eliminadas=" + eliminadas.size()
+                            + ", leidos=" + leidos + '}';
+        }
+    }
+
+    /**
+     * Crea el seguidor con la configuración changefeed.batchSize, changefeed.maxChanges,
+     * changefeed.gapGraceMs y changefeed.retentionHours.
+     * @param repository Repositorio del que se lee el registro de cambios
+     */
+    public ChangeFeed(MotocicletaRepository repository) {
+        this(repository,
+                DatabaseConnection.getInstance().getIntProperty("changefeed.batchSize", DEFAULT_BATCH_SIZE),
+                DatabaseConnection.getInstance().getIntProperty("changefeed.maxChanges", DEFAULT_MAX_CHANGES),
+                DatabaseConnection.getInstance().getIntProperty("changefeed.gapGraceMs", (int) DEFAULT_GAP_GRACE_MS),
+                TimeUnit.HOURS.toMillis(DatabaseConnection.getInstance()
+                        .getIntProperty("changefeed.retentionHours", DEFAULT_RETENTION_HOURS)));
+    }
+
+    /**
+     * Crea el seguidor.
+     * @param repository Repositorio del que se lee el registro de cambios
+     * @param batchSize Cambios por consulta
+     * @param maxChanges Cambios pendientes a partir de los cuales se pide recargar todo
+     * @param gapGraceMs Tiempo que se espera a un número de secuencia que falta
+     * @param retentionMs Antigüedad a partir de la cual se depuran los cambios
+     */
+    public ChangeFeed(MotocicletaRepository repository, int batchSize, int maxChanges, long gapGraceMs,
+                      long retentionMs) {
+        this.repository = repository;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxChanges = Math.max(this.batchSize, maxChanges);
+        this.gapGraceMs = Math.max(0, gapGraceMs);
+        this.retentionMs = Math.max(TimeUnit.MINUTES.toMillis(1), retentionMs);
+    }
+
+    /**
+     * Sitúa el cursor en el último cambio registrado, si aún no se ha hecho.
+     * Debe llamarse antes de leer los datos que se mantendrán al día.
+     * @return true si el cursor está situado
+     */
+    public synchronized boolean iniciar() {
+        if (cursor >= 0) {
+            return true;
+        }
+        long ultimo = repository.findUltimoCambio();
+        if (ultimo < 0) {
+            return false;
+        }
+        cursor = ultimo;
+        ultimaConsulta = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * @return Último número de secuencia aplicado, o -1 si el cursor no está situado
+     */
+    public synchronized long getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Lee los cambios registrados desde la última consulta y los combina por motocicleta.
+     * @return Los cambios, vacíos si no hay o si la base de datos no responde
+     */
+    public synchronized Cambios poll() {
+        long ahora = System.currentTimeMillis();
+        if (cursor < 0) {
+            // Sin cursor no se sabe qué cambios faltan
+            return iniciar() ? recargar() : vacio();
+        }
+        if (ahora - ultimaConsulta > retentionMs / 2) {
+            // Los cambios que faltan pueden haberse depurado ya
+            cursor = -1;
+            return iniciar() ? recargar() : vacio();
+        }
+
+        Map<Integer, Motocicleta> actualizadas = new LinkedHashMap<>();
+        Set<Integer> eliminadas = new LinkedHashSet<>();
+        int leidos = 0;
+        long leidoHasta = cursor;
+        // Se deja de avanzar el cursor al encontrar un hueco que aún puede llenarse
+        boolean retenido = false;
+        List<CambioMotocicleta> lote;
+        do {
+            lote = repository.findCambiosDesde(leidoHasta, batchSize);
+            for (CambioMotocicleta cambio : lote) {
+                if (!retenido) {
+                    if (cambio.getSeq() == cursor + 1 || huecoVencido(cursor + 1, ahora)) {
+                        cursor = cambio.getSeq();
+                    } else {
+                        retenido = true;
+                    }
+                }
+                leidoHasta = cambio.getSeq();
+
+                Motocicleta moto = cambio.getMotocicleta();
+                if (moto == null) {
+                    actualizadas.remove(cambio.getMotoId());
+                    eliminadas.add(cambio.getMotoId());
+                } else {
+                    eliminadas.remove(cambio.getMotoId());
+                    actualizadas.put(cambio.getMotoId(), moto);
+                }
+            }
+            leidos += lote.size();
+            if (leidos >= maxChanges) {
+                cursor = -1;
+                return iniciar() ? recargar() : vacio();
+            }
+        } while (lote.size() == batchSize);
+
+        ultimaConsulta = ahora;
+        if (ahora - ultimaDepuracion > PURGE_INTERVAL_MS) {
+            ultimaDepuracion = ahora;
+            repository.purgeCambios(ahora - retentionMs);
+        }
+        return new Cambios(actualizadas, eliminadas, leidos, false);
+    }
+
+    /**
+     * Indica si un número de secuencia que falta ya se esperó lo suficiente.
+     */
+    private boolean huecoVencido(long seq, long ahora) {
+        if (hueco != seq) {
+            hueco = seq;
+            huecoDesde = ahora;
+        }
+        return ahora - huecoDesde >= gapGraceMs;
+    }
+
+    private Cambios recargar() {
+        return new Cambios(Collections.emptyMap(), Collections.emptySet(), 0, true);
+    }
+
+    private Cambios vacio() {
+        return new Cambios(Collections.emptyMap(), Collections.emptySet(), 0, false);
+    }
+
+    /**
+     * Consulta el registro periódicamente en un hilo propio y entrega los cambios no vacíos.
+     * El consumidor se llama desde ese hilo.
+     * @param intervalMs Tiempo entre consultas en milisegundos
+     * @param consumer Recibe los cambios de cada consulta
+     */
+    public synchronized void start(long intervalMs, Consumer<Cambios> consumer) {
+        if (tarea != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-feed");
+            t.setDaemon(true);
+            return t;
+        });
+        tarea = scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                Cambios cambios = poll();
+                if (!cambios.isEmpty()) {
+                    consumer.accept(cambios);
+                }
+            } catch (RuntimeException e) {
+                // Una excepción cancelaría las consultas siguientes
+                System.err.println("Error al aplicar los cambios: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }, intervalMs, Math.max(1, intervalMs), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Detiene las consultas periódicas.
+     */
+    public synchronized void stop() {
+        if (tarea != null) {
+            tarea.cancel(false);
+            scheduler.shutdownNow();
+            tarea = null;
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ChangeFeed{cursor=" + cursor + (hueco > cursor ? ", esperando=" + hueco : "") + '}';
+    }
+}
@@ -0,0 +1,229 @@
+package com.gestionmotos.service;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.EstadisticaGrupo;
+import com.gestionmotos.repository.MotocicletaAgrupacion;
+import com.gestionmotos.repository.MotocicletaCriteria;
+import com.gestionmotos.repository.MotocicletaRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estadísticas del inventario que se mantienen al día con cada alta, cambio o baja.
+ * <p>
+ * {@link #cargar()} las calcula en la base de datos con
+ * {@link MotocicletaRepository#findEstadisticas}; después cada cambio solo resta la fila
+ * anterior de su grupo y suma la nueva, sin volver a consultar. Si se quita la motocicleta
+ * con el precio o el cilindraje mínimo o máximo de un grupo, o no se conoce la fila anterior
+ * de un cambio, {@link #isRequiereRecarga()} indica que hay que volver a cargar.
+ * <p>
+ * Es seguro usarla desde varios hilos.
+ */
+public class EstadisticasInventario {
+    /** Ancho por defecto de los tramos de cilindraje. */
+    public static final int DEFAULT_ANCHO_CILINDRAJE = 250;
+
+    private final MotocicletaRepository repository;
+
+    private MotocicletaCriteria filtro;
+    private MotocicletaAgrupacion agrupacion = MotocicletaAgrupacion.MARCA;
+    private int anchoCilindraje = DEFAULT_ANCHO_CILINDRAJE;
+
+    // Grupos por clave (MotocicletaAgrupacion#claveDe)
+    private final Map<String, EstadisticaGrupo> grupos = new HashMap<>();
+    private boolean cargada;
+    private boolean requiereRecarga;
+    // Se incrementa al cambiar la configuración, para descartar cargas pedidas antes
+    private long configuracion;
+    // Se incrementa con cada cambio, para saber si alguno llegó durante una carga
+    private long cambios;
+
+    /**
+     * Crea las estadísticas, agrupadas por marca y sin filtro.
+     * @param repository Repositorio en el que se calculan
+     */
+    public EstadisticasInventario(MotocicletaRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Cambia el filtro y la agrupación. Las estadísticas quedan sin cargar.
+     * @param filtro Criterios que deben cumplir las motocicletas, o null para todas
+     * @param agrupacion Cómo agrupar las motocicletas
+     * @param anchoCilindraje Ancho de los tramos al agrupar por cilindraje
+     */
+    public synchronized void configurar(MotocicletaCriteria filtro, MotocicletaAgrupacion agrupacion,
+                                        int anchoCilindraje) {
+        if (anchoCilindraje <= 0) {
+            throw new IllegalArgumentException("El ancho de los tramos de cilindraje debe ser mayor que 0");
+        }
+        this.filtro = filtro;
+        this.agrupacion = agrupacion;
+        this.anchoCilindraje = anchoCilindraje;
+        grupos.clear();
+        cargada = false;
+        configuracion++;
+    }
+
+    /**
+     * Calcula las estadísticas en la base de datos. No debe llamarse desde el hilo de eventos.
+     * @return true si se cargaron; false si la configuración cambió mientras tanto
+     */
+    public boolean cargar() {
+        MotocicletaCriteria f;
+        MotocicletaAgrupacion a;
+        int ancho;
+        long config;
+        long cambiosAntes;
+        synchronized (this) {
+            f = filtro;
+            a = agrupacion;
+            ancho = anchoCilindraje;
+            config = configuracion;
+            cambiosAntes = cambios;
+        }
+
+        List<EstadisticaGrupo> resultado = repository.findEstadisticas(f, a, ancho);
+
+        synchronized (this) {
+            if (config != configuracion) {
+                return false;
+            }
+            grupos.clear();
+            for (EstadisticaGrupo grupo : resultado) {
+                grupos.merge(a.claveDe(grupo.getGrupo()), grupo, (actual, otro) -> {
+                    actual.sumar(otro);
+                    return actual;
+                });
+            }
+            cargada = true;
+            // Un cambio hecho durante la consulta puede estar o no en el resultado
+            requiereRecarga = cambios != cambiosAntes;
+            return true;
+        }
+    }
+
+    /**
+     * Suma una motocicleta nueva.
+     * @param nueva La motocicleta guardada
+     */
+    public void aplicarAlta(Motocicleta nueva) {
+        aplicarCambio(null, nueva);
+    }
+
+    /**
+     * Resta una motocicleta eliminada.
+     * @param anterior Los datos que tenía la motocicleta
+     */
+    public void aplicarBaja(Motocicleta anterior) {
+        aplicarCambio(anterior, null);
+    }
+
+    /**
+     * Mueve una motocicleta de sus datos anteriores a los nuevos.
+     * @param anterior Los datos anteriores, o null si es un alta
+     * @param nueva Los datos nuevos, o null si es una baja
+     */
+    public synchronized void aplicarCambio(Motocicleta anterior, Motocicleta nueva) {
+        cambios++;
+        if (!cargada) {
+            return;
+        }
+        if (anterior != null && (filtro == null || filtro.matches(anterior))) {
+            quitar(anterior);
+        }
+        if (nueva != null && (filtro == null || filtro.matches(nueva))) {
+            String grupo = agrupacion.grupoDe(nueva, anchoCilindraje);
+            grupos.computeIfAbsent(agrupacion.claveDe(grupo), k -> new EstadisticaGrupo(grupo,
+                    agrupacion == MotocicletaAgrupacion.CILINDRAJE
+                            ? MotocicletaAgrupacion.tramoDe(nueva.getCilindraje(), anchoCilindraje)
+                            : null))
+                    .agregar(nueva);
+        }
+    }
+
+    /**
+     * Registra un cambio del que no se conocen los datos anteriores; las estadísticas
+     * quedan pendientes de recargar.
+     */
+    public synchronized void marcarDesactualizada() {
+        cambios++;
+        requiereRecarga = true;
+    }
+
+    private void quitar(Motocicleta anterior) {
+        String clave = agrupacion.claveDe(agrupacion.grupoDe(anterior, anchoCilindraje));
+        EstadisticaGrupo grupo = grupos.get(clave);
+        if (grupo == null) {
+            // La motocicleta no estaba contada: las estadísticas no coinciden con la tabla
+            requiereRecarga = true;
+            return;
+        }
+        grupo.quitar(anterior);
+        if (grupo.getCantidad() == 0) {
+            grupos.remove(clave);
+        } else if (!grupo.isExtremosExactos()) {
+            requiereRecarga = true;
+        }
+    }
+
+    /**
+     * @return Copia de los grupos, ordenados por grupo
+     */
+    public synchronized List<EstadisticaGrupo> getGrupos() {
+        List<EstadisticaGrupo> copia = new ArrayList<>(grupos.size());
+        for (EstadisticaGrupo grupo : grupos.values()) {
+            copia.add(grupo.copia());
+        }
+        copia.sort(EstadisticaGrupo.ORDEN);
+        return copia;
+    }
+
+    /**
+     * @return Las estadísticas de todas las motocicletas que cumplen el filtro
+     */
+    public synchronized EstadisticaGrupo getTotal() {
+        EstadisticaGrupo total = new EstadisticaGrupo(MotocicletaAgrupacion.TOTAL.toString(), null);
+        for (EstadisticaGrupo grupo : grupos.values()) {
+            total.sumar(grupo);
+        }
+        return total;
+    }
+
+    /**
+     * @return true si ya se cargaron con la configuración actual
+     */
+    public synchronized boolean isCargada() {
+        return cargada;
+    }
+
+    /**
+     * @return true si el mínimo o el máximo de algún grupo dejó de ser exacto o se perdió un cambio
+     */
+    public synchronized boolean isRequiereRecarga() {
+        return cargada && requiereRecarga;
+    }
+
+    public synchronized MotocicletaCriteria getFiltro() {
+        return filtro;
+    }
+
+    public synchronized MotocicletaAgrupacion getAgrupacion() {
+        return agrupacion;
+    }
+
+    public synchronized int getAnchoCilindraje() {
+        return anchoCilindraje;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "EstadisticasInventario{agrupacion=" + agrupacion
+                + (filtro != null ? ", filtro=" + filtro : "")
+                + (cargada ? ", grupos=" + grupos.size() : ", sin cargar")
+                + (requiereRecarga ? ", requiereRecarga" : "") + '}';
+    }
+}
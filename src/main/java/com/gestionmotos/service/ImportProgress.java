@@ -0,0 +1,110 @@
+package com.gestionmotos.service;
+
+/**
+ * Estado de una importación de inventario en un momento dado.
+ * Se usa tanto para los avisos de progreso como para el resumen final.
+ */
+public class ImportProgress {
+    private final long lineasLeidas;
+    private final long aceptadas;
+    private final long rechazadas;
+    private final long guardadas;
+    private final long bytesLeidos;
+    private final long bytesTotales;
+    private final long elapsedMillis;
+    private final boolean terminado;
+    private final boolean cancelado;
+
+    public ImportProgress(long lineasLeidas, long aceptadas, long rechazadas, long guardadas,
+                          long bytesLeidos, long bytesTotales, long elapsedMillis,
+                          boolean terminado, boolean cancelado) {
+        this.lineasLeidas = lineasLeidas;
+        this.aceptadas = aceptadas;
+        this.rechazadas = rechazadas;
+        this.guardadas = guardadas;
+        this.bytesLeidos = bytesLeidos;
+        this.bytesTotales = bytesTotales;
+        this.elapsedMillis = elapsedMillis;
+        this.terminado = terminado;
+        this.cancelado = cancelado;
+    }
+
+    /**
+     * @return Filas de datos leídas del archivo (sin contar la cabecera)
+     */
+    public long getLineasLeidas() {
+        return lineasLeidas;
+    }
+
+    /**
+     * @return Filas que pasaron la validación
+     */
+    public long getAceptadas() {
+        return aceptadas;
+    }
+
+    /**
+     * @return Filas enviadas al archivo de rechazos (inválidas o con error al guardar)
+     */
+    public long getRechazadas() {
+        return rechazadas;
+    }
+
+    /**
+     * @return Filas insertadas en la base de datos
+     */
+    public long getGuardadas() {
+        return guardadas;
+    }
+
+    public long getBytesLeidos() {
+        return bytesLeidos;
+    }
+
+    public long getBytesTotales() {
+        return bytesTotales;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public boolean isTerminado() {
+        return terminado;
+    }
+
+    public boolean isCancelado() {
+        return cancelado;
+    }
+
+    /**
+     * @return Porcentaje del archivo leído (0-100), o 0 si se desconoce el tamaño
+     */
+    public int getPorcentaje() {
+        if (bytesTotales <= 0) {
+            return 0;
+        }
+        return (int) Math.min(100, bytesLeidos * 100 / bytesTotales);
+    }
+
+    /**
+     * @return Filas guardadas por segundo desde el inicio de la importación
+     */
+    public double getFilasPorSegundo() {
+        return elapsedMillis == 0 ? 0.0 : guardadas * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportProgress{" +
+               "leidas=" + lineasLeidas +
+               ", aceptadas=" + aceptadas +
+               ", rechazadas=" + rechazadas +
+               ", guardadas=" + guardadas +
+               ", progreso=" + getPorcentaje() + "%" +
+               ", filasPorSegundo=" + String.format("%.0f", getFilasPorSegundo()) +
+               ", ms=" + elapsedMillis +
+               (cancelado ? ", cancelado" : "") +
+               '}';
+    }
+}
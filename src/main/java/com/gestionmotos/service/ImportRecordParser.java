@@ -0,0 +1,298 @@
+package com.gestionmotos.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Convierte una línea de un archivo de inventario en los cuatro valores en texto
+ * de una motocicleta (marca, cilindraje, precio, color).
+ * <p>
+ * Soporta CSV (una fila por línea, campos entre comillas dobles opcionales, separador
+ * coma o punto y coma) y NDJSON (un objeto JSON plano por línea). Las instancias son
+ * inmutables y pueden compartirse entre los hilos de la importación.
+ */
+class ImportRecordParser {
+    private static final String[] CAMPOS = {"marca", "cilindraje", "precio", "color"};
+
+    private final InventoryImportService.Formato formato;
+    private final char separador;
+    // Posición de cada campo en la fila CSV (marca, cilindraje, precio, color)
+    private final int[] columnas;
+
+    private ImportRecordParser(InventoryImportService.Formato formato, char separador, int[] columnas) {
+        this.formato = formato;
+        this.separador = separador;
+        this.columnas = columnas;
+    }
+
+    /**
+     * Crea el parser para NDJSON.
+     */
+    static ImportRecordParser ndjson() {
+        return new ImportRecordParser(InventoryImportService.Formato.NDJSON, ',', null);
+    }
+
+    /**
+     * Crea el parser para CSV a partir de la primera línea del archivo.
+     * Si la primera línea es una cabecera con los nombres de los campos, las columnas
+     * se toman de ella; si no, se asume el orden marca, cilindraje, precio, color.
+     * @param primeraLinea Primera línea del archivo
+     * @return El parser configurado
+     */
+    static ImportRecordParser csv(String primeraLinea) {
+        char separador = primeraLinea.indexOf(';') >= 0 && primeraLinea.indexOf(',') < 0 ? ';' : ',';
+        int[] columnas = {0, 1, 2, 3};
+
+        List<String> cabecera = splitCsv(primeraLinea, separador);
+        if (cabecera != null && esCabecera(cabecera)) {
+            for (int i = 0; i < CAMPOS.length; i++) {
+                columnas[i] = -1;
+                for (int j = 0; j < cabecera.size(); j++) {
+                    if (CAMPOS[i].equals(cabecera.get(j).trim().toLowerCase(Locale.ROOT))) {
+                        columnas[i] = j;
+                    }
+                }
+            }
+        }
+        return new ImportRecordParser(InventoryImportService.Formato.CSV, separador, columnas);
+    }
+
+    /**
+     * Indica si la primera línea de un CSV es una cabecera (y por tanto no es una fila de datos).
+     */
+    static boolean esCabecera(String primeraLinea) {
+        char separador = primeraLinea.indexOf(';') >= 0 && primeraLinea.indexOf(',') < 0 ? ';' : ',';
+        List<String> campos = splitCsv(primeraLinea, separador);
+        return campos != null && esCabecera(campos);
+    }
+
+    private static boolean esCabecera(List<String> campos) {
+        for (String campo : campos) {
+            if ("marca".equals(campo.trim().toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extrae los valores de una línea.
+     * @param linea Línea del archivo
+     * @return Arreglo con marca, cilindraje, precio y color (alguno puede ser null si falta)
+     * @throws IllegalArgumentException Si la línea no tiene un formato válido
+     */
+    String[] parse(String linea) {
+        if (formato == InventoryImportService.Formato.NDJSON) {
+            Map<String, String> objeto = parseJsonObject(linea);
+            String[] valores = new String[CAMPOS.length];
+            for (int i = 0; i < CAMPOS.length; i++) {
+                valores[i] = objeto.get(CAMPOS[i]);
+            }
+            return valores;
+        }
+
+        List<String> campos = splitCsv(linea, separador);
+        if (campos == null) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        String[] valores = new String[CAMPOS.length];
+        for (int i = 0; i < CAMPOS.length; i++) {
+            int columna = columnas[i];
+            valores[i] = columna >= 0 && columna < campos.size() ? campos.get(columna) : null;
+        }
+        return valores;
+    }
+
+    /**
+     * Divide una línea CSV en campos respetando las comillas dobles.
+     * @return Los campos, o null si hay comillas sin cerrar
+     */
+    private static List<String> splitCsv(String linea, char separador) {
+        List<String> campos = new ArrayList<>(4);
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"') {
+                    if (i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                        actual.append('"');
+                        i++;
+                    } else {
+                        entreComillas = false;
+                    }
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+
+        if (entreComillas) {
+            return null;
+        }
+        campos.add(actual.toString());
+        return campos;
+    }
+
+    /**
+     * Analiza un objeto JSON plano ({@code {"clave": valor, ...}}).
+     * Los valores pueden ser cadenas, números, booleanos o null; no se admiten objetos anidados.
+     * @return Los valores en texto indexados por el nombre de la clave en minúsculas
+     */
+    static Map<String, String> parseJsonObject(String linea) {
+        JsonCursor cursor = new JsonCursor(linea);
+        Map<String, String> valores = new HashMap<>();
+
+        cursor.skipWhitespace();
+        cursor.expect('{');
+        cursor.skipWhitespace();
+        if (cursor.peek() == '}') {
+            cursor.next();
+        } else {
+            while (true) {
+                cursor.skipWhitespace();
+                String clave = cursor.readString();
+                cursor.skipWhitespace();
+                cursor.expect(':');
+                cursor.skipWhitespace();
+                valores.put(clave.toLowerCase(Locale.ROOT), cursor.readScalar());
+                cursor.skipWhitespace();
+                char c = cursor.next();
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw new IllegalArgumentException("Se esperaba ',' o '}' en la posición " + (cursor.pos - 1));
+                }
+            }
+        }
+        cursor.skipWhitespace();
+        if (!cursor.atEnd()) {
+            throw new IllegalArgumentException("Contenido inesperado después del objeto JSON");
+        }
+        return valores;
+    }
+
+    /**
+     * Lector secuencial de una línea JSON.
+     */
+    private static final class JsonCursor {
+        private final String texto;
+        private int pos;
+
+        JsonCursor(String texto) {
+            this.texto = texto;
+        }
+
+        boolean atEnd() {
+            return pos >= texto.length();
+        }
+
+        char peek() {
+            if (atEnd()) {
+                throw new IllegalArgumentException("Fin de línea inesperado en el JSON");
+            }
+            return texto.charAt(pos);
+        }
+
+        char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        void expect(char esperado) {
+            char c = next();
+            if (c != esperado) {
+                throw new IllegalArgumentException("Se esperaba '" + esperado + "' en la posición " + (pos - 1));
+            }
+        }
+
+        void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(texto.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char escape = next();
+                switch (escape) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append(escape);
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        if (pos + 4 > texto.length()) {
+                            throw new IllegalArgumentException("Secuencia \\u incompleta");
+                        }
+                        sb.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Escape inválido: \\" + escape);
+                }
+            }
+        }
+
+        /**
+         * Lee un valor escalar. Devuelve null para el literal null.
+         */
+        String readScalar() {
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("No se admiten objetos ni listas anidadas");
+            }
+            int inicio = pos;
+            while (!atEnd() && texto.charAt(pos) != ',' && texto.charAt(pos) != '}'
+                    && !Character.isWhitespace(texto.charAt(pos))) {
+                pos++;
+            }
+            String literal = texto.substring(inicio, pos);
+            if (literal.isEmpty()) {
+                throw new IllegalArgumentException("Valor vacío en la posición " + inicio);
+            }
+            return "null".equals(literal) ? null : literal;
+        }
+    }
+}
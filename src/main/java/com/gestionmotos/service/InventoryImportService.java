@@ -0,0 +1,478 @@
+package com.gestionmotos.service;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.BatchResult;
+import com.gestionmotos.repository.MotocicletaRepository;
+import com.gestionmotos.util.DatabaseConnection;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Servicio de importación masiva de inventario desde archivos CSV o NDJSON.
+ * <p>
+ * El archivo se procesa en flujo, sin cargarlo entero en memoria:
+ * <ol>
+ *   <li>Un hilo lector agrupa las líneas en bloques y los deja en una cola acotada.</li>
+ *   <li>Varios hilos analizan y validan los bloques en paralelo con las mismas reglas
+ *       que el formulario ({@link MotocicletaValidator}) y dejan el resultado en otra cola acotada.</li>
+ *   <li>El hilo que llama a {@link #importar} inserta las filas válidas con
+ *       {@link MotocicletaRepository#saveAll} y escribe las inválidas en el archivo de rechazos.</li>
+ * </ol>
+ * Las colas acotadas frenan al lector cuando la base de datos va más lenta que el análisis,
+ * de modo que la memoria usada no depende del tamaño del archivo.
+ */
+public class InventoryImportService {
+
+    /**
+     * Formatos de archivo soportados.
+     */
+    public enum Formato {
+        CSV, NDJSON;
+
+        /**
+         * Deduce el formato a partir de la extensión del archivo (.ndjson, .jsonl o .json para NDJSON).
+         */
+        public static Formato fromFileName(String nombre) {
+            String lower = nombre.toLowerCase(Locale.ROOT);
+            if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl") || lower.endsWith(".json")) {
+                return NDJSON;
+            }
+            return CSV;
+        }
+    }
+
+    private static final long PROGRESS_INTERVAL_MS = 500;
+
+    // Marcas de fin de flujo entre las etapas (se comparan por identidad)
+    private static final LineChunk FIN_LECTURA = new LineChunk(-1, Collections.emptyList(), null);
+    private static final List<Fila> FIN = new ArrayList<>(0);
+
+    private final MotocicletaRepository repository;
+    private final int parserThreads;
+    private final int queueCapacity;
+    private final int chunkLines;
+    private final int writeBatchSize;
+    private final AtomicBoolean cancelado = new AtomicBoolean();
+
+    /**
+     * Crea el servicio con la configuración de config.properties:
+     * import.parserThreads, import.queueCapacity, import.chunkLines e import.writeBatchSize.
+     * @param repository Repositorio donde se insertan las motocicletas
+     */
+    public InventoryImportService(MotocicletaRepository repository) {
+        this(repository,
+                DatabaseConnection.getInstance().getIntProperty("import.parserThreads",
+                        Math.max(1, Runtime.getRuntime().availableProcessors() - 1)),
+                DatabaseConnection.getInstance().getIntProperty("import.queueCapacity", 8),
+                DatabaseConnection.getInstance().getIntProperty("import.chunkLines", 1000),
+                DatabaseConnection.getInstance().getIntProperty("import.writeBatchSize", 5000));
+    }
+
+    /**
+     * Crea el servicio con una configuración específica.
+     * @param repository Repositorio donde se insertan las motocicletas
+     * @param parserThreads Hilos que analizan y validan en paralelo
+     * @param queueCapacity Bloques que pueden esperar en cada cola antes de frenar al productor
+     * @param chunkLines Líneas por bloque
+     * @param writeBatchSize Filas por llamada a saveAll (cada llamada es una transacción)
+     */
+    public InventoryImportService(MotocicletaRepository repository, int parserThreads, int queueCapacity,
+                                  int chunkLines, int writeBatchSize) {
+        this.repository = repository;
+        this.parserThreads = Math.max(1, parserThreads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.chunkLines = Math.max(1, chunkLines);
+        this.writeBatchSize = Math.max(1, writeBatchSize);
+    }
+
+    /**
+     * Solicita detener la importación en curso. Las filas ya guardadas se conservan.
+     */
+    public void cancelar() {
+        cancelado.set(true);
+    }
+
+    /**
+     * Importa un archivo codificado en UTF-8.
+     * @see #importar(Path, Formato, Charset, Path, Consumer)
+     */
+    public ImportProgress importar(Path archivo, Formato formato, Path archivoRechazos,
+                                   Consumer<ImportProgress> listener) throws IOException {
+        return importar(archivo, formato, StandardCharsets.UTF_8, archivoRechazos, listener);
+    }
+
+    /**
+     * Importa un archivo de inventario. Bloquea hasta que termina o se cancela.
+     * @param archivo Archivo CSV o NDJSON
+     * @param formato Formato del archivo
+     * @param charset Codificación del archivo
+     * @param archivoRechazos Archivo donde se escriben las filas rechazadas y el motivo
+     * @param listener Recibe el progreso periódicamente desde el hilo que llama (puede ser null)
+     * @return Resumen final de la importación
+     * @throws IOException Si no se puede leer el archivo o escribir los rechazos
+     */
+    public ImportProgress importar(Path archivo, Formato formato, Charset charset, Path archivoRechazos,
+                                   Consumer<ImportProgress> listener) throws IOException {
+        cancelado.set(false);
+        long inicio = System.currentTimeMillis();
+        long bytesTotales = Files.size(archivo);
+
+        BlockingQueue<LineChunk> colaLineas = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<List<Fila>> colaFilas = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Throwable> fallo = new AtomicReference<>();
+        AtomicLong lineasLeidas = new AtomicLong();
+        CountingInputStream entrada = new CountingInputStream(Files.newInputStream(archivo));
+
+        Thread lector = new Thread(
+                () -> leer(entrada, charset, formato, colaLineas, lineasLeidas, fallo),
+                "import-lector");
+        lector.setDaemon(true);
+
+        ExecutorService analizadores = Executors.newFixedThreadPool(parserThreads, r -> {
+            Thread t = new Thread(r, "import-analizador");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long aceptadas = 0;
+        long rechazadas = 0;
+        long guardadas = 0;
+        long ultimoAviso = 0;
+
+        try (BufferedWriter rechazos = Files.newBufferedWriter(archivoRechazos, StandardCharsets.UTF_8)) {
+            rechazos.write("linea\tmotivo\tcontenido");
+            rechazos.newLine();
+
+            lector.start();
+            for (int i = 0; i < parserThreads; i++) {
+                analizadores.execute(() -> analizar(colaLineas, colaFilas, fallo));
+            }
+
+            List<Fila> pendientes = new ArrayList<>(writeBatchSize);
+            int analizadoresTerminados = 0;
+
+            while (analizadoresTerminados < parserThreads) {
+                List<Fila> bloque = colaFilas.take();
+                if (bloque == FIN) {
+                    analizadoresTerminados++;
+                    continue;
+                }
+                if (cancelado.get()) {
+                    // Se siguen vaciando las colas para que los demás hilos terminen
+                    continue;
+                }
+
+                for (Fila fila : bloque) {
+                    if (fila.moto == null) {
+                        escribirRechazo(rechazos, fila, fila.motivo);
+                        rechazadas++;
+                    } else {
+                        pendientes.add(fila);
+                        aceptadas++;
+                    }
+                }
+
+                if (pendientes.size() >= writeBatchSize) {
+                    int escritas = guardar(pendientes, rechazos);
+                    guardadas += escritas;
+                    rechazadas += pendientes.size() - escritas;
+                    pendientes.clear();
+                }
+
+                long ahora = System.currentTimeMillis();
+                if (listener != null && ahora - ultimoAviso >= PROGRESS_INTERVAL_MS) {
+                    ultimoAviso = ahora;
+                    listener.accept(new ImportProgress(lineasLeidas.get(), aceptadas, rechazadas, guardadas,
+                            entrada.getCount(), bytesTotales, ahora - inicio, false, false));
+                }
+            }
+
+            if (!pendientes.isEmpty() && !cancelado.get()) {
+                int escritas = guardar(pendientes, rechazos);
+                guardadas += escritas;
+                rechazadas += pendientes.size() - escritas;
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelado.set(true);
+        } finally {
+            analizadores.shutdownNow();
+            lector.interrupt();
+            entrada.close();
+        }
+
+        // Error del lector o de un analizador
+        Throwable error = fallo.get();
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        } else if (error != null) {
+            throw new IOException("Error al importar el archivo de inventario: " + error.getMessage(), error);
+        }
+
+        ImportProgress resumen = new ImportProgress(lineasLeidas.get(), aceptadas, rechazadas, guardadas,
+                entrada.getCount(), bytesTotales, System.currentTimeMillis() - inicio, true, cancelado.get());
+        if (listener != null) {
+            listener.accept(resumen);
+        }
+        return resumen;
+    }
+
+    /**
+     * Hilo lector: agrupa las líneas del archivo en bloques y los encola.
+     * Al terminar (o al cancelar) encola una marca de fin por cada analizador.
+     */
+    private void leer(InputStream entrada, Charset charset, Formato formato, BlockingQueue<LineChunk> cola,
+                      AtomicLong lineasLeidas, AtomicReference<Throwable> error) {
+        try {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(entrada, charset), 64 * 1024)) {
+                String linea = reader.readLine();
+                long numero = 1;
+
+                if (linea != null && !linea.isEmpty() && linea.charAt(0) == '\uFEFF') {
+                    linea = linea.substring(1);
+                }
+
+                ImportRecordParser parser;
+                if (formato == Formato.NDJSON) {
+                    parser = ImportRecordParser.ndjson();
+                } else {
+                    parser = ImportRecordParser.csv(linea != null ? linea : "");
+                    if (linea != null && ImportRecordParser.esCabecera(linea)) {
+                        linea = reader.readLine();
+                        numero++;
+                    }
+                }
+
+                // Las líneas vacías viajan en el bloque para conservar la numeración, pero no se cuentan
+                List<String> lineas = new ArrayList<>(chunkLines);
+                long primera = numero;
+                while (linea != null && !cancelado.get()) {
+                    if (lineas.isEmpty()) {
+                        primera = numero;
+                    }
+                    lineas.add(linea);
+                    if (!linea.trim().isEmpty()) {
+                        lineasLeidas.incrementAndGet();
+                    }
+
+                    if (lineas.size() == chunkLines) {
+                        cola.put(new LineChunk(primera, lineas, parser));
+                        lineas = new ArrayList<>(chunkLines);
+                    }
+                    linea = reader.readLine();
+                    numero++;
+                }
+                if (!lineas.isEmpty() && !cancelado.get()) {
+                    cola.put(new LineChunk(primera, lineas, parser));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (IOException | RuntimeException e) {
+            error.set(e);
+            cancelado.set(true);
+        }
+
+        try {
+            for (int i = 0; i < parserThreads; i++) {
+                cola.put(FIN_LECTURA);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Hilo analizador: convierte cada bloque de líneas en filas aceptadas o rechazadas.
+     * Siempre termina encolando su marca de fin, también si falla, para que la importación
+     * no espere para siempre; un fallo cancela la importación y se informa al terminar.
+     */
+    private void analizar(BlockingQueue<LineChunk> colaLineas, BlockingQueue<List<Fila>> colaFilas,
+                          AtomicReference<Throwable> error) {
+        try {
+            while (true) {
+                LineChunk bloque = colaLineas.take();
+                if (bloque == FIN_LECTURA) {
+                    return;
+                }
+
+                List<Fila> filas = new ArrayList<>(bloque.lineas.size());
+                long numero = bloque.primeraLinea;
+                for (String linea : bloque.lineas) {
+                    if (!linea.trim().isEmpty()) {
+                        filas.add(analizarLinea(bloque.parser, numero, linea));
+                    }
+                    numero++;
+                }
+                colaFilas.put(filas);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            error.compareAndSet(null, e);
+            cancelado.set(true);
+        } finally {
+            encolarFin(colaFilas);
+        }
+    }
+
+    /**
+     * Encola la marca de fin de un analizador. Si el hilo se interrumpió (la importación ya
+     * terminó), la marca ya no hace falta.
+     */
+    private static void encolarFin(BlockingQueue<List<Fila>> colaFilas) {
+        try {
+            colaFilas.put(FIN);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Fila analizarLinea(ImportRecordParser parser, long numero, String linea) {
+        String[] valores;
+        try {
+            valores = parser.parse(linea);
+        } catch (IllegalArgumentException e) {
+            return new Fila(numero, linea, null, "Formato inválido: " + e.getMessage());
+        }
+
+        MotocicletaValidator.ValidationError error =
+                MotocicletaValidator.validar(valores[0], valores[1], valores[2], valores[3]);
+        if (error != null) {
+            return new Fila(numero, linea, null, error.getMensaje());
+        }
+        return new Fila(numero, linea,
+                MotocicletaValidator.toMotocicleta(valores[0], valores[1], valores[2], valores[3]), null);
+    }
+
+    /**
+     * Inserta un grupo de filas aceptadas. Si la transacción falla, el grupo se reintenta por
+     * mitades, de modo que solo las filas que la base de datos rechaza pasan al archivo de rechazos
+     * (con una fila mala, unas pocas transacciones más en lugar de perder todo el grupo).
+     * @return Número de filas guardadas
+     */
+    private int guardar(List<Fila> filas, BufferedWriter rechazos) throws IOException {
+        List<Motocicleta> motos = new ArrayList<>(filas.size());
+        for (Fila fila : filas) {
+            motos.add(fila.moto);
+        }
+
+        BatchResult resultado = repository.saveAll(motos);
+        if (resultado.isSuccess()) {
+            return motos.size();
+        }
+
+        if (filas.size() == 1 || cancelado.get()) {
+            for (Fila fila : filas) {
+                escribirRechazo(rechazos, fila, "Error al guardar: " + resultado.getErrorMessage());
+            }
+            return 0;
+        }
+        int mitad = filas.size() / 2;
+        return guardar(filas.subList(0, mitad), rechazos) + guardar(filas.subList(mitad, filas.size()), rechazos);
+    }
+
+    private static void escribirRechazo(BufferedWriter rechazos, Fila fila, String motivo) throws IOException {
+        rechazos.write(Long.toString(fila.numero));
+        rechazos.write('\t');
+        rechazos.write(motivo.replace('\t', ' ').replace('\n', ' '));
+        rechazos.write('\t');
+        rechazos.write(fila.linea);
+        rechazos.newLine();
+    }
+
+    /**
+     * Bloque de líneas consecutivas del archivo.
+     */
+    private static final class LineChunk {
+        final long primeraLinea;
+        final List<String> lineas;
+        final ImportRecordParser parser;
+
+        LineChunk(long primeraLinea, List<String> lineas, ImportRecordParser parser) {
+            this.primeraLinea = primeraLinea;
+            this.lineas = lineas;
+            this.parser = parser;
+        }
+    }
+
+    /**
+     * Línea analizada: contiene la motocicleta si es válida o el motivo del rechazo.
+     */
+    private static final class Fila {
+        final long numero;
+        final String linea;
+        final Motocicleta moto;
+        final String motivo;
+
+        Fila(long numero, String linea, Motocicleta moto, String motivo) {
+            this.numero = numero;
+            this.linea = linea;
+            this.moto = moto;
+            this.motivo = motivo;
+        }
+    }
+
+    /**
+     * Flujo de entrada que cuenta los bytes leídos para calcular el progreso.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final AtomicLong count = new AtomicLong();
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count.addAndGet(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count.addAndGet(skipped);
+            return skipped;
+        }
+
+        long getCount() {
+            return count.get();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.gestionmotos.service;
+
+import com.gestionmotos.model.Motocicleta;
+
+/**
+ * Reglas de validación de los datos de una motocicleta.
+ * Las comparten el formulario de {@code MainFrame} y la importación de inventario,
+ * de modo que una fila importada se acepta exactamente cuando el formulario la aceptaría.
+ */
+public final class MotocicletaValidator {
+    // Límites de las columnas de la tabla motocicletas: marca varchar(50), color varchar(30)
+    // y precio decimal(10,2)
+    public static final int MARCA_MAX_LENGTH = 50;
+    public static final int COLOR_MAX_LENGTH = 30;
+    public static final double PRECIO_MAXIMO = 99_999_999.99;
+
+    /**
+     * Campos validados.
+     */
+    public enum Campo {
+        MARCA, CILINDRAJE, PRECIO, COLOR
+    }
+
+    private MotocicletaValidator() {
+    }
+
+    /**
+     * Valida los valores en texto de una motocicleta.
+     * @param marca Marca
+     * @param cilindraje Cilindraje (número entero positivo)
+     * @param precio Precio (número decimal positivo, como mucho {@link #PRECIO_MAXIMO})
+     * @param color Color
+     * @return El primer error encontrado, o null si los datos son válidos
+     */
+    public static ValidationError validar(String marca, String cilindraje, String precio, String color) {
+        if (isBlank(marca)) {
+            return new ValidationError(Campo.MARCA, "La marca es obligatoria");
+        }
+
+        if (marca.trim().length() > MARCA_MAX_LENGTH) {
+            return new ValidationError(Campo.MARCA,
+                    "La marca no puede tener más de " + MARCA_MAX_LENGTH + " caracteres");
+        }
+
+        if (isBlank(cilindraje)) {
+            return new ValidationError(Campo.CILINDRAJE, "El cilindraje es obligatorio");
+        }
+
+        try {
+            if (Integer.parseInt(cilindraje.trim()) <= 0) {
+                return new ValidationError(Campo.CILINDRAJE, "El cilindraje debe ser un número positivo");
+            }
+        } catch (NumberFormatException e) {
+            return new ValidationError(Campo.CILINDRAJE, "El cilindraje debe ser un número entero");
+        }
+
+        if (isBlank(precio)) {
+            return new ValidationError(Campo.PRECIO, "El precio es obligatorio");
+        }
+
+        try {
+            double valor = Double.parseDouble(precio.trim());
+            // Double acepta "NaN" e "Infinity", que no caben en la columna
+            if (!Double.isFinite(valor)) {
+                return new ValidationError(Campo.PRECIO, "El precio debe ser un número decimal");
+            }
+            if (valor <= 0) {
+                return new ValidationError(Campo.PRECIO, "El precio debe ser un número positivo");
+            }
+            if (valor > PRECIO_MAXIMO) {
+                return new ValidationError(Campo.PRECIO,
+                        String.format("El precio no puede ser mayor que %,.2f", PRECIO_MAXIMO));
+            }
+        } catch (NumberFormatException e) {
+            return new ValidationError(Campo.PRECIO, "El precio debe ser un número decimal");
+        }
+
+        if (isBlank(color)) {
+            return new ValidationError(Campo.COLOR, "El color es obligatorio");
+        }
+
+        if (color.trim().length() > COLOR_MAX_LENGTH) {
+            return new ValidationError(Campo.COLOR,
+                    "El color no puede tener más de " + COLOR_MAX_LENGTH + " caracteres");
+        }
+
+        return null;
+    }
+
+    /**
+     * Construye una motocicleta a partir de valores ya validados con {@link #validar}.
+     * @return Una motocicleta sin ID
+     */
+    public static Motocicleta toMotocicleta(String marca, String cilindraje, String precio, String color) {
+        return new Motocicleta(
+                marca.trim(),
+                Integer.parseInt(cilindraje.trim()),
+                Double.parseDouble(precio.trim()),
+                color.trim());
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * Error de validación: el campo que falló y el mensaje para el usuario.
+     */
+    public static final class ValidationError {
+        private final Campo campo;
+        private final String mensaje;
+
+        public ValidationError(Campo campo, String mensaje) {
+            this.campo = campo;
+            this.mensaje = mensaje;
+        }
+
+        public Campo getCampo() {
+            return campo;
+        }
+
+        public String getMensaje() {
+            return mensaje;
+        }
+
+        @Override
+        public String toString() {
+            return mensaje;
+        }
+    }
+}
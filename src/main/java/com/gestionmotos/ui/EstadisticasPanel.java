@@ -0,0 +1,270 @@
+package com.gestionmotos.ui;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.EstadisticaGrupo;
+import com.gestionmotos.repository.MotocicletaAgrupacion;
+import com.gestionmotos.repository.MotocicletaCriteria;
+import com.gestionmotos.service.EstadisticasInventario;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Panel con la cantidad y el precio y el cilindraje total, mínimo, máximo y promedio del
+ * inventario, agrupados por marca, color o tramos de cilindraje.
+ * <p>
+ * Las estadísticas se calculan en la base de datos la primera vez que se muestra el panel y
+ * al cambiar la agrupación o el filtro. Después se mantienen con cada alta, cambio o baja
+ * ({@link #aplicarCambio}) y la tabla se redibuja agrupando los cambios cercanos; solo se
+ * vuelve a consultar cuando las estadísticas lo piden ({@link EstadisticasInventario#isRequiereRecarga()}).
+ * <p>
+ * Los métodos públicos deben llamarse desde el hilo de eventos de Swing, salvo {@link #aplicarCambio}
+ * y {@link #marcarDesactualizada()}, que pueden llamarse desde cualquier hilo.
+ */
+public class EstadisticasPanel extends JPanel {
+    // Espera tras un cambio antes de redibujar, para agrupar los cambios seguidos
+    private static final int REFRESH_DELAY_MS = 300;
+
+    private final EstadisticasInventario estadisticas;
+    private final StatusBar statusBar;
+    private final GruposTableModel tableModel = new GruposTableModel();
+    private final JComboBox<MotocicletaAgrupacion> cmbAgrupacion;
+    private final JSpinner spnAncho;
+    private final JTextField txtFiltro;
+    private final JButton btnActualizar;
+    private final JLabel lblTotal;
+    private final Timer refreshTimer;
+
+    // Hay una carga en curso; otra petición se atiende al terminar
+    private boolean cargando;
+    private boolean cargaPendiente;
+
+    /**
+     * Crea el panel. Las estadísticas no se calculan hasta que se llama a {@link #mostrar()}.
+     * @param estadisticas Estadísticas que se muestran
+     * @param statusBar Barra de estado en la que se ejecutan las consultas
+     */
+    public EstadisticasPanel(EstadisticasInventario estadisticas, StatusBar statusBar) {
+        super(new BorderLayout(5, 5));
+        this.estadisticas = estadisticas;
+        this.statusBar = statusBar;
+
+        // ===== Controles =====
+        JPanel controles = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        controles.add(new JLabel("Agrupar por:"));
+        cmbAgrupacion = new JComboBox<>(MotocicletaAgrupacion.values());
+        cmbAgrupacion.setSelectedItem(estadisticas.getAgrupacion());
+        controles.add(cmbAgrupacion);
+
+        controles.add(new JLabel("Tramos de:"));
+        spnAncho = new JSpinner(new SpinnerNumberModel(estadisticas.getAnchoCilindraje(), 1, 10_000, 50));
+        controles.add(spnAncho);
+        controles.add(new JLabel("cc"));
+
+        controles.add(new JLabel("Filtro:"));
+        txtFiltro = new JTextField(20);
+        txtFiltro.setToolTipText("Por ejemplo: marca:honda color:rojo precio<8000 cc:150..600");
+        controles.add(txtFiltro);
+
+        btnActualizar = new JButton("Actualizar");
+        controles.add(btnActualizar);
+
+        cmbAgrupacion.addActionListener(e -> aplicarConfiguracion());
+        spnAncho.addChangeListener(e -> aplicarConfiguracion());
+        txtFiltro.addActionListener(e -> aplicarConfiguracion());
+        btnActualizar.addActionListener(e -> aplicarConfiguracion());
+        spnAncho.setEnabled(estadisticas.getAgrupacion() == MotocicletaAgrupacion.CILINDRAJE);
+
+        // ===== Tabla de grupos =====
+        JTable table = new JTable(tableModel);
+        table.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
+        table.getTableHeader().setReorderingAllowed(false);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(800, 320));
+
+        lblTotal = new JLabel(" ");
+
+        add(controles, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
+        add(lblTotal, BorderLayout.SOUTH);
+
+        refreshTimer = new Timer(REFRESH_DELAY_MS, e -> refrescar());
+        refreshTimer.setRepeats(false);
+    }
+
+    /**
+     * Calcula las estadísticas si aún no se cargaron. Se llama al mostrar el panel.
+     */
+    public void mostrar() {
+        if (!estadisticas.isCargada()) {
+            cargar();
+        } else {
+            refrescar();
+        }
+    }
+
+    /**
+     * Aplica un alta, cambio o baja a las estadísticas y programa el redibujado.
+     * @param anterior Los datos anteriores, o null si es un alta
+     * @param nueva Los datos nuevos, o null si es una baja
+     */
+    public void aplicarCambio(Motocicleta anterior, Motocicleta nueva) {
+        estadisticas.aplicarCambio(anterior, nueva);
+        SwingUtilities.invokeLater(refreshTimer::restart);
+    }
+
+    /**
+     * Indica que hubo cambios que no pueden aplicarse uno a uno; las estadísticas se vuelven
+     * a consultar la próxima vez que se redibujan.
+     */
+    public void marcarDesactualizada() {
+        estadisticas.marcarDesactualizada();
+        SwingUtilities.invokeLater(refreshTimer::restart);
+    }
+
+    /**
+     * Lee la agrupación, el ancho de los tramos y el filtro de los controles y vuelve a calcular.
+     */
+    private void aplicarConfiguracion() {
+        MotocicletaAgrupacion agrupacion = (MotocicletaAgrupacion) cmbAgrupacion.getSelectedItem();
+        spnAncho.setEnabled(agrupacion == MotocicletaAgrupacion.CILINDRAJE);
+        MotocicletaCriteria filtro = null;
+        String texto = txtFiltro.getText().trim();
+        if (!texto.isEmpty()) {
+            try {
+                filtro = MotocicletaCriteria.parse(texto);
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this,
+                        "Filtro no válido: " + ex.getMessage(),
+                        "Estadísticas",
+                        JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+        }
+        estadisticas.configurar(filtro, agrupacion, (Integer) spnAncho.getValue());
+        cargar();
+    }
+
+    /**
+     * Redibuja la tabla con las estadísticas en memoria, o las vuelve a consultar si lo piden.
+     */
+    private void refrescar() {
+        if (!estadisticas.isCargada()) {
+            // Nunca se mostró el panel, o cambió la configuración y la carga está en curso
+            return;
+        }
+        if (estadisticas.isRequiereRecarga()) {
+            cargar();
+            return;
+        }
+        mostrarEstadisticas();
+    }
+
+    /**
+     * Calcula las estadísticas en la base de datos en segundo plano.
+     */
+    private void cargar() {
+        if (cargando) {
+            cargaPendiente = true;
+            return;
+        }
+        cargando = true;
+        statusBar.run("Calculando estadísticas...",
+                estadisticas::cargar,
+                cargadas -> {
+                    terminarCarga();
+                    mostrarEstadisticas();
+                },
+                ex -> {
+                    terminarCarga();
+                    System.err.println("Error al calcular las estadísticas: " + ex.getMessage());
+                    statusBar.setMensaje("No se pudieron calcular las estadísticas");
+                },
+                btnActualizar);
+    }
+
+    private void terminarCarga() {
+        cargando = false;
+        if (cargaPendiente || estadisticas.isRequiereRecarga() || !estadisticas.isCargada()) {
+            cargaPendiente = false;
+            cargar();
+        }
+    }
+
+    private void mostrarEstadisticas() {
+        tableModel.setGrupos(estadisticas.getGrupos());
+        EstadisticaGrupo total = estadisticas.getTotal();
+        lblTotal.setText(total.getCantidad() == 0
+                ? "Sin motocicletas"
+                : String.format("Total: %d motocicletas, valor %,.2f, precio promedio %,.2f, "
+                                + "cilindraje promedio %,.0f cc",
+                        total.getCantidad(), total.getPrecioTotal(), total.getPrecioPromedio(),
+                        total.getCilindrajePromedio()));
+    }
+
+    /**
+     * Modelo de la tabla de grupos.
+     */
+    private static class GruposTableModel extends AbstractTableModel {
+        private static final String[] COLUMNAS = {"Grupo", "Cantidad", "Precio total", "Precio mín.",
+                "Precio máx.", "Precio prom.", "Cc mín.", "Cc máx.", "Cc prom."};
+
+        private List<EstadisticaGrupo> grupos = new ArrayList<>();
+
+        void setGrupos(List<EstadisticaGrupo> grupos) {
+            this.grupos = grupos;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return grupos.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNAS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNAS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int columnIndex) {
+            if (columnIndex == 0) return String.class;
+            if (columnIndex == 1) return Long.class;
+            if (columnIndex == 6 || columnIndex == 7) return Integer.class;
+            return Double.class;
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            EstadisticaGrupo grupo = grupos.get(rowIndex);
+            switch (columnIndex) {
+                case 0:
+                    return grupo.getGrupo();
+                case 1:
+                    return grupo.getCantidad();
+                case 2:
+                    return grupo.getPrecioTotal();
+                case 3:
+                    return grupo.getPrecioMin();
+                case 4:
+                    return grupo.getPrecioMax();
+                case 5:
+                    return Math.round(grupo.getPrecioPromedio() * 100) / 100.0;
+                case 6:
+                    return grupo.getCilindrajeMin();
+                case 7:
+                    return grupo.getCilindrajeMax();
+                default:
+                    return Math.round(grupo.getCilindrajePromedio() * 10) / 10.0;
+            }
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.gestionmotos.ui;
 
+import com.gestionmotos.repository.log.LogMotocicletaRepository;
+import com.gestionmotos.repository.snapshot.SnapshotMotocicletaRepository;
 import com.gestionmotos.service.AuthService;
+import com.gestionmotos.util.DatabaseConnection;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.nio.file.Files;
 
 /**
  * Frame para la pantalla de inicio de sesión.
@@ -14,13 +18,14 @@ public class LoginFrame extends JFrame {
     private final JTextField txtUsername;
     private final JPasswordField txtPassword;
     private final JButton btnLogin;
+    private final StatusBar statusBar;
     
     /**
      * Constructor que configura los componentes de la ventana.
      */
     public LoginFrame() {
         setTitle("Iniciar Sesión - Sistema de Gestión de Motocicletas");
-        setSize(400, 200);
+        setSize(400, 230);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
         setResizable(false);
@@ -65,9 +70,11 @@ public class LoginFrame extends JFrame {
         btnLogin.addActionListener(this::onLoginClicked);
         panel.add(btnLogin, gbc);
         
-       
+        // La verificación de la contraseña (BCrypt) se hace en segundo plano
+        statusBar = new StatusBar();
         
-        add(panel);
+        add(panel, BorderLayout.CENTER);
+        add(statusBar, BorderLayout.SOUTH);
     }
     
     /**
@@ -88,21 +95,101 @@ public class LoginFrame extends JFrame {
         
         AuthService authService = AuthService.getInstance();
         
-        if (authService.login(username, password)) {
-            JOptionPane.showMessageDialog(this, 
-                    "Bienvenido, " + authService.getCurrentUser().getNombre(), 
-                    "Inicio de sesión exitoso", 
-                    JOptionPane.INFORMATION_MESSAGE);
-            
-            // Abrir la ventana principal y cerrar esta
-            MainFrame mainFrame = new MainFrame();
-            mainFrame.setVisible(true);
-            this.dispose();
-        } else {
+        statusBar.run("Verificando credenciales...",
+                () -> {
+                    if (authService.login(username, password)) {
+                        return ResultadoLogin.AUTENTICADO;
+                    }
+                    // Distinguir credenciales incorrectas de una base de datos que no responde
+                    return DatabaseConnection.getInstance().isReachable()
+                            ? ResultadoLogin.RECHAZADO
+                            : ResultadoLogin.SIN_CONEXION;
+                },
+                resultado -> {
+                    if (resultado == ResultadoLogin.AUTENTICADO) {
+                        JOptionPane.showMessageDialog(this, 
+                                "Bienvenido, " + authService.getCurrentUser().getNombre(), 
+                                "Inicio de sesión exitoso", 
+                                JOptionPane.INFORMATION_MESSAGE);
+                        abrirVentanaPrincipal(false);
+                    } else if (resultado == ResultadoLogin.SIN_CONEXION) {
+                        ofrecerModoSinConexion();
+                    } else {
+                        JOptionPane.showMessageDialog(this, 
+                                "Usuario o contraseña incorrectos", 
+                                "Error de autenticación", 
+                                JOptionPane.ERROR_MESSAGE);
+                    }
+                },
+                ex -> JOptionPane.showMessageDialog(this, 
+                        "Error al iniciar sesión: " + ex.getMessage(), 
+                        "Error", 
+                        JOptionPane.ERROR_MESSAGE),
+                btnLogin, txtUsername, txtPassword);
+    }
+    
+    /**
+     * Cuando la base de datos no responde, ofrece abrir la copia local del inventario
+     * en modo de solo lectura, si existe.
+     */
+    private void ofrecerModoSinConexion() {
+        if (!Files.exists(SnapshotMotocicletaRepository.defaultPath())) {
             JOptionPane.showMessageDialog(this, 
-                    "Usuario o contraseña incorrectos", 
-                    "Error de autenticación", 
+                    "No se pudo conectar con la base de datos", 
+                    "Error de conexión", 
                     JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        int respuesta = JOptionPane.showConfirmDialog(this,
+                "No se pudo conectar con la base de datos.\n"
+                        + "¿Desea ver la copia local del inventario en modo de solo lectura?",
+                "Error de conexión",
+                JOptionPane.YES_NO_OPTION);
+        if (respuesta == JOptionPane.YES_OPTION) {
+            abrirVentanaPrincipal(true);
+        }
+    }
+    
+    /**
+     * Abre la ventana principal y cierra esta. Con wal.enabled, antes abre en segundo plano el
+     * registro local del inventario, que puede tardar en cargar su índice.
+     * @param offline true para abrir la copia local del inventario en modo de solo lectura
+     */
+    private void abrirVentanaPrincipal(boolean offline) {
+        boolean registroLocal = Boolean.parseBoolean(DatabaseConnection.getInstance().getProperties()
+                .getProperty("wal.enabled", "false").trim());
+        if (!registroLocal) {
+            mostrarVentanaPrincipal(new MainFrame(offline));
+            return;
         }
+        statusBar.run("Abriendo el inventario local...",
+                LogMotocicletaRepository::getInstance,
+                repository -> mostrarVentanaPrincipal(new MainFrame(offline, repository)),
+                ex -> {
+                    // Por ejemplo, otra ventana de la aplicación ya tiene abierto el registro
+                    System.err.println("Error al abrir el inventario local: " + ex.getMessage());
+                    ex.printStackTrace();
+                    AuthService.getInstance().logout();
+                    JOptionPane.showMessageDialog(this,
+                            "No se pudo abrir el inventario local: " + ex.getMessage(),
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                },
+                btnLogin, txtUsername, txtPassword);
+    }
+    
+    private void mostrarVentanaPrincipal(MainFrame mainFrame) {
+        mainFrame.setVisible(true);
+        this.dispose();
+    }
+    
+    /**
+     * Resultado de un intento de inicio de sesión.
+     */
+    private enum ResultadoLogin {
+        AUTENTICADO,
+        RECHAZADO,
+        SIN_CONEXION
     }
 }
\ No newline at end of file
@@ -1,15 +1,31 @@
 package com.gestionmotos.ui;
 
 import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.CachingMotocicletaRepository;
+import com.gestionmotos.repository.MotocicletaCriteria;
 import com.gestionmotos.repository.MotocicletaRepository;
 import com.gestionmotos.repository.MotocicletaRepositoryImpl;
+import com.gestionmotos.repository.QueryCachingMotocicletaRepository;
+import com.gestionmotos.repository.index.ColumnarMotocicletaRepository;
+import com.gestionmotos.repository.index.IndexedMotocicletaRepository;
+import com.gestionmotos.repository.snapshot.SnapshotMotocicletaRepository;
 import com.gestionmotos.service.AuthService;
+import com.gestionmotos.service.ChangeFeed;
+import com.gestionmotos.service.EstadisticasInventario;
+import com.gestionmotos.service.ImportProgress;
+import com.gestionmotos.service.InventoryImportService;
+import com.gestionmotos.util.DatabaseConnection;
+import com.gestionmotos.service.MotocicletaValidator;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Properties;
 
 /**
  * Frame principal para la gestión de motocicletas.
@@ -17,21 +33,94 @@ import java.util.List;
 public class MainFrame extends JFrame {
     
     private final MotocicletaRepository motoRepository;
+    // Copia local del inventario para mostrar la tabla al instante y trabajar sin conexión;
+    // null si está desactivada
+    private final SnapshotMotocicletaRepository snapshotRepository;
+    private final QueryCachingMotocicletaRepository queryCacheRepository;
+    private final ColumnarMotocicletaRepository columnarRepository;
+    // Índice en memoria para las búsquedas por marca y color; null si está desactivado
+    private final IndexedMotocicletaRepository indexedRepository;
     private final AuthService authService;
+    // Trae los cambios hechos por otros clientes; null si está desactivado o sin conexión
+    private final ChangeFeed changeFeed;
+    // true si se abrió sin conexión con la base de datos, solo con la copia local del inventario
+    private final boolean offline;
     
     private JTable tableMoto;
-    private DefaultTableModel tableModel;
+    private MotocicletaTableModel tableModel;
     private JTextField txtId, txtMarca, txtCilindraje, txtPrecio, txtColor;
     private JButton btnGuardar, btnActualizar, btnEliminar, btnLimpiar, btnBuscar;
+    private StatusBar statusBar;
+    private EstadisticasPanel estadisticasPanel;
     
     /**
      * Constructor que configura los componentes de la ventana.
      */
     public MainFrame() {
-        motoRepository = new MotocicletaRepositoryImpl();
+        this(false);
+    }
+    
+    /**
+     * Constructor que configura los componentes de la ventana.
+     * @param offline true para abrir en modo de solo lectura con la copia local del inventario,
+     *                cuando no se puede conectar con la base de datos
+     */
+    public MainFrame(boolean offline) {
+        this(offline, null);
+    }
+    
+    /**
+     * Constructor que configura los componentes de la ventana.
+     * @param offline true para abrir en modo de solo lectura con la copia local del inventario,
+     *                cuando no se puede conectar con la base de datos
+     * @param registroLocal Registro local del inventario ya abierto (wal.enabled), en el que se
+     *                      guardan las motocicletas en lugar de la base de datos; null para usar
+     *                      la base de datos
+     */
+    public MainFrame(boolean offline, MotocicletaRepository registroLocal) {
+        this.offline = offline;
+        Properties config = DatabaseConnection.getInstance().getProperties();
+        MotocicletaRepository repository = registroLocal != null ? registroLocal : new MotocicletaRepositoryImpl();
+        if (registroLocal == null && Boolean.parseBoolean(config.getProperty("cache.entity.enabled", "true").trim())) {
+            repository = new CachingMotocicletaRepository(repository);
+        }
+        if (registroLocal == null
+                && (offline || Boolean.parseBoolean(config.getProperty("snapshot.enabled", "true").trim()))) {
+            snapshotRepository = new SnapshotMotocicletaRepository(repository,
+                    SnapshotMotocicletaRepository.defaultPath(), offline);
+            repository = snapshotRepository;
+        } else {
+            snapshotRepository = null;
+        }
+        // El registro local ya responde las consultas por rango desde su índice en memoria
+        if (registroLocal == null && Boolean.parseBoolean(config.getProperty("cache.columnar.enabled", "true").trim())) {
+            columnarRepository = new ColumnarMotocicletaRepository(repository);
+            repository = columnarRepository;
+        } else {
+            columnarRepository = null;
+        }
+        if (Boolean.parseBoolean(config.getProperty("search.index.enabled", "true").trim())) {
+            indexedRepository = new IndexedMotocicletaRepository(repository);
+            repository = indexedRepository;
+        } else {
+            indexedRepository = null;
+        }
+        // La caché de consultas va por encima de todo para que la alcancen todas las consultas,
+        // también mientras el almacén y el índice se construyen o si están desactivados.
+        // El registro local ya responde desde memoria: la caché no ahorra nada
+        if (registroLocal == null && Boolean.parseBoolean(config.getProperty("cache.query.enabled", "true").trim())) {
+            queryCacheRepository = new QueryCachingMotocicletaRepository(repository);
+            repository = queryCacheRepository;
+        } else {
+            queryCacheRepository = null;
+        }
+        motoRepository = repository;
         authService = AuthService.getInstance();
+        changeFeed = !offline && Boolean.parseBoolean(config.getProperty("changefeed.enabled", "true").trim())
+                ? new ChangeFeed(motoRepository)
+                : null;
         
-        if (!authService.isAuthenticated()) {
+        if (!offline && !authService.isAuthenticated()) {
             JOptionPane.showMessageDialog(this,
                     "Debe iniciar sesión para acceder al sistema",
                     "Error de autenticación",
@@ -41,15 +130,28 @@ public class MainFrame extends JFrame {
         
         initComponents();
         loadMotocicletas();
+        sincronizarInventario();
+        if (changeFeed != null) {
+            changeFeed.start(DatabaseConnection.getInstance().getIntProperty("changefeed.pollIntervalMs", 2000),
+                    this::aplicarCambios);
+        }
     }
     
     /**
      * Inicializa los componentes de la interfaz.
      */
     private void initComponents() {
-        setTitle("Sistema de Gestión de Motocicletas - Usuario: " + authService.getCurrentUser().getUsername());
+        setTitle("Sistema de Gestión de Motocicletas - " + (offline
+                ? "Sin conexión (solo lectura)"
+                : "Usuario: " + authService.getCurrentUser().getUsername()));
         setSize(1000, 700);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                guardarCopiaLocal();
+            }
+        });
         setLocationRelativeTo(null);
         
         // Panel contenedor principal con un BorderLayout global
@@ -170,21 +272,10 @@ public class MainFrame extends JFrame {
                 BorderFactory.createEmptyBorder(5, 5, 5, 5)
         ));
         
-        // Configuración de la tabla
-        String[] columnas = {"ID", "Marca", "Cilindraje", "Precio", "Color"};
-        tableModel = new DefaultTableModel(columnas, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-            
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                if (columnIndex == 0 || columnIndex == 2) return Integer.class;
-                if (columnIndex == 3) return Double.class;
-                return String.class;
-            }
-        };
+        // Configuración de la tabla: el modelo carga las páginas bajo demanda
+        tableModel = new MotocicletaTableModel(motoRepository,
+                DatabaseConnection.getInstance().getIntProperty("ui.table.pageSize", 100),
+                DatabaseConnection.getInstance().getIntProperty("ui.table.maxCachedPages", 50));
         
         tableMoto = new JTable(tableModel);
         tableMoto.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -209,12 +300,28 @@ public class MainFrame extends JFrame {
         // Agregar la tabla a un JScrollPane para permitir el desplazamiento
         JScrollPane scrollPane = new JScrollPane(tableMoto);
         scrollPane.setPreferredSize(new Dimension(800, 350));
+        
+        // Al desplazarse, pedir por adelantado las páginas visibles y la siguiente
+        scrollPane.getViewport().addChangeListener(e -> {
+            Rectangle visible = scrollPane.getViewport().getViewRect();
+            int first = tableMoto.rowAtPoint(visible.getLocation());
+            int last = tableMoto.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+            if (first >= 0) {
+                int visibleRows = (last >= 0 ? last : tableModel.getRowCount() - 1) - first + 1;
+                tableModel.prefetch(first, first + 2 * visibleRows);
+            }
+        });
         tablePanel.add(scrollPane, BorderLayout.CENTER);
         
         // ===== Menú =====
         JMenuBar menuBar = new JMenuBar();
         
         JMenu menuArchivo = new JMenu("Archivo");
+        JMenuItem menuImportar = new JMenuItem("Importar inventario...");
+        menuImportar.addActionListener(e -> importarInventario());
+        menuArchivo.add(menuImportar);
+        menuImportar.setEnabled(!offline);
+        menuArchivo.addSeparator();
         JMenuItem menuSalir = new JMenuItem("Salir");
         menuSalir.addActionListener(e -> System.exit(0));
         menuArchivo.add(menuSalir);
@@ -228,45 +335,262 @@ public class MainFrame extends JFrame {
         menuBar.add(menuUsuario);
         setJMenuBar(menuBar);
         
+        // Barra de estado para las operaciones en segundo plano
+        statusBar = new StatusBar();
+        
+        // ===== Pestañas con la tabla y las estadísticas =====
+        estadisticasPanel = new EstadisticasPanel(new EstadisticasInventario(motoRepository), statusBar);
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Motocicletas", tablePanel);
+        tabs.addTab("Estadísticas", estadisticasPanel);
+        // Las estadísticas se calculan la primera vez que se abre su pestaña
+        tabs.addChangeListener(e -> {
+            if (tabs.getSelectedComponent() == estadisticasPanel) {
+                estadisticasPanel.mostrar();
+            }
+        });
+        
         // ===== Añadir componentes al panel principal =====
         contentPane.add(formPanel, BorderLayout.NORTH);
         contentPane.add(buttonPanel, BorderLayout.CENTER);
-        contentPane.add(tablePanel, BorderLayout.SOUTH);
+        contentPane.add(tabs, BorderLayout.SOUTH);
+        
+        JPanel rootPanel = new JPanel(new BorderLayout());
+        rootPanel.add(contentPane, BorderLayout.CENTER);
+        rootPanel.add(statusBar, BorderLayout.SOUTH);
         
         // Establecer el panel principal
-        setContentPane(contentPane);
+        setContentPane(rootPanel);
+        
+        if (offline) {
+            btnGuardar.setEnabled(false);
+            btnActualizar.setEnabled(false);
+            btnEliminar.setEnabled(false);
+            statusBar.setMensaje("Sin conexión: se muestra la copia local del inventario");
+        }
     }
     
     /**
-     * Carga las motocicletas desde la base de datos a la tabla.
+     * Carga las motocicletas desde la base de datos a la tabla en segundo plano.
+     * Solo se leen los IDs; las filas se cargan por páginas a medida que se muestran.
+     * Reemplaza a una búsqueda en curso, cuyo resultado ya no se mostraría.
      */
     private void loadMotocicletas() {
-        tableModel.setRowCount(0);
-        
-        List<Motocicleta> motos = motoRepository.findAll();
-        
-        for (Motocicleta moto : motos) {
-            Object[] row = {
-                moto.getId(),
-                moto.getMarca(),
-                moto.getCilindraje(),
-                moto.getPrecio(),
-                moto.getColor()
-            };
-            tableModel.addRow(row);
+        statusBar.runCancellable("Cargando motocicletas...",
+                () -> {
+                    iniciarCambios();
+                    return motoRepository.findAllIds();
+                },
+                tableModel::showIds,
+                ex -> mostrarError("Error al cargar las motocicletas", ex));
+    }
+    
+    /**
+     * Sincroniza en segundo plano la copia local del inventario con la base de datos y después
+     * construye los índices. Mientras tanto la tabla se dibuja desde la copia local.
+     */
+    private void sincronizarInventario() {
+        if (snapshotRepository == null || offline) {
+            construirIndice();
+            return;
+        }
+        statusBar.run("Sincronizando inventario...",
+                snapshotRepository::reconcile,
+                resultado -> {
+                    statusBar.setMensaje(resultado.toString());
+                    // La tabla y las estadísticas pasan a leer de la base de datos
+                    estadisticasPanel.marcarDesactualizada();
+                    loadMotocicletas();
+                    construirIndice();
+                },
+                ex -> {
+                    System.err.println("Error al sincronizar el inventario: " + ex.getMessage());
+                    statusBar.setMensaje("No se pudo sincronizar el inventario: se muestra la copia local");
+                    construirIndice();
+                });
+    }
+    
+    /**
+     * Carga en segundo plano el almacén columnar y el índice de búsqueda por marca.
+     * Hasta que terminan, las consultas se hacen en la base de datos.
+     */
+    private void construirIndice() {
+        if (columnarRepository == null && indexedRepository == null) {
+            return;
+        }
+        statusBar.run("Indexando inventario...",
+                () -> {
+                    iniciarCambios();
+                    int filas = 0;
+                    if (columnarRepository != null) {
+                        filas = columnarRepository.rebuild();
+                    }
+                    if (indexedRepository != null) {
+                        filas = indexedRepository.rebuild();
+                    }
+                    return filas;
+                },
+                filas -> {
+                    // Los resultados guardados antes de cargar los datos nuevos pueden no coincidir con ellos
+                    if (queryCacheRepository != null) {
+                        queryCacheRepository.invalidateAll();
+                    }
+                    statusBar.setMensaje("Índice de búsqueda listo (" + filas + " motocicletas)");
+                },
+                ex -> System.err.println("Error al construir el índice de búsqueda: " + ex.getMessage()));
+    }
+    
+    /**
+     * Sitúa el registro de cambios antes de leer datos de la base de datos, para que
+     * los cambios posteriores a la lectura lleguen con {@link #aplicarCambios}.
+     * Se llama desde las tareas en segundo plano.
+     */
+    private void iniciarCambios() {
+        if (changeFeed != null) {
+            changeFeed.iniciar();
         }
     }
     
+    /**
+     * Aplica los cambios hechos por otros clientes al almacén columnar, al índice de búsqueda
+     * y a la tabla. Se llama desde el hilo del registro de cambios.
+     * @param cambios Los cambios combinados
+     */
+    private void aplicarCambios(ChangeFeed.Cambios cambios) {
+        if (cambios.isRecargar()) {
+            if (queryCacheRepository != null) {
+                queryCacheRepository.invalidateAll();
+            }
+            estadisticasPanel.marcarDesactualizada();
+            SwingUtilities.invokeLater(() -> {
+                loadMotocicletas();
+                construirIndice();
+                rehacerCopiaLocal();
+            });
+            return;
+        }
+        // Las estadísticas necesitan los datos anteriores, que se leen antes de actualizar el almacén
+        boolean anterioresConocidos = columnarRepository != null && columnarRepository.isReady();
+        if (!anterioresConocidos) {
+            estadisticasPanel.marcarDesactualizada();
+        }
+        if (anterioresConocidos) {
+            for (Integer id : cambios.getEliminadas()) {
+                Motocicleta anterior = columnarRepository.get(id);
+                if (anterior != null) {
+                    estadisticasPanel.aplicarCambio(anterior, null);
+                }
+            }
+            for (Motocicleta moto : cambios.getActualizadas()) {
+                estadisticasPanel.aplicarCambio(columnarRepository.get(moto.getId()), moto);
+            }
+        }
+        // El almacén y el índice aplican cada lote de una vez
+        if (columnarRepository != null) {
+            columnarRepository.removeAll(cambios.getEliminadas());
+            columnarRepository.upsertAll(cambios.getActualizadas());
+        }
+        if (indexedRepository != null) {
+            indexedRepository.removeAll(cambios.getEliminadas());
+            indexedRepository.upsertAll(cambios.getActualizadas());
+        }
+        // La caché se invalida después, para que no vuelva a guardar lo que aún tenían el almacén y el índice
+        if (queryCacheRepository != null) {
+            for (Integer id : cambios.getEliminadas()) {
+                queryCacheRepository.remove(id);
+            }
+            for (Motocicleta moto : cambios.getActualizadas()) {
+                queryCacheRepository.upsert(moto);
+            }
+        }
+        if (snapshotRepository != null) {
+            snapshotRepository.registrarCambios(cambios.getActualizadas(), cambios.getEliminadas());
+            try {
+                snapshotRepository.guardarCambios(false);
+            } catch (IOException e) {
+                System.err.println("Error al actualizar la copia del inventario: " + e.getMessage());
+            }
+        }
+        SwingUtilities.invokeLater(() -> tableModel.applyChanges(cambios.getActualizadas(), cambios.getEliminadas()));
+    }
+    
+    /**
+     * Rehace en segundo plano la copia local del inventario, cuando llegan demasiados cambios
+     * de otros clientes para aplicarlos uno a uno.
+     */
+    private void rehacerCopiaLocal() {
+        if (snapshotRepository == null || offline) {
+            return;
+        }
+        statusBar.run("Actualizando la copia local...",
+                snapshotRepository::rehacer,
+                total -> statusBar.setMensaje("Copia local actualizada (" + total + " motocicletas)"),
+                ex -> System.err.println("Error al rehacer la copia del inventario: " + ex.getMessage()));
+    }
+    
+    /**
+     * Escribe en la copia local los cambios que aún no se habían guardado en ella.
+     * Se llama al cerrar la ventana o la sesión.
+     */
+    private void guardarCopiaLocal() {
+        if (snapshotRepository == null) {
+            return;
+        }
+        try {
+            snapshotRepository.guardarCambios(true);
+        } catch (IOException e) {
+            System.err.println("Error al guardar la copia del inventario: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Busca los datos actuales de una motocicleta, para restarlos de las estadísticas antes
+     * de cambiarla: primero en el almacén columnar, después en la fila seleccionada y si no
+     * con {@code findById}, que suele responder la caché de motocicletas. Se llama desde las
+     * tareas en segundo plano.
+     * @param id ID de la motocicleta
+     * @param seleccionada La fila seleccionada en la tabla, o null
+     * @return Los datos, o null si no se conocen
+     */
+    private Motocicleta filaEnMemoria(int id, Motocicleta seleccionada) {
+        Motocicleta moto = columnarRepository != null ? columnarRepository.get(id) : null;
+        if (moto == null && seleccionada != null && seleccionada.getId() == id) {
+            moto = seleccionada;
+        }
+        if (moto == null) {
+            moto = motoRepository.findById(id).orElse(null);
+        }
+        return moto;
+    }
+    
+    /**
+     * Muestra un mensaje de error de una operación en segundo plano.
+     * @param mensaje Descripción de la operación que falló
+     * @param ex El error
+     */
+    private void mostrarError(String mensaje, Exception ex) {
+        JOptionPane.showMessageDialog(this,
+                mensaje + ": " + ex.getMessage(),
+                "Error",
+                JOptionPane.ERROR_MESSAGE);
+    }
+    
     /**
      * Muestra los datos de la motocicleta seleccionada en el formulario.
      * @param row Índice de la fila seleccionada
      */
     private void mostrarMotocicletaSeleccionada(int row) {
-        txtId.setText(tableMoto.getValueAt(row, 0).toString());
-        txtMarca.setText(tableMoto.getValueAt(row, 1).toString());
-        txtCilindraje.setText(tableMoto.getValueAt(row, 2).toString());
-        txtPrecio.setText(tableMoto.getValueAt(row, 3).toString());
-        txtColor.setText(tableMoto.getValueAt(row, 4).toString());
+        Motocicleta moto = tableModel.getMotocicletaAt(row);
+        if (moto == null) {
+            // La página de la fila todavía se está cargando
+            return;
+        }
+        txtId.setText(String.valueOf(moto.getId()));
+        txtMarca.setText(moto.getMarca());
+        txtCilindraje.setText(String.valueOf(moto.getCilindraje()));
+        txtPrecio.setText(String.valueOf(moto.getPrecio()));
+        txtColor.setText(moto.getColor());
     }
     
     /**
@@ -297,15 +621,35 @@ public class MainFrame extends JFrame {
             String color = txtColor.getText();
             
             Motocicleta moto = new Motocicleta(marca, cilindraje, precio, color);
-            motoRepository.save(moto);
-            
-            JOptionPane.showMessageDialog(this,
-                    "Motocicleta guardada correctamente",
-                    "Operación exitosa",
-                    JOptionPane.INFORMATION_MESSAGE);
             
-            limpiarFormulario();
-            loadMotocicletas();
+            statusBar.run("Guardando motocicleta...",
+                    () -> {
+                        Motocicleta guardada = motoRepository.save(moto);
+                        if (guardada.getId() != 0) {
+                            estadisticasPanel.aplicarCambio(null, guardada);
+                        }
+                        return guardada;
+                    },
+                    guardada -> {
+                        // El repositorio deja el ID en 0 si no pudo insertar la fila
+                        if (guardada.getId() == 0) {
+                            JOptionPane.showMessageDialog(this,
+                                    "No se pudo guardar la motocicleta",
+                                    "Error",
+                                    JOptionPane.ERROR_MESSAGE);
+                            return;
+                        }
+                        JOptionPane.showMessageDialog(this,
+                                "Motocicleta guardada correctamente",
+                                "Operación exitosa",
+                                JOptionPane.INFORMATION_MESSAGE);
+                        
+                        // Solo se añade la fila nueva; la tabla no se vuelve a cargar
+                        tableModel.insertRow(guardada);
+                        limpiarFormulario();
+                    },
+                    ex -> mostrarError("Error al guardar", ex),
+                    btnGuardar, btnActualizar, btnEliminar);
             
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this,
@@ -345,21 +689,41 @@ public class MainFrame extends JFrame {
             String color = txtColor.getText();
             
             Motocicleta moto = new Motocicleta(id, marca, cilindraje, precio, color);
+            Motocicleta seleccionada = tableMoto.getSelectedRow() >= 0
+                    ? tableModel.getMotocicletaAt(tableMoto.getSelectedRow())
+                    : null;
             
-            if (motoRepository.update(moto)) {
-                JOptionPane.showMessageDialog(this,
-                        "Motocicleta actualizada correctamente",
-                        "Operación exitosa",
-                        JOptionPane.INFORMATION_MESSAGE);
-                
-                limpiarFormulario();
-                loadMotocicletas();
-            } else {
-                JOptionPane.showMessageDialog(this,
-                        "No se pudo actualizar la motocicleta",
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE);
-            }
+            statusBar.run("Actualizando motocicleta...",
+                    () -> {
+                        Motocicleta anterior = filaEnMemoria(id, seleccionada);
+                        boolean actualizada = motoRepository.update(moto);
+                        if (actualizada) {
+                            if (anterior != null) {
+                                estadisticasPanel.aplicarCambio(anterior, moto);
+                            } else {
+                                estadisticasPanel.marcarDesactualizada();
+                            }
+                        }
+                        return actualizada;
+                    },
+                    actualizada -> {
+                        if (actualizada) {
+                            JOptionPane.showMessageDialog(this,
+                                    "Motocicleta actualizada correctamente",
+                                    "Operación exitosa",
+                                    JOptionPane.INFORMATION_MESSAGE);
+                            
+                            // La fila sigue seleccionada y el formulario ya muestra sus datos
+                            tableModel.replaceRow(moto);
+                        } else {
+                            JOptionPane.showMessageDialog(this,
+                                    "No se pudo actualizar la motocicleta",
+                                    "Error",
+                                    JOptionPane.ERROR_MESSAGE);
+                        }
+                    },
+                    ex -> mostrarError("Error al actualizar", ex),
+                    btnGuardar, btnActualizar, btnEliminar);
             
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this,
@@ -396,20 +760,40 @@ public class MainFrame extends JFrame {
                     JOptionPane.YES_NO_OPTION);
             
             if (confirmacion == JOptionPane.YES_OPTION) {
-                if (motoRepository.deleteById(id)) {
-                    JOptionPane.showMessageDialog(this,
-                            "Motocicleta eliminada correctamente",
-                            "Operación exitosa",
-                            JOptionPane.INFORMATION_MESSAGE);
-                    
-                    limpiarFormulario();
-                    loadMotocicletas();
-                } else {
-                    JOptionPane.showMessageDialog(this,
-                            "No se pudo eliminar la motocicleta",
-                            "Error",
-                            JOptionPane.ERROR_MESSAGE);
-                }
+                Motocicleta seleccionada = tableMoto.getSelectedRow() >= 0
+                        ? tableModel.getMotocicletaAt(tableMoto.getSelectedRow())
+                        : null;
+                statusBar.run("Eliminando motocicleta...",
+                        () -> {
+                            Motocicleta anterior = filaEnMemoria(id, seleccionada);
+                            boolean eliminada = motoRepository.deleteById(id);
+                            if (eliminada) {
+                                if (anterior != null) {
+                                    estadisticasPanel.aplicarCambio(anterior, null);
+                                } else {
+                                    estadisticasPanel.marcarDesactualizada();
+                                }
+                            }
+                            return eliminada;
+                        },
+                        eliminada -> {
+                            if (eliminada) {
+                                JOptionPane.showMessageDialog(this,
+                                        "Motocicleta eliminada correctamente",
+                                        "Operación exitosa",
+                                        JOptionPane.INFORMATION_MESSAGE);
+                                
+                                tableModel.removeRow(id);
+                                limpiarFormulario();
+                            } else {
+                                JOptionPane.showMessageDialog(this,
+                                        "No se pudo eliminar la motocicleta",
+                                        "Error",
+                                        JOptionPane.ERROR_MESSAGE);
+                            }
+                        },
+                        ex -> mostrarError("Error al eliminar", ex),
+                        btnGuardar, btnActualizar, btnEliminar);
             }
             
         } catch (Exception ex) {
@@ -426,125 +810,253 @@ public class MainFrame extends JFrame {
      */
     private void onBuscarClicked(ActionEvent e) {
         String busqueda = JOptionPane.showInputDialog(this,
-                "Ingrese la marca a buscar:",
+                "Ingrese la marca a buscar o una combinación de filtros,\n"
+                        + "por ejemplo: marca:honda color:rojo precio<8000 cc:150..600 orden:-precio limite:20",
                 "Buscar motocicleta",
                 JOptionPane.QUESTION_MESSAGE);
         
-        if (busqueda != null && !busqueda.trim().isEmpty()) {
-            tableModel.setRowCount(0);
-            
-            List<Motocicleta> motos = motoRepository.findByMarca(busqueda);
-            
-            if (motos.isEmpty()) {
-                JOptionPane.showMessageDialog(this,
-                        "No se encontraron motocicletas con la marca: " + busqueda,
-                        "Búsqueda sin resultados",
-                        JOptionPane.INFORMATION_MESSAGE);
-                loadMotocicletas();
-            } else {
-                for (Motocicleta moto : motos) {
-                    Object[] row = {
-                        moto.getId(),
-                        moto.getMarca(),
-                        moto.getCilindraje(),
-                        moto.getPrecio(),
-                        moto.getColor()
-                    };
-                    tableModel.addRow(row);
-                }
-            }
-        } else if (busqueda != null) {
+        if (busqueda == null) {
+            return;
+        }
+        if (busqueda.trim().isEmpty()) {
             loadMotocicletas();
+            return;
+        }
+        
+        MotocicletaCriteria criteria;
+        try {
+            criteria = MotocicletaCriteria.parse(busqueda);
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this,
+                    ex.getMessage(),
+                    "Búsqueda no válida",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        
+        // Una búsqueda nueva cancela la anterior si aún no ha terminado
+        if (criteria.isSoloMarca()) {
+            String marca = criteria.getMarca();
+            statusBar.runCancellable("Buscando \"" + marca + "\"...",
+                    () -> buscarPorMarca(marca),
+                    resultado -> mostrarResultadoBusqueda(marca, resultado),
+                    ex -> mostrarError("Error al buscar", ex));
+        } else {
+            statusBar.runCancellable("Buscando " + criteria + "...",
+                    () -> motoRepository.findByCriteria(criteria),
+                    motos -> mostrarResultadoCriterios(criteria, motos),
+                    ex -> mostrarError("Error al buscar", ex));
         }
     }
     
     /**
-     * Valida los campos del formulario.
-     * @return true si los datos son válidos, false en caso contrario
+     * Muestra en la tabla el resultado de una búsqueda con varios criterios.
+     * @param criteria Los criterios de la búsqueda
+     * @param motos Las motocicletas encontradas
      */
-    private boolean validarFormulario() {
-        if (txtMarca.getText().trim().isEmpty()) {
+    private void mostrarResultadoCriterios(MotocicletaCriteria criteria, List<Motocicleta> motos) {
+        if (motos.isEmpty()) {
             JOptionPane.showMessageDialog(this,
-                    "La marca es obligatoria",
-                    "Error de validación",
-                    JOptionPane.WARNING_MESSAGE);
-            txtMarca.requestFocus();
-            return false;
+                    "No se encontraron motocicletas con: " + criteria,
+                    "Búsqueda sin resultados",
+                    JOptionPane.INFORMATION_MESSAGE);
+            loadMotocicletas();
+            return;
         }
         
-        if (txtCilindraje.getText().trim().isEmpty()) {
+        tableModel.showRows(motos);
+        statusBar.setMensaje(motos.size() + " resultados para " + criteria);
+    }
+    
+    /**
+     * Busca por marca; si no hay resultados, repite la búsqueda tolerando errores de escritura.
+     * Se ejecuta en segundo plano.
+     * @param busqueda Texto de la búsqueda
+     * @return Las motocicletas encontradas
+     */
+    private ResultadoBusqueda buscarPorMarca(String busqueda) {
+        List<Motocicleta> motos = motoRepository.findByMarca(busqueda);
+        if (!motos.isEmpty()) {
+            return new ResultadoBusqueda(motos, false);
+        }
+        // Una o dos letras de diferencia según la longitud, para no sugerir marcas muy distintas
+        int maxDistance = Math.min(
+                DatabaseConnection.getInstance().getIntProperty("search.fuzzy.maxDistance", 2),
+                Math.max(1, busqueda.trim().length() / 3));
+        return new ResultadoBusqueda(motoRepository.findByMarcaFuzzy(busqueda, maxDistance), true);
+    }
+    
+    /**
+     * Muestra en la tabla el resultado de una búsqueda por marca.
+     * Si solo hubo resultados aproximados, pregunta antes si se refería a la marca más parecida.
+     * @param busqueda Texto de la búsqueda
+     * @param resultado Las motocicletas encontradas
+     */
+    private void mostrarResultadoBusqueda(String busqueda, ResultadoBusqueda resultado) {
+        List<Motocicleta> motos = resultado.motos;
+        if (motos.isEmpty()) {
             JOptionPane.showMessageDialog(this,
-                    "El cilindraje es obligatorio",
-                    "Error de validación",
-                    JOptionPane.WARNING_MESSAGE);
-            txtCilindraje.requestFocus();
-            return false;
+                    "No se encontraron motocicletas con la marca: " + busqueda,
+                    "Búsqueda sin resultados",
+                    JOptionPane.INFORMATION_MESSAGE);
+            loadMotocicletas();
+            return;
         }
         
-        try {
-            int cilindraje = Integer.parseInt(txtCilindraje.getText().trim());
-            if (cilindraje <= 0) {
-                JOptionPane.showMessageDialog(this,
-                        "El cilindraje debe ser un número positivo",
-                        "Error de validación",
-                        JOptionPane.WARNING_MESSAGE);
-                txtCilindraje.requestFocus();
-                return false;
+        if (resultado.aproximada) {
+            int respuesta = JOptionPane.showConfirmDialog(this,
+                    "No se encontraron motocicletas con la marca: " + busqueda
+                            + "\n¿Quiso decir \"" + motos.get(0).getMarca() + "\"?",
+                    "Búsqueda sin resultados",
+                    JOptionPane.YES_NO_OPTION);
+            if (respuesta != JOptionPane.YES_OPTION) {
+                loadMotocicletas();
+                return;
             }
-        } catch (NumberFormatException e) {
-            JOptionPane.showMessageDialog(this,
-                    "El cilindraje debe ser un número entero",
-                    "Error de validación",
-                    JOptionPane.WARNING_MESSAGE);
-            txtCilindraje.requestFocus();
-            return false;
         }
         
-        if (txtPrecio.getText().trim().isEmpty()) {
-            JOptionPane.showMessageDialog(this,
-                    "El precio es obligatorio",
-                    "Error de validación",
-                    JOptionPane.WARNING_MESSAGE);
-            txtPrecio.requestFocus();
-            return false;
+        tableModel.showRows(motos);
+        statusBar.setMensaje(motos.size() + (resultado.aproximada ? " resultados aproximados para \"" : " resultados para \"")
+                + busqueda + "\"");
+    }
+    
+    /**
+     * Resultado de una búsqueda por marca.
+     */
+    private static final class ResultadoBusqueda {
+        final List<Motocicleta> motos;
+        // true si no hubo coincidencias exactas y se buscó tolerando errores de escritura
+        final boolean aproximada;
+        
+        ResultadoBusqueda(List<Motocicleta> motos, boolean aproximada) {
+            this.motos = motos;
+            this.aproximada = aproximada;
         }
+    }
+    
+    /**
+     * Valida los campos del formulario.
+     * @return true si los datos son válidos, false en caso contrario
+     */
+    private boolean validarFormulario() {
+        MotocicletaValidator.ValidationError error = MotocicletaValidator.validar(
+                txtMarca.getText(),
+                txtCilindraje.getText(),
+                txtPrecio.getText(),
+                txtColor.getText());
         
-        try {
-            double precio = Double.parseDouble(txtPrecio.getText().trim());
-            if (precio <= 0) {
-                JOptionPane.showMessageDialog(this,
-                        "El precio debe ser un número positivo",
-                        "Error de validación",
-                        JOptionPane.WARNING_MESSAGE);
-                txtPrecio.requestFocus();
-                return false;
-            }
-        } catch (NumberFormatException e) {
-            JOptionPane.showMessageDialog(this,
-                    "El precio debe ser un número decimal",
-                    "Error de validación",
-                    JOptionPane.WARNING_MESSAGE);
-            txtPrecio.requestFocus();
-            return false;
+        if (error == null) {
+            return true;
         }
         
-        if (txtColor.getText().trim().isEmpty()) {
-            JOptionPane.showMessageDialog(this,
-                    "El color es obligatorio",
-                    "Error de validación",
-                    JOptionPane.WARNING_MESSAGE);
-            txtColor.requestFocus();
-            return false;
+        JOptionPane.showMessageDialog(this,
+                error.getMensaje(),
+                "Error de validación",
+                JOptionPane.WARNING_MESSAGE);
+        
+        switch (error.getCampo()) {
+            case MARCA:
+                txtMarca.requestFocus();
+                break;
+            case CILINDRAJE:
+                txtCilindraje.requestFocus();
+                break;
+            case PRECIO:
+                txtPrecio.requestFocus();
+                break;
+            default:
+                txtColor.requestFocus();
+                break;
+        }
+        return false;
+    }
+    
+    /**
+     * Importa un archivo CSV o NDJSON de inventario en segundo plano mostrando el progreso.
+     * Las filas rechazadas se escriben junto al archivo con el sufijo ".rechazos.tsv".
+     */
+    private void importarInventario() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Importar inventario (CSV o NDJSON)");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
         
-        return true;
+        Path archivo = chooser.getSelectedFile().toPath();
+        Path rechazos = archivo.resolveSibling(archivo.getFileName() + ".rechazos.tsv");
+        InventoryImportService importService = new InventoryImportService(motoRepository);
+        ProgressMonitor monitor = new ProgressMonitor(this,
+                "Importando " + archivo.getFileName(), "", 0, 100);
+        monitor.setMillisToDecideToPopup(0);
+        
+        SwingWorker<ImportProgress, ImportProgress> worker = new SwingWorker<ImportProgress, ImportProgress>() {
+            @Override
+            protected ImportProgress doInBackground() throws Exception {
+                return importService.importar(archivo,
+                        InventoryImportService.Formato.fromFileName(archivo.getFileName().toString()),
+                        rechazos,
+                        this::publish);
+            }
+            
+            @Override
+            protected void process(List<ImportProgress> avisos) {
+                ImportProgress ultimo = avisos.get(avisos.size() - 1);
+                if (monitor.isCanceled()) {
+                    importService.cancelar();
+                }
+                monitor.setProgress(ultimo.getPorcentaje());
+                monitor.setNote(String.format("%d guardadas, %d rechazadas (%.0f filas/s)",
+                        ultimo.getGuardadas(), ultimo.getRechazadas(), ultimo.getFilasPorSegundo()));
+            }
+            
+            @Override
+            protected void done() {
+                monitor.close();
+                try {
+                    ImportProgress resumen = get();
+                    JOptionPane.showMessageDialog(MainFrame.this,
+                            String.format("%s%nFilas leídas: %d%nGuardadas: %d%nRechazadas: %d%nTiempo: %.1f s",
+                                    resumen.isCancelado() ? "Importación cancelada" : "Importación terminada",
+                                    resumen.getLineasLeidas(),
+                                    resumen.getGuardadas(),
+                                    resumen.getRechazadas(),
+                                    resumen.getElapsedMillis() / 1000.0)
+                                    + (resumen.getRechazadas() > 0 ? "\nRechazos en: " + rechazos : ""),
+                            "Importar inventario",
+                            JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    Throwable causa = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(MainFrame.this,
+                            "Error al importar: " + causa.getMessage(),
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+                estadisticasPanel.marcarDesactualizada();
+                loadMotocicletas();
+                // La copia local recibe las filas importadas de una vez, sin esperar al intervalo
+                if (snapshotRepository != null) {
+                    statusBar.run("Guardando la copia local...",
+                            () -> snapshotRepository.guardarCambios(true),
+                            escritos -> { },
+                            ex -> System.err.println("Error al actualizar la copia del inventario: "
+                                    + ex.getMessage()));
+                }
+            }
+        };
+        worker.execute();
     }
     
     /**
      * Cierra la sesión actual y vuelve a la pantalla de login.
      */
     private void cerrarSesion() {
+        statusBar.cancelarBusqueda();
+        if (changeFeed != null) {
+            changeFeed.stop();
+        }
+        guardarCopiaLocal();
         authService.logout();
+        tableModel.dispose();
         dispose();
         new LoginFrame().setVisible(true);
     }
@@ -0,0 +1,466 @@
+package com.gestionmotos.ui;
+
+import com.gestionmotos.model.Motocicleta;
+import com.gestionmotos.repository.MotocicletaRepository;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Modelo de tabla virtual para las motocicletas.
+ * <p>
+ * Solo mantiene en memoria los IDs de todas las filas (para conocer el total y ubicar
+ * cada posición) y un número acotado de páginas de motocicletas en una caché LRU.
+ * Las páginas se cargan en segundo plano cuando la tabla pide una fila que no está
+ * cargada; mientras tanto la fila muestra un texto provisional.
+ * <p>
+ * Las altas, cambios y bajas hechas desde la aplicación se aplican fila a fila con
+ * {@link #insertRow}, {@link #replaceRow} y {@link #removeRow}, sin volver a consultar
+ * la tabla completa, de modo que la selección y el desplazamiento se conservan.
+ * <p>
+ * Todos los métodos públicos deben llamarse desde el hilo de eventos de Swing.
+ */
+public class MotocicletaTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNAS = {"ID", "Marca", "Cilindraje", "Precio", "Color"};
+    private static final String CARGANDO = "Cargando...";
+    private static final String NO_DISPONIBLE = "(no disponible)";
+
+    // Marca las filas cuyo ID ya no existe en la base de datos al cargar la página
+    private static final Motocicleta FALTANTE = new Motocicleta(0, NO_DISPONIBLE, 0, 0, "");
+
+    private final MotocicletaRepository repository;
+    private final int pageSize;
+    private final int maxCachedPages;
+    private final ExecutorService loader;
+
+    // IDs de todas las filas en el orden de la tabla
+    private int[] ids = new int[0];
+    private int rowCount;
+
+    // Filas fijas (resultado de una búsqueda); null cuando se muestra la tabla completa
+    private List<Motocicleta> fixedRows;
+
+    // Páginas cargadas, de la menos a la más usada recientemente
+    private final LinkedHashMap<Integer, Motocicleta[]> pages;
+    private final Set<Integer> pendingPages = new HashSet<>();
+
+    // Se incrementa en cada recarga para descartar páginas pedidas antes de ella
+    private int generation;
+
+    // Se incrementa cada vez que cambian las posiciones de las filas, para descartar
+    // las páginas pedidas con la disposición anterior
+    private int layout;
+
+    /**
+     * Crea el modelo.
+     * @param repository Repositorio del que se leen las páginas
+     * @param pageSize Filas por página
+     * @param maxCachedPages Número máximo de páginas en memoria
+     */
+    public MotocicletaTableModel(MotocicletaRepository repository, int pageSize, int maxCachedPages) {
+        this.repository = repository;
+        this.pageSize = Math.max(1, pageSize);
+        this.maxCachedPages = Math.max(2, maxCachedPages);
+        this.pages = new LinkedHashMap<Integer, Motocicleta[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Motocicleta[]> eldest) {
+                return size() > MotocicletaTableModel.this.maxCachedPages;
+            }
+        };
+        this.loader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "tabla-motocicletas-loader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Vuelve a cargar la lista de IDs desde la base de datos y descarta las páginas en memoria.
+     * La tabla conserva las filas actuales hasta que llega la nueva lista.
+     */
+    public void reload() {
+        int requested = ++generation;
+        loader.execute(() -> {
+            int[] nuevosIds = repository.findAllIds();
+            SwingUtilities.invokeLater(() -> {
+                if (requested == generation) {
+                    showIds(nuevosIds);
+                }
+            });
+        });
+    }
+
+    /**
+     * Muestra la tabla completa a partir de una lista de IDs ya leída de la base de datos
+     * (por ejemplo, con {@link MotocicletaRepository#findAllIds()} en una tarea en segundo plano)
+     * y descarta las páginas en memoria.
+     * @param nuevosIds IDs de todas las filas, en orden ascendente
+     */
+    public void showIds(int[] nuevosIds) {
+        generation++;
+        layout++;
+        fixedRows = null;
+        ids = nuevosIds;
+        rowCount = nuevosIds.length;
+        pages.clear();
+        pendingPages.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Muestra una lista fija de motocicletas (por ejemplo, el resultado de una búsqueda)
+     * en lugar de la tabla completa. {@link #reload()} vuelve a la tabla completa.
+     * @param motos Las motocicletas a mostrar
+     */
+    public void showRows(List<Motocicleta> motos) {
+        generation++;
+        layout++;
+        // Copia propia para poder añadir y quitar filas
+        fixedRows = new ArrayList<>(motos);
+        ids = new int[0];
+        rowCount = motos.size();
+        pages.clear();
+        pendingPages.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Añade una motocicleta recién guardada en la posición que le corresponde por su ID.
+     * Si se muestra el resultado de una búsqueda, se añade al final para que siga a la vista.
+     * Si el ID ya está en la tabla, reemplaza su fila.
+     * @param moto La motocicleta guardada, con su ID
+     */
+    public void insertRow(Motocicleta moto) {
+        if (fixedRows != null) {
+            int row = indexOfFixed(moto.getId());
+            if (row >= 0) {
+                fixedRows.set(row, moto);
+                fireTableRowsUpdated(row, row);
+                return;
+            }
+            fixedRows.add(moto);
+            rowCount = fixedRows.size();
+            fireTableRowsInserted(rowCount - 1, rowCount - 1);
+            return;
+        }
+
+        int pos = Arrays.binarySearch(ids, 0, rowCount, moto.getId());
+        if (pos >= 0) {
+            replaceRow(moto);
+            return;
+        }
+        int row = -pos - 1;
+        if (rowCount == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(16, rowCount + (rowCount >> 1)));
+        }
+        System.arraycopy(ids, row, ids, row + 1, rowCount - row);
+        ids[row] = moto.getId();
+        rowCount++;
+        shiftPages(row, moto);
+        fireTableRowsInserted(row, row);
+    }
+
+    /**
+     * Reemplaza la fila de una motocicleta actualizada, si está en la tabla.
+     * La fila conserva su posición.
+     * @param moto La motocicleta con sus datos actuales
+     */
+    public void replaceRow(Motocicleta moto) {
+        if (fixedRows != null) {
+            int row = indexOfFixed(moto.getId());
+            if (row >= 0) {
+                fixedRows.set(row, moto);
+                fireTableRowsUpdated(row, row);
+            }
+            return;
+        }
+
+        int row = Arrays.binarySearch(ids, 0, rowCount, moto.getId());
+        if (row < 0) {
+            return;
+        }
+        Motocicleta[] content = pages.get(row / pageSize);
+        if (content != null) {
+            content[row % pageSize] = moto;
+        }
+        fireTableRowsUpdated(row, row);
+    }
+
+    /**
+     * Quita la fila de una motocicleta eliminada, si está en la tabla.
+     * @param id ID de la motocicleta
+     */
+    public void removeRow(int id) {
+        if (fixedRows != null) {
+            int row = indexOfFixed(id);
+            if (row >= 0) {
+                fixedRows.remove(row);
+                rowCount = fixedRows.size();
+                fireTableRowsDeleted(row, row);
+            }
+            return;
+        }
+
+        int row = Arrays.binarySearch(ids, 0, rowCount, id);
+        if (row < 0) {
+            return;
+        }
+        System.arraycopy(ids, row + 1, ids, row, rowCount - row - 1);
+        rowCount--;
+        shiftPages(row, null);
+        fireTableRowsDeleted(row, row);
+    }
+
+    /**
+     * Aplica los cambios hechos por otros clientes. En la tabla completa las motocicletas nuevas
+     * se añaden en su posición; si se muestra el resultado de una búsqueda, solo se actualizan o
+     * quitan las filas que ya están en él.
+     * @param actualizadas Motocicletas dadas de alta o modificadas
+     * @param eliminadas IDs de las motocicletas eliminadas
+     */
+    public void applyChanges(Collection<Motocicleta> actualizadas, Collection<Integer> eliminadas) {
+        for (Integer id : eliminadas) {
+            removeRow(id);
+        }
+        for (Motocicleta moto : actualizadas) {
+            if (fixedRows != null) {
+                replaceRow(moto);
+            } else {
+                insertRow(moto);
+            }
+        }
+    }
+
+    private int indexOfFixed(int id) {
+        for (int i = 0; i < fixedRows.size(); i++) {
+            if (fixedRows.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Desplaza una posición las filas de las páginas en memoria a partir de {@code row}:
+     * hacia abajo para insertar {@code moto}, o hacia arriba para quitar la fila si
+     * {@code moto} es null. Solo se recorren las páginas cargadas; la fila que pasa de una
+     * página a otra que no está en memoria queda sin cargar y se pedirá al mostrarse.
+     */
+    private void shiftPages(int row, Motocicleta moto) {
+        // Las páginas pedidas con la disposición anterior ya no corresponden a sus filas
+        layout++;
+        pendingPages.clear();
+
+        int firstPage = row / pageSize;
+        // Copia para leer las páginas vecinas sin alterar el orden de uso de la caché
+        Map<Integer, Motocicleta[]> anteriores = new HashMap<>(pages);
+        for (Map.Entry<Integer, Motocicleta[]> entry : pages.entrySet()) {
+            int page = entry.getKey();
+            if (page < firstPage) {
+                continue;
+            }
+            Motocicleta[] old = entry.getValue();
+            Motocicleta[] content = new Motocicleta[pageSize];
+            int offset = page == firstPage ? row % pageSize : 0;
+            System.arraycopy(old, 0, content, 0, offset);
+            if (moto != null) {
+                if (page == firstPage) {
+                    content[offset] = moto;
+                } else {
+                    Motocicleta[] previous = anteriores.get(page - 1);
+                    content[0] = previous == null ? null : previous[pageSize - 1];
+                }
+                System.arraycopy(old, offset, content, offset + 1, pageSize - offset - 1);
+            } else {
+                System.arraycopy(old, offset + 1, content, offset, pageSize - offset - 1);
+                Motocicleta[] next = anteriores.get(page + 1);
+                content[pageSize - 1] = next == null ? null : next[0];
+            }
+            entry.setValue(content);
+        }
+    }
+
+    /**
+     * Obtiene la motocicleta de una fila si ya está cargada.
+     * @param row Índice de la fila en el modelo
+     * @return La motocicleta, o null si su página aún no se ha cargado
+     */
+    public Motocicleta getMotocicletaAt(int row) {
+        if (row < 0 || row >= rowCount) {
+            return null;
+        }
+        if (fixedRows != null) {
+            return fixedRows.get(row);
+        }
+
+        int page = row / pageSize;
+        Motocicleta[] content = pages.get(page);
+        Motocicleta moto = content == null ? null : content[row % pageSize];
+        if (moto == null) {
+            requestPage(page);
+            return null;
+        }
+        return moto == FALTANTE ? null : moto;
+    }
+
+    /**
+     * Pide por adelantado las páginas que cubren un rango de filas,
+     * por ejemplo las visibles en el viewport más un margen.
+     * @param firstRow Primera fila
+     * @param lastRow Última fila (incluida)
+     */
+    public void prefetch(int firstRow, int lastRow) {
+        if (fixedRows != null || rowCount == 0) {
+            return;
+        }
+        int first = Math.max(0, firstRow) / pageSize;
+        int last = Math.min(rowCount - 1, Math.max(0, lastRow)) / pageSize;
+        for (int page = first; page <= last; page++) {
+            if (!pages.containsKey(page)) {
+                requestPage(page);
+            }
+        }
+    }
+
+    /**
+     * Encola la carga de una página si no está ya pedida.
+     */
+    private void requestPage(int page) {
+        if (!pendingPages.add(page)) {
+            return;
+        }
+
+        int start = page * pageSize;
+        int end = Math.min(rowCount, start + pageSize);
+        if (start >= end) {
+            pendingPages.remove(page);
+            return;
+        }
+
+        // Se piden exactamente los IDs de la página: si otro cliente añadió filas entre ellos,
+        // una página por clave (findPage) traería esas en lugar de las últimas de la página
+        List<Integer> pageIds = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            pageIds.add(ids[i]);
+        }
+        int requested = layout;
+
+        loader.execute(() -> {
+            // Consultas IN por lotes; las filas que están en la caché de motocicletas no se consultan
+            List<Motocicleta> motos = repository.findAllById(pageIds);
+            SwingUtilities.invokeLater(() -> applyPage(requested, page, motos));
+        });
+    }
+
+    /**
+     * Coloca en su página las motocicletas recibidas y avisa a la tabla.
+     * Cada fila se ubica por su ID, de modo que las filas faltantes quedan marcadas.
+     */
+    private void applyPage(int requested, int page, List<Motocicleta> motos) {
+        pendingPages.remove(page);
+        if (requested != layout) {
+            return;
+        }
+
+        int start = page * pageSize;
+        int end = Math.min(rowCount, start + pageSize);
+        if (start >= end) {
+            return;
+        }
+
+        Motocicleta[] content = new Motocicleta[pageSize];
+        for (Motocicleta moto : motos) {
+            int pos = Arrays.binarySearch(ids, start, end, moto.getId());
+            if (pos >= 0) {
+                content[pos - start] = moto;
+            }
+        }
+        for (int i = 0; i < end - start; i++) {
+            if (content[i] == null) {
+                content[i] = FALTANTE;
+            }
+        }
+
+        pages.put(page, content);
+        fireTableRowsUpdated(start, end - 1);
+    }
+
+    /**
+     * Detiene el hilo de carga de páginas.
+     */
+    public void dispose() {
+        loader.shutdownNow();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNAS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNAS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        if (columnIndex == 0 || columnIndex == 2) return Integer.class;
+        if (columnIndex == 3) return Double.class;
+        return String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Motocicleta moto = getMotocicletaAt(rowIndex);
+        if (moto == null) {
+            // Las columnas numéricas quedan vacías mientras la página se carga
+            if (columnIndex != 1) {
+                return null;
+            }
+            return isMissing(rowIndex) ? NO_DISPONIBLE : CARGANDO;
+        }
+
+        switch (columnIndex) {
+            case 0:
+                return moto.getId();
+            case 1:
+                return moto.getMarca();
+            case 2:
+                return moto.getCilindraje();
+            case 3:
+                return moto.getPrecio();
+            default:
+                return moto.getColor();
+        }
+    }
+
+    private boolean isMissing(int row) {
+        if (fixedRows != null) {
+            return false;
+        }
+        Motocicleta[] content = pages.get(row / pageSize);
+        return content != null && content[row % pageSize] == FALTANTE;
+    }
+}
@@ -0,0 +1,190 @@
+package com.gestionmotos.ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Barra de estado que ejecuta tareas en segundo plano para las ventanas de la aplicación.
+ * <p>
+ * Cada tarea corre en un {@link SwingWorker}, fuera del hilo de eventos de Swing, de modo
+ * que la ventana sigue respondiendo mientras se consulta la base de datos. Mientras la
+ * tarea se ejecuta, los componentes indicados se deshabilitan y la barra muestra el progreso;
+ * al terminar, el resultado se aplica en el hilo de eventos.
+ * <p>
+ * Los métodos deben llamarse desde el hilo de eventos de Swing.
+ */
+public class StatusBar extends JPanel {
+
+    private static final String BUSY_COUNT = "StatusBar.busyCount";
+
+    private final JLabel lblEstado;
+    private final JProgressBar progressBar;
+    private final JButton btnCancelar;
+
+    // Tareas en curso, en orden de inicio
+    private final List<Task<?>> activas = new ArrayList<>();
+    // Última tarea cancelable (por ejemplo, una búsqueda)
+    private Task<?> cancelable;
+
+    /**
+     * Crea la barra de estado.
+     */
+    public StatusBar() {
+        super(new BorderLayout(10, 0));
+        setBorder(BorderFactory.createEmptyBorder(2, 10, 2, 10));
+
+        lblEstado = new JLabel("Listo");
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(false);
+        progressBar.setPreferredSize(new Dimension(150, 16));
+
+        btnCancelar = new JButton("Cancelar");
+        btnCancelar.setVisible(false);
+        btnCancelar.addActionListener(e -> cancelarBusqueda());
+
+        JPanel derecha = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        derecha.add(progressBar);
+        derecha.add(btnCancelar);
+
+        add(lblEstado, BorderLayout.CENTER);
+        add(derecha, BorderLayout.EAST);
+    }
+
+    /**
+     * Ejecuta una tarea en segundo plano.
+     * @param descripcion Texto que se muestra mientras se ejecuta
+     * @param trabajo Trabajo a ejecutar fuera del hilo de eventos
+     * @param alTerminar Recibe el resultado en el hilo de eventos
+     * @param alFallar Recibe el error en el hilo de eventos
+     * @param deshabilitar Componentes deshabilitados mientras dura la tarea
+     * @return El SwingWorker de la tarea
+     */
+    public <T> SwingWorker<T, Void> run(String descripcion, Callable<T> trabajo, Consumer<T> alTerminar,
+                                        Consumer<Exception> alFallar, JComponent... deshabilitar) {
+        return submit(descripcion, trabajo, alTerminar, alFallar, false, deshabilitar);
+    }
+
+    /**
+     * Ejecuta una tarea que el usuario puede cancelar, como una búsqueda.
+     * Si había otra tarea cancelable en curso se cancela, ya que su resultado quedó obsoleto.
+     * @see #run(String, Callable, Consumer, Consumer, JComponent...)
+     */
+    public <T> SwingWorker<T, Void> runCancellable(String descripcion, Callable<T> trabajo, Consumer<T> alTerminar,
+                                                   Consumer<Exception> alFallar, JComponent... deshabilitar) {
+        cancelarBusqueda();
+        return submit(descripcion, trabajo, alTerminar, alFallar, true, deshabilitar);
+    }
+
+    /**
+     * Muestra un mensaje en la barra de estado.
+     * @param mensaje El mensaje
+     */
+    public void setMensaje(String mensaje) {
+        lblEstado.setText(mensaje);
+    }
+
+    /**
+     * Cancela la tarea cancelable en curso, si la hay. Su resultado se descarta.
+     */
+    public void cancelarBusqueda() {
+        if (cancelable != null) {
+            cancelable.cancel(true);
+        }
+    }
+
+    private <T> SwingWorker<T, Void> submit(String descripcion, Callable<T> trabajo, Consumer<T> alTerminar,
+                                            Consumer<Exception> alFallar, boolean esCancelable,
+                                            JComponent... deshabilitar) {
+        Task<T> task = new Task<>(descripcion, trabajo, alTerminar, alFallar, deshabilitar);
+        for (JComponent componente : deshabilitar) {
+            setBusy(componente, true);
+        }
+        activas.add(task);
+        if (esCancelable) {
+            cancelable = task;
+        }
+        actualizar();
+        task.execute();
+        return task;
+    }
+
+    private void terminar(Task<?> task) {
+        if (!activas.remove(task)) {
+            return;
+        }
+        for (JComponent componente : task.deshabilitar) {
+            setBusy(componente, false);
+        }
+        if (cancelable == task) {
+            cancelable = null;
+        }
+        actualizar();
+    }
+
+    /**
+     * Deshabilita un componente mientras haya al menos una tarea que lo use.
+     */
+    private static void setBusy(JComponent componente, boolean busy) {
+        Object valor = componente.getClientProperty(BUSY_COUNT);
+        int count = valor instanceof Integer ? (Integer) valor : 0;
+        count = Math.max(0, count + (busy ? 1 : -1));
+        componente.putClientProperty(BUSY_COUNT, count);
+        componente.setEnabled(count == 0);
+    }
+
+    private void actualizar() {
+        boolean ocupado = !activas.isEmpty();
+        progressBar.setVisible(ocupado);
+        btnCancelar.setVisible(cancelable != null);
+        lblEstado.setText(ocupado ? activas.get(activas.size() - 1).descripcion : "Listo");
+        setCursor(ocupado ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+    }
+
+    /**
+     * Tarea en segundo plano con sus callbacks.
+     */
+    private final class Task<T> extends SwingWorker<T, Void> {
+        private final String descripcion;
+        private final Callable<T> trabajo;
+        private final Consumer<T> alTerminar;
+        private final Consumer<Exception> alFallar;
+        private final JComponent[] deshabilitar;
+
+        Task(String descripcion, Callable<T> trabajo, Consumer<T> alTerminar, Consumer<Exception> alFallar,
+             JComponent[] deshabilitar) {
+            this.descripcion = descripcion;
+            this.trabajo = trabajo;
+            this.alTerminar = alTerminar;
+            this.alFallar = alFallar;
+            this.deshabilitar = deshabilitar;
+        }
+
+        @Override
+        protected T doInBackground() throws Exception {
+            return trabajo.call();
+        }
+
+        @Override
+        protected void done() {
+            terminar(this);
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                alTerminar.accept(get());
+            } catch (InterruptedException | CancellationException e) {
+                // La tarea se canceló: su resultado ya no interesa
+            } catch (ExecutionException e) {
+                Throwable causa = e.getCause();
+                alFallar.accept(causa instanceof Exception ? (Exception) causa : new Exception(causa));
+            }
+        }
+    }
+}
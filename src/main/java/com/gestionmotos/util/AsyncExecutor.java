@@ -0,0 +1,195 @@
+package com.gestionmotos.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Ejecutor para las operaciones asíncronas de los repositorios.
+ * <p>
+ * Cada operación corre en un hilo del ejecutor y devuelve un {@link CompletableFuture}.
+ * El número de operaciones simultáneas se limita con un semáforo (por defecto, al tamaño
+ * del pool de conexiones), para que las tareas no esperen en el pool ocupando hilos.
+ * Si el JDK lo permite y la configuración lo activa, se usan hilos virtuales.
+ * <p>
+ * Cada operación tiene un tiempo máximo: al agotarse, el futuro termina con
+ * {@link java.util.concurrent.TimeoutException} y el hilo de la operación se interrumpe.
+ * Cancelar el futuro también interrumpe la operación.
+ */
+public class AsyncExecutor {
+    // Valores por defecto si no se configuran en config.properties
+    private static final long DEFAULT_TIMEOUT_MS = 30_000;
+
+    // Instancia compartida por los repositorios asíncronos
+    private static AsyncExecutor instance;
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long defaultTimeoutMs;
+    private final boolean virtualThreads;
+
+    /**
+     * Crea el ejecutor.
+     * @param maxConcurrency Número máximo de operaciones ejecutándose a la vez
+     * @param defaultTimeoutMs Tiempo máximo por operación en milisegundos (0 = sin límite)
+     * @param useVirtualThreads true para usar hilos virtuales si el JDK los soporta
+     */
+    public AsyncExecutor(int maxConcurrency, long defaultTimeoutMs, boolean useVirtualThreads) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.defaultTimeoutMs = Math.max(0, defaultTimeoutMs);
+        this.permits = new Semaphore(this.maxConcurrency, true);
+
+        ExecutorService virtual = useVirtualThreads ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = virtual != null;
+        if (virtual != null) {
+            this.executor = virtual;
+        } else {
+            AtomicInteger count = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(this.maxConcurrency, r -> {
+                Thread t = new Thread(r, "repo-async-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Obtiene el ejecutor compartido, configurado con las claves db.async.maxConcurrency
+     * (0 = tamaño del pool de conexiones), db.async.timeoutMs y db.async.virtualThreads.
+     * @return La instancia compartida
+     */
+    public static synchronized AsyncExecutor getInstance() {
+        if (instance == null) {
+            DatabaseConnection db = DatabaseConnection.getInstance();
+            int maxConcurrency = db.getIntProperty("db.async.maxConcurrency", 0);
+            if (maxConcurrency <= 0) {
+                maxConcurrency = db.getPool().getMaxSize();
+            }
+            long timeoutMs = db.getIntProperty("db.async.timeoutMs", (int) DEFAULT_TIMEOUT_MS);
+            boolean virtual = Boolean.parseBoolean(
+                    db.getProperties().getProperty("db.async.virtualThreads", "false").trim());
+            instance = new AsyncExecutor(maxConcurrency, timeoutMs, virtual);
+        }
+        return instance;
+    }
+
+    /**
+     * Crea un ejecutor de hilos virtuales por reflexión, ya que el proyecto compila para Java 11.
+     * @return El ejecutor, o null si el JDK no tiene hilos virtuales
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Hilos virtuales no disponibles en este JDK, se usa un pool de hilos");
+            return null;
+        }
+    }
+
+    /**
+     * Ejecuta una operación con el tiempo máximo por defecto.
+     * @param operacion La operación (normalmente una llamada al repositorio)
+     * @return Futuro con el resultado de la operación
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> operacion) {
+        return supply(operacion, defaultTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ejecuta una operación con un tiempo máximo propio.
+     * @param operacion La operación (normalmente una llamada al repositorio)
+     * @param timeout Tiempo máximo (0 = sin límite)
+     * @param unit Unidad del tiempo máximo
+     * @return Futuro con el resultado de la operación
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> operacion, long timeout, TimeUnit unit) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> run(operacion, future));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        if (timeout > 0) {
+            future.orTimeout(timeout, unit);
+        }
+        // Si el futuro termina antes que la operación (tiempo agotado o cancelado), interrumpirla
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                task.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    private <T> void run(Supplier<T> operacion, CompletableFuture<T> future) {
+        if (future.isDone()) {
+            // Se canceló o se agotó el tiempo mientras esperaba en la cola
+            return;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(new CancellationException("Operación interrumpida antes de empezar"));
+            return;
+        }
+        try {
+            if (!future.isDone()) {
+                future.complete(operacion.get());
+            }
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return Número de operaciones ejecutándose en este momento
+     */
+    public int getActiveOperations() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * @return Número de operaciones esperando un permiso para ejecutarse
+     */
+    public int getQueuedOperations() {
+        return permits.getQueueLength();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public long getDefaultTimeoutMs() {
+        return defaultTimeoutMs;
+    }
+
+    /**
+     * @return true si las operaciones corren en hilos virtuales
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Detiene el ejecutor. Las operaciones en curso se interrumpen.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,631 @@
+package com.gestionmotos.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de conexiones JDBC de tamaño acotado.
+ * Reutiliza las conexiones físicas en lugar de abrir una nueva por cada consulta,
+ * valida las conexiones al prestarlas, desaloja las inactivas (conservando al menos
+ * db.pool.minIdle libres, que se abren de antemano) y avisa cuando una conexión
+ * lleva demasiado tiempo prestada (posible fuga).
+ * <p>
+ * Las conexiones entregadas son envoltorios: al llamar a {@code close()} la
+ * conexión física vuelve al pool en lugar de cerrarse, por lo que el código
+ * existente con try-with-resources sigue funcionando sin cambios.
+ * Del mismo modo, {@code prepareStatement(sql)} reutiliza las sentencias
+ * guardadas en la {@link StatementCache} de cada conexión física.
+ */
+public class ConnectionPool {
+    // Valores por defecto si no se configuran en config.properties
+    private static final int DEFAULT_MAX_SIZE = 10;
+    private static final int DEFAULT_MIN_IDLE = 2;
+    private static final long DEFAULT_CONNECTION_TIMEOUT_MS = 30_000;
+    private static final long DEFAULT_IDLE_TIMEOUT_MS = 600_000;
+    private static final long DEFAULT_LEAK_DETECTION_MS = 60_000;
+    private static final long DEFAULT_VALIDATION_INTERVAL_MS = 500;
+    private static final int DEFAULT_VALIDATION_TIMEOUT_S = 5;
+    private static final long DEFAULT_HOUSEKEEPING_MS = 30_000;
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 50;
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private final int maxSize;
+    private final int minIdle;
+    private final long connectionTimeoutMs;
+    private final long idleTimeoutNanos;
+    private final long leakDetectionNanos;
+    private final long validationIntervalNanos;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    // Un permiso por conexión que se puede prestar a la vez
+    private final Semaphore permits;
+    // Conexiones libres; la primera es la usada más recientemente
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    // Métricas
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowWaitNanos = new LongAdder();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    // Contadores de las cachés de sentencias de conexiones ya cerradas
+    private final LongAdder retiredStatementHits = new LongAdder();
+    private final LongAdder retiredStatementMisses = new LongAdder();
+    private final LongAdder retiredStatementEvictions = new LongAdder();
+
+    /**
+     * Crea el pool leyendo su configuración de las propiedades indicadas.
+     * Claves reconocidas (todas opcionales): db.pool.maxSize, db.pool.minIdle,
+     * db.pool.connectionTimeoutMs, db.pool.idleTimeoutMs, db.pool.leakDetectionThresholdMs,
+     * db.pool.validationIntervalMs, db.pool.validationTimeoutSeconds, db.pool.housekeepingIntervalMs
+     * y db.pool.statementCacheSize (0 desactiva la caché de sentencias).
+     * @param url URL JDBC de la base de datos
+     * @param user Usuario de la base de datos
+     * @param password Contraseña de la base de datos
+     * @param properties Propiedades de configuración del pool
+     */
+    public ConnectionPool(String url, String user, String password, Properties properties) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+
+        this.maxSize = Math.max(1, getInt(properties, "db.pool.maxSize", DEFAULT_MAX_SIZE));
+        this.minIdle = Math.min(maxSize, Math.max(0, getInt(properties, "db.pool.minIdle", DEFAULT_MIN_IDLE)));
+        this.connectionTimeoutMs = getLong(properties, "db.pool.connectionTimeoutMs", DEFAULT_CONNECTION_TIMEOUT_MS);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(
+                getLong(properties, "db.pool.idleTimeoutMs", DEFAULT_IDLE_TIMEOUT_MS));
+        this.leakDetectionNanos = TimeUnit.MILLISECONDS.toNanos(
+                getLong(properties, "db.pool.leakDetectionThresholdMs", DEFAULT_LEAK_DETECTION_MS));
+        this.validationIntervalNanos = TimeUnit.MILLISECONDS.toNanos(
+                getLong(properties, "db.pool.validationIntervalMs", DEFAULT_VALIDATION_INTERVAL_MS));
+        this.validationTimeoutSeconds = getInt(properties, "db.pool.validationTimeoutSeconds", DEFAULT_VALIDATION_TIMEOUT_S);
+        this.statementCacheSize = Math.max(0, getInt(properties, "db.pool.statementCacheSize", DEFAULT_STATEMENT_CACHE_SIZE));
+        long housekeepingMs = getLong(properties, "db.pool.housekeepingIntervalMs", DEFAULT_HOUSEKEEPING_MS);
+
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        // Las conexiones mínimas se abren en segundo plano para no retrasar el arranque
+        housekeeper.execute(this::fillPool);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, housekeepingMs, housekeepingMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Presta una conexión del pool, esperando si todas están en uso.
+     * La conexión devuelta vuelve al pool al cerrarla.
+     * @return Una conexión válida
+     * @throws SQLException Si no se obtiene una conexión antes del tiempo de espera o falla la conexión
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("El pool de conexiones está cerrado");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTimeoutException("Tiempo de espera agotado al obtener una conexión del pool ("
+                        + borrowed.size() + " de " + maxSize + " conexiones en uso)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido mientras se esperaba una conexión del pool", e);
+        }
+
+        PooledConnection pooled;
+        try {
+            pooled = takeOrCreate(start + TimeUnit.MILLISECONDS.toNanos(connectionTimeoutMs));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        long waited = System.nanoTime() - start;
+        borrowCount.increment();
+        borrowWaitNanos.add(waited);
+        maxBorrowWaitNanos.accumulateAndGet(waited, Math::max);
+
+        pooled.markBorrowed(leakDetectionNanos > 0 ? new Exception("Conexión obtenida aquí") : null);
+        borrowed.add(pooled);
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandle(pooled));
+    }
+
+    /**
+     * Toma una conexión libre o abre una nueva. Quien llama ya tiene un permiso, así que si no
+     * queda hueco para abrirla es que el mantenimiento está abriendo una conexión libre: se espera
+     * a que llegue a la cola.
+     * @param deadline Momento límite, en el reloj de System.nanoTime()
+     * @return Una conexión válida
+     * @throws SQLException Si se agota el tiempo de espera o falla la conexión
+     */
+    private PooledConnection takeOrCreate(long deadline) throws SQLException {
+        while (true) {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = tryCreateConnection();
+            }
+            if (pooled != null) {
+                return pooled;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                timeoutCount.increment();
+                throw new SQLTimeoutException("Tiempo de espera agotado al obtener una conexión del pool ("
+                        + totalConnections.get() + " de " + maxSize + " conexiones abiertas)");
+            }
+            try {
+                pooled = idle.pollFirst(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrumpido mientras se esperaba una conexión del pool", e);
+            }
+            if (pooled != null) {
+                // Se devuelve a la cola para que takeIdle la valide
+                idle.offerFirst(pooled);
+            }
+        }
+    }
+
+    /**
+     * Toma una conexión libre y la valida si lleva tiempo sin usarse.
+     * Las conexiones que no pasan la validación se descartan.
+     * @return Una conexión libre válida o null si no hay ninguna
+     */
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.nanoTime() - pooled.getLastReturnedAt() < validationIntervalNanos || isValid(pooled)) {
+                return pooled;
+            }
+            destroy(pooled);
+        }
+        return null;
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.getConnection().isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Abre una conexión si no se ha llegado a maxSize. El hueco se reserva antes de abrirla,
+     * para que dos hilos no puedan superar maxSize a la vez, y se libera si falla.
+     * @return La conexión, o null si ya hay maxSize conexiones abiertas
+     * @throws SQLException Si falla la conexión
+     */
+    private PooledConnection tryCreateConnection() throws SQLException {
+        int total;
+        do {
+            total = totalConnections.get();
+            if (total >= maxSize) {
+                return null;
+            }
+        } while (!totalConnections.compareAndSet(total, total + 1));
+
+        try {
+            Connection connection = DriverManager.getConnection(url, user, password);
+            createdCount.increment();
+            return new PooledConnection(connection, statementCacheSize);
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        StatementCache cache = pooled.getStatementCache();
+        retiredStatementHits.add(cache.getHits());
+        retiredStatementMisses.add(cache.getMisses());
+        retiredStatementEvictions.add(cache.getEvictions());
+        pooled.closePhysical();
+    }
+
+    /**
+     * Devuelve una conexión al pool. Si no se puede restablecer, se descarta.
+     * @param pooled La conexión prestada
+     */
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            if (closed || !pooled.reset()) {
+                destroy(pooled);
+            } else {
+                pooled.markReturned();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Abre conexiones libres hasta tener minIdle, sin superar maxSize en total.
+     * Si la base de datos no responde, lo vuelve a intentar en el siguiente mantenimiento.
+     */
+    private void fillPool() {
+        while (!closed && idle.size() < minIdle) {
+            PooledConnection pooled;
+            try {
+                pooled = tryCreateConnection();
+            } catch (SQLException e) {
+                System.err.println("No se pudieron abrir las conexiones mínimas del pool: " + e.getMessage());
+                return;
+            }
+            if (pooled == null) {
+                return;
+            }
+            if (closed) {
+                destroy(pooled);
+                return;
+            }
+            // Al final de la cola, para que se presten antes las usadas recientemente
+            idle.offerLast(pooled);
+        }
+    }
+
+    /**
+     * Tarea periódica: desaloja conexiones inactivas por encima del mínimo, repone
+     * las que falten hasta el mínimo y avisa de las conexiones prestadas durante demasiado tiempo.
+     */
+    private void housekeep() {
+        try {
+            long now = System.nanoTime();
+
+            // Las menos usadas están al final de la cola
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && idle.size() > minIdle) {
+                PooledConnection pooled = it.next();
+                if (now - pooled.getLastReturnedAt() > idleTimeoutNanos && idle.remove(pooled)) {
+                    evictedCount.increment();
+                    destroy(pooled);
+                }
+            }
+            fillPool();
+
+            if (leakDetectionNanos > 0) {
+                for (PooledConnection pooled : borrowed) {
+                    if (!pooled.isLeakReported() && now - pooled.getBorrowedAt() > leakDetectionNanos) {
+                        pooled.setLeakReported(true);
+                        leakCount.increment();
+                        System.err.println("Posible fuga de conexión: prestada hace más de "
+                                + TimeUnit.NANOSECONDS.toMillis(leakDetectionNanos) + " ms sin devolverse");
+                        Exception trace = pooled.getBorrowTrace();
+                        if (trace != null) {
+                            trace.printStackTrace();
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error en el mantenimiento del pool de conexiones: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Cierra el pool y todas las conexiones libres.
+     * Las conexiones prestadas se cierran cuando se devuelven.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    // Métricas del pool
+
+    /**
+     * @return Número de conexiones prestadas en este momento
+     */
+    public int getActiveConnections() {
+        return borrowed.size();
+    }
+
+    /**
+     * @return Número de conexiones libres en el pool
+     */
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    /**
+     * @return Número total de conexiones físicas abiertas
+     */
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * @return Número de hilos esperando una conexión
+     */
+    public int getThreadsAwaitingConnection() {
+        return permits.getQueueLength();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    /**
+     * @return Tiempo medio de espera para obtener una conexión, en milisegundos
+     */
+    public double getAverageBorrowWaitMillis() {
+        long count = borrowCount.sum();
+        return count == 0 ? 0.0 : borrowWaitNanos.sum() / (double) count / 1_000_000.0;
+    }
+
+    /**
+     * @return Tiempo máximo de espera observado para obtener una conexión, en milisegundos
+     */
+    public double getMaxBorrowWaitMillis() {
+        return maxBorrowWaitNanos.get() / 1_000_000.0;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public long getLeakCount() {
+        return leakCount.sum();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getEvictedCount() {
+        return evictedCount.sum();
+    }
+
+    /**
+     * @return Número de sentencias preparadas reutilizadas desde las cachés de las conexiones
+     */
+    public long getStatementCacheHits() {
+        long hits = retiredStatementHits.sum();
+        for (PooledConnection pooled : liveConnections()) {
+            hits += pooled.getStatementCache().getHits();
+        }
+        return hits;
+    }
+
+    /**
+     * @return Número de sentencias que hubo que preparar por no estar en la caché
+     */
+    public long getStatementCacheMisses() {
+        long misses = retiredStatementMisses.sum();
+        for (PooledConnection pooled : liveConnections()) {
+            misses += pooled.getStatementCache().getMisses();
+        }
+        return misses;
+    }
+
+    /**
+     * @return Número de sentencias desalojadas de las cachés por falta de espacio
+     */
+    public long getStatementCacheEvictions() {
+        long evictions = retiredStatementEvictions.sum();
+        for (PooledConnection pooled : liveConnections()) {
+            evictions += pooled.getStatementCache().getEvictions();
+        }
+        return evictions;
+    }
+
+    private Iterable<PooledConnection> liveConnections() {
+        Set<PooledConnection> live = new HashSet<>(borrowed);
+        live.addAll(idle);
+        return live;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{" +
+               "activas=" + getActiveConnections() +
+               ", libres=" + getIdleConnections() +
+               ", total=" + getTotalConnections() +
+               ", max=" + maxSize +
+               ", esperando=" + getThreadsAwaitingConnection() +
+               ", préstamos=" + getBorrowCount() +
+               ", esperaMediaMs=" + String.format("%.3f", getAverageBorrowWaitMillis()) +
+               ", esperaMaxMs=" + String.format("%.3f", getMaxBorrowWaitMillis()) +
+               ", timeouts=" + getTimeoutCount() +
+               ", fugas=" + getLeakCount() +
+               ", sentenciasReutilizadas=" + getStatementCacheHits() +
+               ", sentenciasPreparadas=" + getStatementCacheMisses() +
+               '}';
+    }
+
+    private static int getInt(Properties properties, String key, int defaultValue) {
+        return (int) getLong(properties, key, defaultValue);
+    }
+
+    private static long getLong(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Valor inválido para " + key + ": " + value + ", se usa " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Envoltorio de la conexión entregada al código cliente.
+     * Redirige todas las llamadas a la conexión física salvo {@code close()},
+     * que la devuelve al pool.
+     */
+    private final class ConnectionHandle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private volatile boolean closed;
+
+        ConnectionHandle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Conexión del pool [" + pooled.getConnection() + "]";
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("La conexión ya fue devuelta al pool");
+            }
+
+            if ("prepareStatement".equals(method.getName()) && pooled.getStatementCache().isEnabled()) {
+                Class<?>[] types = method.getParameterTypes();
+                if (types.length == 1) {
+                    return prepareCached(proxy, (String) args[0], Statement.NO_GENERATED_KEYS);
+                }
+                if (types.length == 2 && types[1] == int.class) {
+                    return prepareCached(proxy, (String) args[0], (Integer) args[1]);
+                }
+            }
+
+            try {
+                return method.invoke(pooled.getConnection(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Devuelve la sentencia de la caché para el SQL indicado, preparándola si hace falta.
+         * Si la misma sentencia ya está abierta en esta conexión se prepara una nueva sin cachear.
+         */
+        private PreparedStatement prepareCached(Object connectionProxy, String sql, int autoGeneratedKeys)
+                throws SQLException {
+            StatementCache cache = pooled.getStatementCache();
+            StatementCache.CachedStatement cached = cache.acquire(sql, autoGeneratedKeys);
+            if (cached == null) {
+                PreparedStatement statement = pooled.getConnection().prepareStatement(sql, autoGeneratedKeys);
+                cached = cache.put(sql, autoGeneratedKeys, statement);
+                if (cached == null) {
+                    return statement;
+                }
+            }
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new StatementHandle(cache, cached, (Connection) connectionProxy));
+        }
+    }
+
+    /**
+     * Envoltorio de una sentencia de la caché. Al cerrarla se limpian sus
+     * parámetros y queda disponible para la siguiente llamada con el mismo SQL.
+     */
+    private static final class StatementHandle implements InvocationHandler {
+        private final StatementCache cache;
+        private final StatementCache.CachedStatement cached;
+        private final Connection connectionProxy;
+        private boolean closed;
+
+        StatementHandle(StatementCache cache, StatementCache.CachedStatement cached, Connection connectionProxy) {
+            this.cache = cache;
+            this.cached = cached;
+            this.connectionProxy = connectionProxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        if (!cached.reset()) {
+                            cache.discard(cached);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return connectionProxy;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("La sentencia ya fue cerrada");
+            }
+
+            try {
+                return method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
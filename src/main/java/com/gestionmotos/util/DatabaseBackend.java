@@ -0,0 +1,107 @@
+package com.gestionmotos.util;
+
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Motor de base de datos en el que trabajan los repositorios, elegido con {@code db.backend}.
+ * <p>
+ * {@link #MYSQL} se conecta al servidor de {@code db.url}; el esquema se crea a mano con
+ * {@code sql/create_database.sql}. {@link #H2} arranca una base de datos H2 embebida en el mismo
+ * proceso, en memoria o en el archivo {@code db.h2.path}, en modo de compatibilidad con MySQL
+ * para que los repositorios usen las mismas sentencias. Su esquema se crea al iniciar con
+ * {@code sql/h2/create_database.sql} y las migraciones ({@link MigrationRunner#crearEsquema}).
+ */
+public enum DatabaseBackend {
+    MYSQL("com.mysql.cj.jdbc.Driver", null),
+    H2("org.h2.Driver", "h2");
+
+    // Compatibilidad con MySQL: nombres en minúsculas y comparación de texto sin distinguir
+    // mayúsculas, como la collation por defecto de MySQL
+    private static final String H2_OPCIONES = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE";
+    private static final String H2_MEMORIA = "jdbc:h2:mem:gestion_motocicletas" + H2_OPCIONES + ";DB_CLOSE_DELAY=-1";
+    private static final String DEFAULT_MYSQL_URL = "jdbc:mysql://localhost:3306/gestion_motocicletas";
+
+    private final String driver;
+    private final String dialecto;
+
+    DatabaseBackend(String driver, String dialecto) {
+        this.driver = driver;
+        this.dialecto = dialecto;
+    }
+
+    /**
+     * Lee el motor configurado en {@code db.backend} (por defecto MySQL).
+     * @param properties La configuración
+     * @return El motor
+     * @throws IllegalArgumentException Si el valor no es un motor conocido
+     */
+    public static DatabaseBackend fromConfig(Properties properties) {
+        String valor = properties.getProperty("db.backend", "").trim();
+        if (valor.isEmpty()) {
+            return MYSQL;
+        }
+        try {
+            return valueOf(valor.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Valor inválido para db.backend: " + valor + " (use mysql o h2)", e);
+        }
+    }
+
+    /**
+     * @return Clase del driver JDBC
+     */
+    public String getDriver() {
+        return driver;
+    }
+
+    /**
+     * @return Subdirectorio de sql/ con los scripts propios del motor, o null para MySQL
+     */
+    public String getDialecto() {
+        return dialecto;
+    }
+
+    /**
+     * @return true si la base de datos corre dentro del proceso y su esquema se crea al iniciar
+     */
+    public boolean isEmbebida() {
+        return this != MYSQL;
+    }
+
+    /**
+     * @return true si el motor admite el índice FULLTEXT de marca (search.marca.fulltext)
+     */
+    public boolean isFullTextDisponible() {
+        return this == MYSQL;
+    }
+
+    /**
+     * @param properties La configuración
+     * @return URL JDBC de la base de datos
+     */
+    public String url(Properties properties) {
+        if (this == MYSQL) {
+            String url = properties.getProperty("db.url");
+            return url != null ? url : DEFAULT_MYSQL_URL;
+        }
+        String path = properties.getProperty("db.h2.path", "").trim();
+        return path.isEmpty() ? H2_MEMORIA : "jdbc:h2:file:" + path + H2_OPCIONES;
+    }
+
+    /**
+     * @param properties La configuración
+     * @return Usuario de la base de datos
+     */
+    public String user(Properties properties) {
+        return this == MYSQL ? properties.getProperty("db.user", "root") : "sa";
+    }
+
+    /**
+     * @param properties La configuración
+     * @return Contraseña de la base de datos
+     */
+    public String password(Properties properties) {
+        return this == MYSQL ? properties.getProperty("db.password", "") : "";
+    }
+}
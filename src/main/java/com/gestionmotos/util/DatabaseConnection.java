@@ -3,12 +3,13 @@ package com.gestionmotos.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 
 /**
  * Clase singleton para gestionar la conexión a la base de datos.
+ * Las conexiones se obtienen de un {@link ConnectionPool}; cerrarlas las devuelve al pool.
+ * El motor (MySQL o H2 embebida) se elige con {@code db.backend}, ver {@link DatabaseBackend}.
  */
 public class DatabaseConnection {
     // Propiedades para la conexión
@@ -16,11 +17,17 @@ public class DatabaseConnection {
     private String user;
     private String password;
     
+    // Propiedades completas (incluye la configuración del pool)
+    private final Properties properties = new Properties();
+    
+    // Motor de base de datos configurado
+    private final DatabaseBackend backend;
+    
     // Instancia única
     private static DatabaseConnection instance;
     
-    // Conexión a la base de datos
-    private Connection connection;
+    // Pool de conexiones a la base de datos
+    private final ConnectionPool pool;
     
     /**
      * Constructor privado para implementar el patrón Singleton.
@@ -28,13 +35,39 @@ public class DatabaseConnection {
      */
     private DatabaseConnection() {
         loadProperties();
+        backend = DatabaseBackend.fromConfig(properties);
+        url = backend.url(properties);
+        user = backend.user(properties);
+        password = backend.password(properties);
         
         try {
-            // Cargar el driver de MySQL
-            Class.forName("com.mysql.cj.jdbc.Driver");
+            // Cargar el driver del motor configurado
+            Class.forName(backend.getDriver());
         } catch (ClassNotFoundException e) {
-            System.err.println("Error al cargar el driver de MySQL: " + e.getMessage());
-            throw new RuntimeException("No se pudo cargar el driver de MySQL", e);
+            System.err.println("Error al cargar el driver de " + backend + ": " + e.getMessage());
+            throw new RuntimeException("No se pudo cargar el driver de " + backend, e);
+        }
+        
+        pool = new ConnectionPool(url, user, password, properties);
+        
+        if (backend.isEmbebida()) {
+            crearEsquemaEmbebido();
+        }
+    }
+    
+    /**
+     * Crea las tablas y aplica las migraciones de la base de datos embebida, que arranca
+     * vacía (en memoria) o puede ser un archivo nuevo. Si el esquema ya existe no cambia nada.
+     */
+    private void crearEsquemaEmbebido() {
+        try (Connection conn = pool.getConnection()) {
+            MigrationRunner runner = new MigrationRunner();
+            runner.crearEsquema(conn);
+            runner.migrate(conn);
+        } catch (SQLException | IOException e) {
+            System.err.println("Error al crear el esquema de la base de datos embebida: " + e.getMessage());
+            pool.close();
+            throw new RuntimeException("No se pudo crear el esquema de la base de datos embebida", e);
         }
     }
     
@@ -42,33 +75,20 @@ public class DatabaseConnection {
      * Carga las propiedades de conexión desde el archivo de configuración.
      */
     private void loadProperties() {
-        Properties properties = new Properties();
-        
         try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
             if (input == null) {
+                // Se usan los valores por defecto de DatabaseBackend.MYSQL
                 System.err.println("No se pudo encontrar el archivo config.properties");
-                // Usar valores por defecto
-                url = "jdbc:mysql://localhost:3306/gestion_motocicletas";
-                user = "root";
-                password = "";
                 return;
             }
             
             // Cargar el archivo de propiedades
             properties.load(input);
             
-            // Obtener las propiedades
-            url = properties.getProperty("db.url");
-            user = properties.getProperty("db.user");
-            password = properties.getProperty("db.password");
-            
         } catch (IOException e) {
             System.err.println("Error al cargar el archivo de propiedades: " + e.getMessage());
             e.printStackTrace();
-            // Usar valores por defecto
-            url = "jdbc:mysql://localhost:3306/gestion_motocicletas";
-            user = "root";
-            password = "";
+            properties.clear();
         }
     }
     
@@ -84,27 +104,75 @@ public class DatabaseConnection {
     }
     
     /**
-     * Establece una conexión con la base de datos.
+     * Obtiene una conexión del pool. Cada hilo debe cerrar la conexión
+     * al terminar para devolverla al pool.
      * @return Una conexión a la base de datos
-     * @throws SQLException Si ocurre un error al conectar
+     * @throws SQLException Si ocurre un error al conectar o se agota el tiempo de espera
      */
     public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(url, user, password);
+        return pool.getConnection();
+    }
+    
+    /**
+     * Obtiene el pool de conexiones, por ejemplo para consultar sus métricas.
+     * @return El pool de conexiones
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+    
+    /**
+     * Obtiene el motor de base de datos configurado.
+     * @return El motor
+     */
+    public DatabaseBackend getBackend() {
+        return backend;
+    }
+    
+    /**
+     * Obtiene las propiedades cargadas desde config.properties.
+     * @return Las propiedades de configuración
+     */
+    public Properties getProperties() {
+        return properties;
+    }
+    
+    /**
+     * Obtiene una propiedad numérica de la configuración.
+     * @param key Clave de la propiedad
+     * @param defaultValue Valor a usar si la propiedad no existe o no es un número
+     * @return El valor configurado o el valor por defecto
+     */
+    public int getIntProperty(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Valor inválido para " + key + ": " + value + ", se usa " + defaultValue);
+            return defaultValue;
         }
-        return connection;
     }
     
     /**
-     * Cierra la conexión a la base de datos.
+     * Comprueba si la base de datos responde.
+     * @return true si se pudo obtener una conexión válida
      */
-    public void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-            } catch (SQLException e) {
-                System.err.println("Error al cerrar la conexión: " + e.getMessage());
-            }
+    public boolean isReachable() {
+        try (Connection conn = getConnection()) {
+            return conn.isValid(5);
+        } catch (SQLException e) {
+            System.err.println("La base de datos no responde: " + e.getMessage());
+            return false;
         }
     }
+    
+    /**
+     * Cierra el pool y todas sus conexiones.
+     */
+    public void closeConnection() {
+        pool.close();
+    }
 }
\ No newline at end of file
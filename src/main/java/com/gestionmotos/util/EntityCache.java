@@ -0,0 +1,410 @@
+package com.gestionmotos.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Caché de entidades acotada por tamaño (LRU) y con tiempo de vida (TTL).
+ * <p>
+ * Las entradas se reparten en segmentos según el hash de la clave y cada segmento
+ * tiene su propio candado, de modo que los lectores de claves distintas no se bloquean
+ * entre sí. Cuando varios hilos fallan a la vez en la misma clave, solo uno ejecuta la
+ * carga y el resto espera su resultado.
+ * <p>
+ * Las invalidaciones descartan también las cargas en curso de la clave: un valor leído
+ * antes de una escritura nunca se guarda después de ella.
+ * @param <K> Tipo de la clave
+ * @param <V> Tipo del valor
+ */
+public class EntityCache<K, V> {
+    private static final int SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final long ttlNanos;
+    private final int maxSize;
+    // Cargas en curso por clave, para que un solo hilo consulte la base de datos
+    private final ConcurrentHashMap<K, Load<V>> inFlight = new ConcurrentHashMap<>();
+
+    // Métricas
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder sharedLoads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Crea la caché.
+     * @param maxSize Número máximo de entradas
+     * @param ttl Tiempo de vida de cada entrada (0 = sin caducidad)
+     * @param unit Unidad del tiempo de vida
+     */
+    @SuppressWarnings("unchecked")
+    public EntityCache(int maxSize, long ttl, TimeUnit unit) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlNanos = unit.toNanos(Math.max(0, ttl));
+        int segmentCount = Math.min(SEGMENTS, this.maxSize);
+        this.segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // El tamaño se reparte entre los segmentos sin superar maxSize en total
+            int capacity = this.maxSize / segmentCount + (i < this.maxSize % segmentCount ? 1 : 0);
+            segments[i] = new Segment<>(capacity, evictions);
+        }
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[(h & 0x7fffffff) % segments.length];
+    }
+
+    /**
+     * Obtiene un valor de la caché o lo carga si no está.
+     * @param key La clave
+     * @param loader Carga el valor (por ejemplo, desde la base de datos); puede devolver null
+     * @return El valor, o null si el cargador devolvió null (que no se guarda)
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V cached = getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Load<V> load = new Load<>(segmentFor(key).version(key));
+        Load<V> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            // Otro hilo ya está cargando esta clave
+            sharedLoads.increment();
+            try {
+                return existing.future.join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            }
+        }
+
+        loads.increment();
+        try {
+            V value = loader.apply(key);
+            if (value != null) {
+                putIfCurrent(key, value, load.version);
+            }
+            load.future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    /**
+     * Obtiene varios valores de la caché y carga los que faltan con una sola llamada al cargador.
+     * Como en {@link #get}, un valor cargado no se guarda si su clave se invalidó durante la carga.
+     * A diferencia de {@link #get}, las cargas no se comparten con otros hilos que pidan las mismas claves.
+     * @param keys Las claves
+     * @param loader Carga los valores de las claves que faltan; puede omitir las que no existen
+     * @param keyOf Obtiene la clave de un valor cargado
+     * @return Los valores encontrados, en el orden de las claves y sin repetidos
+     */
+    public Map<K, V> getAll(Collection<K> keys, Function<List<K>, List<V>> loader, Function<V, K> keyOf) {
+        Map<K, V> found = new LinkedHashMap<>();
+        // Claves que faltan, con la versión de su segmento antes de cargar
+        Map<K, Long> missing = new LinkedHashMap<>();
+        for (K key : keys) {
+            if (key == null || found.containsKey(key) || missing.containsKey(key)) {
+                continue;
+            }
+            V cached = getIfPresent(key);
+            if (cached != null) {
+                found.put(key, cached);
+            } else {
+                found.put(key, null);
+                missing.put(key, segmentFor(key).version(key));
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            loads.increment();
+            for (V value : loader.apply(new ArrayList<>(missing.keySet()))) {
+                K key = keyOf.apply(value);
+                Long version = missing.get(key);
+                if (version != null) {
+                    putIfCurrent(key, value, version);
+                    found.put(key, value);
+                }
+            }
+        }
+        found.values().removeIf(Objects::isNull);
+        return found;
+    }
+
+    /**
+     * Obtiene un valor solo si está en la caché y no ha caducado.
+     * @param key La clave
+     * @return El valor, o null si no está
+     */
+    public V getIfPresent(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            CacheEntry<V> entry = segment.map.get(key);
+            if (entry != null) {
+                if (ttlNanos == 0 || System.nanoTime() - entry.createdNanos < ttlNanos) {
+                    hits.increment();
+                    return entry.value;
+                }
+                segment.map.remove(key);
+                expirations.increment();
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Guarda un valor, reemplazando el anterior.
+     * @param key La clave
+     * @param value El valor
+     */
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            segment.bump(key);
+            segment.store(key, new CacheEntry<>(value));
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    private void putIfCurrent(K key, V value, long version) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            // Si hubo una invalidación durante la carga, el valor puede estar desactualizado
+            if (segment.versionLocked(key) == version) {
+                segment.store(key, new CacheEntry<>(value));
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Elimina una clave de la caché y descarta las cargas en curso de esa clave.
+     * @param key La clave
+     */
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            segment.bump(key);
+            segment.map.remove(key);
+        } finally {
+            segment.lock.unlock();
+        }
+        inFlight.remove(key);
+        invalidations.increment();
+    }
+
+    /**
+     * Vacía la caché.
+     */
+    public void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                // Cambiar la versión global descarta las cargas en curso de todo el segmento
+                segment.map.clear();
+                segment.versions.clear();
+                segment.globalVersion += Integer.MAX_VALUE;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        inFlight.clear();
+        invalidations.increment();
+    }
+
+    /**
+     * @return Número de entradas (incluidas las caducadas aún no eliminadas)
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.map.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return Cargas ejecutadas (una por cada grupo de fallos simultáneos en la misma clave)
+     */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * @return Fallos que esperaron la carga de otro hilo en lugar de consultar la base de datos
+     */
+    public long getSharedLoadCount() {
+        return sharedLoads.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @return Proporción de aciertos (0-1) sobre el total de consultas
+     */
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityCache{" +
+               "tamaño=" + size() + "/" + maxSize +
+               ", aciertos=" + getHitCount() +
+               ", fallos=" + getMissCount() +
+               ", ratio=" + String.format("%.2f", getHitRatio()) +
+               ", cargas=" + getLoadCount() +
+               ", compartidas=" + getSharedLoadCount() +
+               ", desalojos=" + getEvictionCount() +
+               ", caducadas=" + getExpirationCount() +
+               '}';
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return e;
+    }
+
+    /**
+     * Entrada de la caché con su instante de creación.
+     */
+    private static final class CacheEntry<V> {
+        final V value;
+        final long createdNanos = System.nanoTime();
+
+        CacheEntry(V value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Carga en curso de una clave y la versión de la clave al empezar.
+     */
+    private static final class Load<V> {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final long version;
+
+        Load(long version) {
+            this.version = version;
+        }
+    }
+
+    /**
+     * Segmento de la caché: un LinkedHashMap en orden de acceso protegido por su propio candado.
+     */
+    private static final class Segment<K, V> {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<K, CacheEntry<V>> map;
+        // Número de invalidaciones de cada clave; sirve para descartar cargas anteriores a ellas
+        final Map<K, Long> versions = new HashMap<>();
+        long globalVersion;
+        private final int capacity;
+
+        Segment(int capacity, LongAdder evictions) {
+            this.capacity = capacity;
+            this.map = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                    if (size() > Segment.this.capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        long version(K key) {
+            lock.lock();
+            try {
+                return versionLocked(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long versionLocked(K key) {
+            Long v = versions.get(key);
+            return globalVersion + (v == null ? 0 : v);
+        }
+
+        void bump(K key) {
+            versions.merge(key, 1L, Long::sum);
+            // Acotar el registro: al vaciarlo se cambia la versión global,
+            // lo que descarta todas las cargas en curso del segmento
+            if (versions.size() > capacity * 4) {
+                versions.clear();
+                globalVersion += Integer.MAX_VALUE;
+            }
+        }
+
+        void store(K key, CacheEntry<V> entry) {
+            map.put(key, entry);
+        }
+    }
+}
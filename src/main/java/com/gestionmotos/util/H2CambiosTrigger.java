@@ -0,0 +1,43 @@
+package com.gestionmotos.util;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Disparador de H2 que llena el registro de cambios ({@code motocicletas_cambios}), igual que
+ * los disparadores {@code motocicletas_ai}, {@code motocicletas_au} y {@code motocicletas_ad}
+ * de MySQL. Se declara en {@code sql/migrations/h2/V5__registro_cambios.sql} y se ejecuta en la misma
+ * transacción que el cambio.
+ */
+public class H2CambiosTrigger implements Trigger {
+    private static final String INSERT_SQL = "INSERT INTO motocicletas_cambios (moto_id, operacion) VALUES (?, ?)";
+
+    // I = alta, U = modificación, D = baja
+    private String operacion;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before,
+                     int type) {
+        if ((type & INSERT) != 0) {
+            operacion = "I";
+        } else if ((type & UPDATE) != 0) {
+            operacion = "U";
+        } else {
+            operacion = "D";
+        }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        // La primera columna de motocicletas es el id
+        Object id = newRow != null ? newRow[0] : oldRow[0];
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            stmt.setObject(1, id);
+            stmt.setString(2, operacion);
+            stmt.executeUpdate();
+        }
+    }
+}
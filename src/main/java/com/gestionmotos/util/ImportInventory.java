@@ -0,0 +1,43 @@
+package com.gestionmotos.util;
+
+import com.gestionmotos.repository.MotocicletaRepositoryImpl;
+import com.gestionmotos.service.ImportProgress;
+import com.gestionmotos.service.InventoryImportService;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Utility class to import a CSV or NDJSON inventory file from the command line.
+ * Usage: ImportInventory &lt;file&gt; [rejects-file]
+ */
+public class ImportInventory {
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: ImportInventory <file.csv|file.ndjson> [rejects-file]");
+            return;
+        }
+        
+        Path archivo = Paths.get(args[0]);
+        Path rechazos = args.length > 1 ? Paths.get(args[1]) : Paths.get(args[0] + ".rechazos.tsv");
+        
+        try {
+            InventoryImportService service = new InventoryImportService(new MotocicletaRepositoryImpl());
+            ImportProgress resumen = service.importar(archivo,
+                    InventoryImportService.Formato.fromFileName(archivo.getFileName().toString()),
+                    rechazos,
+                    progreso -> System.out.println(progreso));
+            
+            System.out.println("✓ Import finished: " + resumen.getGuardadas() + " rows saved, "
+                    + resumen.getRechazadas() + " rejected");
+            if (resumen.getRechazadas() > 0) {
+                System.out.println("Rejected rows written to " + rechazos);
+            }
+        } catch (Exception e) {
+            System.err.println("Error occurred while importing inventory:");
+            e.printStackTrace();
+        } finally {
+            DatabaseConnection.getInstance().closeConnection();
+        }
+    }
+}
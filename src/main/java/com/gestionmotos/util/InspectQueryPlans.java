@@ -0,0 +1,214 @@
+package com.gestionmotos.util;
+
+import com.gestionmotos.repository.QueryPlanInspector;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Utility class to run EXPLAIN on every SQL statement of the repositories and fail when a
+ * query scans a whole table above a row threshold, or examines far more rows than its LIMIT.
+ * <p>
+ * By default the statements are explained against an embedded in-memory H2 database (MySQL
+ * mode) created with the schema and migrations and seeded with representative data, so no
+ * server is needed. With {@code --database} they are explained against the configured database.
+ * Usage: InspectQueryPlans [--database] [--threshold rows] [--seed rows]
+ */
+public class InspectQueryPlans {
+    // Same compatibility options as DatabaseBackend.H2 (IGNORECASE mimics MySQL's default collation)
+    private static final String H2_URL = "jdbc:h2:mem:planes;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE;"
+            + "DB_CLOSE_DELAY=-1";
+
+    private static final String[] MARCAS = {"Honda", "Yamaha", "Suzuki", "Kawasaki", "Ducati", "BMW",
+            "KTM", "Harley-Davidson", "Triumph", "Bajaj", "Italika", "Royal Enfield"};
+    private static final String[] COLORES = {"Rojo", "Negro", "Blanco", "Azul", "Gris", "Verde",
+            "Amarillo", "Naranja"};
+
+    public static void main(String[] args) {
+        Properties config = cargarConfiguracion();
+        boolean database = false;
+        int threshold = intProperty(config, "diagnostics.fullScanMaxRows", QueryPlanInspector.DEFAULT_MAX_FILAS);
+        int seedRows = intProperty(config, "diagnostics.seedRows", 20_000);
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--database")) {
+                    database = true;
+                } else if (args[i].equals("--threshold") && i + 1 < args.length) {
+                    threshold = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                    seedRows = Integer.parseInt(args[++i]);
+                } else {
+                    System.out.println("Usage: InspectQueryPlans [--database] [--threshold rows] [--seed rows]");
+                    return;
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: InspectQueryPlans [--database] [--threshold rows] [--seed rows]");
+            return;
+        }
+
+        int fallos;
+        try {
+            List<QueryPlanInspector.Plan> planes;
+            QueryPlanInspector inspector = new QueryPlanInspector(threshold);
+            if (database) {
+                try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                    planes = inspector.inspeccionar(conn);
+                } finally {
+                    DatabaseConnection.getInstance().closeConnection();
+                }
+            } else {
+                Class.forName(DatabaseBackend.H2.getDriver());
+                try (Connection conn = DriverManager.getConnection(H2_URL, "sa", "")) {
+                    MigrationRunner runner = new MigrationRunner();
+                    runner.crearEsquema(conn);
+                    System.out.println(runner.migrate(conn));
+                    sembrar(conn, seedRows);
+                    System.out.println("Embedded H2 database seeded with " + seedRows + " motorcycles");
+                    planes = inspector.inspeccionar(conn);
+                }
+            }
+            fallos = imprimir(planes, threshold);
+        } catch (Exception e) {
+            System.err.println("Error occurred while inspecting query plans:");
+            e.printStackTrace();
+            System.exit(2);
+            return;
+        }
+        if (fallos > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static int imprimir(List<QueryPlanInspector.Plan> planes, int threshold) {
+        int fallos = 0;
+        int omitidas = 0;
+        for (QueryPlanInspector.Plan plan : planes) {
+            String estado;
+            if (plan.isFallo()) {
+                estado = "FAIL";
+                fallos++;
+            } else if (plan.getOmitida() != null) {
+                estado = "SKIP";
+                omitidas++;
+            } else {
+                estado = "OK";
+            }
+            StringBuilder linea = new StringBuilder(String.format("%-4s %-60s",
+                    estado, plan.getRepositorio() + "." + plan.getConsulta().getNombre()));
+            for (QueryPlanInspector.Acceso acceso : plan.getAccesos()) {
+                linea.append(String.format(" [%s: %s, key=%s, rows=%s]", acceso.getTabla(), acceso.getTipo(),
+                        acceso.getIndice() != null ? acceso.getIndice() : "-",
+                        acceso.getFilas() >= 0 ? String.valueOf(acceso.getFilas()) : "?"));
+            }
+            if (plan.getConsulta().getMotivo() != null) {
+                linea.append(" (full read allowed: ").append(plan.getConsulta().getMotivo()).append(')');
+            } else if (plan.getConsulta().isRecorridoCompleto()) {
+                linea.append(" (full read by design)");
+            }
+            if (plan.isFallo()) {
+                linea.append(" -> ").append(plan.getFallo());
+            } else if (plan.getOmitida() != null) {
+                linea.append(" -> ").append(plan.getOmitida());
+            }
+            System.out.println(linea);
+        }
+        System.out.println();
+        if (fallos == 0) {
+            System.out.println("✓ " + (planes.size() - omitidas) + " statements checked, all within the "
+                    + threshold + "-row threshold" + (omitidas > 0 ? " (" + omitidas + " skipped)" : ""));
+        } else {
+            System.out.println("✗ " + fallos + " of " + planes.size() + " statements failed (threshold "
+                    + threshold + " rows)");
+        }
+        return fallos;
+    }
+
+    /**
+     * Inserts motorcycles with varied brands, colors, prices, displacements and registration
+     * dates over the last year and a few users, then updates the statistics.
+     */
+    private static void sembrar(Connection conn, int filas) throws SQLException {
+        Random random = new Random(42);
+        long ahora = System.currentTimeMillis();
+        long unAnio = 365L * 24 * 60 * 60 * 1000;
+        conn.setAutoCommit(false);
+        try (PreparedStatement motos = conn.prepareStatement(
+                "INSERT INTO motocicletas (marca, cilindraje, precio, color, fecha_registro) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= filas; i++) {
+                Timestamp fecha = new Timestamp(ahora - unAnio + (long) ((double) unAnio * i / filas));
+                motos.setString(1, MARCAS[random.nextInt(MARCAS.length)]);
+                motos.setInt(2, 50 + random.nextInt(1251));
+                motos.setBigDecimal(3, BigDecimal.valueOf(100_000 + random.nextInt(2_900_001), 2));
+                motos.setString(4, COLORES[random.nextInt(COLORES.length)]);
+                motos.setTimestamp(5, fecha);
+                motos.addBatch();
+                if (i % 1000 == 0) {
+                    motos.executeBatch();
+                }
+            }
+            motos.executeBatch();
+        }
+        try (Statement stmt = conn.createStatement()) {
+            // The change log trigger stamps every row with the current time
+            stmt.executeUpdate("UPDATE motocicletas_cambios c SET fecha = "
+                    + "(SELECT m.fecha_registro FROM motocicletas m WHERE m.id = c.moto_id)");
+        }
+        try (PreparedStatement usuarios = conn.prepareStatement(
+                "INSERT INTO usuarios (username, password, rol, nombre, email) VALUES (?, ?, ?, ?, ?)")) {
+            // The schema script already creates the admin user
+            for (int i = 1; i < 50; i++) {
+                usuarios.setString(1, "vendedor" + i);
+                usuarios.setString(2, "$2a$10$hash");
+                usuarios.setString(3, "usuario");
+                usuarios.setString(4, "Vendedor " + i);
+                usuarios.setString(5, "vendedor" + i + "@moto.com");
+                usuarios.addBatch();
+            }
+            usuarios.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ANALYZE");
+        }
+    }
+
+    /**
+     * Reads config.properties without opening the configured database.
+     */
+    private static Properties cargarConfiguracion() {
+        Properties properties = new Properties();
+        try (InputStream input = InspectQueryPlans.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading config.properties: " + e.getMessage());
+        }
+        return properties;
+    }
+
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+}
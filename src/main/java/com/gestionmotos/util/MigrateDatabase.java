@@ -0,0 +1,36 @@
+package com.gestionmotos.util;
+
+import java.util.List;
+
+/**
+ * Utility class to apply the pending schema migrations from the command line.
+ * Usage: MigrateDatabase [status]
+ */
+public class MigrateDatabase {
+    public static void main(String[] args) {
+        boolean soloEstado = args.length > 0 && args[0].equalsIgnoreCase("status");
+        
+        try {
+            MigrationRunner runner = new MigrationRunner();
+            if (soloEstado) {
+                List<MigrationRunner.Migracion> pendientes = runner.pendientes();
+                if (pendientes.isEmpty()) {
+                    System.out.println("✓ Schema is up to date");
+                } else {
+                    System.out.println(pendientes.size() + " pending migrations:");
+                    pendientes.forEach(m -> System.out.println("  " + m));
+                }
+                return;
+            }
+            
+            MigrationRunner.Resultado resultado = runner.migrate();
+            System.out.println("✓ " + resultado.getAplicadas().size() + " migrations applied, "
+                    + resultado.getYaAplicadas() + " already applied");
+        } catch (Exception e) {
+            System.err.println("Error occurred while migrating the database:");
+            e.printStackTrace();
+        } finally {
+            DatabaseConnection.getInstance().closeConnection();
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package com.gestionmotos.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Aplica las migraciones versionadas del esquema ({@code sql/migrations} en el classpath).
+ * <p>
+ * Las migraciones se listan en {@code sql/migrations/index.txt} y se llaman
+ * {@code V<versión>__<descripción>.sql}. Cada una se aplica una sola vez: al terminar se
+ * guarda su versión y el SHA-256 de su contenido en la tabla {@code schema_migrations}.
+ * Si una migración ya aplicada cambió, no se aplica nada y se informa el error, porque el
+ * esquema de cada base de datos dejaría de coincidir.
+ * <p>
+ * Si existe {@code sql/migrations/<base de datos>/<migración>} (por ejemplo {@code h2/}), se usa
+ * en lugar de la migración de MySQL con esa base de datos.
+ * <p>
+ * MySQL confirma cada sentencia DDL por separado, así que una migración interrumpida puede
+ * quedar aplicada a medias. Para poder repetirla, los errores de índice ya existente se ignoran.
+ * En MySQL, un bloqueo con nombre ({@code GET_LOCK}) evita que dos clientes que arrancan a la
+ * vez apliquen las mismas migraciones.
+ */
+public class MigrationRunner {
+    private static final String DIRECTORIO = "sql/migrations/";
+    private static final String INDICE = DIRECTORIO + "index.txt";
+    private static final String ESQUEMA = "create_database.sql";
+    private static final Pattern NOMBRE = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private static final String CREATE_HISTORY_SQL = "CREATE TABLE IF NOT EXISTS schema_migrations ("
+            + "version int NOT NULL, "
+            + "descripcion varchar(200) NOT NULL, "
+            + "checksum char(64) NOT NULL, "
+            + "aplicada_en timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+            + "duracion_ms int NOT NULL, "
+            + "PRIMARY KEY (version))";
+    private static final String FIND_APLICADAS_SQL = "SELECT version, checksum FROM schema_migrations";
+    private static final String INSERT_SQL =
+            "INSERT INTO schema_migrations (version, descripcion, checksum, duracion_ms) VALUES (?, ?, ?, ?)";
+
+    private static final String LOCK_NAME = "gestion_motocicletas.migraciones";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+    // Código de MySQL para "Duplicate key name" (el índice ya existe)
+    private static final int ER_DUP_KEYNAME = 1061;
+
+    /**
+     * Una migración leída del classpath.
+     */
+    public static final class Migracion {
+        private final int version;
+        private final String descripcion;
+        private final String recurso;
+        private final String sql;
+        private final String checksum;
+
+        Migracion(int version, String descripcion, String recurso, String sql) {
+            this.version = version;
+            this.descripcion = descripcion;
+            this.recurso = recurso;
+            this.sql = sql;
+            this.checksum = sha256(sql);
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public String getDescripcion() {
+            return descripcion;
+        }
+
+        public String getChecksum() {
+            return checksum;
+        }
+
+        /**
+         * @return Las sentencias de la migración, sin comentarios
+         */
+        List<String> sentencias() {
+            return MigrationRunner.sentencias(sql);
+        }
+
+        @Override
+        public String toString() {
+            return "V" + version + " " + descripcion.replace('_', ' ');
+        }
+    }
+
+    /**
+     * Resultado de {@link #migrate()}.
+     */
+    public static final class Resultado {
+        private final List<Migracion> aplicadas;
+        private final int yaAplicadas;
+
+        Resultado(List<Migracion> aplicadas, int yaAplicadas) {
+            this.aplicadas = aplicadas;
+            this.yaAplicadas = yaAplicadas;
+        }
+
+        /**
+         * @return Migraciones aplicadas en esta ejecución
+         */
+        public List<Migracion> getAplicadas() {
+            return Collections.unmodifiableList(aplicadas);
+        }
+
+        /**
+         * @return Migraciones que ya estaban aplicadas
+         */
+        public int getYaAplicadas() {
+            return yaAplicadas;
+        }
+
+        @Override
+        public String toString() {
+            return aplicadas.isEmpty()
+                    ? "Esquema al día (" + yaAplicadas + " migraciones aplicadas)"
+                    : aplicadas.size() + " migraciones aplicadas: " + aplicadas;
+        }
+    }
+
+    /**
+     * Crea las tablas con {@code sql/<base de datos>/create_database.sql}, o con
+     * {@code sql/create_database.sql} si la base de datos no tiene variante propia. Se usa con
+     * las bases de datos embebidas ({@link DatabaseBackend#isEmbebida()}), que arrancan vacías;
+     * después hay que aplicar las migraciones con {@link #migrate(Connection)}.
+     * @param conn La conexión; no se cierra
+     * @throws IOException Si no se puede leer el script
+     */
+    public void crearEsquema(Connection conn) throws IOException, SQLException {
+        String dialecto = dialecto(conn);
+        String variante = dialecto == null ? null : "sql/" + dialecto + "/" + ESQUEMA;
+        String recurso = variante != null && existe(variante) ? variante : "sql/" + ESQUEMA;
+        try (Statement stmt = conn.createStatement()) {
+            for (String sentencia : sentencias(leer(recurso))) {
+                stmt.execute(sentencia);
+            }
+        }
+    }
+
+    /**
+     * Lee las migraciones de MySQL del índice, en orden de versión.
+     * @return Las migraciones
+     * @throws IOException Si falta el índice o alguna migración
+     * @throws IllegalStateException Si un nombre no sigue el formato o las versiones no son crecientes
+     */
+    public List<Migracion> cargar() throws IOException {
+        return cargar(null);
+    }
+
+    /**
+     * Lee las migraciones del índice para una base de datos, en orden de versión.
+     * @param dialecto Subdirectorio con las variantes de la base de datos, o null para MySQL
+     * @return Las migraciones
+     * @throws IOException Si falta el índice o alguna migración
+     */
+    public List<Migracion> cargar(String dialecto) throws IOException {
+        List<Migracion> migraciones = new ArrayList<>();
+        int anterior = 0;
+        for (String linea : leer(INDICE).split("\n")) {
+            String nombre = linea.trim();
+            if (nombre.isEmpty() || nombre.startsWith("#")) {
+                continue;
+            }
+            Matcher m = NOMBRE.matcher(nombre);
+            if (!m.matches()) {
+                throw new IllegalStateException("Nombre de migración no válido: " + nombre);
+            }
+            int version = Integer.parseInt(m.group(1));
+            if (version <= anterior) {
+                throw new IllegalStateException("La migración " + nombre + " no sigue a la versión " + anterior);
+            }
+            anterior = version;
+            String variante = dialecto == null ? null : DIRECTORIO + dialecto + "/" + nombre;
+            String recurso = variante != null && existe(variante) ? variante : DIRECTORIO + nombre;
+            migraciones.add(new Migracion(version, m.group(2), nombre, leer(recurso)));
+        }
+        return migraciones;
+    }
+
+    /**
+     * Aplica las migraciones pendientes, en orden.
+     * @return Las migraciones aplicadas
+     * @throws IOException Si no se pueden leer las migraciones
+     * @throws SQLException Si falla una migración; las anteriores quedan aplicadas
+     * @throws IllegalStateException Si una migración aplicada cambió desde entonces
+     */
+    public Resultado migrate() throws IOException, SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            return migrate(conn);
+        }
+    }
+
+    /**
+     * Aplica las migraciones pendientes en una conexión concreta, por ejemplo la de una base
+     * de datos embebida.
+     * @param conn La conexión; no se cierra
+     * @return Las migraciones aplicadas
+     * @see #migrate()
+     */
+    public Resultado migrate(Connection conn) throws IOException, SQLException {
+        List<Migracion> migraciones = cargar(dialecto(conn));
+        boolean bloqueo = bloquear(conn);
+        try {
+            crearHistorial(conn);
+            Map<Integer, String> aplicadas = aplicadas(conn);
+            validar(migraciones, aplicadas);
+
+            List<Migracion> nuevas = new ArrayList<>();
+            for (Migracion migracion : migraciones) {
+                if (!aplicadas.containsKey(migracion.version)) {
+                    aplicar(conn, migracion);
+                    nuevas.add(migracion);
+                }
+            }
+            return new Resultado(nuevas, migraciones.size() - nuevas.size());
+        } finally {
+            if (bloqueo) {
+                desbloquear(conn);
+            }
+        }
+    }
+
+    /**
+     * Indica qué migraciones faltan por aplicar, sin aplicarlas.
+     * @return Las migraciones pendientes
+     * @throws IllegalStateException Si una migración aplicada cambió desde entonces
+     */
+    public List<Migracion> pendientes() throws IOException, SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            List<Migracion> migraciones = cargar(dialecto(conn));
+            crearHistorial(conn);
+            Map<Integer, String> aplicadas = aplicadas(conn);
+            validar(migraciones, aplicadas);
+            List<Migracion> pendientes = new ArrayList<>();
+            for (Migracion migracion : migraciones) {
+                if (!aplicadas.containsKey(migracion.version)) {
+                    pendientes.add(migracion);
+                }
+            }
+            return pendientes;
+        }
+    }
+
+    private void aplicar(Connection conn, Migracion migracion) throws SQLException {
+        long inicio = System.currentTimeMillis();
+        try (Statement stmt = conn.createStatement()) {
+            for (String sentencia : migracion.sentencias()) {
+                try {
+                    stmt.execute(sentencia);
+                } catch (SQLException e) {
+                    if (e.getErrorCode() != ER_DUP_KEYNAME) {
+                        throw new SQLException("Error en la migración " + migracion + ": " + e.getMessage(),
+                                e.getSQLState(), e.getErrorCode(), e);
+                    }
+                    // El índice quedó creado en un intento anterior que no llegó a registrarse
+                }
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            stmt.setInt(1, migracion.version);
+            stmt.setString(2, migracion.descripcion);
+            stmt.setString(3, migracion.checksum);
+            stmt.setLong(4, System.currentTimeMillis() - inicio);
+            stmt.executeUpdate();
+        }
+        System.out.println("Migración aplicada: " + migracion);
+    }
+
+    private static void validar(List<Migracion> migraciones, Map<Integer, String> aplicadas) {
+        for (Migracion migracion : migraciones) {
+            String checksum = aplicadas.get(migracion.version);
+            if (checksum != null && !checksum.equals(migracion.checksum)) {
+                throw new IllegalStateException("La migración " + migracion.recurso
+                        + " cambió después de aplicarse (checksum " + checksum + ", ahora " + migracion.checksum + ")");
+            }
+        }
+    }
+
+    private static void crearHistorial(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(CREATE_HISTORY_SQL);
+        }
+    }
+
+    private static Map<Integer, String> aplicadas(Connection conn) throws SQLException {
+        Map<Integer, String> aplicadas = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(FIND_APLICADAS_SQL)) {
+            while (rs.next()) {
+                aplicadas.put(rs.getInt(1), rs.getString(2).trim());
+            }
+        }
+        return aplicadas;
+    }
+
+    /**
+     * Toma el bloqueo de migraciones si la base de datos es MySQL.
+     * @return true si se tomó el bloqueo y hay que liberarlo
+     */
+    private static boolean bloquear(Connection conn) throws SQLException {
+        if (!isMySql(conn)) {
+            return false;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Otro cliente está aplicando las migraciones");
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void desbloquear(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Error al liberar el bloqueo de migraciones: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Subdirectorio de las variantes de la base de datos de la conexión, o null para MySQL
+     */
+    private static String dialecto(Connection conn) throws SQLException {
+        return isMySql(conn) ? null : conn.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isMySql(Connection conn) throws SQLException {
+        String producto = conn.getMetaData().getDatabaseProductName();
+        return "MySQL".equalsIgnoreCase(producto) || "MariaDB".equalsIgnoreCase(producto);
+    }
+
+    /**
+     * Separa un script en sentencias, sin las líneas de comentario.
+     */
+    private static List<String> sentencias(String sql) {
+        StringBuilder limpio = new StringBuilder(sql.length());
+        for (String linea : sql.split("\n")) {
+            if (!linea.trim().startsWith("--")) {
+                limpio.append(linea).append('\n');
+            }
+        }
+        List<String> sentencias = new ArrayList<>();
+        // Los scripts no contienen ';' dentro de literales de texto
+        for (String sentencia : limpio.toString().split(";")) {
+            if (!sentencia.trim().isEmpty()) {
+                sentencias.add(sentencia.trim());
+            }
+        }
+        return sentencias;
+    }
+
+    private static boolean existe(String recurso) {
+        return MigrationRunner.class.getClassLoader().getResource(recurso) != null;
+    }
+
+    private static String leer(String recurso) throws IOException {
+        InputStream input = MigrationRunner.class.getClassLoader().getResourceAsStream(recurso);
+        if (input == null) {
+            throw new IOException("No se encontró " + recurso + " en el classpath");
+        }
+        StringBuilder texto = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                // Sin \r, para que el checksum no dependa de los finales de línea del sistema
+                texto.append(linea).append('\n');
+            }
+        }
+        return texto.toString();
+    }
+
+    private static String sha256(String texto) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(texto.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
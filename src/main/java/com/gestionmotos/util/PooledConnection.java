@@ -0,0 +1,111 @@
+package com.gestionmotos.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Conexión física administrada por el {@link ConnectionPool}.
+ * Guarda los tiempos de uso necesarios para el desalojo por inactividad
+ * y la detección de fugas, y la caché de sentencias preparadas de la conexión.
+ */
+class PooledConnection {
+    private final Connection connection;
+    private final long createdAt;
+    private final StatementCache statementCache;
+
+    // Momento (System.nanoTime) en que se devolvió al pool por última vez
+    private volatile long lastReturnedAt;
+
+    // Momento en que se prestó y traza de quién la pidió (solo si hay detección de fugas)
+    private volatile long borrowedAt;
+    private volatile Exception borrowTrace;
+    private volatile boolean leakReported;
+
+    PooledConnection(Connection connection, int statementCacheSize) {
+        this.connection = connection;
+        this.statementCache = new StatementCache(statementCacheSize);
+        this.createdAt = System.nanoTime();
+        this.lastReturnedAt = createdAt;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    long getLastReturnedAt() {
+        return lastReturnedAt;
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    Exception getBorrowTrace() {
+        return borrowTrace;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void setLeakReported(boolean leakReported) {
+        this.leakReported = leakReported;
+    }
+
+    /**
+     * Marca la conexión como prestada.
+     * @param trace Traza del punto donde se pidió, o null si no se detectan fugas
+     */
+    void markBorrowed(Exception trace) {
+        this.borrowedAt = System.nanoTime();
+        this.borrowTrace = trace;
+        this.leakReported = false;
+    }
+
+    /**
+     * Marca la conexión como devuelta al pool.
+     */
+    void markReturned() {
+        this.lastReturnedAt = System.nanoTime();
+        this.borrowTrace = null;
+    }
+
+    /**
+     * Deja la conexión en su estado por defecto antes de volver al pool.
+     * Revierte cualquier transacción abierta y restaura el autocommit.
+     * @return true si la conexión puede reutilizarse, false si debe descartarse
+     */
+    boolean reset() {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            connection.clearWarnings();
+            statementCache.releaseAll();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error al restablecer la conexión del pool: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Cierra la conexión física.
+     */
+    void closePhysical() {
+        statementCache.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error al cerrar la conexión física: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.gestionmotos.util;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché LRU de sentencias preparadas de una conexión física del pool.
+ * La clave es el texto SQL (más el indicador de claves generadas), de modo que
+ * las consultas fijas de los repositorios se preparan una sola vez por conexión.
+ * <p>
+ * Solo la usa el hilo que tiene prestada la conexión, pero las métricas
+ * pueden leerse desde cualquier hilo.
+ */
+class StatementCache {
+    private final int maxSize;
+    private final LinkedHashMap<Key, CachedStatement> statements;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Busca una sentencia libre para el SQL indicado.
+     * @return La sentencia marcada como en uso, o null si no está en la caché o ya está en uso
+     */
+    CachedStatement acquire(String sql, int autoGeneratedKeys) {
+        CachedStatement cached = statements.get(new Key(sql, autoGeneratedKeys));
+        if (cached != null && !cached.inUse) {
+            cached.inUse = true;
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Guarda una sentencia recién preparada, desalojando la menos usada si la caché está llena.
+     * @return La sentencia marcada como en uso, o null si ya existe otra con el mismo SQL
+     */
+    CachedStatement put(String sql, int autoGeneratedKeys, PreparedStatement statement) {
+        Key key = new Key(sql, autoGeneratedKeys);
+        if (statements.containsKey(key)) {
+            return null;
+        }
+
+        if (statements.size() >= maxSize) {
+            evictEldest();
+        }
+
+        CachedStatement cached = new CachedStatement(statement);
+        cached.inUse = true;
+        statements.put(key, cached);
+        return cached;
+    }
+
+    /**
+     * Desaloja la sentencia menos usada recientemente que no esté en uso.
+     */
+    private void evictEldest() {
+        Iterator<CachedStatement> it = statements.values().iterator();
+        while (it.hasNext()) {
+            CachedStatement cached = it.next();
+            if (!cached.inUse) {
+                it.remove();
+                evictions.increment();
+                closeQuietly(cached.statement);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Quita de la caché una sentencia que ya no se puede reutilizar y la cierra.
+     */
+    void discard(CachedStatement cached) {
+        statements.values().removeIf(c -> c == cached);
+        closeQuietly(cached.statement);
+    }
+
+    /**
+     * Libera las sentencias que el código cliente dejó abiertas al devolver la conexión.
+     */
+    void releaseAll() {
+        statements.values().removeIf(cached -> {
+            if (cached.inUse && !cached.reset()) {
+                closeQuietly(cached.statement);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Cierra todas las sentencias de la caché.
+     */
+    void clear() {
+        List<CachedStatement> all = new ArrayList<>(statements.values());
+        statements.clear();
+        for (CachedStatement cached : all) {
+            closeQuietly(cached.statement);
+        }
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Error al cerrar sentencia de la caché: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sentencia física guardada en la caché.
+     */
+    static final class CachedStatement {
+        final PreparedStatement statement;
+        boolean inUse;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        /**
+         * Deja la sentencia lista para el siguiente uso.
+         * @return true si puede seguir en la caché
+         */
+        boolean reset() {
+            try {
+                statement.clearParameters();
+                statement.clearWarnings();
+                inUse = false;
+                return !statement.isClosed();
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String sql;
+        private final int autoGeneratedKeys;
+
+        Key(String sql, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return autoGeneratedKeys == other.autoGeneratedKeys && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sql, autoGeneratedKeys);
+        }
+    }
+}
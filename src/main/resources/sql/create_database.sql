@@ -33,4 +33,8 @@ INSERT INTO `usuarios` (`username`, `password`, `rol`, `nombre`, `email`) VALUES
 ('admin', '$2a$10$XURPShQNCsLjp1ESc2laoObo9QZDhxz73hJPaEv7/cBha4pk0AgP.', 'admin', 'Administrador', 'admin@moto.com')
 ON DUPLICATE KEY UPDATE `username` = `username`;
 
+-- Los índices secundarios y el registro de cambios (motocicletas_cambios y sus disparadores) se
+-- crean con las migraciones de sql/migrations, que se aplican con com.gestionmotos.util.MigrateDatabase
+-- (o al iniciar la aplicación con db.migrations.autoRun=true) y se registran en schema_migrations
+
 -- Aquí puedes añadir datos de ejemplo para motocicletas si lo deseas
\ No newline at end of file
@@ -0,0 +1,31 @@
+-- Esquema de gestion_motocicletas para H2 en modo MySQL (db.backend=h2 y InspectQueryPlans).
+-- Es la variante de sql/create_database.sql: mismas tablas, sin CREATE DATABASE ni opciones de
+-- InnoDB. Los índices secundarios y el registro de cambios los crean las migraciones de
+-- sql/migrations (con las variantes de sql/migrations/h2), igual que en MySQL.
+
+CREATE TABLE IF NOT EXISTS motocicletas (
+  id int NOT NULL AUTO_INCREMENT,
+  marca varchar(50) NOT NULL,
+  cilindraje int NOT NULL,
+  precio decimal(10,2) NOT NULL,
+  color varchar(30) NOT NULL,
+  fecha_registro timestamp NOT NULL DEFAULT current_timestamp(),
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS usuarios (
+  id int NOT NULL AUTO_INCREMENT,
+  username varchar(50) NOT NULL,
+  password varchar(255) NOT NULL,
+  rol enum('admin','usuario') NOT NULL,
+  nombre varchar(100) DEFAULT NULL,
+  email varchar(100) DEFAULT NULL,
+  PRIMARY KEY (id),
+  UNIQUE (username)
+);
+
+-- Insertar usuario administrador (si no existe, para no cambiar su contraseña en una base de
+-- datos en archivo)
+INSERT INTO usuarios (username, password, rol, nombre, email)
+SELECT 'admin', '$2a$10$XURPShQNCsLjp1ESc2laoObo9QZDhxz73hJPaEv7/cBha4pk0AgP.', 'admin', 'Administrador', 'admin@moto.com'
+WHERE NOT EXISTS (SELECT 1 FROM usuarios WHERE username = 'admin');
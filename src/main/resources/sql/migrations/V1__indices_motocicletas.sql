@@ -0,0 +1,15 @@
+-- Índices de una columna para los filtros y ordenaciones de MotocicletaRepository.
+-- InnoDB añade el id al final de cada índice secundario, así que también sirven para el
+-- ORDER BY columna, id de la paginación por clave (findPage con MotocicletaSort).
+
+-- findByPrecioMaximo, filtros de precio y orden por precio
+CREATE INDEX idx_motocicletas_precio ON motocicletas (precio);
+
+-- findByCilindrajeRango, filtros de cilindraje y orden por cilindraje
+CREATE INDEX idx_motocicletas_cilindraje ON motocicletas (cilindraje);
+
+-- Orden por marca, findDistinctMarcas y las filas de las marcas parecidas de findByMarcaFuzzy
+CREATE INDEX idx_motocicletas_marca ON motocicletas (marca);
+
+-- findUltimoRegistro y findRegistradasDesde, con los que se sincroniza la copia local
+CREATE INDEX idx_motocicletas_fecha_registro ON motocicletas (fecha_registro);
@@ -0,0 +1,12 @@
+-- Índices compuestos para los filtros combinados de findByCriteria y para findEstadisticas.
+-- Las estadísticas solo leen marca, color, precio y cilindraje, así que con estos índices
+-- se calculan recorriendo el índice, ya ordenado por grupo, sin leer las filas.
+
+-- Estadísticas por marca y filtros de marca con precio o cilindraje
+CREATE INDEX idx_motocicletas_marca_precio_cc ON motocicletas (marca, precio, cilindraje);
+
+-- Estadísticas por color, findByColor y filtros de color con precio o cilindraje
+CREATE INDEX idx_motocicletas_color_precio_cc ON motocicletas (color, precio, cilindraje);
+
+-- Rango de cilindraje con rango de precio y estadísticas por tramos de cilindraje
+CREATE INDEX idx_motocicletas_cc_precio ON motocicletas (cilindraje, precio);
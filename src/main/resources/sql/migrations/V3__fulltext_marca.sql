@@ -0,0 +1,4 @@
+-- Índice FULLTEXT para findByMarca con search.marca.fulltext=true: busca palabras y prefijos
+-- de palabra en el índice en lugar de recorrer toda la tabla con LIKE '%marca%'.
+-- InnoDB solo indexa palabras de innodb_ft_min_token_size (3) letras o más.
+CREATE FULLTEXT INDEX ft_motocicletas_marca ON motocicletas (marca);
@@ -0,0 +1,26 @@
+-- Registro de cambios de motocicletas: cada alta, modificación o baja añade una fila para que
+-- los demás clientes (ChangeFeed) traigan solo lo que cambió desde su último número de secuencia.
+-- Las bases de datos creadas con una versión anterior de create_database.sql ya tienen la tabla,
+-- así que se crea solo si no existe y los disparadores se reemplazan.
+
+CREATE TABLE IF NOT EXISTS `motocicletas_cambios` (
+  `seq` bigint(20) NOT NULL AUTO_INCREMENT,
+  `moto_id` int(11) NOT NULL,
+  `operacion` char(1) NOT NULL,
+  `fecha` timestamp NOT NULL DEFAULT current_timestamp(),
+  PRIMARY KEY (`seq`),
+  KEY `fecha` (`fecha`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1 COLLATE=latin1_swedish_ci;
+
+-- Disparadores que llenan el registro de cambios (I = alta, U = modificación, D = baja)
+DROP TRIGGER IF EXISTS `motocicletas_ai`;
+CREATE TRIGGER `motocicletas_ai` AFTER INSERT ON `motocicletas` FOR EACH ROW
+  INSERT INTO `motocicletas_cambios` (`moto_id`, `operacion`) VALUES (NEW.`id`, 'I');
+
+DROP TRIGGER IF EXISTS `motocicletas_au`;
+CREATE TRIGGER `motocicletas_au` AFTER UPDATE ON `motocicletas` FOR EACH ROW
+  INSERT INTO `motocicletas_cambios` (`moto_id`, `operacion`) VALUES (NEW.`id`, 'U');
+
+DROP TRIGGER IF EXISTS `motocicletas_ad`;
+CREATE TRIGGER `motocicletas_ad` AFTER DELETE ON `motocicletas` FOR EACH ROW
+  INSERT INTO `motocicletas_cambios` (`moto_id`, `operacion`) VALUES (OLD.`id`, 'D');
@@ -0,0 +1,11 @@
+-- Vuelve a crear los índices de una columna de V1 en las bases de datos que aplicaron la antigua
+-- V4, retirada porque los quitaba. No sobran aunque V2 empiece por las mismas columnas: InnoDB
+-- guarda idx_motocicletas_marca como (marca, id) e idx_motocicletas_cilindraje como
+-- (cilindraje, id), que es el orden de la paginación por clave (findPage ordenado por marca o
+-- cilindraje). Con los compuestos de V2 esa consulta tendría que leer y ordenar todo el rango
+-- restante para devolver una página.
+-- En las bases de datos que los conservan, el error de índice ya existente se ignora.
+
+CREATE INDEX idx_motocicletas_cilindraje ON motocicletas (cilindraje);
+
+CREATE INDEX idx_motocicletas_marca ON motocicletas (marca);
@@ -0,0 +1,4 @@
+-- Índices para el ORDER BY columna, id de la paginación por clave (findPage con MotocicletaSort).
+-- En MySQL no hace falta ningún cambio: InnoDB añade el id al final de cada índice secundario,
+-- así que idx_motocicletas_precio, idx_motocicletas_marca e idx_motocicletas_cilindraje ya
+-- devuelven las filas en ese orden. La variante de H2 añade el id de forma explícita.
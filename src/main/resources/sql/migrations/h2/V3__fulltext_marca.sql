@@ -0,0 +1,2 @@
+-- H2 no admite índices FULLTEXT con la sintaxis de MySQL. Con H2, findByMarca busca con LIKE
+-- (search.marca.fulltext debe quedar desactivado), así que esta migración no hace nada.
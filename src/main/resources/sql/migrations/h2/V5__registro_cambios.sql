@@ -0,0 +1,22 @@
+-- Registro de cambios de motocicletas para H2: la misma tabla que en MySQL, con los
+-- disparadores en Java (com.gestionmotos.util.H2CambiosTrigger).
+
+CREATE TABLE IF NOT EXISTS motocicletas_cambios (
+  seq bigint NOT NULL AUTO_INCREMENT,
+  moto_id int NOT NULL,
+  operacion char(1) NOT NULL,
+  fecha timestamp NOT NULL DEFAULT current_timestamp(),
+  PRIMARY KEY (seq)
+);
+
+CREATE INDEX IF NOT EXISTS idx_motocicletas_cambios_fecha ON motocicletas_cambios (fecha);
+
+-- Disparadores que llenan el registro de cambios (I = alta, U = modificación, D = baja)
+CREATE TRIGGER IF NOT EXISTS motocicletas_ai AFTER INSERT ON motocicletas FOR EACH ROW
+  CALL 'com.gestionmotos.util.H2CambiosTrigger';
+
+CREATE TRIGGER IF NOT EXISTS motocicletas_au AFTER UPDATE ON motocicletas FOR EACH ROW
+  CALL 'com.gestionmotos.util.H2CambiosTrigger';
+
+CREATE TRIGGER IF NOT EXISTS motocicletas_ad AFTER DELETE ON motocicletas FOR EACH ROW
+  CALL 'com.gestionmotos.util.H2CambiosTrigger';
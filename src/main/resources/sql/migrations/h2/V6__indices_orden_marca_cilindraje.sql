@@ -0,0 +1,6 @@
+-- Variante de H2: los índices se crean solo si no existen, porque H2 no informa el error
+-- de índice ya existente con el código de MySQL.
+
+CREATE INDEX IF NOT EXISTS idx_motocicletas_cilindraje ON motocicletas (cilindraje);
+
+CREATE INDEX IF NOT EXISTS idx_motocicletas_marca ON motocicletas (marca);
@@ -0,0 +1,19 @@
+-- Variante de H2: su optimizador no sabe que un índice secundario está ordenado también por id,
+-- así que con índices de una columna la paginación por clave lee y ordena todo el rango
+-- restante para devolver una página. Se vuelven a crear con el id al final, con el mismo
+-- nombre, para que la página se lea en el orden del índice y se detenga en el LIMIT.
+
+DROP INDEX IF EXISTS idx_motocicletas_precio;
+
+CREATE INDEX idx_motocicletas_precio ON motocicletas (precio, id);
+
+DROP INDEX IF EXISTS idx_motocicletas_cilindraje;
+
+CREATE INDEX idx_motocicletas_cilindraje ON motocicletas (cilindraje, id);
+
+DROP INDEX IF EXISTS idx_motocicletas_marca;
+
+CREATE INDEX idx_motocicletas_marca ON motocicletas (marca, id);
+
+-- H2 tampoco recorre un índice hacia atrás para un ORDER BY descendente (MotocicletaSort.CILINDRAJE_DESC)
+CREATE INDEX idx_motocicletas_cilindraje_desc ON motocicletas (cilindraje DESC, id DESC);